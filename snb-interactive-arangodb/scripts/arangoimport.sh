@@ -4,7 +4,7 @@ arangosh --server.password root --javascript.execute-string "db._createDatabase(
 
 for file in $(ls comment_[0-9]*_0.csv); do arangoimport --server.password root --server.database ldbc_snb_sf0001 --file ${file} --type csv  --separator "|" --collection Message --translate "id=_key"; done
 for file in $(ls forum_[0-9]*_0.csv); do arangoimport --server.password root --server.database ldbc_snb_sf0001 --file ${file} --type csv  --separator "|" --collection Forum --translate "id=_key"; done
-for file in $(ls organization_[0-9]*_0.csv); do arangoimport --server.password root --server.database ldbc_snb_sf0001 --file ${file} --type csv  --separator "|" --collection Organization --translate "id=_key"; done
+for file in $(ls organisation_[0-9]*_0.csv); do arangoimport --server.password root --server.database ldbc_snb_sf0001 --file ${file} --type csv  --separator "|" --collection Organisation --translate "id=_key"; done
 for file in $(ls person_[0-9]*_0.csv); do arangoimport --server.password root --server.database ldbc_snb_sf0001 --file ${file} --type csv  --separator "|" --collection Person --translate "id=_key"; done
 for file in $(ls place_[0-9]*_0.csv); do arangoimport --server.password root --server.database ldbc_snb_sf0001 --file ${file} --type csv  --separator "|" --collection Place --translate "id=_key"; done
 for file in $(ls post_[0-9]*_0.csv); do arangoimport --server.password root --server.database ldbc_snb_sf0001 --file ${file} --type csv  --separator "|" --collection Message --translate "id=_key"; done
@@ -32,5 +32,5 @@ for file in $(ls place_isPartOf_place_[0-9]*_0.csv); do arangoimport --server.pa
 for file in $(ls post_hasCreator_person_[0-9]*_0.csv); do arangoimport --server.password root --server.database ldbc_snb_sf0001 --file ${file} --from-collection-prefix Message --collection hasCreator --to-collection-prefix Person --type csv --separator "|" --translate "src.id=_from" --translate "dst.id=_to"; done
 for file in $(ls post_hasTag_tag_[0-9]*_0.csv); do arangoimport --server.password root --server.database ldbc_snb_sf0001 --file ${file} --from-collection-prefix Message --collection hasTag --to-collection-prefix Tag --type csv --separator "|" --translate "src.id=_from" --translate "dst.id=_to"; done
 for file in $(ls post_isLocatedIn_place_[0-9]*_0.csv); do arangoimport --server.password root --server.database ldbc_snb_sf0001 --file ${file} --from-collection-prefix Message --collection isLocatedIn --to-collection-prefix Place --type csv --separator "|" --translate "src.id=_from" --translate "dst.id=_to"; done
-for file in $(ls tagclass_isSubclassOf_tagclass_[0-9]*_0.csv); do arangoimport --server.password root --server.database ldbc_snb_sf0001 --file ${file} --from-collection-prefix Tagclass --collection isSubclassOf --to-collection-prefix Tagclass --type csv --separator "|" --translate "src.id=_from" --translate "dst.id=_to"; done
-for file in $(ls tag_hasType_tagclass_[0-9]*_0.csv); do arangoimport --server.password root --server.database ldbc_snb_sf0001 --file ${file} --from-collection-prefix Tag --collection hasType --to-collection-prefix Tagclass --type csv --separator "|" --translate "src.id=_from" --translate "dst.id=_to"; done
+for file in $(ls tagclass_isSubclassOf_tagclass_[0-9]*_0.csv); do arangoimport --server.password root --server.database ldbc_snb_sf0001 --file ${file} --from-collection-prefix TagClass --collection isSubclassOf --to-collection-prefix TagClass --type csv --separator "|" --translate "src.id=_from" --translate "dst.id=_to"; done
+for file in $(ls tag_hasType_tagclass_[0-9]*_0.csv); do arangoimport --server.password root --server.database ldbc_snb_sf0001 --file ${file} --from-collection-prefix Tag --collection hasType --to-collection-prefix TagClass --type csv --separator "|" --translate "src.id=_from" --translate "dst.id=_to"; done
@@ -16,10 +16,7 @@
  */
 package net.ellitron.ldbcsnbimpls.interactive.arangodb;
 
-import com.arangodb.ArangoDatabase;
-import com.arangodb.ArangoCursor;
 import com.arangodb.entity.BaseDocument;
-import com.arangodb.model.AqlQueryOptions;
 import com.arangodb.util.MapBuilder;
 
 import com.ldbc.driver.control.LoggingService;
@@ -88,6 +85,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
@@ -103,6 +101,11 @@ import java.util.TimeZone;
  * host - IP address of an ArangoDB server (default: 127.0.0.1).
  * port - Port of the ArangoDB server (default: 8529).
  * graphName - Name of the graph to use (default: default).
+ * maxConnections - Size of the driver's connection pool (default: 8).
+ * protocol - vst or http (default: vst).
+ * serialization - vpack or json, where json requires http (default: vpack).
+ * async - Use the asynchronous driver, which requires vst, to multiplex
+ * requests over the connection pool (default: false).
  * 
  * References:
  * [1]: Prat, Arnau (UPC) and Boncz, Peter (VUA) and Larriba, Josep Lluís (UPC)
@@ -223,13 +226,90 @@ public class ArangoDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      ArangoDatabase db = ((ArangoDbConnectionState) dbConnectionState).getDatabase();
+      ArangoDbConnectionState state = (ArangoDbConnectionState) dbConnectionState;
 
-      String statement = "";
+      /*
+       * Traverse breadth first with global vertex uniqueness, so that each
+       * Person is reached once at its shortest distance from the start
+       * Person, and the start Person itself is never returned.
+       */
+      String statement =
+          "WITH Person, Place, Organisation"
+          + " FOR person IN Person"
+          + " FILTER person._key == @personId"
+          + "   FOR friend, knowsEdge, path IN 1..3 ANY person knows"
+          + "     OPTIONS {bfs: true, uniqueVertices: \"global\"}"
+          + "     FILTER friend.firstName == @firstName"
+          + "     LET distance = LENGTH(path.edges)"
+          + "     SORT distance ASC, friend.lastName ASC, TO_NUMBER(friend._key) ASC"
+          + "     LIMIT @limit"
+          + "     LET cityName = FIRST("
+          + "       FOR city IN 1..1 OUTBOUND friend isLocatedIn RETURN city.name)"
+          + "     LET universities = ("
+          + "       FOR uni, studyAtEdge IN 1..1 OUTBOUND friend studyAt"
+          + "         FOR uniCity IN 1..1 OUTBOUND uni isLocatedIn"
+          + "         RETURN [uni.name, studyAtEdge.classYear, uniCity.name])"
+          + "     LET companies = ("
+          + "       FOR company, workAtEdge IN 1..1 OUTBOUND friend workAt"
+          + "         FOR companyCountry IN 1..1 OUTBOUND company isLocatedIn"
+          + "         RETURN [company.name, workAtEdge.workFrom, companyCountry.name])"
+          + " RETURN {"
+          + "   friendId: friend._key,"
+          + "   lastName: friend.lastName,"
+          + "   distance: distance,"
+          + "   birthday: friend.birthday,"
+          + "   creationDate: friend.creationDate,"
+          + "   gender: friend.gender,"
+          + "   browserUsed: friend.browserUsed,"
+          + "   locationIP: friend.locationIP,"
+          + "   emails: LENGTH(friend.email) > 0 ? SPLIT(friend.email, \";\") : [],"
+          + "   languages: LENGTH(friend.speaks) > 0 ? SPLIT(friend.speaks, \";\") : [],"
+          + "   cityName: cityName,"
+          + "   universities: universities,"
+          + "   companies: companies"
+          + " }";
+
+      Iterator<BaseDocument> cursor = state.query(
+          statement,
+          new MapBuilder()
+              .put("personId", String.valueOf(operation.personId()))
+              .put("firstName", operation.firstName())
+              .put("limit", new Integer(operation.limit()))
+              .get());
 
       // Execute the query and get the results.
       List<LdbcQuery1Result> resultList = new ArrayList<>();
 
+      while (cursor.hasNext()) {
+        BaseDocument doc = cursor.next();
+
+        @SuppressWarnings("unchecked")
+        List<String> emails = (List<String>)doc.getAttribute("emails");
+        @SuppressWarnings("unchecked")
+        List<String> languages = (List<String>)doc.getAttribute("languages");
+        @SuppressWarnings("unchecked")
+        List<List<Object>> universities =
+            (List<List<Object>>)doc.getAttribute("universities");
+        @SuppressWarnings("unchecked")
+        List<List<Object>> companies =
+            (List<List<Object>>)doc.getAttribute("companies");
+
+        resultList.add(new LdbcQuery1Result(
+            Long.valueOf((String)doc.getAttribute("friendId")),
+            (String)doc.getAttribute("lastName"),
+            ((Number)doc.getAttribute("distance")).intValue(),
+            (Long)doc.getAttribute("birthday"),
+            (Long)doc.getAttribute("creationDate"),
+            (String)doc.getAttribute("gender"),
+            (String)doc.getAttribute("browserUsed"),
+            (String)doc.getAttribute("locationIP"),
+            emails,
+            languages,
+            (String)doc.getAttribute("cityName"),
+            universities,
+            companies));
+      }
+
       resultReporter.report(0, resultList, operation);
     }
   }
@@ -252,13 +332,49 @@ public class ArangoDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      ArangoDatabase db = ((ArangoDbConnectionState) dbConnectionState).getDatabase();
+      ArangoDbConnectionState state = (ArangoDbConnectionState) dbConnectionState;
 
-      String statement = "";
+      String statement =
+          "WITH Person, Message"
+          + " FOR person IN Person"
+          + " FILTER person._key == @personId"
+          + "   FOR friend IN 1..1 ANY person knows"
+          + "     FOR message IN 1..1 INBOUND friend hasCreator"
+          + "       FILTER message.creationDate <= @maxDate"
+          + "       SORT message.creationDate DESC, TO_NUMBER(message._key) ASC"
+          + "       LIMIT @limit"
+          + " RETURN {"
+          + "   personId: friend._key,"
+          + "   personFirstName: friend.firstName,"
+          + "   personLastName: friend.lastName,"
+          + "   messageId: message._key,"
+          + "   messageContent: LENGTH(message.content) > 0 ? message.content : message.imageFile,"
+          + "   messageCreationDate: message.creationDate"
+          + " }";
+
+      Iterator<BaseDocument> cursor = state.query(
+          statement,
+          new MapBuilder()
+              .put("personId", String.valueOf(operation.personId()))
+              .put("maxDate", new Long(operation.maxDate().getTime()))
+              .put("limit", new Integer(operation.limit()))
+              .get());
 
       // Execute the query and get the results.
       List<LdbcQuery2Result> resultList = new ArrayList<>();
 
+      while (cursor.hasNext()) {
+        BaseDocument doc = cursor.next();
+
+        resultList.add(new LdbcQuery2Result(
+            Long.valueOf((String)doc.getAttribute("personId")),
+            (String)doc.getAttribute("personFirstName"),
+            (String)doc.getAttribute("personLastName"),
+            Long.valueOf((String)doc.getAttribute("messageId")),
+            (String)doc.getAttribute("messageContent"),
+            (Long)doc.getAttribute("messageCreationDate")));
+      }
+
       resultReporter.report(0, resultList, operation);
     }
   }
@@ -284,17 +400,78 @@ public class ArangoDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      ArangoDatabase db = ((ArangoDbConnectionState) dbConnectionState).getDatabase();
+      ArangoDbConnectionState state = (ArangoDbConnectionState) dbConnectionState;
 
       long periodStart = operation.startDate().getTime();
       long periodEnd = periodStart
           + ((long) operation.durationDays()) * 24l * 60l * 60l * 1000l;
 
-      String statement = "";
+      String statement =
+          "WITH Person, Place, Message"
+          + " LET countryX = FIRST("
+          + "   FOR c IN Place FILTER c.name == @countryXName AND c.type == \"country\""
+          + "   RETURN c._id)"
+          + " LET countryY = FIRST("
+          + "   FOR c IN Place FILTER c.name == @countryYName AND c.type == \"country\""
+          + "   RETURN c._id)"
+          + " FOR person IN Person"
+          + " FILTER person._key == @personId"
+          + "   FOR friend IN 1..2 ANY person knows"
+          + "     OPTIONS {bfs: true, uniqueVertices: \"global\"}"
+          + "     LET friendCountry = FIRST("
+          + "       FOR city IN 1..1 OUTBOUND friend isLocatedIn"
+          + "         FOR country IN 1..1 OUTBOUND city isPartOf"
+          + "         RETURN country._id)"
+          + "     FILTER friendCountry != countryX AND friendCountry != countryY"
+          + "     LET messageCountries = ("
+          + "       FOR message IN 1..1 INBOUND friend hasCreator"
+          + "         FILTER message.creationDate >= @periodStart"
+          + "           AND message.creationDate < @periodEnd"
+          + "         FOR country IN 1..1 OUTBOUND message isLocatedIn"
+          + "           FILTER country._id == countryX OR country._id == countryY"
+          + "           RETURN country._id)"
+          + "     LET xCount = LENGTH(messageCountries[* FILTER CURRENT == countryX])"
+          + "     LET yCount = LENGTH(messageCountries[* FILTER CURRENT == countryY])"
+          + "     FILTER xCount > 0 AND yCount > 0"
+          + "     SORT xCount + yCount DESC, TO_NUMBER(friend._key) ASC"
+          + "     LIMIT @limit"
+          + " RETURN {"
+          + "   friendId: friend._key,"
+          + "   friendFirstName: friend.firstName,"
+          + "   friendLastName: friend.lastName,"
+          + "   xCount: xCount,"
+          + "   yCount: yCount"
+          + " }";
+
+      Iterator<BaseDocument> cursor = state.query(
+          statement,
+          new MapBuilder()
+              .put("personId", String.valueOf(operation.personId()))
+              .put("countryXName", operation.countryXName())
+              .put("countryYName", operation.countryYName())
+              .put("periodStart", new Long(periodStart))
+              .put("periodEnd", new Long(periodEnd))
+              .put("limit", new Integer(operation.limit()))
+              .get());
 
       // Execute the query and get the results.
       List<LdbcQuery3Result> resultList = new ArrayList<>();
 
+      while (cursor.hasNext()) {
+        BaseDocument doc = cursor.next();
+
+        int xCount = ((Number)doc.getAttribute("xCount")).intValue();
+        int yCount = ((Number)doc.getAttribute("yCount")).intValue();
+
+        resultList.add(new LdbcQuery3Result(
+            Long.valueOf((String)doc.getAttribute("friendId")),
+            (String)doc.getAttribute("friendFirstName"),
+            (String)doc.getAttribute("friendLastName"),
+            xCount,
+            yCount,
+            xCount + yCount));
+      }
+
       resultReporter.report(0, resultList, operation);
     }
   }
@@ -319,17 +496,55 @@ public class ArangoDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      ArangoDatabase db = ((ArangoDbConnectionState) dbConnectionState).getDatabase();
+      ArangoDbConnectionState state = (ArangoDbConnectionState) dbConnectionState;
 
       long periodStart = operation.startDate().getTime();
       long periodEnd = periodStart
           + ((long) operation.durationDays()) * 24l * 60l * 60l * 1000l;
 
-      String statement = "";
+      /*
+       * Count, for each Tag, friends' Posts in the period and friends' Posts
+       * before it in one pass, keeping Tags with no Posts before the period.
+       */
+      String statement =
+          "WITH Person, Message, Tag"
+          + " FOR person IN Person"
+          + " FILTER person._key == @personId"
+          + "   FOR friend IN 1..1 ANY person knows"
+          + "     FOR post IN 1..1 INBOUND friend hasCreator"
+          + "       FILTER post.type == \"Post\" AND post.creationDate < @periodEnd"
+          + "       FOR tag IN 1..1 OUTBOUND post hasTag"
+          + "         COLLECT tagName = tag.name AGGREGATE"
+          + "           postCount = SUM(post.creationDate >= @periodStart ? 1 : 0),"
+          + "           oldPostCount = SUM(post.creationDate < @periodStart ? 1 : 0)"
+          + "         FILTER postCount > 0 AND oldPostCount == 0"
+          + "         SORT postCount DESC, tagName ASC"
+          + "         LIMIT @limit"
+          + " RETURN {"
+          + "   tagName: tagName,"
+          + "   postCount: postCount"
+          + " }";
+
+      Iterator<BaseDocument> cursor = state.query(
+          statement,
+          new MapBuilder()
+              .put("personId", String.valueOf(operation.personId()))
+              .put("periodStart", new Long(periodStart))
+              .put("periodEnd", new Long(periodEnd))
+              .put("limit", new Integer(operation.limit()))
+              .get());
 
       // Execute the query and get the results.
       List<LdbcQuery4Result> resultList = new ArrayList<>();
 
+      while (cursor.hasNext()) {
+        BaseDocument doc = cursor.next();
+
+        resultList.add(new LdbcQuery4Result(
+            (String)doc.getAttribute("tagName"),
+            ((Number)doc.getAttribute("postCount")).intValue()));
+      }
+
       resultReporter.report(0, resultList, operation);
     }
   }
@@ -354,13 +569,52 @@ public class ArangoDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      ArangoDatabase db = ((ArangoDbConnectionState) dbConnectionState).getDatabase();
+      ArangoDbConnectionState state = (ArangoDbConnectionState) dbConnectionState;
 
-      String statement = "";
+      /*
+       * For each friend, collect the Forums their Posts are in once, then
+       * count them against each Forum the friend joined after the date.
+       */
+      String statement =
+          "WITH Person, Forum, Message"
+          + " FOR person IN Person"
+          + " FILTER person._key == @personId"
+          + "   FOR friend IN 1..2 ANY person knows"
+          + "     OPTIONS {bfs: true, uniqueVertices: \"global\"}"
+          + "     LET postForums = ("
+          + "       FOR post IN 1..1 INBOUND friend hasCreator"
+          + "         FOR postForum IN 1..1 INBOUND post containerOf"
+          + "         RETURN postForum._id)"
+          + "     FOR forum, membership IN 1..1 INBOUND friend hasMember"
+          + "       FILTER membership.joinDate > @minDate"
+          + "       COLLECT forumId = forum._key, forumTitle = forum.title AGGREGATE"
+          + "         postCount = SUM(LENGTH(postForums[* FILTER CURRENT == forum._id]))"
+          + "       SORT postCount DESC, TO_NUMBER(forumId) ASC"
+          + "       LIMIT @limit"
+          + " RETURN {"
+          + "   forumTitle: forumTitle,"
+          + "   postCount: postCount"
+          + " }";
+
+      Iterator<BaseDocument> cursor = state.query(
+          statement,
+          new MapBuilder()
+              .put("personId", String.valueOf(operation.personId()))
+              .put("minDate", new Long(operation.minDate().getTime()))
+              .put("limit", new Integer(operation.limit()))
+              .get());
 
       // Execute the query and get the results.
       List<LdbcQuery5Result> resultList = new ArrayList<>();
 
+      while (cursor.hasNext()) {
+        BaseDocument doc = cursor.next();
+
+        resultList.add(new LdbcQuery5Result(
+            (String)doc.getAttribute("forumTitle"),
+            ((Number)doc.getAttribute("postCount")).intValue()));
+      }
+
       resultReporter.report(0, resultList, operation);
     }
   }
@@ -384,13 +638,47 @@ public class ArangoDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      ArangoDatabase db = ((ArangoDbConnectionState) dbConnectionState).getDatabase();
+      ArangoDbConnectionState state = (ArangoDbConnectionState) dbConnectionState;
 
-      String statement = "";
+      String statement =
+          "WITH Person, Message, Tag"
+          + " FOR person IN Person"
+          + " FILTER person._key == @personId"
+          + "   FOR friend IN 1..2 ANY person knows"
+          + "     OPTIONS {bfs: true, uniqueVertices: \"global\"}"
+          + "     FOR post IN 1..1 INBOUND friend hasCreator"
+          + "       FILTER post.type == \"Post\""
+          + "       LET tagNames = (FOR tag IN 1..1 OUTBOUND post hasTag RETURN tag.name)"
+          + "       FILTER @tagName IN tagNames"
+          + "       FOR otherTagName IN tagNames"
+          + "         FILTER otherTagName != @tagName"
+          + "         COLLECT tagName = otherTagName WITH COUNT INTO postCount"
+          + "         SORT postCount DESC, tagName ASC"
+          + "         LIMIT @limit"
+          + " RETURN {"
+          + "   tagName: tagName,"
+          + "   postCount: postCount"
+          + " }";
+
+      Iterator<BaseDocument> cursor = state.query(
+          statement,
+          new MapBuilder()
+              .put("personId", String.valueOf(operation.personId()))
+              .put("tagName", operation.tagName())
+              .put("limit", new Integer(operation.limit()))
+              .get());
 
       // Execute the query and get the results.
       List<LdbcQuery6Result> resultList = new ArrayList<>();
 
+      while (cursor.hasNext()) {
+        BaseDocument doc = cursor.next();
+
+        resultList.add(new LdbcQuery6Result(
+            (String)doc.getAttribute("tagName"),
+            ((Number)doc.getAttribute("postCount")).intValue()));
+      }
+
       resultReporter.report(0, resultList, operation);
     }
   }
@@ -417,13 +705,63 @@ public class ArangoDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      ArangoDatabase db = ((ArangoDbConnectionState) dbConnectionState).getDatabase();
+      ArangoDbConnectionState state = (ArangoDbConnectionState) dbConnectionState;
 
-      String statement = "";
+      String statement =
+          "WITH Person, Message"
+          + " FOR person IN Person"
+          + " FILTER person._key == @personId"
+          + "   LET friends = (FOR friend IN 1..1 ANY person knows RETURN friend._key)"
+          + "   FOR message IN 1..1 INBOUND person hasCreator"
+          + "     FOR liker, like IN 1..1 INBOUND message likes"
+          + "       COLLECT likerId = liker._key,"
+          + "           likerFirstName = liker.firstName,"
+          + "           likerLastName = liker.lastName"
+          + "           INTO likesOfLiker = {like: like, message: message}"
+          + "       LET latest = FIRST("
+          + "         FOR l IN likesOfLiker"
+          + "           SORT l.like.creationDate DESC, TO_NUMBER(l.message._key) ASC"
+          + "           LIMIT 1"
+          + "           RETURN l)"
+          + "       SORT latest.like.creationDate DESC, TO_NUMBER(likerId) ASC"
+          + "       LIMIT @limit"
+          + " RETURN {"
+          + "   personId: likerId,"
+          + "   personFirstName: likerFirstName,"
+          + "   personLastName: likerLastName,"
+          + "   likeCreationDate: latest.like.creationDate,"
+          + "   messageId: latest.message._key,"
+          + "   messageContent: LENGTH(latest.message.content) > 0 ?"
+          + "       latest.message.content : latest.message.imageFile,"
+          + "   minutesLatency: FLOOR("
+          + "       (latest.like.creationDate - latest.message.creationDate) / 60000),"
+          + "   isNew: likerId NOT IN friends"
+          + " }";
+
+      Iterator<BaseDocument> cursor = state.query(
+          statement,
+          new MapBuilder()
+              .put("personId", String.valueOf(operation.personId()))
+              .put("limit", new Integer(operation.limit()))
+              .get());
 
       // Execute the query and get the results.
       List<LdbcQuery7Result> resultList = new ArrayList<>();
 
+      while (cursor.hasNext()) {
+        BaseDocument doc = cursor.next();
+
+        resultList.add(new LdbcQuery7Result(
+            Long.valueOf((String)doc.getAttribute("personId")),
+            (String)doc.getAttribute("personFirstName"),
+            (String)doc.getAttribute("personLastName"),
+            (Long)doc.getAttribute("likeCreationDate"),
+            Long.valueOf((String)doc.getAttribute("messageId")),
+            (String)doc.getAttribute("messageContent"),
+            ((Number)doc.getAttribute("minutesLatency")).intValue(),
+            (Boolean)doc.getAttribute("isNew")));
+      }
+
       resultReporter.report(0, resultList, operation);
     }
   }
@@ -447,13 +785,48 @@ public class ArangoDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      ArangoDatabase db = ((ArangoDbConnectionState) dbConnectionState).getDatabase();
+      ArangoDbConnectionState state = (ArangoDbConnectionState) dbConnectionState;
 
-      String statement = "";
+      String statement =
+          "WITH Person, Message"
+          + " FOR person IN Person"
+          + " FILTER person._key == @personId"
+          + "   FOR message IN 1..1 INBOUND person hasCreator"
+          + "     FOR comment IN 1..1 INBOUND message replyOf"
+          + "       SORT comment.creationDate DESC, TO_NUMBER(comment._key) ASC"
+          + "       LIMIT @limit"
+          + "       FOR commenter IN 1..1 OUTBOUND comment hasCreator"
+          + " RETURN {"
+          + "   personId: commenter._key,"
+          + "   personFirstName: commenter.firstName,"
+          + "   personLastName: commenter.lastName,"
+          + "   commentCreationDate: comment.creationDate,"
+          + "   commentId: comment._key,"
+          + "   commentContent: comment.content"
+          + " }";
+
+      Iterator<BaseDocument> cursor = state.query(
+          statement,
+          new MapBuilder()
+              .put("personId", String.valueOf(operation.personId()))
+              .put("limit", new Integer(operation.limit()))
+              .get());
 
       // Execute the query and get the results.
       List<LdbcQuery8Result> resultList = new ArrayList<>();
 
+      while (cursor.hasNext()) {
+        BaseDocument doc = cursor.next();
+
+        resultList.add(new LdbcQuery8Result(
+            Long.valueOf((String)doc.getAttribute("personId")),
+            (String)doc.getAttribute("personFirstName"),
+            (String)doc.getAttribute("personLastName"),
+            (Long)doc.getAttribute("commentCreationDate"),
+            Long.valueOf((String)doc.getAttribute("commentId")),
+            (String)doc.getAttribute("commentContent")));
+      }
+
       resultReporter.report(0, resultList, operation);
     }
   }
@@ -477,13 +850,50 @@ public class ArangoDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      ArangoDatabase db = ((ArangoDbConnectionState) dbConnectionState).getDatabase();
+      ArangoDbConnectionState state = (ArangoDbConnectionState) dbConnectionState;
 
-      String statement = "";
+      String statement =
+          "WITH Person, Message"
+          + " FOR person IN Person"
+          + " FILTER person._key == @personId"
+          + "   FOR friend IN 1..2 ANY person knows"
+          + "     OPTIONS {bfs: true, uniqueVertices: \"global\"}"
+          + "     FOR message IN 1..1 INBOUND friend hasCreator"
+          + "       FILTER message.creationDate < @maxDate"
+          + "       SORT message.creationDate DESC, TO_NUMBER(message._key) ASC"
+          + "       LIMIT @limit"
+          + " RETURN {"
+          + "   personId: friend._key,"
+          + "   personFirstName: friend.firstName,"
+          + "   personLastName: friend.lastName,"
+          + "   messageId: message._key,"
+          + "   messageContent: LENGTH(message.content) > 0 ? message.content : message.imageFile,"
+          + "   messageCreationDate: message.creationDate"
+          + " }";
+
+      Iterator<BaseDocument> cursor = state.query(
+          statement,
+          new MapBuilder()
+              .put("personId", String.valueOf(operation.personId()))
+              .put("maxDate", new Long(operation.maxDate().getTime()))
+              .put("limit", new Integer(operation.limit()))
+              .get());
 
       // Execute the query and get the results.
       List<LdbcQuery9Result> resultList = new ArrayList<>();
 
+      while (cursor.hasNext()) {
+        BaseDocument doc = cursor.next();
+
+        resultList.add(new LdbcQuery9Result(
+            Long.valueOf((String)doc.getAttribute("personId")),
+            (String)doc.getAttribute("personFirstName"),
+            (String)doc.getAttribute("personLastName"),
+            Long.valueOf((String)doc.getAttribute("messageId")),
+            (String)doc.getAttribute("messageContent"),
+            (Long)doc.getAttribute("messageCreationDate")));
+      }
+
       resultReporter.report(0, resultList, operation);
     }
   }
@@ -516,13 +926,67 @@ public class ArangoDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      ArangoDatabase db = ((ArangoDbConnectionState) dbConnectionState).getDatabase();
+      ArangoDbConnectionState state = (ArangoDbConnectionState) dbConnectionState;
 
-      String statement = "";
+      /*
+       * With global vertex uniqueness, a breadth first traversal at depth 2
+       * only reaches Persons that are neither the start Person nor a friend.
+       */
+      String statement =
+          "WITH Person, Message, Tag, Place"
+          + " FOR person IN Person"
+          + " FILTER person._key == @personId"
+          + "   LET interests = (FOR tag IN 1..1 OUTBOUND person hasInterest RETURN tag._id)"
+          + "   FOR fof IN 2..2 ANY person knows"
+          + "     OPTIONS {bfs: true, uniqueVertices: \"global\"}"
+          + "     FILTER (fof.birthday_month == @month AND fof.birthday_day >= 21)"
+          + "       OR (fof.birthday_month == @nextMonth AND fof.birthday_day < 22)"
+          + "     LET score = SUM("
+          + "       FOR post IN 1..1 INBOUND fof hasCreator"
+          + "         FILTER post.type == \"Post\""
+          + "         LET common = LENGTH("
+          + "           FOR tag IN 1..1 OUTBOUND post hasTag"
+          + "             FILTER tag._id IN interests"
+          + "             LIMIT 1"
+          + "             RETURN 1)"
+          + "         RETURN common > 0 ? 1 : -1)"
+          + "     SORT score DESC, TO_NUMBER(fof._key) ASC"
+          + "     LIMIT @limit"
+          + "     LET cityName = FIRST("
+          + "       FOR city IN 1..1 OUTBOUND fof isLocatedIn RETURN city.name)"
+          + " RETURN {"
+          + "   personId: fof._key,"
+          + "   personFirstName: fof.firstName,"
+          + "   personLastName: fof.lastName,"
+          + "   commonInterestScore: score,"
+          + "   personGender: fof.gender,"
+          + "   personCityName: cityName"
+          + " }";
+
+      Iterator<BaseDocument> cursor = state.query(
+          statement,
+          new MapBuilder()
+              .put("personId", String.valueOf(operation.personId()))
+              .put("month", new Integer(operation.month()))
+              .put("nextMonth", new Integer(operation.month() % 12 + 1))
+              .put("limit", new Integer(operation.limit()))
+              .get());
 
       // Execute the query and get the results.
       List<LdbcQuery10Result> resultList = new ArrayList<>();
 
+      while (cursor.hasNext()) {
+        BaseDocument doc = cursor.next();
+
+        resultList.add(new LdbcQuery10Result(
+            Long.valueOf((String)doc.getAttribute("personId")),
+            (String)doc.getAttribute("personFirstName"),
+            (String)doc.getAttribute("personLastName"),
+            ((Number)doc.getAttribute("commonInterestScore")).intValue(),
+            (String)doc.getAttribute("personGender"),
+            (String)doc.getAttribute("personCityName")));
+      }
+
       resultReporter.report(0, resultList, operation);
     }
   }
@@ -546,13 +1010,54 @@ public class ArangoDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      ArangoDatabase db = ((ArangoDbConnectionState) dbConnectionState).getDatabase();
+      ArangoDbConnectionState state = (ArangoDbConnectionState) dbConnectionState;
 
-      String statement = "";
+      String statement =
+          "WITH Person, Organisation, Place"
+          + " LET country = FIRST("
+          + "   FOR c IN Place FILTER c.name == @countryName AND c.type == \"country\""
+          + "   RETURN c._id)"
+          + " FOR person IN Person"
+          + " FILTER person._key == @personId"
+          + "   FOR friend IN 1..2 ANY person knows"
+          + "     OPTIONS {bfs: true, uniqueVertices: \"global\"}"
+          + "     FOR company, workAtEdge IN 1..1 OUTBOUND friend workAt"
+          + "       FILTER workAtEdge.workFrom < @workFromYear"
+          + "       FOR companyCountry IN 1..1 OUTBOUND company isLocatedIn"
+          + "         FILTER companyCountry._id == country"
+          + "         SORT workAtEdge.workFrom ASC, TO_NUMBER(friend._key) ASC, company.name DESC"
+          + "         LIMIT @limit"
+          + " RETURN {"
+          + "   friendId: friend._key,"
+          + "   friendFirstName: friend.firstName,"
+          + "   friendLastName: friend.lastName,"
+          + "   companyName: company.name,"
+          + "   workFromYear: workAtEdge.workFrom"
+          + " }";
+
+      Iterator<BaseDocument> cursor = state.query(
+          statement,
+          new MapBuilder()
+              .put("personId", String.valueOf(operation.personId()))
+              .put("countryName", operation.countryName())
+              .put("workFromYear", new Integer(operation.workFromYear()))
+              .put("limit", new Integer(operation.limit()))
+              .get());
 
       // Execute the query and get the results.
       List<LdbcQuery11Result> resultList = new ArrayList<>();
 
+      while (cursor.hasNext()) {
+        BaseDocument doc = cursor.next();
+
+        resultList.add(new LdbcQuery11Result(
+            Long.valueOf((String)doc.getAttribute("friendId")),
+            (String)doc.getAttribute("friendFirstName"),
+            (String)doc.getAttribute("friendLastName"),
+            (String)doc.getAttribute("companyName"),
+            ((Number)doc.getAttribute("workFromYear")).intValue()));
+      }
+
       resultReporter.report(0, resultList, operation);
     }
   }
@@ -579,13 +1084,64 @@ public class ArangoDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      ArangoDatabase db = ((ArangoDbConnectionState) dbConnectionState).getDatabase();
+      ArangoDbConnectionState state = (ArangoDbConnectionState) dbConnectionState;
 
-      String statement = "";
+      String statement =
+          "WITH Person, Message, Tag, TagClass"
+          + " LET tagClasses = ("
+          + "   FOR tagClass IN TagClass"
+          + "     FILTER tagClass.name == @tagClassName"
+          + "     FOR subClass IN 0..100 INBOUND tagClass isSubclassOf"
+          + "     RETURN subClass._id)"
+          + " FOR person IN Person"
+          + " FILTER person._key == @personId"
+          + "   FOR friend IN 1..1 ANY person knows"
+          + "     LET replies = ("
+          + "       FOR comment IN 1..1 INBOUND friend hasCreator"
+          + "         FILTER comment.type == \"Comment\""
+          + "         FOR post IN 1..1 OUTBOUND comment replyOf"
+          + "           FILTER post.type == \"Post\""
+          + "           FOR tag IN 1..1 OUTBOUND post hasTag"
+          + "             FOR tagClass IN 1..1 OUTBOUND tag hasType"
+          + "               FILTER tagClass._id IN tagClasses"
+          + "               RETURN {commentId: comment._id, tagName: tag.name})"
+          + "     LET replyCount = LENGTH(UNIQUE(replies[*].commentId))"
+          + "     FILTER replyCount > 0"
+          + "     SORT replyCount DESC, TO_NUMBER(friend._key) ASC"
+          + "     LIMIT @limit"
+          + " RETURN {"
+          + "   friendId: friend._key,"
+          + "   friendFirstName: friend.firstName,"
+          + "   friendLastName: friend.lastName,"
+          + "   tagNames: UNIQUE(replies[*].tagName),"
+          + "   replyCount: replyCount"
+          + " }";
+
+      Iterator<BaseDocument> cursor = state.query(
+          statement,
+          new MapBuilder()
+              .put("personId", String.valueOf(operation.personId()))
+              .put("tagClassName", operation.tagClassName())
+              .put("limit", new Integer(operation.limit()))
+              .get());
 
       // Execute the query and get the results.
       List<LdbcQuery12Result> resultList = new ArrayList<>();
 
+      while (cursor.hasNext()) {
+        BaseDocument doc = cursor.next();
+
+        @SuppressWarnings("unchecked")
+        List<String> tagNames = (List<String>)doc.getAttribute("tagNames");
+
+        resultList.add(new LdbcQuery12Result(
+            Long.valueOf((String)doc.getAttribute("friendId")),
+            (String)doc.getAttribute("friendFirstName"),
+            (String)doc.getAttribute("friendLastName"),
+            tagNames,
+            ((Number)doc.getAttribute("replyCount")).intValue()));
+      }
+
       resultReporter.report(0, resultList, operation);
     }
   }
@@ -607,12 +1163,39 @@ public class ArangoDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      ArangoDatabase db = ((ArangoDbConnectionState) dbConnectionState).getDatabase();
+      ArangoDbConnectionState state = (ArangoDbConnectionState) dbConnectionState;
+
+      /*
+       * SHORTEST_PATH returns no vertices if there is no path, and just the
+       * one vertex if the two Persons are the same.
+       */
+      String statement =
+          "WITH Person"
+          + " LET path = ("
+          + "   FOR person IN ANY SHORTEST_PATH @person1Id TO @person2Id knows"
+          + "   RETURN person._key)"
+          + " RETURN {"
+          + "   pathLength: LENGTH(path) > 0 ? LENGTH(path) - 1 : -1"
+          + " }";
 
-      String statement = "";
+      Iterator<BaseDocument> cursor = state.query(
+          statement,
+          new MapBuilder()
+              .put("person1Id", "Person/" + operation.person1Id())
+              .put("person2Id", "Person/" + operation.person2Id())
+              .get());
 
       // Execute the query and get the results.
-      resultReporter.report(0, null, operation);
+      if (cursor.hasNext()) {
+        BaseDocument doc = cursor.next();
+
+        resultReporter.report(0,
+            new LdbcQuery13Result(
+                ((Number)doc.getAttribute("pathLength")).intValue()),
+            operation);
+      } else {
+        resultReporter.report(0, null, operation);
+      }
     }
   }
 
@@ -634,18 +1217,98 @@ public class ArangoDb extends Db {
     private static final Logger logger =
         LoggerFactory.getLogger(LdbcQuery14Handler.class);
 
+    /*
+     * Upper bound on the depth of the Query 14 traversals. Only there because
+     * AQL requires a constant; the traversals stop at the shortest length,
+     * which is far below this in any knows graph.
+     */
+    private static final int MAX_DEPTH = 1000;
+
     @Override
     public void executeOperation(LdbcQuery14 operation,
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      ArangoDatabase db = ((ArangoDbConnectionState) dbConnectionState).getDatabase();
+      ArangoDbConnectionState state = (ArangoDbConnectionState) dbConnectionState;
+
+      /*
+       * Find all shortest paths in a single statement:
+       *
+       * 1. shortestLength is the length of the shortest path between the two
+       *    Persons, or -1 if there is none.
+       * 2. distances maps every Person within shortestLength - 1 knows hops
+       *    of person2 to its distance from person2, by a breadth first search
+       *    from person2 that visits each Person once.
+       * 3. The traversal from person1 only expands a Person at depth d if its
+       *    distance to person2 is shortestLength - d, i.e. if it is on a
+       *    shortest path to person2. Every expanded path is therefore a
+       *    prefix of a shortest path, and the traversal never fans out into
+       *    paths that can't reach person2 at the shortest distance.
+       *
+       * AQL requires constant traversal depths, so both traversals are given
+       * MAX_DEPTH as their upper bound and the PRUNE conditions stop them at
+       * the shortest length. The weight of each path is computed from the
+       * replies between the two Persons of each of its knows edges.
+       */
+      String statement =
+          "WITH Person, Message"
+          + " LET shortestLength = LENGTH("
+          + "   FOR person IN ANY SHORTEST_PATH @person1Id TO @person2Id knows"
+          + "   RETURN 1) - 1"
+          + " LET distances = MERGE("
+          + "   FOR person, knowsEdge, path IN 0..@maxDepth ANY @person2Id knows"
+          + "     PRUNE LENGTH(path.edges) >= shortestLength - 1"
+          + "     OPTIONS {bfs: true, uniqueVertices: \"global\"}"
+          + "     FILTER LENGTH(path.edges) < shortestLength"
+          + "     RETURN {[person._id]: LENGTH(path.edges)})"
+          + " FOR person, knowsEdge, path IN 0..@maxDepth ANY @person1Id knows"
+          + "   PRUNE person._id == @person2Id"
+          + "     OR (LENGTH(path.edges) > 0"
+          + "       AND distances[person._id] != shortestLength - LENGTH(path.edges))"
+          + "   OPTIONS {uniqueVertices: \"path\"}"
+          + "   FILTER person._id == @person2Id"
+          + "   LET weight = SUM("
+          + "     FOR pathEdge IN path.edges"
+          + "       FOR pair IN [[pathEdge._from, pathEdge._to],"
+          + "           [pathEdge._to, pathEdge._from]]"
+          + "         FOR reply IN 1..1 INBOUND pair[0] hasCreator"
+          + "           FILTER reply.type == \"Comment\""
+          + "           FOR parent IN 1..1 OUTBOUND reply replyOf"
+          + "             FOR parentCreator IN 1..1 OUTBOUND parent hasCreator"
+          + "               FILTER parentCreator._id == pair[1]"
+          + "               RETURN parent.type == \"Post\" ? 1.0 : 0.5)"
+          + "   SORT weight DESC"
+          + " RETURN {"
+          + "   personIds: path.vertices[*]._key,"
+          + "   weight: weight"
+          + " }";
 
-      String statement = "";
+      Iterator<BaseDocument> cursor = state.query(
+          statement,
+          new MapBuilder()
+              .put("person1Id", "Person/" + operation.person1Id())
+              .put("person2Id", "Person/" + operation.person2Id())
+              .put("maxDepth", new Integer(MAX_DEPTH))
+              .get());
 
       // Execute the query and get the results.
       List<LdbcQuery14Result> resultList = new ArrayList<>();
 
+      while (cursor.hasNext()) {
+        BaseDocument doc = cursor.next();
+
+        @SuppressWarnings("unchecked")
+        List<String> personKeys = (List<String>)doc.getAttribute("personIds");
+        List<Long> personIdsInPath = new ArrayList<>(personKeys.size());
+        for (String personKey : personKeys) {
+          personIdsInPath.add(Long.valueOf(personKey));
+        }
+
+        resultList.add(new LdbcQuery14Result(
+            personIdsInPath,
+            ((Number)doc.getAttribute("weight")).doubleValue()));
+      }
+
       resultReporter.report(0, resultList, operation);
     }
   }
@@ -670,7 +1333,7 @@ public class ArangoDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      ArangoDatabase db = ((ArangoDbConnectionState) dbConnectionState).getDatabase(); 
+      ArangoDbConnectionState state = (ArangoDbConnectionState) dbConnectionState;
       String statement = 
 					"WITH Place"
 					+ " FOR p IN Person"
@@ -687,14 +1350,11 @@ public class ArangoDb extends Db {
           + "   creationDate: p.creationDate"
           + "  }";
 
-      ArangoCursor<BaseDocument> cursor = db.query(
+      Iterator<BaseDocument> cursor = state.query(
           statement,
 					new MapBuilder()
               .put("personId", String.valueOf(operation.personId()))
-              .get(),
-					new AqlQueryOptions(),
-					BaseDocument.class
-				);
+              .get());
 
       if (cursor.hasNext()) {
         BaseDocument doc = cursor.next();
@@ -735,7 +1395,7 @@ public class ArangoDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      ArangoDatabase db = ((ArangoDbConnectionState) dbConnectionState).getDatabase();
+      ArangoDbConnectionState state = (ArangoDbConnectionState) dbConnectionState;
       String statement =
 					"WITH Message"
 					+ " FOR person IN Person"
@@ -757,15 +1417,12 @@ public class ArangoDb extends Db {
           + "   originalPostAuthorLastName: originalPostAuthor.lastName"
           + "  }";
 
-      ArangoCursor<BaseDocument> cursor = db.query(
+      Iterator<BaseDocument> cursor = state.query(
           statement,
 					new MapBuilder()
               .put("personId", String.valueOf(operation.personId()))
               .put("limit", new Integer(operation.limit()))
-              .get(),
-					new AqlQueryOptions(),
-					BaseDocument.class
-				);
+              .get());
 
       List<LdbcShortQuery2PersonPostsResult> resultList = new ArrayList<>();
 
@@ -807,7 +1464,7 @@ public class ArangoDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      ArangoDatabase db = ((ArangoDbConnectionState) dbConnectionState).getDatabase();
+      ArangoDbConnectionState state = (ArangoDbConnectionState) dbConnectionState;
       String statement = "WITH Person"
                          + " FOR person IN Person"
                          + " FILTER person._key == @personId"
@@ -820,14 +1477,11 @@ public class ArangoDb extends Db {
                          + "   friendshipCreationDate: knows_edge.creationDate"
                          + " }";
 
-      ArangoCursor<BaseDocument> cursor = db.query(
+      Iterator<BaseDocument> cursor = state.query(
           statement,
 					new MapBuilder()
               .put("personId", String.valueOf(operation.personId()))
-              .get(),
-					new AqlQueryOptions(),
-					BaseDocument.class
-				);
+              .get());
 
       List<LdbcShortQuery3PersonFriendsResult> resultList = new ArrayList<>();
 
@@ -860,7 +1514,7 @@ public class ArangoDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      ArangoDatabase db = ((ArangoDbConnectionState) dbConnectionState).getDatabase();
+      ArangoDbConnectionState state = (ArangoDbConnectionState) dbConnectionState;
       String statement = "WITH Message"
                          + " FOR message IN Message"
                          + " FILTER message._key == @messageId"
@@ -870,14 +1524,11 @@ public class ArangoDb extends Db {
                          + "   messageCreationDate: message.creationDate"
                          + "  }";
       
-      ArangoCursor<BaseDocument> cursor = db.query(
+      Iterator<BaseDocument> cursor = state.query(
           statement,
 					new MapBuilder()
               .put("messageId", String.valueOf(operation.messageId()))
-              .get(),
-					new AqlQueryOptions(),
-					BaseDocument.class
-				);
+              .get());
 
       if (cursor.hasNext()) {
         BaseDocument doc = cursor.next();
@@ -913,7 +1564,7 @@ public class ArangoDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      ArangoDatabase db = ((ArangoDbConnectionState) dbConnectionState).getDatabase();
+      ArangoDbConnectionState state = (ArangoDbConnectionState) dbConnectionState;
       String statement = "WITH Message, Person"
                          + " FOR message IN Message"
                          + " FILTER message._key == @messageId"
@@ -924,14 +1575,11 @@ public class ArangoDb extends Db {
                          + "   lastName: author.lastName"
                          + "  }";
       
-      ArangoCursor<BaseDocument> cursor = db.query(
+      Iterator<BaseDocument> cursor = state.query(
           statement,
 					new MapBuilder()
               .put("messageId", String.valueOf(operation.messageId()))
-              .get(),
-					new AqlQueryOptions(),
-					BaseDocument.class
-				);
+              .get());
 
       if (cursor.hasNext()) {
         BaseDocument doc = cursor.next();
@@ -966,7 +1614,7 @@ public class ArangoDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      ArangoDatabase db = ((ArangoDbConnectionState) dbConnectionState).getDatabase();
+      ArangoDbConnectionState state = (ArangoDbConnectionState) dbConnectionState;
       String statement = "WITH Message, Forum, Person"
                          + "  FOR message IN Message"
                          + "    FILTER message._key == @messageId"
@@ -982,14 +1630,11 @@ public class ArangoDb extends Db {
                          + "    moderatorLastName: moderator.lastName"
                          + "  }";
 
-      ArangoCursor<BaseDocument> cursor = db.query(
+      Iterator<BaseDocument> cursor = state.query(
           statement,
 					new MapBuilder()
               .put("messageId", String.valueOf(operation.messageId()))
-              .get(),
-					new AqlQueryOptions(),
-					BaseDocument.class
-				);
+              .get());
 
       if (cursor.hasNext()) {
         BaseDocument doc = cursor.next();
@@ -1027,7 +1672,7 @@ public class ArangoDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      ArangoDatabase db = ((ArangoDbConnectionState) dbConnectionState).getDatabase();
+      ArangoDbConnectionState state = (ArangoDbConnectionState) dbConnectionState;
       String statement = "WITH Message, Person"
                          + " LET authorFriends = ("
                          + "   FOR message IN Message"
@@ -1052,14 +1697,11 @@ public class ArangoDb extends Db {
                          + "   replyAuthorIsFriend: replyAuthor._key IN authorFriends[*]._key"
                          + " }";
 
-      ArangoCursor<BaseDocument> cursor = db.query(
+      Iterator<BaseDocument> cursor = state.query(
           statement,
 					new MapBuilder()
               .put("messageId", String.valueOf(operation.messageId()))
-              .get(),
-					new AqlQueryOptions(),
-					BaseDocument.class
-				);
+              .get());
 
       List<LdbcShortQuery7MessageRepliesResult> resultList = new ArrayList<>();
 
@@ -1110,7 +1752,7 @@ public class ArangoDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter reporter) throws DbException {
 
-      ArangoDatabase db = ((ArangoDbConnectionState) dbConnectionState).getDatabase();
+      ArangoDbConnectionState state = (ArangoDbConnectionState) dbConnectionState;
 
       StringBuilder stmtBldr = new StringBuilder();
       stmtBldr.append("INSERT {"
@@ -1143,8 +1785,8 @@ public class ArangoDb extends Db {
           .put("creationDate", new Long(operation.creationDate().getTime()))
           .put("locationIP", operation.locationIp())
           .put("browserUsed", operation.browserUsed())
-          .put("email", operation.emails().toString())
-          .put("speaks", operation.languages().toString());
+          .put("email", String.join(";", operation.emails()))
+          .put("speaks", String.join(";", operation.languages()));
 
       // hasInterest edges.
       stmtBldr.append("LET hasInterestEdges = [");
@@ -1194,12 +1836,9 @@ public class ArangoDb extends Db {
       stmtBldr.append("]\n");
       stmtBldr.append("FOR workAtEdge IN workAtEdges INSERT workAtEdge INTO workAt\n");
 
-      ArangoCursor<BaseDocument> cursor = db.query(
+      Iterator<BaseDocument> cursor = state.query(
           stmtBldr.toString(),
-          paramBldr.get(),
-					new AqlQueryOptions(),
-					BaseDocument.class
-				);
+          paramBldr.get());
 
       reporter.report(0, LdbcNoResult.INSTANCE, operation);
     }
@@ -1219,19 +1858,16 @@ public class ArangoDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter reporter) throws DbException {
 
-      ArangoDatabase db = ((ArangoDbConnectionState) dbConnectionState).getDatabase();
+      ArangoDbConnectionState state = (ArangoDbConnectionState) dbConnectionState;
       String statement = String.format(
           "INSERT {_from: \"Person/%d\", _to: \"Message/%d\", creationDate: %d} INTO likes",
           operation.personId(),
           operation.postId(),
           operation.creationDate().getTime());
       
-      ArangoCursor<BaseDocument> cursor = db.query(
+      Iterator<BaseDocument> cursor = state.query(
           statement,
-          null,
-					new AqlQueryOptions(),
-					BaseDocument.class
-				);
+          null);
 
       reporter.report(0, LdbcNoResult.INSTANCE, operation);
     }
@@ -1251,19 +1887,16 @@ public class ArangoDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter reporter) throws DbException {
 
-      ArangoDatabase db = ((ArangoDbConnectionState) dbConnectionState).getDatabase();
+      ArangoDbConnectionState state = (ArangoDbConnectionState) dbConnectionState;
       String statement = String.format(
           "INSERT {_from: \"Person/%d\", _to: \"Message/%d\", creationDate: %d} INTO likes",
           operation.personId(),
           operation.commentId(),
           operation.creationDate().getTime());
       
-      ArangoCursor<BaseDocument> cursor = db.query(
+      Iterator<BaseDocument> cursor = state.query(
           statement,
-          null,
-					new AqlQueryOptions(),
-					BaseDocument.class
-				);
+          null);
 
       reporter.report(0, LdbcNoResult.INSTANCE, operation);
     }
@@ -1283,7 +1916,7 @@ public class ArangoDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter reporter) throws DbException {
 
-      ArangoDatabase db = ((ArangoDbConnectionState) dbConnectionState).getDatabase();
+      ArangoDbConnectionState state = (ArangoDbConnectionState) dbConnectionState;
       StringBuilder stmtBldr = new StringBuilder();
       stmtBldr.append(String.format(
           "INSERT {_key: \"%d\", title: \"%s\", creationDate: %d} INTO Forum\n",
@@ -1309,12 +1942,9 @@ public class ArangoDb extends Db {
           operation.forumId(),
           operation.moderatorPersonId()));
       
-      ArangoCursor<BaseDocument> cursor = db.query(
+      Iterator<BaseDocument> cursor = state.query(
           stmtBldr.toString(),
-          null,
-					new AqlQueryOptions(),
-					BaseDocument.class
-				);
+          null);
 
       reporter.report(0, LdbcNoResult.INSTANCE, operation);
     }
@@ -1334,19 +1964,16 @@ public class ArangoDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter reporter) throws DbException {
 
-      ArangoDatabase db = ((ArangoDbConnectionState) dbConnectionState).getDatabase();
+      ArangoDbConnectionState state = (ArangoDbConnectionState) dbConnectionState;
       String statement = String.format(
           "INSERT {_from: \"Forum/%d\", _to: \"Person/%d\", joinDate: %d} INTO hasMember",
           operation.forumId(),
           operation.personId(),
           operation.joinDate().getTime());
       
-      ArangoCursor<BaseDocument> cursor = db.query(
+      Iterator<BaseDocument> cursor = state.query(
           statement,
-          null,
-					new AqlQueryOptions(),
-					BaseDocument.class
-				);
+          null);
 
       reporter.report(0, LdbcNoResult.INSTANCE, operation);
     }
@@ -1366,7 +1993,7 @@ public class ArangoDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter reporter) throws DbException {
 
-      ArangoDatabase db = ((ArangoDbConnectionState) dbConnectionState).getDatabase();
+      ArangoDbConnectionState state = (ArangoDbConnectionState) dbConnectionState;
 
       StringBuilder stmtBldr = new StringBuilder();
       stmtBldr.append("INSERT {"
@@ -1375,7 +2002,8 @@ public class ArangoDb extends Db {
                       + " browserUsed: @browserUsed,"
                       + " locationIP: @locationIP,"
                       + " length: @length,"
-                      + " language: @language,");
+                      + " language: @language,"
+                      + " type: \"Post\",");
       if (operation.imageFile().length() > 0) {
         stmtBldr.append(" imageFile: @imageFile } INTO Message\n");
       } else {
@@ -1427,12 +2055,9 @@ public class ArangoDb extends Db {
           operation.postId(),
           operation.countryId()));
 
-      ArangoCursor<BaseDocument> cursor = db.query(
+      Iterator<BaseDocument> cursor = state.query(
           stmtBldr.toString(),
-          paramBldr.get(),
-					new AqlQueryOptions(),
-					BaseDocument.class
-				);
+          paramBldr.get());
 
       reporter.report(0, LdbcNoResult.INSTANCE, operation);
     }
@@ -1452,7 +2077,7 @@ public class ArangoDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter reporter) throws DbException {
 
-      ArangoDatabase db = ((ArangoDbConnectionState) dbConnectionState).getDatabase();
+      ArangoDbConnectionState state = (ArangoDbConnectionState) dbConnectionState;
 
       StringBuilder stmtBldr = new StringBuilder();
       stmtBldr.append("INSERT {"
@@ -1461,6 +2086,7 @@ public class ArangoDb extends Db {
                       + " browserUsed: @browserUsed,"
                       + " locationIP: @locationIP,"
                       + " length: @length,"
+                      + " type: \"Comment\","
                       + " content: @content } INTO Message\n");
 
       MapBuilder paramBldr =  new MapBuilder()
@@ -1509,12 +2135,9 @@ public class ArangoDb extends Db {
           operation.commentId(),
           operation.countryId()));
 
-      ArangoCursor<BaseDocument> cursor = db.query(
+      Iterator<BaseDocument> cursor = state.query(
           stmtBldr.toString(),
-          paramBldr.get(),
-					new AqlQueryOptions(),
-					BaseDocument.class
-				);
+          paramBldr.get());
 
       reporter.report(0, LdbcNoResult.INSTANCE, operation);
     }
@@ -1534,7 +2157,7 @@ public class ArangoDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter reporter) throws DbException {
 
-      ArangoDatabase db = ((ArangoDbConnectionState) dbConnectionState).getDatabase();
+      ArangoDbConnectionState state = (ArangoDbConnectionState) dbConnectionState;
       
       String statement = String.format(
           "INSERT {_from: \"Person/%d\", _to: \"Person/%d\", creationDate: %d} INTO knows",
@@ -1542,12 +2165,9 @@ public class ArangoDb extends Db {
           operation.person2Id(),
           operation.creationDate().getTime());
       
-      ArangoCursor<BaseDocument> cursor = db.query(
+      Iterator<BaseDocument> cursor = state.query(
           statement,
-          null,
-					new AqlQueryOptions(),
-					BaseDocument.class
-				);
+          null);
 
       reporter.report(0, LdbcNoResult.INSTANCE, operation);
     }
@@ -17,13 +17,21 @@
 package net.ellitron.ldbcsnbimpls.interactive.arangodb;
 
 import com.arangodb.ArangoDB;
+import com.arangodb.ArangoDBAsync;
 import com.arangodb.ArangoDatabase;
+import com.arangodb.ArangoDatabaseAsync;
+import com.arangodb.Protocol;
+import com.arangodb.entity.BaseDocument;
 import com.arangodb.entity.LoadBalancingStrategy;
+import com.arangodb.model.AqlQueryOptions;
 
 import com.ldbc.driver.DbConnectionState;
 
 import java.io.IOException;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Encapsulates the state of a connection to an ArangoDB database. An instance of
@@ -31,12 +39,23 @@ import java.util.Map;
  * passed to each query on execution. It is essentially a wrapper for the ArangoDB
  * client driver, which maintains all connection state to the ArangoDB cluster.
  *
+ * Queries are executed with either the synchronous driver or, if the async
+ * property is set, the asynchronous driver. The synchronous driver holds a
+ * pooled connection for the whole of each request, so at most maxConnections
+ * requests are in flight at once no matter how many threads the LDBC driver
+ * runs. The asynchronous driver multiplexes requests over its VelocyStream
+ * connections, so many more can be in flight over the same pool.
+ *
  * @author Jonathan Ellithorpe (jde@cs.stanford.edu)
  */
 public class ArangoDbConnectionState extends DbConnectionState {
 
-  private ArangoDB driver;
-  private ArangoDatabase db;
+  // Exactly one of the synchronous and asynchronous drivers is used,
+  // depending on the async property. The other is null.
+  private final ArangoDB driver;
+  private final ArangoDatabase db;
+  private final ArangoDBAsync asyncDriver;
+  private final ArangoDatabaseAsync asyncDb;
 
   public ArangoDbConnectionState(Map<String, String> props) {
     
@@ -64,14 +83,88 @@ public class ArangoDbConnectionState extends DbConnectionState {
       graphName = "default";
     }
 
-    this.driver = new ArangoDB.Builder()
-      .host(host, Integer.decode(port))
-      .maxConnections(8)
-      .loadBalancingStrategy(LoadBalancingStrategy.ROUND_ROBIN)
-      .acquireHostList(true)
-      .build();
+    int maxConnections;
+    if (props.containsKey("maxConnections")) {
+      maxConnections = Integer.decode(props.get("maxConnections"));
+    } else {
+      maxConnections = 8;
+    }
+
+    String protocol;
+    if (props.containsKey("protocol")) {
+      protocol = props.get("protocol");
+    } else {
+      protocol = "vst";
+    }
 
-    this.db = driver.db(graphName);
+    String serialization;
+    if (props.containsKey("serialization")) {
+      serialization = props.get("serialization");
+    } else {
+      serialization = "vpack";
+    }
+
+    boolean async;
+    if (props.containsKey("async")) {
+      async = Boolean.parseBoolean(props.get("async"));
+    } else {
+      async = false;
+    }
+
+    /*
+     * VelocyStream always carries VelocyPack, while HTTP can carry either
+     * VelocyPack or JSON.
+     */
+    Protocol driverProtocol;
+    if (protocol.equals("vst") && serialization.equals("vpack")) {
+      driverProtocol = Protocol.VST;
+    } else if (protocol.equals("http") && serialization.equals("vpack")) {
+      driverProtocol = Protocol.HTTP_VPACK;
+    } else if (protocol.equals("http") && serialization.equals("json")) {
+      driverProtocol = Protocol.HTTP_JSON;
+    } else {
+      throw new RuntimeException(String.format("Unsupported protocol and "
+          + "serialization combination: %s, %s", protocol, serialization));
+    }
+
+    if (async && driverProtocol != Protocol.VST) {
+      throw new RuntimeException("The async driver only supports the vst "
+          + "protocol");
+    }
+
+    System.out.println(String.format("ArangoDbConnectionState: {host: %s, "
+        + "port: %s, graphName: %s, maxConnections: %d, protocol: %s, "
+        + "serialization: %s, async: %s}",
+        host,
+        port,
+        graphName,
+        maxConnections,
+        protocol,
+        serialization,
+        async));
+
+    if (async) {
+      this.driver = null;
+      this.db = null;
+      this.asyncDriver = new ArangoDBAsync.Builder()
+        .host(host, Integer.decode(port))
+        .maxConnections(maxConnections)
+        .loadBalancingStrategy(LoadBalancingStrategy.ROUND_ROBIN)
+        .acquireHostList(true)
+        .build();
+      this.asyncDb = asyncDriver.db(graphName);
+    } else {
+      this.driver = new ArangoDB.Builder()
+        .host(host, Integer.decode(port))
+        .useProtocol(driverProtocol)
+        .maxConnections(maxConnections)
+        .loadBalancingStrategy(LoadBalancingStrategy.ROUND_ROBIN)
+        .acquireHostList(true)
+        .build();
+      this.db = driver.db(graphName);
+      this.asyncDriver = null;
+      this.asyncDb = null;
+    }
   }
 
   /**
@@ -79,13 +172,73 @@ public class ArangoDbConnectionState extends DbConnectionState {
    */
   @Override
   public void close() throws IOException {
-    driver.shutdown();
+    if (driver != null) {
+      driver.shutdown();
+    }
+
+    if (asyncDriver != null) {
+      asyncDriver.shutdown();
+    }
   }
 
   /**
    * Returns the ArangoDB driver.
+   *
+   * @return The synchronous database, or null if in async mode.
    */
   public ArangoDatabase getDatabase() {
     return db;
   }
+
+  /**
+   * Returns the asynchronous ArangoDB driver.
+   *
+   * @return The asynchronous database, or null if not in async mode.
+   */
+  public ArangoDatabaseAsync getAsyncDatabase() {
+    return asyncDb;
+  }
+
+  /**
+   * Executes an AQL query and waits for its results.
+   *
+   * @param statement AQL query.
+   * @param bindVars Bind parameters of the query, or null if none.
+   *
+   * @return Iterator over the query results.
+   */
+  public Iterator<BaseDocument> query(String statement,
+      Map<String, Object> bindVars) {
+    if (asyncDb == null) {
+      return db.query(statement, bindVars, new AqlQueryOptions(),
+          BaseDocument.class);
+    }
+
+    try {
+      return queryAsync(statement, bindVars).get();
+    } catch (InterruptedException | ExecutionException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Starts executing an AQL query without waiting for its results, so that a
+   * handler can issue several independent queries at once and then wait for
+   * all of them. If not in async mode, the query is executed on the calling
+   * thread before returning.
+   *
+   * @param statement AQL query.
+   * @param bindVars Bind parameters of the query, or null if none.
+   *
+   * @return Future for an iterator over the query results.
+   */
+  public CompletableFuture<Iterator<BaseDocument>> queryAsync(String statement,
+      Map<String, Object> bindVars) {
+    if (asyncDb == null) {
+      return CompletableFuture.completedFuture(query(statement, bindVars));
+    }
+
+    return asyncDb.query(statement, bindVars, new AqlQueryOptions(),
+        BaseDocument.class).thenApply((cursor) -> cursor.iterator());
+  }
 }
@@ -0,0 +1,271 @@
+/*
+ * Copyright (C) 2019 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.core;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * A set of primitive longs, implemented as an open addressing hash table with
+ * linear probing. Used by query implementations for sets of entity IDs (e.g.
+ * the persons already seen in a breadth first search over knows edges) where
+ * a HashSet of boxed vertex objects would cost an allocation per element and
+ * a more expensive hash and equality check per lookup.
+ *
+ * Not thread safe.
+ *
+ * @author Jonathan Ellithorpe (jde@cs.stanford.edu)
+ */
+public class LongHashSet {
+
+  /*
+   * Marks free slots in the table. The value 0 itself is tracked separately
+   * in hasZero.
+   */
+  private static final long FREE = 0;
+
+  private long[] keys;
+  private int size;
+  private boolean hasZero;
+
+  public LongHashSet() {
+    this(16);
+  }
+
+  /**
+   * Constructor for LongHashSet.
+   *
+   * @param expectedSize Number of elements the set should be able to hold
+   * without resizing.
+   */
+  public LongHashSet(int expectedSize) {
+    int capacity = 16;
+    while (capacity < expectedSize * 2)
+      capacity <<= 1;
+    this.keys = new long[capacity];
+    this.size = 0;
+    this.hasZero = false;
+  }
+
+  public int size() {
+    return size + (hasZero ? 1 : 0);
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  public boolean contains(long key) {
+    if (key == FREE)
+      return hasZero;
+
+    int mask = keys.length - 1;
+    int i = slot(key, mask);
+    while (keys[i] != FREE) {
+      if (keys[i] == key)
+        return true;
+      i = (i + 1) & mask;
+    }
+    return false;
+  }
+
+  /**
+   * Adds a key to the set.
+   *
+   * @return True if the key was not already in the set.
+   */
+  public boolean add(long key) {
+    if (key == FREE) {
+      boolean added = !hasZero;
+      hasZero = true;
+      return added;
+    }
+
+    // Keep the load factor under 1/2.
+    if ((size + 1) * 2 > keys.length)
+      resize(keys.length * 2);
+
+    int mask = keys.length - 1;
+    int i = slot(key, mask);
+    while (keys[i] != FREE) {
+      if (keys[i] == key)
+        return false;
+      i = (i + 1) & mask;
+    }
+    keys[i] = key;
+    size++;
+    return true;
+  }
+
+  /**
+   * Removes a key from the set.
+   *
+   * @return True if the key was in the set.
+   */
+  public boolean remove(long key) {
+    if (key == FREE) {
+      boolean removed = hasZero;
+      hasZero = false;
+      return removed;
+    }
+
+    int mask = keys.length - 1;
+    int i = slot(key, mask);
+    while (keys[i] != FREE) {
+      if (keys[i] == key) {
+        shiftBack(i, mask);
+        size--;
+        return true;
+      }
+      i = (i + 1) & mask;
+    }
+    return false;
+  }
+
+  /**
+   * Adds every key in other to this set (set union).
+   */
+  public void addAll(LongHashSet other) {
+    if (other.hasZero)
+      hasZero = true;
+
+    int needed = size + other.size;
+    if (needed * 2 > keys.length) {
+      int capacity = keys.length;
+      while (capacity < needed * 2)
+        capacity <<= 1;
+      resize(capacity);
+    }
+
+    for (long key : other.keys)
+      if (key != FREE)
+        add(key);
+  }
+
+  /**
+   * Removes every key in other from this set (set difference).
+   */
+  public void removeAll(LongHashSet other) {
+    if (other.hasZero)
+      hasZero = false;
+
+    if (other.size < size) {
+      for (long key : other.keys)
+        if (key != FREE)
+          remove(key);
+    } else {
+      retain(other, false);
+    }
+  }
+
+  /**
+   * Removes every key from this set that is not in other (set intersection).
+   */
+  public void retainAll(LongHashSet other) {
+    if (!other.hasZero)
+      hasZero = false;
+
+    retain(other, true);
+  }
+
+  public void clear() {
+    Arrays.fill(keys, FREE);
+    size = 0;
+    hasZero = false;
+  }
+
+  /**
+   * Calls action on every key in the set, in no particular order.
+   */
+  public void forEach(LongConsumer action) {
+    if (hasZero)
+      action.accept(0);
+
+    for (long key : keys)
+      if (key != FREE)
+        action.accept(key);
+  }
+
+  public long[] toArray() {
+    long[] array = new long[size()];
+    int n = 0;
+    if (hasZero)
+      array[n++] = 0;
+
+    for (long key : keys)
+      if (key != FREE)
+        array[n++] = key;
+
+    return array;
+  }
+
+  private static int slot(long key, int mask) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int)(h ^ (h >>> 32)) & mask;
+  }
+
+  /*
+   * Rebuilds the table keeping only the (non-zero) keys whose membership in
+   * other is equal to inOther.
+   */
+  private void retain(LongHashSet other, boolean inOther) {
+    long[] oldKeys = keys;
+    keys = new long[oldKeys.length];
+    size = 0;
+    int mask = keys.length - 1;
+    for (long key : oldKeys) {
+      if (key != FREE && other.contains(key) == inOther) {
+        int i = slot(key, mask);
+        while (keys[i] != FREE)
+          i = (i + 1) & mask;
+        keys[i] = key;
+        size++;
+      }
+    }
+  }
+
+  /*
+   * Empties slot i and moves back any following keys in the same probe run
+   * that would no longer be reachable from their home slot.
+   */
+  private void shiftBack(int i, int mask) {
+    int j = i;
+    while (true) {
+      j = (j + 1) & mask;
+      if (keys[j] == FREE)
+        break;
+
+      int home = slot(keys[j], mask);
+      // Move keys[j] into the hole at i unless its home slot lies cyclically
+      // in (i, j].
+      if (i <= j ? (home <= i || home > j) : (home <= i && home > j)) {
+        keys[i] = keys[j];
+        i = j;
+      }
+    }
+    keys[i] = FREE;
+  }
+
+  private void resize(int capacity) {
+    long[] oldKeys = keys;
+    keys = new long[capacity];
+    size = 0;
+    for (long key : oldKeys)
+      if (key != FREE)
+        add(key);
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2019 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.core;
+
+/**
+ * A map from primitive longs to primitive longs, implemented as an open
+ * addressing hash table with linear probing, in the same way as LongHashSet.
+ * Used by the loaders for maps over every entity of a type in the dataset
+ * (e.g. from every Comment to its root Post), where a HashMap of boxed Longs
+ * costs several times the memory of the two longs per entry stored here.
+ *
+ * Not thread safe.
+ *
+ * @author Jonathan Ellithorpe (jde@cs.stanford.edu)
+ */
+public class LongLongHashMap {
+
+  /**
+   * Operation on a (key, value) pair of the map.
+   */
+  @FunctionalInterface
+  public interface EntryConsumer {
+    void accept(long key, long value);
+  }
+
+  /*
+   * Marks free slots in the table. The value for the key 0 itself is tracked
+   * separately in hasZero and zeroValue.
+   */
+  private static final long FREE = 0;
+
+  private long[] keys;
+  private long[] vals;
+  private int size;
+  private boolean hasZero;
+  private long zeroValue;
+
+  public LongLongHashMap() {
+    this(16);
+  }
+
+  /**
+   * Constructor for LongLongHashMap.
+   *
+   * @param expectedSize Number of entries the map should be able to hold
+   * without resizing.
+   */
+  public LongLongHashMap(int expectedSize) {
+    int capacity = 16;
+    while (capacity < expectedSize * 2)
+      capacity <<= 1;
+    this.keys = new long[capacity];
+    this.vals = new long[capacity];
+    this.size = 0;
+    this.hasZero = false;
+    this.zeroValue = 0;
+  }
+
+  public int size() {
+    return size + (hasZero ? 1 : 0);
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  public boolean containsKey(long key) {
+    if (key == FREE)
+      return hasZero;
+
+    return find(key) >= 0;
+  }
+
+  /**
+   * Returns the value mapped to by key.
+   *
+   * @param key The key to look up.
+   * @param defaultValue Value to return if key is not in the map.
+   *
+   * @return The value for key, or defaultValue if there is none.
+   */
+  public long get(long key, long defaultValue) {
+    if (key == FREE)
+      return hasZero ? zeroValue : defaultValue;
+
+    int i = find(key);
+    return (i >= 0) ? vals[i] : defaultValue;
+  }
+
+  /**
+   * Maps key to value, replacing any previous value for key.
+   */
+  public void put(long key, long value) {
+    if (key == FREE) {
+      hasZero = true;
+      zeroValue = value;
+      return;
+    }
+
+    // Keep the load factor under 1/2.
+    if ((size + 1) * 2 > keys.length)
+      resize(keys.length * 2);
+
+    int mask = keys.length - 1;
+    int i = slot(key, mask);
+    while (keys[i] != FREE) {
+      if (keys[i] == key) {
+        vals[i] = value;
+        return;
+      }
+      i = (i + 1) & mask;
+    }
+    keys[i] = key;
+    vals[i] = value;
+    size++;
+  }
+
+  /**
+   * Calls action with every (key, value) pair in the map, in no particular
+   * order.
+   */
+  public void forEach(EntryConsumer action) {
+    if (hasZero)
+      action.accept(0, zeroValue);
+
+    for (int i = 0; i < keys.length; i++)
+      if (keys[i] != FREE)
+        action.accept(keys[i], vals[i]);
+  }
+
+  private static int slot(long key, int mask) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int)(h ^ (h >>> 32)) & mask;
+  }
+
+  /*
+   * Returns the slot holding the (non-zero) key, or -1 if it's not in the
+   * table.
+   */
+  private int find(long key) {
+    int mask = keys.length - 1;
+    int i = slot(key, mask);
+    while (keys[i] != FREE) {
+      if (keys[i] == key)
+        return i;
+      i = (i + 1) & mask;
+    }
+    return -1;
+  }
+
+  private void resize(int capacity) {
+    long[] oldKeys = keys;
+    long[] oldVals = vals;
+    keys = new long[capacity];
+    vals = new long[capacity];
+    size = 0;
+    for (int i = 0; i < oldKeys.length; i++)
+      if (oldKeys[i] != FREE)
+        put(oldKeys[i], oldVals[i]);
+  }
+}
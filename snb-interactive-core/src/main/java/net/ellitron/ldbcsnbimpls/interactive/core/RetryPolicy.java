@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2019 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.core;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Decides whether, and after how long, a transaction that failed to commit
+ * should be attempted again. Three policies are available:
+ *
+ * immediate: Retry right away, up to a maximum number of attempts. This is
+ * what the query implementations have always done, and is the default.
+ *
+ * exponential: Retry up to a maximum number of attempts, waiting a random
+ * time between 0 and base * 2^(failures - 1) before each retry, capped at a
+ * maximum ("full jitter"). Under contention this spreads the retries of
+ * conflicting transactions out in time instead of having them collide again.
+ *
+ * deadline: Like exponential, but bounded by the total time spent on the
+ * operation rather than by the number of attempts.
+ *
+ * Policies are stateless and shared between threads.
+ *
+ * @author Jonathan Ellithorpe (jde@cs.stanford.edu)
+ */
+public abstract class RetryPolicy {
+
+  public static final int DEFAULT_MAX_ATTEMPTS = 100;
+  public static final long DEFAULT_BASE_MICROS = 10;
+  public static final long DEFAULT_MAX_MICROS = 10000;
+  public static final long DEFAULT_DEADLINE_MILLIS = 1000;
+
+  /**
+   * Called after an attempt at a transaction has failed. Waits for the
+   * backoff time before the next attempt, if there is to be one.
+   *
+   * @param failedAttempts Number of attempts that have failed so far.
+   * @param startTime Value of System.nanoTime() at the start of the first
+   * attempt.
+   *
+   * @return True if the transaction should be attempted again.
+   */
+  public abstract boolean retry(int failedAttempts, long startTime);
+
+  /**
+   * Returns whether retry() may wait before returning. Callers holding a
+   * lock that other threads need should release it across such waits (see
+   * TxRetry).
+   */
+  public boolean backsOff() {
+    return false;
+  }
+
+  /**
+   * Returns a policy that retries immediately, for up to maxAttempts attempts
+   * in total.
+   */
+  public static RetryPolicy immediate(final int maxAttempts) {
+    return new RetryPolicy() {
+      @Override
+      public boolean retry(int failedAttempts, long startTime) {
+        return failedAttempts < maxAttempts;
+      }
+
+      @Override
+      public String toString() {
+        return String.format("{policy: immediate, maxAttempts: %d}", maxAttempts);
+      }
+    };
+  }
+
+  /**
+   * Returns a policy that retries with exponential backoff and jitter, for up
+   * to maxAttempts attempts in total.
+   */
+  public static RetryPolicy exponential(final int maxAttempts, final long baseMicros,
+      final long maxMicros) {
+    return new RetryPolicy() {
+      @Override
+      public boolean retry(int failedAttempts, long startTime) {
+        if (failedAttempts >= maxAttempts)
+          return false;
+
+        backoff(failedAttempts, baseMicros, maxMicros);
+        return true;
+      }
+
+      @Override
+      public boolean backsOff() {
+        return true;
+      }
+
+      @Override
+      public String toString() {
+        return String.format("{policy: exponential, maxAttempts: %d, baseMicros: %d, "
+            + "maxMicros: %d}", maxAttempts, baseMicros, maxMicros);
+      }
+    };
+  }
+
+  /**
+   * Returns a policy that retries with exponential backoff and jitter for as
+   * long as the next attempt would start within deadlineMillis of the first.
+   */
+  public static RetryPolicy deadline(final long deadlineMillis, final long baseMicros,
+      final long maxMicros) {
+    return new RetryPolicy() {
+      @Override
+      public boolean retry(int failedAttempts, long startTime) {
+        backoff(failedAttempts, baseMicros, maxMicros);
+        return System.nanoTime() - startTime < deadlineMillis * 1000000L;
+      }
+
+      @Override
+      public boolean backsOff() {
+        return true;
+      }
+
+      @Override
+      public String toString() {
+        return String.format("{policy: deadline, deadlineMillis: %d, baseMicros: %d, "
+            + "maxMicros: %d}", deadlineMillis, baseMicros, maxMicros);
+      }
+    };
+  }
+
+  /**
+   * Creates a policy from configuration properties:
+   *
+   * retryPolicy: "immediate", "exponential" or "deadline" [default: immediate]
+   * retryMaxAttempts: Maximum attempts per transaction [default: 100]
+   * retryBaseMicros: Backoff before the first retry [default: 10]
+   * retryMaxMicros: Maximum backoff before any retry [default: 10000]
+   * retryDeadlineMillis: Time bound for the deadline policy [default: 1000]
+   *
+   * @param props Configuration properties.
+   */
+  public static RetryPolicy fromProps(Map<String, String> props) {
+    String policy = props.getOrDefault("retryPolicy", "immediate");
+    int maxAttempts = Integer.decode(props.getOrDefault("retryMaxAttempts",
+          String.valueOf(DEFAULT_MAX_ATTEMPTS)));
+    long baseMicros = Long.decode(props.getOrDefault("retryBaseMicros",
+          String.valueOf(DEFAULT_BASE_MICROS)));
+    long maxMicros = Long.decode(props.getOrDefault("retryMaxMicros",
+          String.valueOf(DEFAULT_MAX_MICROS)));
+    long deadlineMillis = Long.decode(props.getOrDefault("retryDeadlineMillis",
+          String.valueOf(DEFAULT_DEADLINE_MILLIS)));
+
+    if (policy.equals("immediate"))
+      return immediate(maxAttempts);
+    else if (policy.equals("exponential"))
+      return exponential(maxAttempts, baseMicros, maxMicros);
+    else if (policy.equals("deadline"))
+      return deadline(deadlineMillis, baseMicros, maxMicros);
+    else
+      throw new RuntimeException("Error: Unknown retry policy: " + policy);
+  }
+
+  /*
+   * Sleeps for a random time between 0 and the capped exponential backoff for
+   * the given number of failures.
+   */
+  private static void backoff(int failedAttempts, long baseMicros, long maxMicros) {
+    int shift = Math.min(failedAttempts - 1, 30);
+    long ceilingMicros = Math.min(maxMicros, baseMicros << shift);
+    if (ceilingMicros <= 0)
+      return;
+
+    LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(ceilingMicros * 1000L + 1));
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2019 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.core;
+
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Drives the retry loop of a single execution of an operation according to a
+ * RetryPolicy, and records the outcome in a TxStats. Intended to be used as:
+ *
+ *   TxRetry retry = new TxRetry(policy, stats, "LdbcUpdate2AddPostLike");
+ *   while (retry.attempt()) {
+ *     ... begin transaction, do work ...
+ *     if (commit succeeded) {
+ *       retry.committed();
+ *       ... report result ...
+ *       break;
+ *     }
+ *   }
+ *
+ * If the caller holds a lock that other threads need, such as the lock
+ * TorcDb2Server's client threads take around each query, it should be passed
+ * in as the held lock. It is then released while the policy backs off
+ * between attempts, so that one contended transaction waiting out its
+ * backoff doesn't stall every other client.
+ *
+ * Not thread safe, create one per execution.
+ *
+ * @author Jonathan Ellithorpe (jde@cs.stanford.edu)
+ */
+public class TxRetry {
+
+  private final RetryPolicy policy;
+  private final TxStats stats;
+  private final String opName;
+  private final Lock heldLock;
+
+  private int attempts;
+  private boolean committed;
+  private long startTime;
+  private long attemptStartTime;
+  private long abortedNanos;
+  private long backoffNanos;
+
+  /**
+   * Constructor for TxRetry.
+   *
+   * @param policy Policy deciding whether to retry after a failed attempt.
+   * @param stats Where to record the outcome, or null to not record it.
+   * @param opName Name of the type of operation being executed.
+   */
+  public TxRetry(RetryPolicy policy, TxStats stats, String opName) {
+    this(policy, stats, opName, null);
+  }
+
+  /**
+   * Constructor for TxRetry.
+   *
+   * @param policy Policy deciding whether to retry after a failed attempt.
+   * @param stats Where to record the outcome, or null to not record it.
+   * @param opName Name of the type of operation being executed.
+   * @param heldLock Lock held by the caller across attempts, to release
+   * while backing off, or null if there is none.
+   */
+  public TxRetry(RetryPolicy policy, TxStats stats, String opName, Lock heldLock) {
+    this.policy = policy;
+    this.stats = stats;
+    this.opName = opName;
+    this.heldLock = heldLock;
+    this.attempts = 0;
+    this.committed = false;
+    this.abortedNanos = 0;
+    this.backoffNanos = 0;
+  }
+
+  /**
+   * Called before each attempt at the transaction. Any call after the first
+   * means the previous attempt failed, in which case this asks the policy
+   * whether to retry (waiting out any backoff, without holding the held
+   * lock).
+   *
+   * @return True if an attempt should be made, false if we have given up.
+   */
+  public boolean attempt() {
+    long now = System.nanoTime();
+    if (attempts == 0) {
+      startTime = now;
+    } else {
+      abortedNanos += now - attemptStartTime;
+      if (!retry()) {
+        backoffNanos += System.nanoTime() - now;
+        if (stats != null)
+          stats.record(opName, attempts, false, abortedNanos, backoffNanos);
+        return false;
+      }
+      long resumed = System.nanoTime();
+      backoffNanos += resumed - now;
+      now = resumed;
+    }
+
+    attemptStartTime = now;
+    attempts++;
+    return true;
+  }
+
+  /*
+   * Asks the policy whether to retry, releasing the held lock if the policy
+   * may back off.
+   */
+  private boolean retry() {
+    if (heldLock == null || !policy.backsOff())
+      return policy.retry(attempts, startTime);
+
+    heldLock.unlock();
+    try {
+      return policy.retry(attempts, startTime);
+    } finally {
+      heldLock.lock();
+    }
+  }
+
+  /**
+   * Called when the current attempt has committed.
+   */
+  public void committed() {
+    committed = true;
+    if (stats != null)
+      stats.record(opName, attempts, true, abortedNanos, backoffNanos);
+  }
+
+  /**
+   * Called when the current attempt has failed and the caller gives up on the
+   * transaction without asking the policy (e.g. a read whose validation failed
+   * after it was already run as many times as is worthwhile).
+   */
+  public void gaveUp() {
+    abortedNanos += System.nanoTime() - attemptStartTime;
+    if (stats != null)
+      stats.record(opName, attempts, false, abortedNanos, backoffNanos);
+  }
+
+  /**
+   * Returns whether the transaction has committed.
+   */
+  public boolean succeeded() {
+    return committed;
+  }
+
+  /**
+   * Returns the number of attempts made so far.
+   */
+  public int attempts() {
+    return attempts;
+  }
+}
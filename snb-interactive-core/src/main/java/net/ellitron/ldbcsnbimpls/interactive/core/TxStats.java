@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2019 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.core;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per operation type counters of transaction contention: how many times each
+ * type of operation was executed, how many transaction attempts that took,
+ * how many of those attempts failed to commit (conflicts), how much time was
+ * spent in failed attempts and in backing off between attempts, and how many
+ * executions gave up without ever committing.
+ *
+ * Safe to update from multiple threads.
+ *
+ * @author Jonathan Ellithorpe (jde@cs.stanford.edu)
+ */
+public class TxStats {
+
+  private static class Counters {
+    final LongAdder executions = new LongAdder();
+    final LongAdder attempts = new LongAdder();
+    final LongAdder conflicts = new LongAdder();
+    final LongAdder gaveUp = new LongAdder();
+    final LongAdder abortedNanos = new LongAdder();
+    final LongAdder backoffNanos = new LongAdder();
+  }
+
+  private final ConcurrentHashMap<String, Counters> counters;
+
+  public TxStats() {
+    this.counters = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Records one execution of an operation.
+   *
+   * @param opName Name of the type of operation.
+   * @param attempts Number of transaction attempts made.
+   * @param committed Whether the last attempt committed.
+   * @param abortedNanos Time spent in attempts that failed.
+   * @param backoffNanos Time spent waiting between attempts.
+   */
+  public void record(String opName, int attempts, boolean committed, long abortedNanos,
+      long backoffNanos) {
+    Counters c = counters.computeIfAbsent(opName, k -> new Counters());
+    c.executions.increment();
+    c.attempts.add(attempts);
+    c.conflicts.add(committed ? attempts - 1 : attempts);
+    if (!committed)
+      c.gaveUp.increment();
+    c.abortedNanos.add(abortedNanos);
+    c.backoffNanos.add(backoffNanos);
+  }
+
+  public void reset() {
+    counters.clear();
+  }
+
+  /**
+   * Returns the counters in CSV format, one line per operation type, with a
+   * header line. Times are in microseconds.
+   */
+  public String toCsv() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("op,executions,attempts,conflicts,gaveUp,abortedMicros,backoffMicros\n");
+    for (Map.Entry<String, Counters> e : new TreeMap<>(counters).entrySet()) {
+      Counters c = e.getValue();
+      sb.append(String.format("%s,%d,%d,%d,%d,%d,%d\n",
+          e.getKey(),
+          c.executions.sum(),
+          c.attempts.sum(),
+          c.conflicts.sum(),
+          c.gaveUp.sum(),
+          c.abortedNanos.sum() / 1000L,
+          c.backoffNanos.sum() / 1000L));
+    }
+    return sb.toString();
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format("%-40s %10s %10s %10s %8s %8s %12s %12s\n",
+        "Operation", "Executions", "Attempts", "Conflicts", "Conf/Ex", "GaveUp",
+        "Aborted(ms)", "Backoff(ms)"));
+    for (Map.Entry<String, Counters> e : new TreeMap<>(counters).entrySet()) {
+      Counters c = e.getValue();
+      long executions = c.executions.sum();
+      long conflicts = c.conflicts.sum();
+      sb.append(String.format("%-40s %10d %10d %10d %8.3f %8d %12.3f %12.3f\n",
+          e.getKey(),
+          executions,
+          c.attempts.sum(),
+          conflicts,
+          (executions > 0) ? (double)conflicts / executions : 0.0,
+          c.gaveUp.sum(),
+          c.abortedNanos.sum() / 1000000.0,
+          c.backoffNanos.sum() / 1000000.0));
+    }
+    return sb.toString();
+  }
+}
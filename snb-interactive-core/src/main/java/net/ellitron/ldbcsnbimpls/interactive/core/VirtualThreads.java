@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2019 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.core;
+
+import java.lang.reflect.Method;
+
+/**
+ * Creates the threads that servers use to handle client connections, either
+ * as ordinary platform threads or as virtual threads.
+ *
+ * Virtual threads need Java 21, but the modules are built for Java 8, so the
+ * virtual thread API is looked up by reflection when this class is loaded,
+ * and tried out by creating a virtual thread (on Java 19 and 20 the API is
+ * there but only works with --enable-preview). When running on a JVM where
+ * that fails, asking for a virtual thread gets a platform thread instead.
+ *
+ * Note that a virtual thread stays pinned to its carrier thread while it is
+ * in native code or holding a monitor, so the benefit is in the number of
+ * idle connections a server can hold rather than in the number of queries it
+ * can execute at once.
+ *
+ * @author Jonathan Ellithorpe (jde@cs.stanford.edu)
+ */
+public class VirtualThreads {
+
+  // Thread.ofVirtual() and Thread.Builder.unstarted(Runnable), or null if
+  // this JVM doesn't have them or can't create virtual threads.
+  private static final Method OF_VIRTUAL;
+  private static final Method UNSTARTED;
+
+  static {
+    Method ofVirtual = null;
+    Method unstarted = null;
+    try {
+      ofVirtual = Thread.class.getMethod("ofVirtual");
+      unstarted = Class.forName("java.lang.Thread$Builder")
+          .getMethod("unstarted", Runnable.class);
+
+      // Throws (wrapped in an InvocationTargetException) if virtual threads
+      // are a preview feature of this JVM that isn't enabled.
+      unstarted.invoke(ofVirtual.invoke(null), (Runnable) () -> { });
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      ofVirtual = null;
+      unstarted = null;
+    }
+    OF_VIRTUAL = ofVirtual;
+    UNSTARTED = unstarted;
+  }
+
+  /**
+   * Returns whether this JVM supports virtual threads.
+   */
+  public static boolean isAvailable() {
+    return OF_VIRTUAL != null;
+  }
+
+  /**
+   * Creates a new, unstarted thread to run r.
+   *
+   * @param r What the thread runs.
+   * @param virtual Whether to create a virtual thread, if available.
+   *
+   * @return The new thread.
+   */
+  public static Thread newThread(Runnable r, boolean virtual) {
+    if (!virtual || !isAvailable())
+      return new Thread(r);
+
+    try {
+      return (Thread) UNSTARTED.invoke(OF_VIRTUAL.invoke(null), r);
+    } catch (ReflectiveOperationException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Resolves whether to use virtual threads, printing a warning if they were
+   * asked for but this JVM doesn't support them.
+   *
+   * @param requested Whether virtual threads were asked for.
+   *
+   * @return Whether virtual threads will be used.
+   */
+  public static boolean resolve(boolean requested) {
+    if (requested && !isAvailable()) {
+      System.out.println(String.format("WARNING: Virtual threads require Java 21 "
+          + "or later, but running on Java %s. Using platform threads instead.",
+          System.getProperty("java.version")));
+      return false;
+    }
+    return requested;
+  }
+}
@@ -84,12 +84,9 @@ import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcUpdate8AddFriendship;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import org.neo4j.driver.v1.AccessMode;
 import org.neo4j.driver.v1.AuthTokens;
-import org.neo4j.driver.v1.Driver;
 import org.neo4j.driver.v1.GraphDatabase;
 import org.neo4j.driver.v1.Record;
-import org.neo4j.driver.v1.Session;
 import org.neo4j.driver.v1.StatementResult;
 import org.neo4j.driver.v1.Transaction;
 import org.neo4j.driver.v1.Value;
@@ -98,6 +95,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import javax.json.JsonArray;
@@ -114,6 +112,14 @@ import javax.json.JsonValue;
  * <ul>
  * <li>host - IP address of the Neo4j web server (default: 127.0.0.1).</li>
  * <li>port - port of the Neo4j web server (default: 7474).</li>
+ * <li>longIds - whether the database was loaded with integer IDs, see
+ * DataFormatConverter (default: false).</li>
+ * <li>connectionPoolSize - maximum number of idle Bolt connections kept open
+ * for reuse (default: 10).</li>
+ * <li>groupCommitMaxOps - if given, commit updates 2 through 8 from
+ * concurrent threads in groups of up to this many, see UpdateBatcher.</li>
+ * <li>groupCommitWindow - maximum time in microseconds to wait for more
+ * updates to join a group (default: 100).</li>
  * </ul>
  * <p>
  * References:<br>
@@ -240,13 +246,13 @@ public class Neo4jDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      Driver driver = ((Neo4jDbConnectionState) dbConnectionState).getDriver();
+      Neo4jDbConnectionState state = (Neo4jDbConnectionState) dbConnectionState;
 
       String statement =
           "   MATCH (:Person {id:{1}})-[path:KNOWS*1..3]-(friend:Person)"
           + " WHERE friend.firstName = {2}"
           + " WITH friend, min(length(path)) AS distance"
-          + " ORDER BY distance ASC, friend.lastName ASC, toInt(friend.id) ASC"
+          + " ORDER BY distance ASC, friend.lastName ASC, " + state.sortId("friend.id") + " ASC"
           + " LIMIT {3}"
           + " MATCH (friend)-[:IS_LOCATED_IN]->(friendCity:Place)"
           + " OPTIONAL MATCH (friend)-[studyAt:STUDY_AT]->(uni:Organisation)-[:IS_LOCATED_IN]->(uniCity:Place)"
@@ -286,73 +292,69 @@ public class Neo4jDb extends Db {
           + "   friendCity.name AS cityName,"
           + "   unis,"
           + "   companies"
-          + " ORDER BY distance ASC, friend.lastName ASC, toInt(friend.id) ASC"
+          + " ORDER BY distance ASC, friend.lastName ASC, " + state.sortId("friend.id") + " ASC"
           + " LIMIT {3}";
       Value parameters = parameters(
-            "1", String.valueOf(operation.personId()), 
+            "1", state.id(operation.personId()), 
             "2", operation.firstName(), 
             "3", operation.limit());
 
       // Execute the query and get the results.
       List<LdbcQuery1Result> resultList = new ArrayList<>();
-      try (Session session = driver.session(AccessMode.READ)) {
-        try (Transaction tx = session.beginTransaction()) {
-          StatementResult result = tx.run(statement, parameters);
-          tx.success();
-          tx.close();
-
-          while (result.hasNext()) {
-            Record record = result.next();
-
-            List<String> emails;
-            if (!record.get("emails").isNull()) {
-              emails = record.get("emails").asList((e) -> e.asString());
-            } else {
-              emails = new ArrayList<>();
-            }
-
-            List<String> languages;
-            if (!record.get("languages").isNull()) {
-              languages = record.get("languages").asList((e) -> e.asString());
-            } else {
-              languages = new ArrayList<>();
-            }
-
-            List<List<Object>> universities;
-            if (!record.get("unis").isNull()) {
-              universities = record.get("unis").asList((e) -> 
-                  e.asList());
-            } else {
-              universities = new ArrayList<>();
-            }
-
-            List<List<Object>> companies;
-            if (!record.get("companies").isNull()) {
-              companies = record.get("companies").asList((e) -> 
-                  e.asList());
-            } else {
-              companies = new ArrayList<>();
-            }
+      try {
+        StatementResult result = state.getSession().run(statement, parameters);
 
-            resultList.add(
-                new LdbcQuery1Result(
-                    Long.valueOf(record.get("id").asString()), //Long.decode(row.getString(0)),
-                    record.get("lastName").asString(), //row.getString(1),
-                    record.get("distance").asInt(), //row.getInt(2),
-                    record.get("birthday").asLong(), //row.getJsonNumber(3).longValue(),
-                    record.get("creationDate").asLong(), //row.getJsonNumber(4).longValue(),
-                    record.get("gender").asString(), //row.getString(5),
-                    record.get("browser").asString(), //row.getString(6),
-                    record.get("locationIp").asString(), //row.getString(7),
-                    emails,
-                    languages,
-                    record.get("cityName").asString(), //row.getString(10),
-                    universities,
-                    companies));
+        while (result.hasNext()) {
+          Record record = result.next();
+
+          List<String> emails;
+          if (!record.get("emails").isNull()) {
+            emails = record.get("emails").asList((e) -> e.asString());
+          } else {
+            emails = new ArrayList<>();
+          }
+
+          List<String> languages;
+          if (!record.get("languages").isNull()) {
+            languages = record.get("languages").asList((e) -> e.asString());
+          } else {
+            languages = new ArrayList<>();
+          }
+
+          List<List<Object>> universities;
+          if (!record.get("unis").isNull()) {
+            universities = record.get("unis").asList((e) -> 
+                e.asList());
+          } else {
+            universities = new ArrayList<>();
+          }
+
+          List<List<Object>> companies;
+          if (!record.get("companies").isNull()) {
+            companies = record.get("companies").asList((e) -> 
+                e.asList());
+          } else {
+            companies = new ArrayList<>();
           }
-        } catch (ClientException e) {
-          System.out.println("Caught ClientException: " + e.code());
+
+          resultList.add(
+              new LdbcQuery1Result(
+                  DbHelper.asId(record.get("id")), //Long.decode(row.getString(0)),
+                  record.get("lastName").asString(), //row.getString(1),
+                  record.get("distance").asInt(), //row.getInt(2),
+                  record.get("birthday").asLong(), //row.getJsonNumber(3).longValue(),
+                  record.get("creationDate").asLong(), //row.getJsonNumber(4).longValue(),
+                  record.get("gender").asString(), //row.getString(5),
+                  record.get("browser").asString(), //row.getString(6),
+                  record.get("locationIp").asString(), //row.getString(7),
+                  emails,
+                  languages,
+                  record.get("cityName").asString(), //row.getString(10),
+                  universities,
+                  companies));
         }
+      } catch (ClientException e) {
+        System.out.println("Caught ClientException: " + e.code());
       }
 
       resultReporter.report(0, resultList, operation);
@@ -377,7 +379,7 @@ public class Neo4jDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      Driver driver = ((Neo4jDbConnectionState) dbConnectionState).getDriver();
+      Neo4jDbConnectionState state = (Neo4jDbConnectionState) dbConnectionState;
 
       String statement =
           "   MATCH (:Person {id:{1}})-[:KNOWS]-(friend:Person)<-[:HAS_CREATOR]-(message)"
@@ -392,36 +394,32 @@ public class Neo4jDb extends Db {
           + "     ELSE message.imageFile"
           + "   END AS messageContent,"
           + "   message.creationDate AS messageDate"
-          + " ORDER BY messageDate DESC, toInt(messageId) ASC"
+          + " ORDER BY messageDate DESC, " + state.sortId("messageId") + " ASC"
           + " LIMIT {3}";
       Value parameters = parameters(
-            "1", String.valueOf(operation.personId()), 
+            "1", state.id(operation.personId()), 
             "2", operation.maxDate().getTime(), 
             "3", operation.limit());
 
       // Execute the query and get the results.
       List<LdbcQuery2Result> resultList = new ArrayList<>();
-      try (Session session = driver.session(AccessMode.READ)) {
-        try (Transaction tx = session.beginTransaction()) {
-          StatementResult result = tx.run(statement, parameters);
-          tx.success();
-          tx.close();
-
-          while (result.hasNext()) {
-            Record record = result.next();
-
-            resultList.add(
-                new LdbcQuery2Result(
-                    Long.valueOf(record.get("personId").asString()),
-                    record.get("personFirstName").asString(),
-                    record.get("personLastName").asString(),
-                    Long.valueOf(record.get("messageId").asString()),
-                    record.get("messageContent").asString(),
-                    record.get("messageDate").asLong()));
-          }
-        } catch (ClientException e) {
-          System.out.println("Caught ClientException: " + e.code());
+      try {
+        StatementResult result = state.getSession().run(statement, parameters);
+
+        while (result.hasNext()) {
+          Record record = result.next();
+
+          resultList.add(
+              new LdbcQuery2Result(
+                  DbHelper.asId(record.get("personId")),
+                  record.get("personFirstName").asString(),
+                  record.get("personLastName").asString(),
+                  DbHelper.asId(record.get("messageId")),
+                  record.get("messageContent").asString(),
+                  record.get("messageDate").asLong()));
         }
+      } catch (ClientException e) {
+        System.out.println("Caught ClientException: " + e.code());
       }
 
       resultReporter.report(0, resultList, operation);
@@ -449,7 +447,7 @@ public class Neo4jDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      Driver driver = ((Neo4jDbConnectionState) dbConnectionState).getDriver();
+      Neo4jDbConnectionState state = (Neo4jDbConnectionState) dbConnectionState;
 
       long periodStart = operation.startDate().getTime();
       long periodEnd = periodStart
@@ -483,10 +481,10 @@ public class Neo4jDb extends Db {
           + "   xCount,"
           + "   yCount,"
           + "   xCount + yCount AS xyCount"
-          + " ORDER BY xyCount DESC, toInt(friendId) ASC"
+          + " ORDER BY xyCount DESC, " + state.sortId("friendId") + " ASC"
           + " LIMIT {6}";
       Value parameters = parameters(
-            "1", String.valueOf(operation.personId()), 
+            "1", state.id(operation.personId()), 
             "2", operation.countryXName(), 
             "3", operation.countryYName(),
             "4", periodStart,
@@ -495,27 +493,23 @@ public class Neo4jDb extends Db {
 
       // Execute the query and get the results.
       List<LdbcQuery3Result> resultList = new ArrayList<>();
-      try (Session session = driver.session(AccessMode.READ)) {
-        try (Transaction tx = session.beginTransaction()) {
-          StatementResult result = tx.run(statement, parameters);
-          tx.success();
-          tx.close();
-
-          while (result.hasNext()) {
-            Record record = result.next();
-
-            resultList.add(
-                new LdbcQuery3Result(
-                    Long.valueOf(record.get("friendId").asString()),
-                    record.get("friendFirstName").asString(),
-                    record.get("friendLastName").asString(),
-                    record.get("xCount").asInt(),
-                    record.get("yCount").asInt(),
-                    record.get("xyCount").asInt()));
-          }
-        } catch (ClientException e) {
-          System.out.println("Caught ClientException: " + e.code());
+      try {
+        StatementResult result = state.getSession().run(statement, parameters);
+
+        while (result.hasNext()) {
+          Record record = result.next();
+
+          resultList.add(
+              new LdbcQuery3Result(
+                  DbHelper.asId(record.get("friendId")),
+                  record.get("friendFirstName").asString(),
+                  record.get("friendLastName").asString(),
+                  record.get("xCount").asInt(),
+                  record.get("yCount").asInt(),
+                  record.get("xyCount").asInt()));
         }
+      } catch (ClientException e) {
+        System.out.println("Caught ClientException: " + e.code());
       }
 
       resultReporter.report(0, resultList, operation);
@@ -542,7 +536,7 @@ public class Neo4jDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      Driver driver = ((Neo4jDbConnectionState) dbConnectionState).getDriver();
+      Neo4jDbConnectionState state = (Neo4jDbConnectionState) dbConnectionState;
 
       long periodStart = operation.startDate().getTime();
       long periodEnd = periodStart
@@ -561,30 +555,26 @@ public class Neo4jDb extends Db {
           + " ORDER BY postCount DESC, tagName ASC"
           + " LIMIT {4}";
       Value parameters = parameters(
-            "1", String.valueOf(operation.personId()), 
+            "1", state.id(operation.personId()), 
             "2", periodStart,
             "3", periodEnd, 
             "4", operation.limit());
 
       // Execute the query and get the results.
       List<LdbcQuery4Result> resultList = new ArrayList<>();
-      try (Session session = driver.session(AccessMode.READ)) {
-        try (Transaction tx = session.beginTransaction()) {
-          StatementResult result = tx.run(statement, parameters);
-          tx.success();
-          tx.close();
+      try {
+        StatementResult result = state.getSession().run(statement, parameters);
 
-          while (result.hasNext()) {
-            Record record = result.next();
+        while (result.hasNext()) {
+          Record record = result.next();
 
-            resultList.add(
-                new LdbcQuery4Result(
-                    record.get("tagName").asString(),
-                    record.get("postCount").asInt()));
-          }
-        } catch (ClientException e) {
-          System.out.println("Caught ClientException: " + e.code());
+          resultList.add(
+              new LdbcQuery4Result(
+                  record.get("tagName").asString(),
+                  record.get("postCount").asInt()));
         }
+      } catch (ClientException e) {
+        System.out.println("Caught ClientException: " + e.code());
       }
 
       resultReporter.report(0, resultList, operation);
@@ -611,7 +601,7 @@ public class Neo4jDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      Driver driver = ((Neo4jDbConnectionState) dbConnectionState).getDriver();
+      Neo4jDbConnectionState state = (Neo4jDbConnectionState) dbConnectionState;
 
       String statement =
           "   MATCH (person:Person {id:{1}})-[:KNOWS*1..2]-(friend:Person)<-[membership:HAS_MEMBER]-(forum:Forum)"
@@ -622,32 +612,28 @@ public class Neo4jDb extends Db {
           + " RETURN"
           + "   forum.title AS forumName,"
           + "   postCount"
-          + " ORDER BY postCount DESC, toInt(forum.id) ASC"
+          + " ORDER BY postCount DESC, " + state.sortId("forum.id") + " ASC"
           + " LIMIT {3}";
       Value parameters = parameters(
-            "1", String.valueOf(operation.personId()), 
+            "1", state.id(operation.personId()), 
             "2", operation.minDate().getTime(), 
             "3", operation.limit());
 
       // Execute the query and get the results.
       List<LdbcQuery5Result> resultList = new ArrayList<>();
-      try (Session session = driver.session(AccessMode.READ)) {
-        try (Transaction tx = session.beginTransaction()) {
-          StatementResult result = tx.run(statement, parameters);
-          tx.success();
-          tx.close();
+      try {
+        StatementResult result = state.getSession().run(statement, parameters);
 
-          while (result.hasNext()) {
-            Record record = result.next();
+        while (result.hasNext()) {
+          Record record = result.next();
 
-            resultList.add(
-                new LdbcQuery5Result(
-                    record.get("forumName").asString(),
-                    record.get("postCount").asInt()));
-          }
-        } catch (ClientException e) {
-          System.out.println("Caught ClientException: " + e.code());
+          resultList.add(
+              new LdbcQuery5Result(
+                  record.get("forumName").asString(),
+                  record.get("postCount").asInt()));
         }
+      } catch (ClientException e) {
+        System.out.println("Caught ClientException: " + e.code());
       }
 
       resultReporter.report(0, resultList, operation);
@@ -673,7 +659,7 @@ public class Neo4jDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      Driver driver = ((Neo4jDbConnectionState) dbConnectionState).getDriver();
+      Neo4jDbConnectionState state = (Neo4jDbConnectionState) dbConnectionState;
 
       String statement =
           "   MATCH"
@@ -691,29 +677,25 @@ public class Neo4jDb extends Db {
           + " ORDER BY postCount DESC, tagName ASC"
           + " LIMIT {3}";
       Value parameters = parameters(
-            "1", String.valueOf(operation.personId()), 
+            "1", state.id(operation.personId()), 
             "2", operation.tagName(), 
             "3", operation.limit());
 
       // Execute the query and get the results.
       List<LdbcQuery6Result> resultList = new ArrayList<>();
-      try (Session session = driver.session(AccessMode.READ)) {
-        try (Transaction tx = session.beginTransaction()) {
-          StatementResult result = tx.run(statement, parameters);
-          tx.success();
-          tx.close();
+      try {
+        StatementResult result = state.getSession().run(statement, parameters);
 
-          while (result.hasNext()) {
-            Record record = result.next();
+        while (result.hasNext()) {
+          Record record = result.next();
 
-            resultList.add(
-                new LdbcQuery6Result(
-                    record.get("tagName").asString(),
-                    record.get("postCount").asInt()));
-          }
-        } catch (ClientException e) {
-          System.out.println("Caught ClientException: " + e.code());
+          resultList.add(
+              new LdbcQuery6Result(
+                  record.get("tagName").asString(),
+                  record.get("postCount").asInt()));
         }
+      } catch (ClientException e) {
+        System.out.println("Caught ClientException: " + e.code());
       }
 
       resultReporter.report(0, resultList, operation);
@@ -742,12 +724,12 @@ public class Neo4jDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      Driver driver = ((Neo4jDbConnectionState) dbConnectionState).getDriver();
+      Neo4jDbConnectionState state = (Neo4jDbConnectionState) dbConnectionState;
 
       String statement =
           "   MATCH (person:Person {id:{1}})<-[:HAS_CREATOR]-(message)<-[like:LIKES]-(liker:Person)"
           + " WITH liker, message, like.creationDate AS likeTime, person"
-          + " ORDER BY likeTime DESC, toInt(message.id) ASC"
+          + " ORDER BY likeTime DESC, " + state.sortId("message.id") + " ASC"
           + " WITH"
           + "   liker,"
           + "   head(collect({msg: message, likeTime: likeTime})) AS latestLike,"
@@ -764,37 +746,33 @@ public class Neo4jDb extends Db {
           + "   END AS messageContent,"
           + "   latestLike.likeTime - latestLike.msg.creationDate AS latencyAsMilli,"
           + "   not((liker)-[:KNOWS]-(person)) AS isNew"
-          + " ORDER BY likeTime DESC, toInt(personId) ASC"
+          + " ORDER BY likeTime DESC, " + state.sortId("personId") + " ASC"
           + " LIMIT {2}";
       Value parameters = parameters(
-            "1", String.valueOf(operation.personId()), 
+            "1", state.id(operation.personId()), 
             "2", operation.limit());
 
       // Execute the query and get the results.
       List<LdbcQuery7Result> resultList = new ArrayList<>();
-      try (Session session = driver.session(AccessMode.READ)) {
-        try (Transaction tx = session.beginTransaction()) {
-          StatementResult result = tx.run(statement, parameters);
-          tx.success();
-          tx.close();
-
-          while (result.hasNext()) {
-            Record record = result.next();
-
-            resultList.add(
-                new LdbcQuery7Result(
-                    Long.valueOf(record.get("personId").asString()),
-                    record.get("personFirstName").asString(),
-                    record.get("personLastName").asString(),
-                    record.get("likeTime").asLong(),
-                    Long.valueOf(record.get("messageId").asString()),
-                    record.get("messageContent").asString(),
-                    (int) (record.get("latencyAsMilli").asLong() / (1000l * 60l)),
-                    record.get("isNew").asBoolean()));
-          }
-        } catch (ClientException e) {
-          System.out.println("Caught ClientException: " + e.code());
+      try {
+        StatementResult result = state.getSession().run(statement, parameters);
+
+        while (result.hasNext()) {
+          Record record = result.next();
+
+          resultList.add(
+              new LdbcQuery7Result(
+                  DbHelper.asId(record.get("personId")),
+                  record.get("personFirstName").asString(),
+                  record.get("personLastName").asString(),
+                  record.get("likeTime").asLong(),
+                  DbHelper.asId(record.get("messageId")),
+                  record.get("messageContent").asString(),
+                  (int) (record.get("latencyAsMilli").asLong() / (1000l * 60l)),
+                  record.get("isNew").asBoolean()));
         }
+      } catch (ClientException e) {
+        System.out.println("Caught ClientException: " + e.code());
       }
 
       resultReporter.report(0, resultList, operation);
@@ -820,7 +798,7 @@ public class Neo4jDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      Driver driver = ((Neo4jDbConnectionState) dbConnectionState).getDriver();
+      Neo4jDbConnectionState state = (Neo4jDbConnectionState) dbConnectionState;
 
       String statement =
           "   MATCH"
@@ -832,35 +810,31 @@ public class Neo4jDb extends Db {
           + "   comment.creationDate AS commentCreationDate,"
           + "   comment.id AS commentId,"
           + "   comment.content AS commentContent"
-          + " ORDER BY commentCreationDate DESC, toInt(commentId) ASC"
+          + " ORDER BY commentCreationDate DESC, " + state.sortId("commentId") + " ASC"
           + " LIMIT {2}";
       Value parameters = parameters(
-            "1", String.valueOf(operation.personId()), 
+            "1", state.id(operation.personId()), 
             "2", operation.limit());
 
       // Execute the query and get the results.
       List<LdbcQuery8Result> resultList = new ArrayList<>();
-      try (Session session = driver.session(AccessMode.READ)) {
-        try (Transaction tx = session.beginTransaction()) {
-          StatementResult result = tx.run(statement, parameters);
-          tx.success();
-          tx.close();
-
-          while (result.hasNext()) {
-            Record record = result.next();
-
-            resultList.add(
-                new LdbcQuery8Result(
-                    Long.valueOf(record.get("personId").asString()),
-                    record.get("personFirstName").asString(),
-                    record.get("personLastName").asString(),
-                    record.get("commentCreationDate").asLong(),
-                    Long.valueOf(record.get("commentId").asString()),
-                    record.get("commentContent").asString()));
-          }
-        } catch (ClientException e) {
-          System.out.println("Caught ClientException: " + e.code());
+      try {
+        StatementResult result = state.getSession().run(statement, parameters);
+
+        while (result.hasNext()) {
+          Record record = result.next();
+
+          resultList.add(
+              new LdbcQuery8Result(
+                  DbHelper.asId(record.get("personId")),
+                  record.get("personFirstName").asString(),
+                  record.get("personLastName").asString(),
+                  record.get("commentCreationDate").asLong(),
+                  DbHelper.asId(record.get("commentId")),
+                  record.get("commentContent").asString()));
         }
+      } catch (ClientException e) {
+        System.out.println("Caught ClientException: " + e.code());
       }
 
       resultReporter.report(0, resultList, operation);
@@ -886,7 +860,7 @@ public class Neo4jDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      Driver driver = ((Neo4jDbConnectionState) dbConnectionState).getDriver();
+      Neo4jDbConnectionState state = (Neo4jDbConnectionState) dbConnectionState;
 
       String statement =
           "   MATCH (:Person {id:{1}})-[:KNOWS*1..2]-(friend:Person)<-[:HAS_CREATOR]-(message)"
@@ -901,36 +875,32 @@ public class Neo4jDb extends Db {
           + "     ELSE message.imageFile"
           + "   END AS messageContent,"
           + "   message.creationDate AS messageCreationDate"
-          + " ORDER BY message.creationDate DESC, toInt(message.id) ASC"
+          + " ORDER BY message.creationDate DESC, " + state.sortId("message.id") + " ASC"
           + " LIMIT {3}";
       Value parameters = parameters(
-            "1", String.valueOf(operation.personId()), 
+            "1", state.id(operation.personId()), 
             "2", operation.maxDate().getTime(), 
             "3", operation.limit());
 
       // Execute the query and get the results.
       List<LdbcQuery9Result> resultList = new ArrayList<>();
-      try (Session session = driver.session(AccessMode.READ)) {
-        try (Transaction tx = session.beginTransaction()) {
-          StatementResult result = tx.run(statement, parameters);
-          tx.success();
-          tx.close();
-
-          while (result.hasNext()) {
-            Record record = result.next();
-
-            resultList.add(
-                new LdbcQuery9Result(
-                    Long.valueOf(record.get("personId").asString()),
-                    record.get("personFirstName").asString(),
-                    record.get("personLastName").asString(),
-                    Long.valueOf(record.get("messageId").asString()),
-                    record.get("messageContent").asString(),
-                    record.get("messageCreationDate").asLong()));
-          }
-        } catch (ClientException e) {
-          System.out.println("Caught ClientException: " + e.code());
+      try {
+        StatementResult result = state.getSession().run(statement, parameters);
+
+        while (result.hasNext()) {
+          Record record = result.next();
+
+          resultList.add(
+              new LdbcQuery9Result(
+                  DbHelper.asId(record.get("personId")),
+                  record.get("personFirstName").asString(),
+                  record.get("personLastName").asString(),
+                  DbHelper.asId(record.get("messageId")),
+                  record.get("messageContent").asString(),
+                  record.get("messageCreationDate").asLong()));
         }
+      } catch (ClientException e) {
+        System.out.println("Caught ClientException: " + e.code());
       }
 
       resultReporter.report(0, resultList, operation);
@@ -965,7 +935,7 @@ public class Neo4jDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      Driver driver = ((Neo4jDbConnectionState) dbConnectionState).getDriver();
+      Neo4jDbConnectionState state = (Neo4jDbConnectionState) dbConnectionState;
 
       String statement =
           "   MATCH (person:Person {id:{1}})-[:KNOWS*2..2]-(friend:Person)-[:IS_LOCATED_IN]->(city:Place)"
@@ -989,36 +959,32 @@ public class Neo4jDb extends Db {
           + "   friend.gender AS personGender,"
           + "   city.name AS personCityName,"
           + "   commonPostCount - (postCount - commonPostCount) AS commonInterestScore"
-          + " ORDER BY commonInterestScore DESC, toInt(personId) ASC"
+          + " ORDER BY commonInterestScore DESC, " + state.sortId("personId") + " ASC"
           + " LIMIT {3}";
       Value parameters = parameters(
-            "1", String.valueOf(operation.personId()), 
+            "1", state.id(operation.personId()), 
             "2", operation.month(), 
             "3", operation.limit());
 
       // Execute the query and get the results.
       List<LdbcQuery10Result> resultList = new ArrayList<>();
-      try (Session session = driver.session(AccessMode.READ)) {
-        try (Transaction tx = session.beginTransaction()) {
-          StatementResult result = tx.run(statement, parameters);
-          tx.success();
-          tx.close();
-
-          while (result.hasNext()) {
-            Record record = result.next();
-
-            resultList.add(
-                new LdbcQuery10Result(
-                    Long.valueOf(record.get("personId").asString()),
-                    record.get("personFirstName").asString(),
-                    record.get("personLastName").asString(),
-                    record.get("commonInterestScore").asInt(),
-                    record.get("personGender").asString(),
-                    record.get("personCityName").asString()));
-          }
-        } catch (ClientException e) {
-          System.out.println("Caught ClientException: " + e.code());
+      try {
+        StatementResult result = state.getSession().run(statement, parameters);
+
+        while (result.hasNext()) {
+          Record record = result.next();
+
+          resultList.add(
+              new LdbcQuery10Result(
+                  DbHelper.asId(record.get("personId")),
+                  record.get("personFirstName").asString(),
+                  record.get("personLastName").asString(),
+                  record.get("commonInterestScore").asInt(),
+                  record.get("personGender").asString(),
+                  record.get("personCityName").asString()));
         }
+      } catch (ClientException e) {
+        System.out.println("Caught ClientException: " + e.code());
       }
 
       resultReporter.report(0, resultList, operation);
@@ -1044,7 +1010,7 @@ public class Neo4jDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      Driver driver = ((Neo4jDbConnectionState) dbConnectionState).getDriver();
+      Neo4jDbConnectionState state = (Neo4jDbConnectionState) dbConnectionState;
 
       String statement =
           "   MATCH (person:Person {id:{1}})-[:KNOWS*1..2]-(friend:Person)"
@@ -1058,36 +1024,32 @@ public class Neo4jDb extends Db {
           + "   friend.lastName AS friendLastName,"
           + "   company.name AS companyName,"
           + "   worksAt.workFrom AS workFromYear"
-          + " ORDER BY workFromYear ASC, toInt(friendId) ASC, companyName DESC"
+          + " ORDER BY workFromYear ASC, " + state.sortId("friendId") + " ASC, companyName DESC"
           + " LIMIT {4}";
       Value parameters = parameters(
-            "1", String.valueOf(operation.personId()), 
+            "1", state.id(operation.personId()), 
             "2", operation.workFromYear(), 
             "3", operation.countryName(),
             "4", operation.limit());
 
       // Execute the query and get the results.
       List<LdbcQuery11Result> resultList = new ArrayList<>();
-      try (Session session = driver.session(AccessMode.READ)) {
-        try (Transaction tx = session.beginTransaction()) {
-          StatementResult result = tx.run(statement, parameters);
-          tx.success();
-          tx.close();
-
-          while (result.hasNext()) {
-            Record record = result.next();
-
-            resultList.add(
-                new LdbcQuery11Result(
-                    Long.valueOf(record.get("friendId").asString()),
-                    record.get("friendFirstName").asString(),
-                    record.get("friendLastName").asString(),
-                    record.get("companyName").asString(),
-                    record.get("workFromYear").asInt()));
-          }
-        } catch (ClientException e) {
-          System.out.println("Caught ClientException: " + e.code());
+      try {
+        StatementResult result = state.getSession().run(statement, parameters);
+
+        while (result.hasNext()) {
+          Record record = result.next();
+
+          resultList.add(
+              new LdbcQuery11Result(
+                  DbHelper.asId(record.get("friendId")),
+                  record.get("friendFirstName").asString(),
+                  record.get("friendLastName").asString(),
+                  record.get("companyName").asString(),
+                  record.get("workFromYear").asInt()));
         }
+      } catch (ClientException e) {
+        System.out.println("Caught ClientException: " + e.code());
       }
 
       resultReporter.report(0, resultList, operation);
@@ -1116,7 +1078,7 @@ public class Neo4jDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      Driver driver = ((Neo4jDbConnectionState) dbConnectionState).getDriver();
+      Neo4jDbConnectionState state = (Neo4jDbConnectionState) dbConnectionState;
 
       String statement =
           "   MATCH (:Person {id:{1}})-[:KNOWS]-(friend:Person)"
@@ -1130,40 +1092,36 @@ public class Neo4jDb extends Db {
           + "   friend.lastName AS friendLastName,"
           + "   collect(DISTINCT tag.name) AS tagNames,"
           + "   count(DISTINCT comment) AS count"
-          + " ORDER BY count DESC, toInt(friendId) ASC"
+          + " ORDER BY count DESC, " + state.sortId("friendId") + " ASC"
           + " LIMIT {3}";
       Value parameters = parameters(
-            "1", String.valueOf(operation.personId()), 
+            "1", state.id(operation.personId()), 
             "2", operation.tagClassName(), 
             "3", operation.limit());
 
       // Execute the query and get the results.
       List<LdbcQuery12Result> resultList = new ArrayList<>();
-      try (Session session = driver.session(AccessMode.READ)) {
-        try (Transaction tx = session.beginTransaction()) {
-          StatementResult result = tx.run(statement, parameters);
-          tx.success();
-          tx.close();
-
-          while (result.hasNext()) {
-            Record record = result.next();
-
-            if (record.get("count").asInt() > 0) {
-              List<String> tagNames = 
-                  record.get("tagNames").asList((e) -> e.asString());
-
-              resultList.add(
-                  new LdbcQuery12Result(
-                      Long.valueOf(record.get("friendId").asString()),
-                      record.get("friendFirstName").asString(),
-                      record.get("friendLastName").asString(),
-                      tagNames,
-                      record.get("count").asInt()));
-            }
+      try {
+        StatementResult result = state.getSession().run(statement, parameters);
+
+        while (result.hasNext()) {
+          Record record = result.next();
+
+          if (record.get("count").asInt() > 0) {
+            List<String> tagNames = 
+                record.get("tagNames").asList((e) -> e.asString());
+
+            resultList.add(
+                new LdbcQuery12Result(
+                    DbHelper.asId(record.get("friendId")),
+                    record.get("friendFirstName").asString(),
+                    record.get("friendLastName").asString(),
+                    tagNames,
+                    record.get("count").asInt()));
           }
-        } catch (ClientException e) {
-          System.out.println("Caught ClientException: " + e.code());
         }
+      } catch (ClientException e) {
+        System.out.println("Caught ClientException: " + e.code());
       }
 
       resultReporter.report(0, resultList, operation);
@@ -1187,7 +1145,7 @@ public class Neo4jDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      Driver driver = ((Neo4jDbConnectionState) dbConnectionState).getDriver();
+      Neo4jDbConnectionState state = (Neo4jDbConnectionState) dbConnectionState;
 
       String statement =
           "   MATCH (person1:Person {id:{1}}), (person2:Person {id:{2}})"
@@ -1198,29 +1156,25 @@ public class Neo4jDb extends Db {
           + "   ELSE length(path)"
           + " END AS pathLength";
       Value parameters = parameters(
-            "1", String.valueOf(operation.person1Id()), 
-            "2", String.valueOf(operation.person2Id()));
+            "1", state.id(operation.person1Id()), 
+            "2", state.id(operation.person2Id()));
 
       // Execute the query and get the results.
-      try (Session session = driver.session(AccessMode.READ)) {
-        try (Transaction tx = session.beginTransaction()) {
-          StatementResult result = tx.run(statement, parameters);
-          tx.success();
-          tx.close();
-
-          if (result.hasNext()) {
-            Record record = result.next();
-
-            resultReporter.report(
-                0, 
-                new LdbcQuery13Result(record.get("pathLength").asInt()), 
-                operation);
-          } else {
-            resultReporter.report(0, null, operation);
-          }
-        } catch (ClientException e) {
-          System.out.println("Caught ClientException: " + e.code());
+      try {
+        StatementResult result = state.getSession().run(statement, parameters);
+
+        if (result.hasNext()) {
+          Record record = result.next();
+
+          resultReporter.report(
+              0, 
+              new LdbcQuery13Result(record.get("pathLength").asInt()), 
+              operation);
+        } else {
+          resultReporter.report(0, null, operation);
         }
+      } catch (ClientException e) {
+        System.out.println("Caught ClientException: " + e.code());
       }
     }
   }
@@ -1248,7 +1202,7 @@ public class Neo4jDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      Driver driver = ((Neo4jDbConnectionState) dbConnectionState).getDriver();
+      Neo4jDbConnectionState state = (Neo4jDbConnectionState) dbConnectionState;
 
       String statement =
           "   MATCH path = allShortestPaths((person1:Person {id:{1}})-[:KNOWS*..15]-(person2:Person {id:{2}}))"
@@ -1258,35 +1212,31 @@ public class Neo4jDb extends Db {
           + "   reduce(weight=0.0, idx IN range(1,size(pathNodes)-1) | extract(prev IN [pathNodes[idx-1]] | extract(curr IN [pathNodes[idx]] | weight + length((curr)<-[:HAS_CREATOR]-(:Comment)-[:REPLY_OF]->(:Post)-[:HAS_CREATOR]->(prev))*1.0 + length((prev)<-[:HAS_CREATOR]-(:Comment)-[:REPLY_OF]->(:Post)-[:HAS_CREATOR]->(curr))*1.0 + length((prev)-[:HAS_CREATOR]-(:Comment)-[:REPLY_OF]-(:Comment)-[:HAS_CREATOR]-(curr))*0.5) )[0][0]) AS weight"
           + " ORDER BY weight DESC";
       Value parameters = parameters(
-            "1", String.valueOf(operation.person1Id()), 
-            "2", String.valueOf(operation.person2Id()));
+            "1", state.id(operation.person1Id()), 
+            "2", state.id(operation.person2Id()));
 
       // Execute the query and get the results.
       List<LdbcQuery14Result> resultList = new ArrayList<>();
-      try (Session session = driver.session(AccessMode.READ)) {
-        try (Transaction tx = session.beginTransaction()) {
-          StatementResult result = tx.run(statement, parameters);
-          tx.success();
-          tx.close();
+      try {
+        StatementResult result = state.getSession().run(statement, parameters);
 
-          while (result.hasNext()) {
-            Record record = result.next();
+        while (result.hasNext()) {
+          Record record = result.next();
 
-            List<Long> personIdsInPath = new ArrayList<>();
-            if (!record.get("pathNodeIds").isNull()) {
-              personIdsInPath = 
-                  record.get("pathNodeIds").asList((e) -> 
-                      Long.valueOf(e.asString()));
-            }
-
-            resultList.add(
-                new LdbcQuery14Result(
-                    personIdsInPath,
-                    record.get("weight").asDouble()));
+          List<Long> personIdsInPath = new ArrayList<>();
+          if (!record.get("pathNodeIds").isNull()) {
+            personIdsInPath = 
+                record.get("pathNodeIds").asList((e) -> 
+                    DbHelper.asId(e));
           }
-        } catch (ClientException e) {
-          System.out.println("Caught ClientException: " + e.code());
+
+          resultList.add(
+              new LdbcQuery14Result(
+                  personIdsInPath,
+                  record.get("weight").asDouble()));
         }
+      } catch (ClientException e) {
+        System.out.println("Caught ClientException: " + e.code());
       }
 
       resultReporter.report(0, resultList, operation);
@@ -1313,7 +1263,8 @@ public class Neo4jDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      Driver driver = ((Neo4jDbConnectionState) dbConnectionState).getDriver(); 
+      Neo4jDbConnectionState state = (Neo4jDbConnectionState) dbConnectionState;
+
       String statement =
           "   MATCH (n:Person {id:{id}})-[:IS_LOCATED_IN]-(p:Place)"
           + " RETURN"
@@ -1325,33 +1276,27 @@ public class Neo4jDb extends Db {
           + "   n.gender AS gender,"
           + "   n.creationDate AS creationDate,"
           + "   p.id AS cityId";
-      Value parameters = parameters("id", String.valueOf(operation.personId()));
+      Value parameters = parameters("id", state.id(operation.personId()));
 
       // Execute the query and get the results.
-      try (Session session = driver.session(AccessMode.READ)) {
-        try (Transaction tx = session.beginTransaction()) {
-          StatementResult result = tx.run(statement, parameters);
-          tx.success();
-          tx.close();
-
-          if (result.hasNext()) {
-            Record record = result.next();
-
-            resultReporter.report(0, 
-                new LdbcShortQuery1PersonProfileResult(
-                    record.get("firstName").asString(),
-                    record.get("lastName").asString(),
-                    record.get("birthday").asLong(),
-                    record.get("locationIp").asString(),
-                    record.get("browserUsed").asString(),
-                    Long.valueOf(record.get("cityId").asString()),
-                    record.get("gender").asString(),
-                    record.get("creationDate").asLong()),
-                operation);
-          } else {
-            resultReporter.report(0, null, operation);
-          }
-        }
+      StatementResult result = state.getSession().run(statement, parameters);
+
+      if (result.hasNext()) {
+        Record record = result.next();
+
+        resultReporter.report(0, 
+            new LdbcShortQuery1PersonProfileResult(
+                record.get("firstName").asString(),
+                record.get("lastName").asString(),
+                record.get("birthday").asLong(),
+                record.get("locationIp").asString(),
+                record.get("browserUsed").asString(),
+                DbHelper.asId(record.get("cityId")),
+                record.get("gender").asString(),
+                record.get("creationDate").asLong()),
+            operation);
+      } else {
+        resultReporter.report(0, null, operation);
       }
     }
   }
@@ -1375,7 +1320,7 @@ public class Neo4jDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      Driver driver = ((Neo4jDbConnectionState) dbConnectionState).getDriver();
+      Neo4jDbConnectionState state = (Neo4jDbConnectionState) dbConnectionState;
 
       String statement =
           "   MATCH (:Person {id:{id}})<-[:HAS_CREATOR]-(m)-[:REPLY_OF*0..]->(p:Post)"
@@ -1394,30 +1339,24 @@ public class Neo4jDb extends Db {
           + " ORDER BY messageCreationDate DESC"
           + " LIMIT {limit}";
       Value parameters = parameters(
-            "id", String.valueOf(operation.personId()), 
+            "id", state.id(operation.personId()), 
             "limit", operation.limit());
 
       // Execute the query and get the results.
       List<LdbcShortQuery2PersonPostsResult> resultList = new ArrayList<>();
-      try (Session session = driver.session(AccessMode.READ)) {
-        try (Transaction tx = session.beginTransaction()) {
-          StatementResult result = tx.run(statement, parameters);
-          tx.success();
-          tx.close();
-
-          while (result.hasNext()) {
-            Record record = result.next();
-
-            resultList.add(new LdbcShortQuery2PersonPostsResult(
-                Long.valueOf(record.get("messageId").asString()),
-                record.get("messageContent").asString(),
-                record.get("messageCreationDate").asLong(),
-                Long.valueOf(record.get("originalPostId").asString()),
-                Long.valueOf(record.get("originalPostAuthorId").asString()),
-                record.get("originalPostAuthorFirstName").asString(),
-                record.get("originalPostAuthorLastName").asString()));
-          }
-        }
+      StatementResult result = state.getSession().run(statement, parameters);
+
+      while (result.hasNext()) {
+        Record record = result.next();
+
+        resultList.add(new LdbcShortQuery2PersonPostsResult(
+            DbHelper.asId(record.get("messageId")),
+            record.get("messageContent").asString(),
+            record.get("messageCreationDate").asLong(),
+            DbHelper.asId(record.get("originalPostId")),
+            DbHelper.asId(record.get("originalPostAuthorId")),
+            record.get("originalPostAuthorFirstName").asString(),
+            record.get("originalPostAuthorLastName").asString()));
       }
 
       resultReporter.report(0, resultList, operation);
@@ -1440,7 +1379,7 @@ public class Neo4jDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      Driver driver = ((Neo4jDbConnectionState) dbConnectionState).getDriver();
+      Neo4jDbConnectionState state = (Neo4jDbConnectionState) dbConnectionState;
 
       String statement =
           "   MATCH (n:Person {id:{id}})-[r:KNOWS]-(friend)"
@@ -1449,28 +1388,22 @@ public class Neo4jDb extends Db {
           + "   friend.firstName AS firstName,"
           + "   friend.lastName AS lastName,"
           + "   r.creationDate AS friendshipCreationDate"
-          + " ORDER BY friendshipCreationDate DESC, toInt(personId) ASC";
+          + " ORDER BY friendshipCreationDate DESC, " + state.sortId("personId") + " ASC";
       Value parameters = parameters(
-            "id", String.valueOf(operation.personId()));
+            "id", state.id(operation.personId()));
 
       // Execute the query and get the results.
       List<LdbcShortQuery3PersonFriendsResult> resultList = new ArrayList<>();
-      try (Session session = driver.session(AccessMode.READ)) {
-        try (Transaction tx = session.beginTransaction()) {
-          StatementResult result = tx.run(statement, parameters);
-          tx.success();
-          tx.close();
+      StatementResult result = state.getSession().run(statement, parameters);
 
-          while (result.hasNext()) {
-            Record record = result.next();
+      while (result.hasNext()) {
+        Record record = result.next();
 
-            resultList.add(new LdbcShortQuery3PersonFriendsResult(
-                Long.valueOf(record.get("personId").asString()),
-                record.get("firstName").asString(),
-                record.get("lastName").asString(),
-                Long.valueOf(record.get("friendshipCreationDate").asLong())));
-          }
-        }
+        resultList.add(new LdbcShortQuery3PersonFriendsResult(
+            DbHelper.asId(record.get("personId")),
+            record.get("firstName").asString(),
+            record.get("lastName").asString(),
+            Long.valueOf(record.get("friendshipCreationDate").asLong())));
       }
 
       resultReporter.report(0, resultList, operation);
@@ -1492,7 +1425,7 @@ public class Neo4jDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      Driver driver = ((Neo4jDbConnectionState) dbConnectionState).getDriver();
+      Neo4jDbConnectionState state = (Neo4jDbConnectionState) dbConnectionState;
 
       String statement =
           "   MATCH (m:Message {id:{id}})"
@@ -1503,28 +1436,22 @@ public class Neo4jDb extends Db {
           + "   END AS messageContent,"
           + "   m.creationDate as messageCreationDate";
       Value parameters = parameters(
-            "id", String.valueOf(operation.messageId()));
+            "id", state.id(operation.messageId()));
 
       // Execute the query and get the results.
-      try (Session session = driver.session(AccessMode.READ)) {
-        try (Transaction tx = session.beginTransaction()) {
-          StatementResult result = tx.run(statement, parameters);
-          tx.success();
-          tx.close();
+      StatementResult result = state.getSession().run(statement, parameters);
 
-          if (result.hasNext()) {
-            Record record = result.next();
+      if (result.hasNext()) {
+        Record record = result.next();
 
-            resultReporter.report(
-                0, 
-                new LdbcShortQuery4MessageContentResult(
-                    record.get("messageContent").asString(),
-                    record.get("messageCreationDate").asLong()), 
-                operation);
-          } else {
-            resultReporter.report(0, null, operation);
-          }
-        }
+        resultReporter.report(
+            0, 
+            new LdbcShortQuery4MessageContentResult(
+                record.get("messageContent").asString(),
+                record.get("messageCreationDate").asLong()), 
+            operation);
+      } else {
+        resultReporter.report(0, null, operation);
       }
     }
   }
@@ -1543,7 +1470,7 @@ public class Neo4jDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      Driver driver = ((Neo4jDbConnectionState) dbConnectionState).getDriver();
+      Neo4jDbConnectionState state = (Neo4jDbConnectionState) dbConnectionState;
 
       String statement =
           "   MATCH (m:Message {id:{id}})-[:HAS_CREATOR]->(p:Person)"
@@ -1552,29 +1479,23 @@ public class Neo4jDb extends Db {
           + "   p.firstName AS firstName,"
           + "   p.lastName AS lastName";
       Value parameters = parameters(
-            "id", String.valueOf(operation.messageId()));
+            "id", state.id(operation.messageId()));
 
       // Execute the query and get the results.
-      try (Session session = driver.session(AccessMode.READ)) {
-        try (Transaction tx = session.beginTransaction()) {
-          StatementResult result = tx.run(statement, parameters);
-          tx.success();
-          tx.close();
-
-          if (result.hasNext()) {
-            Record record = result.next();
-
-            resultReporter.report(
-                0, 
-                new LdbcShortQuery5MessageCreatorResult(
-                    Long.valueOf(record.get("personId").asString()),
-                    record.get("firstName").asString(),
-                    record.get("lastName").asString()), 
-                operation);
-          } else {
-            resultReporter.report(0, null, operation);
-          }
-        }
+      StatementResult result = state.getSession().run(statement, parameters);
+
+      if (result.hasNext()) {
+        Record record = result.next();
+
+        resultReporter.report(
+            0, 
+            new LdbcShortQuery5MessageCreatorResult(
+                DbHelper.asId(record.get("personId")),
+                record.get("firstName").asString(),
+                record.get("lastName").asString()), 
+            operation);
+      } else {
+        resultReporter.report(0, null, operation);
       }
     }
   }
@@ -1596,7 +1517,7 @@ public class Neo4jDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      Driver driver = ((Neo4jDbConnectionState) dbConnectionState).getDriver();
+      Neo4jDbConnectionState state = (Neo4jDbConnectionState) dbConnectionState;
 
       String statement =
           "   MATCH (m:Message {id:{id}})-[:REPLY_OF*0..]->(p:Post)<-[:CONTAINER_OF]-(f:Forum)-[:HAS_MODERATOR]->(mod:Person)"
@@ -1607,31 +1528,25 @@ public class Neo4jDb extends Db {
           + "   mod.firstName AS moderatorFirstName,"
           + "   mod.lastName AS moderatorLastName";
       Value parameters = parameters(
-            "id", String.valueOf(operation.messageId()));
+            "id", state.id(operation.messageId()));
 
       // Execute the query and get the results.
-      try (Session session = driver.session(AccessMode.READ)) {
-        try (Transaction tx = session.beginTransaction()) {
-          StatementResult result = tx.run(statement, parameters);
-          tx.success();
-          tx.close();
-
-          if (result.hasNext()) {
-            Record record = result.next();
-
-            resultReporter.report(
-                0, 
-                new LdbcShortQuery6MessageForumResult(
-                    Long.valueOf(record.get("forumId").asString()),
-                    record.get("forumTitle").asString(),
-                    Long.valueOf(record.get("moderatorId").asString()),
-                    record.get("moderatorFirstName").asString(),
-                    record.get("moderatorLastName").asString()),
-                operation);
-          } else {
-            resultReporter.report(0, null, operation);
-          }
-        }
+      StatementResult result = state.getSession().run(statement, parameters);
+
+      if (result.hasNext()) {
+        Record record = result.next();
+
+        resultReporter.report(
+            0, 
+            new LdbcShortQuery6MessageForumResult(
+                DbHelper.asId(record.get("forumId")),
+                record.get("forumTitle").asString(),
+                DbHelper.asId(record.get("moderatorId")),
+                record.get("moderatorFirstName").asString(),
+                record.get("moderatorLastName").asString()),
+            operation);
+      } else {
+        resultReporter.report(0, null, operation);
       }
     }
   }
@@ -1654,7 +1569,7 @@ public class Neo4jDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
 
-      Driver driver = ((Neo4jDbConnectionState) dbConnectionState).getDriver();
+      Neo4jDbConnectionState state = (Neo4jDbConnectionState) dbConnectionState;
 
       String statement =
           "   MATCH (m:Message {id:{id}})<-[:REPLY_OF]-(c:Comment)-[:HAS_CREATOR]->(p:Person)"
@@ -1670,31 +1585,25 @@ public class Neo4jDb extends Db {
           + "     WHEN null THEN false"
           + "     ELSE true"
           + "   END AS replyAuthorKnowsOriginalMessageAuthor"
-          + " ORDER BY commentCreationDate DESC, toInt(replyAuthorId) ASC";
+          + " ORDER BY commentCreationDate DESC, " + state.sortId("replyAuthorId") + " ASC";
       Value parameters = parameters(
-            "id", String.valueOf(operation.messageId()));
+            "id", state.id(operation.messageId()));
 
       // Execute the query and get the results.
       List<LdbcShortQuery7MessageRepliesResult> resultList = new ArrayList<>();
-      try (Session session = driver.session(AccessMode.READ)) {
-        try (Transaction tx = session.beginTransaction()) {
-          StatementResult result = tx.run(statement, parameters);
-          tx.success();
-          tx.close();
-
-          while (result.hasNext()) {
-            Record record = result.next();
-
-            resultList.add(new LdbcShortQuery7MessageRepliesResult(
-                Long.valueOf(record.get("commentId").asString()),
-                record.get("commentContent").asString(),
-                record.get("commentCreationDate").asLong(),
-                Long.valueOf(record.get("replyAuthorId").asString()),
-                record.get("replyAuthorFirstName").asString(),
-                record.get("replyAuthorLastName").asString(),
-                record.get("replyAuthorKnowsOriginalMessageAuthor").asBoolean()));
-          }
-        }
+      StatementResult result = state.getSession().run(statement, parameters);
+
+      while (result.hasNext()) {
+        Record record = result.next();
+
+        resultList.add(new LdbcShortQuery7MessageRepliesResult(
+            DbHelper.asId(record.get("commentId")),
+            record.get("commentContent").asString(),
+            record.get("commentCreationDate").asLong(),
+            DbHelper.asId(record.get("replyAuthorId")),
+            record.get("replyAuthorFirstName").asString(),
+            record.get("replyAuthorLastName").asString(),
+            record.get("replyAuthorKnowsOriginalMessageAuthor").asBoolean()));
       }
 
       resultReporter.report(0, resultList, operation);
@@ -1709,13 +1618,10 @@ public class Neo4jDb extends Db {
   /**
    * Add a Person to the social network. [1]
    * <p>
-   * TODO:
-   * <ul>
-   * <li>This query involves creating many relationships of different types.
-   * This is currently done using multiple cypher queries, but it may be
-   * possible to combine them in some way to amortize per query overhead and
-   * thus increase performance.</li>
-   * </ul>
+   * The person and all of its relationships are created with one statement.
+   * Universities and companies are passed as lists of maps rather than
+   * written into the statement, so that the text of the statement is the
+   * same for every person and Neo4j can reuse its cached plan.
    */
   public static class LdbcUpdate1AddPersonHandler implements
       OperationHandler<LdbcUpdate1AddPerson, DbConnectionState> {
@@ -1733,116 +1639,78 @@ public class Neo4jDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter reporter) throws DbException {
 
-      Driver driver = ((Neo4jDbConnectionState) dbConnectionState).getDriver();
-
-      try (Session session = driver.session(AccessMode.WRITE)) {
-        try (Transaction tx = session.beginTransaction()) {
-          // Create the person node.
-          String statement =
-              "   CREATE (p:Person {id: {id}, firstName: {firstName}, lastName: {lastName}, gender: {gender}, birthday: {birthday}, creationDate: {creationDate}, locationIP: {locationIP}, browserUsed: {browserUsed}, speaks: {speaks}, emails: {emails}})";
-          Value parameters = parameters(
-              "id", String.valueOf(operation.personId()),
-              "firstName", operation.personFirstName(),
-              "lastName", operation.personLastName(),
-              "gender", operation.gender(),
-              "birthday", operation.birthday().getTime(),
-              "creationDate", operation.creationDate().getTime(),
-              "locationIP", operation.locationIp(),
-              "browserUsed", operation.browserUsed(),
-              "speaks", operation.languages(),
-              "emails", operation.emails());
-
-          tx.run(statement, parameters);
-
-          // Add isLocatedIn and hasInterest relationships.
-          statement =
-              "   MATCH (p:Person {id:{personId}}),"
-              + "       (c:Place {id:{cityId}})"
-              + " OPTIONAL MATCH (t:Tag)"
-              + " WHERE t.id IN {tagIds}"
-              + " WITH p, c, collect(t) AS tagSet"
-              + " CREATE (p)-[:IS_LOCATED_IN]->(c)"
-              + " FOREACH(t IN tagSet| CREATE (p)-[:HAS_INTEREST]->(t))";
-          parameters = parameters(
-              "personId", String.valueOf(operation.personId()),
-              "cityId", String.valueOf(operation.cityId()),
-              "tagIds", DbHelper.listLongToListString(operation.tagIds()));
-
-          tx.run(statement, parameters);
-
-          // Add studyAt relationships.
-          if (operation.studyAt().size() > 0) {
-            StringBuilder matchBldr = new StringBuilder();
-            StringBuilder createBldr = new StringBuilder();
-            List<Object> params = new ArrayList<>();
-
-            matchBldr.append("MATCH (p:Person {id:{personId}}), ");
-            createBldr.append("CREATE ");
-            params.add("personId");
-            params.add(String.valueOf(operation.personId()));
-
-            for (int i = 0; i < operation.studyAt().size(); i++) {
-              Organization org = operation.studyAt().get(i);
-              if (i > 0) {
-                matchBldr.append(", ");
-                createBldr.append(", ");
-              }
-              matchBldr.append(
-                  String.format("(u%d:Organisation {id:{uId%d}})", i, i));
-              createBldr.append(
-                  String.format("(p)-[:STUDY_AT {classYear:{cY%d}}]->(u%d)", i, i));
-              params.add(String.format("uId%d", i));
-              params.add(String.format("%d", org.organizationId()));
-              params.add(String.format("cY%d", i));
-              params.add(String.format("%d", org.year()));
-            }
-
-
-            statement = matchBldr.toString() + " " + createBldr.toString();
-            parameters = parameters(params.toArray());
-
-            tx.run(statement, parameters);
-          }
+      Neo4jDbConnectionState state = (Neo4jDbConnectionState) dbConnectionState;
 
-          // Add workAt relationships.
-          if (operation.workAt().size() > 0) {
-            StringBuilder matchBldr = new StringBuilder();
-            StringBuilder createBldr = new StringBuilder();
-            List<Object> params = new ArrayList<>();
-
-            matchBldr.append("MATCH (p:Person {id:{personId}}), ");
-            createBldr.append("CREATE ");
-            params.add("personId");
-            params.add(String.valueOf(operation.personId()));
-
-            for (int i = 0; i < operation.workAt().size(); i++) {
-              Organization org = operation.workAt().get(i);
-              if (i > 0) {
-                matchBldr.append(", ");
-                createBldr.append(", ");
-              }
-              matchBldr.append(
-                  String.format("(c%d:Organisation {id:{cId%d}})", i, i));
-              createBldr.append(
-                  String.format("(p)-[:WORK_AT {workFrom:{wF%d}}]->(c%d)", i, i));
-              params.add(String.format("cId%d", i));
-              params.add(String.format("%d", org.organizationId()));
-              params.add(String.format("wF%d", i));
-              params.add(String.format("%d", org.year()));
-            }
-
-            statement = matchBldr.toString() + " " + createBldr.toString();
-            parameters = parameters(params.toArray());
-
-            tx.run(statement, parameters);
-          }
+      /*
+       * Lists of studyAt and workAt relationships are matched against their
+       * organisations in one index lookup each, then created with FOREACH,
+       * which (unlike UNWIND) leaves the rest of the statement running when
+       * a list is empty.
+       */
+      String statement =
+          "   CREATE (p:Person {id: {id}, firstName: {firstName}, lastName: {lastName}, gender: {gender}, birthday: {birthday}, creationDate: {creationDate}, locationIP: {locationIP}, browserUsed: {browserUsed}, speaks: {speaks}, emails: {emails}})"
+          + " WITH p"
+          + " MATCH (c:Place {id:{cityId}})"
+          + " CREATE (p)-[:IS_LOCATED_IN]->(c)"
+          + " WITH p"
+          + " OPTIONAL MATCH (t:Tag)"
+          + " WHERE t.id IN {tagIds}"
+          + " WITH p, collect(t) AS tagSet"
+          + " FOREACH (t IN tagSet| CREATE (p)-[:HAS_INTEREST]->(t))"
+          + " WITH p"
+          + " OPTIONAL MATCH (u:Organisation)"
+          + " WHERE u.id IN [s IN {studyAt} | s.orgId]"
+          + " WITH p, collect(u) AS uniSet"
+          + " FOREACH (s IN {studyAt}|"
+          + "   FOREACH (u IN [x IN uniSet WHERE x.id = s.orgId]|"
+          + "     CREATE (p)-[:STUDY_AT {classYear: s.year}]->(u)))"
+          + " WITH p"
+          + " OPTIONAL MATCH (o:Organisation)"
+          + " WHERE o.id IN [w IN {workAt} | w.orgId]"
+          + " WITH p, collect(o) AS companySet"
+          + " FOREACH (w IN {workAt}|"
+          + "   FOREACH (o IN [x IN companySet WHERE x.id = w.orgId]|"
+          + "     CREATE (p)-[:WORK_AT {workFrom: w.year}]->(o)))";
+      Value parameters = parameters(
+          "id", state.id(operation.personId()),
+          "firstName", operation.personFirstName(),
+          "lastName", operation.personLastName(),
+          "gender", operation.gender(),
+          "birthday", operation.birthday().getTime(),
+          "creationDate", operation.creationDate().getTime(),
+          "locationIP", operation.locationIp(),
+          "browserUsed", operation.browserUsed(),
+          "speaks", operation.languages(),
+          "emails", operation.emails(),
+          "cityId", state.id(operation.cityId()),
+          "tagIds", state.ids(operation.tagIds()),
+          "studyAt", organizations(state, operation.studyAt()),
+          "workAt", organizations(state, operation.workAt()));
+
+      state.getSession().writeTransaction((tx) -> {
+        tx.run(statement, parameters);
+        tx.success();
+        return null;
+      });
 
-          tx.success();
-          tx.close();
-        }
+      reporter.report(0, LdbcNoResult.INSTANCE, operation);
+    }
+
+    /*
+     * Converts a list of organizations to maps of their ID and year for
+     * passing as a statement parameter.
+     */
+    private static List<Map<String, Object>> organizations(
+        Neo4jDbConnectionState state, List<Organization> orgs) {
+      List<Map<String, Object>> maps = new ArrayList<>(orgs.size());
+      for (Organization org : orgs) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("orgId", state.id(org.organizationId()));
+        map.put("year", org.year());
+        maps.add(map);
       }
 
-      reporter.report(0, LdbcNoResult.INSTANCE, operation);
+      return maps;
     }
   }
 
@@ -1860,27 +1728,39 @@ public class Neo4jDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter reporter) throws DbException {
 
-      Driver driver = ((Neo4jDbConnectionState) dbConnectionState).getDriver();
-
-      try (Session session = driver.session(AccessMode.WRITE)) {
-        try (Transaction tx = session.beginTransaction()) {
-          String statement =
-              "   MATCH (p:Person {id:{personId}}),"
-              + "       (m:Post {id:{postId}})"
-              + " CREATE (p)-[:LIKES {creationDate:{creationDate}}]->(m)";
-          Value parameters = parameters(
-              "personId", String.valueOf(operation.personId()),
-              "postId", String.valueOf(operation.postId()),
-              "creationDate", operation.creationDate().getTime());
+      Neo4jDbConnectionState state = (Neo4jDbConnectionState) dbConnectionState;
 
-          tx.run(statement, parameters);
+      UpdateBatcher batcher = state.getUpdateBatcher();
+      if (batcher != null) {
+        batcher.execute(operation);
+      } else {
+        state.getSession().writeTransaction((tx) -> {
+          addToTx(state, tx, operation);
           tx.success();
-          tx.close();
-        }
+          return null;
+        });
       }
 
       reporter.report(0, LdbcNoResult.INSTANCE, operation);
     }
+
+    /**
+     * Runs the statements of this update in tx. Also used by UpdateBatcher to
+     * group many updates into one transaction.
+     */
+    static void addToTx(Neo4jDbConnectionState state, Transaction tx,
+        LdbcUpdate2AddPostLike operation) {
+      String statement =
+          "   MATCH (p:Person {id:{personId}}),"
+          + "       (m:Post {id:{postId}})"
+          + " CREATE (p)-[:LIKES {creationDate:{creationDate}}]->(m)";
+      Value parameters = parameters(
+          "personId", state.id(operation.personId()),
+          "postId", state.id(operation.postId()),
+          "creationDate", operation.creationDate().getTime());
+
+      tx.run(statement, parameters);
+    }
   }
 
   /**
@@ -1897,27 +1777,38 @@ public class Neo4jDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter reporter) throws DbException {
 
-      Driver driver = ((Neo4jDbConnectionState) dbConnectionState).getDriver();
-
-      try (Session session = driver.session(AccessMode.WRITE)) {
-        try (Transaction tx = session.beginTransaction()) {
-          String statement =
-              "   MATCH (p:Person {id:{personId}}),"
-              + "       (m:Comment {id:{commentId}})"
-              + " CREATE (p)-[:LIKES {creationDate:{creationDate}}]->(m)";
-          Value parameters = parameters(
-              "personId", String.valueOf(operation.personId()),
-              "commentId", String.valueOf(operation.commentId()),
-              "creationDate", operation.creationDate().getTime());
+      Neo4jDbConnectionState state = (Neo4jDbConnectionState) dbConnectionState;
 
-          tx.run(statement, parameters);
+      UpdateBatcher batcher = state.getUpdateBatcher();
+      if (batcher != null) {
+        batcher.execute(operation);
+      } else {
+        state.getSession().writeTransaction((tx) -> {
+          addToTx(state, tx, operation);
           tx.success();
-          tx.close();
-        }
+          return null;
+        });
       }
 
       reporter.report(0, LdbcNoResult.INSTANCE, operation);
     }
+
+    /**
+     * Runs the statements of this update in tx.
+     */
+    static void addToTx(Neo4jDbConnectionState state, Transaction tx,
+        LdbcUpdate3AddCommentLike operation) {
+      String statement =
+          "   MATCH (p:Person {id:{personId}}),"
+          + "       (m:Comment {id:{commentId}})"
+          + " CREATE (p)-[:LIKES {creationDate:{creationDate}}]->(m)";
+      Value parameters = parameters(
+          "personId", state.id(operation.personId()),
+          "commentId", state.id(operation.commentId()),
+          "creationDate", operation.creationDate().getTime());
+
+      tx.run(statement, parameters);
+    }
   }
 
   /**
@@ -1934,43 +1825,47 @@ public class Neo4jDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter reporter) throws DbException {
 
-      Driver driver = ((Neo4jDbConnectionState) dbConnectionState).getDriver();
-
-      try (Session session = driver.session(AccessMode.WRITE)) {
-        try (Transaction tx = session.beginTransaction()) {
-          // Create the forum node.
-          String statement =
-              "   CREATE (f:Forum {id: {id}, title: {title}, creationDate: {creationDate}})";
-          Value parameters = parameters(
-              "id", String.valueOf(operation.forumId()),
-              "title", operation.forumTitle(),
-              "creationDate", operation.creationDate().getTime());
-
-          tx.run(statement, parameters);
-
-          // Add hasModerator and hasTag relationships.
-          statement =
-              "   MATCH (f:Forum {id:{forumId}}),"
-              + "       (p:Person {id:{moderatorId}})"
-              + " OPTIONAL MATCH (t:Tag)"
-              + " WHERE t.id IN {tagIds}"
-              + " WITH f, p, collect(t) as tagSet"
-              + " CREATE (f)-[:HAS_MODERATOR]->(p)"
-              + " FOREACH (t IN tagSet| CREATE (f)-[:HAS_TAG]->(t))";
-          parameters = parameters(
-              "forumId", String.valueOf(operation.forumId()),
-              "moderatorId", String.valueOf(operation.moderatorPersonId()),
-              "tagIds", DbHelper.listLongToListString(operation.tagIds()));
-
-          tx.run(statement, parameters);
+      Neo4jDbConnectionState state = (Neo4jDbConnectionState) dbConnectionState;
 
+      UpdateBatcher batcher = state.getUpdateBatcher();
+      if (batcher != null) {
+        batcher.execute(operation);
+      } else {
+        state.getSession().writeTransaction((tx) -> {
+          addToTx(state, tx, operation);
           tx.success();
-          tx.close();
-        }
+          return null;
+        });
       }
 
       reporter.report(0, LdbcNoResult.INSTANCE, operation);
     }
+
+    /**
+     * Runs the statements of this update in tx.
+     */
+    static void addToTx(Neo4jDbConnectionState state, Transaction tx,
+        LdbcUpdate4AddForum operation) {
+      // Create the forum node and its hasModerator and hasTag relationships.
+      String statement =
+          "   CREATE (f:Forum {id: {id}, title: {title}, creationDate: {creationDate}})"
+          + " WITH f"
+          + " MATCH (p:Person {id:{moderatorId}})"
+          + " CREATE (f)-[:HAS_MODERATOR]->(p)"
+          + " WITH f"
+          + " OPTIONAL MATCH (t:Tag)"
+          + " WHERE t.id IN {tagIds}"
+          + " WITH f, collect(t) as tagSet"
+          + " FOREACH (t IN tagSet| CREATE (f)-[:HAS_TAG]->(t))";
+      Value parameters = parameters(
+          "id", state.id(operation.forumId()),
+          "title", operation.forumTitle(),
+          "creationDate", operation.creationDate().getTime(),
+          "moderatorId", state.id(operation.moderatorPersonId()),
+          "tagIds", state.ids(operation.tagIds()));
+
+      tx.run(statement, parameters);
+    }
   }
 
   /**
@@ -1987,27 +1882,38 @@ public class Neo4jDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter reporter) throws DbException {
 
-      Driver driver = ((Neo4jDbConnectionState) dbConnectionState).getDriver();
-
-      try (Session session = driver.session(AccessMode.WRITE)) {
-        try (Transaction tx = session.beginTransaction()) {
-          String statement =
-              "   MATCH (f:Forum {id:{forumId}}),"
-              + "       (p:Person {id:{personId}})"
-              + " CREATE (f)-[:HAS_MEMBER {joinDate:{joinDate}}]->(p)";
-          Value parameters = parameters(
-              "forumId", String.valueOf(operation.forumId()),
-              "personId", String.valueOf(operation.personId()),
-              "joinDate", operation.joinDate().getTime());
+      Neo4jDbConnectionState state = (Neo4jDbConnectionState) dbConnectionState;
 
-          tx.run(statement, parameters);
+      UpdateBatcher batcher = state.getUpdateBatcher();
+      if (batcher != null) {
+        batcher.execute(operation);
+      } else {
+        state.getSession().writeTransaction((tx) -> {
+          addToTx(state, tx, operation);
           tx.success();
-          tx.close();
-        }
+          return null;
+        });
       }
 
       reporter.report(0, LdbcNoResult.INSTANCE, operation);
     }
+
+    /**
+     * Runs the statements of this update in tx.
+     */
+    static void addToTx(Neo4jDbConnectionState state, Transaction tx,
+        LdbcUpdate5AddForumMembership operation) {
+      String statement =
+          "   MATCH (f:Forum {id:{forumId}}),"
+          + "       (p:Person {id:{personId}})"
+          + " CREATE (f)-[:HAS_MEMBER {joinDate:{joinDate}}]->(p)";
+      Value parameters = parameters(
+          "forumId", state.id(operation.forumId()),
+          "personId", state.id(operation.personId()),
+          "joinDate", operation.joinDate().getTime());
+
+      tx.run(statement, parameters);
+    }
   }
 
   /**
@@ -2024,68 +1930,78 @@ public class Neo4jDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter reporter) throws DbException {
 
-      Driver driver = ((Neo4jDbConnectionState) dbConnectionState).getDriver();
-
-      try (Session session = driver.session(AccessMode.WRITE)) {
-        try (Transaction tx = session.beginTransaction()) {
-          // Create the post node.
-          String statement;
-          Value parameters;
-          if (operation.imageFile().length() > 0) {
-            statement =
-                "   CREATE (m:Post:Message {id: {id}, imageFile: {imageFile}, creationDate: {creationDate}, locationIP: {locationIP}, browserUsed: {browserUsed}, language: {language}, length: {length}})";
-            parameters = parameters(
-                "id", String.valueOf(operation.postId()),
-                "imageFile", operation.imageFile(),
-                "creationDate", operation.creationDate().getTime(),
-                "locationIP", operation.locationIp(),
-                "browserUsed", operation.browserUsed(),
-                "language", operation.language(),
-                "length", operation.length());
-          } else {
-            statement =
-                "   CREATE (m:Post:Message {id: {id}, creationDate: {creationDate}, locationIP: {locationIP}, browserUsed: {browserUsed}, language: {language}, content: {content}, length: {length}})";
-            parameters = parameters(
-                "id", String.valueOf(operation.postId()),
-                "creationDate", operation.creationDate().getTime(),
-                "locationIP", operation.locationIp(),
-                "browserUsed", operation.browserUsed(),
-                "language", operation.language(),
-                "content", operation.content(),
-                "length", operation.length());
-          }
-
-          tx.run(statement, parameters);
-
-          // Add hasCreator, containerOf, isLocatedIn, and hasTag relationships.
-          statement =
-              "   MATCH (m:Post {id:{postId}}),"
-              + "       (p:Person {id:{authorId}}),"
-              + "       (f:Forum {id:{forumId}}),"
-              + "       (c:Place {id:{countryId}})"
-              + " OPTIONAL MATCH (t:Tag)"
-              + " WHERE t.id IN {tagIds}"
-              + " WITH m, p, f, c, collect(t) as tagSet"
-              + " CREATE (m)-[:HAS_CREATOR]->(p),"
-              + "        (m)<-[:CONTAINER_OF]-(f),"
-              + "        (m)-[:IS_LOCATED_IN]->(c)"
-              + " FOREACH (t IN tagSet| CREATE (m)-[:HAS_TAG]->(t))";
-          parameters = parameters(
-              "postId", String.valueOf(operation.postId()),
-              "authorId", String.valueOf(operation.authorPersonId()),
-              "forumId", String.valueOf(operation.forumId()),
-              "countryId", String.valueOf(operation.countryId()),
-              "tagIds", DbHelper.listLongToListString(operation.tagIds()));
-
-          tx.run(statement, parameters);
+      Neo4jDbConnectionState state = (Neo4jDbConnectionState) dbConnectionState;
 
+      UpdateBatcher batcher = state.getUpdateBatcher();
+      if (batcher != null) {
+        batcher.execute(operation);
+      } else {
+        state.getSession().writeTransaction((tx) -> {
+          addToTx(state, tx, operation);
           tx.success();
-          tx.close();
-        }
+          return null;
+        });
       }
 
       reporter.report(0, LdbcNoResult.INSTANCE, operation);
     }
+
+    /**
+     * Runs the statements of this update in tx.
+     */
+    static void addToTx(Neo4jDbConnectionState state, Transaction tx,
+        LdbcUpdate6AddPost operation) {
+      // Create the post node.
+      String statement;
+      Value parameters;
+      if (operation.imageFile().length() > 0) {
+        statement =
+            "   CREATE (m:Post:Message {id: {id}, imageFile: {imageFile}, creationDate: {creationDate}, locationIP: {locationIP}, browserUsed: {browserUsed}, language: {language}, length: {length}})";
+        parameters = parameters(
+            "id", state.id(operation.postId()),
+            "imageFile", operation.imageFile(),
+            "creationDate", operation.creationDate().getTime(),
+            "locationIP", operation.locationIp(),
+            "browserUsed", operation.browserUsed(),
+            "language", operation.language(),
+            "length", operation.length());
+      } else {
+        statement =
+            "   CREATE (m:Post:Message {id: {id}, creationDate: {creationDate}, locationIP: {locationIP}, browserUsed: {browserUsed}, language: {language}, content: {content}, length: {length}})";
+        parameters = parameters(
+            "id", state.id(operation.postId()),
+            "creationDate", operation.creationDate().getTime(),
+            "locationIP", operation.locationIp(),
+            "browserUsed", operation.browserUsed(),
+            "language", operation.language(),
+            "content", operation.content(),
+            "length", operation.length());
+      }
+
+      tx.run(statement, parameters);
+
+      // Add hasCreator, containerOf, isLocatedIn, and hasTag relationships.
+      statement =
+          "   MATCH (m:Post {id:{postId}}),"
+          + "       (p:Person {id:{authorId}}),"
+          + "       (f:Forum {id:{forumId}}),"
+          + "       (c:Place {id:{countryId}})"
+          + " OPTIONAL MATCH (t:Tag)"
+          + " WHERE t.id IN {tagIds}"
+          + " WITH m, p, f, c, collect(t) as tagSet"
+          + " CREATE (m)-[:HAS_CREATOR]->(p),"
+          + "        (m)<-[:CONTAINER_OF]-(f),"
+          + "        (m)-[:IS_LOCATED_IN]->(c)"
+          + " FOREACH (t IN tagSet| CREATE (m)-[:HAS_TAG]->(t))";
+      parameters = parameters(
+          "postId", state.id(operation.postId()),
+          "authorId", state.id(operation.authorPersonId()),
+          "forumId", state.id(operation.forumId()),
+          "countryId", state.id(operation.countryId()),
+          "tagIds", state.ids(operation.tagIds()));
+
+      tx.run(statement, parameters);
+    }
   }
 
   /**
@@ -2102,59 +2018,69 @@ public class Neo4jDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter reporter) throws DbException {
 
-      Driver driver = ((Neo4jDbConnectionState) dbConnectionState).getDriver();
-
-      try (Session session = driver.session(AccessMode.WRITE)) {
-        try (Transaction tx = session.beginTransaction()) {
-          // Create the comment node.
-          String statement =
-              "   CREATE (c:Comment:Message {id: {id}, creationDate: {creationDate}, locationIP: {locationIP}, browserUsed: {browserUsed}, content: {content}, length: {length}})";
-          Value parameters = parameters(
-              "id", String.valueOf(operation.commentId()),
-              "creationDate", operation.creationDate().getTime(),
-              "locationIP", operation.locationIp(),
-              "browserUsed", operation.browserUsed(),
-              "content", operation.content(),
-              "length", operation.length());
-
-          tx.run(statement, parameters);
-
-          Long replyOfId;
-          if (operation.replyToCommentId() != -1) {
-            replyOfId = operation.replyToCommentId();
-          } else {
-            replyOfId = operation.replyToPostId();
-          }
-
-          // Add hasCreator, containerOf, isLocatedIn, and hasTag relationships.
-          statement =
-              "   MATCH (m:Comment {id:{commentId}}),"
-              + "       (p:Person {id:{authorId}}),"
-              + "       (r:Message {id:{replyOfId}}),"
-              + "       (c:Place {id:{countryId}})"
-              + " OPTIONAL MATCH (t:Tag)"
-              + " WHERE t.id IN {tagIds}"
-              + " WITH m, p, r, c, collect(t) as tagSet"
-              + " CREATE (m)-[:HAS_CREATOR]->(p),"
-              + "        (m)-[:REPLY_OF]->(r),"
-              + "        (m)-[:IS_LOCATED_IN]->(c)"
-              + " FOREACH (t IN tagSet| CREATE (m)-[:HAS_TAG]->(t))";
-          parameters = parameters(
-              "commentId", String.valueOf(operation.commentId()),
-              "authorId", String.valueOf(operation.authorPersonId()),
-              "replyOfId", String.valueOf(replyOfId),
-              "countryId", String.valueOf(operation.countryId()),
-              "tagIds", DbHelper.listLongToListString(operation.tagIds()));
-
-          tx.run(statement, parameters);
+      Neo4jDbConnectionState state = (Neo4jDbConnectionState) dbConnectionState;
 
+      UpdateBatcher batcher = state.getUpdateBatcher();
+      if (batcher != null) {
+        batcher.execute(operation);
+      } else {
+        state.getSession().writeTransaction((tx) -> {
+          addToTx(state, tx, operation);
           tx.success();
-          tx.close();
-        }
+          return null;
+        });
       }
 
       reporter.report(0, LdbcNoResult.INSTANCE, operation);
     }
+
+    /**
+     * Runs the statements of this update in tx.
+     */
+    static void addToTx(Neo4jDbConnectionState state, Transaction tx,
+        LdbcUpdate7AddComment operation) {
+      // Create the comment node.
+      String statement =
+          "   CREATE (c:Comment:Message {id: {id}, creationDate: {creationDate}, locationIP: {locationIP}, browserUsed: {browserUsed}, content: {content}, length: {length}})";
+      Value parameters = parameters(
+          "id", state.id(operation.commentId()),
+          "creationDate", operation.creationDate().getTime(),
+          "locationIP", operation.locationIp(),
+          "browserUsed", operation.browserUsed(),
+          "content", operation.content(),
+          "length", operation.length());
+
+      tx.run(statement, parameters);
+
+      Long replyOfId;
+      if (operation.replyToCommentId() != -1) {
+        replyOfId = operation.replyToCommentId();
+      } else {
+        replyOfId = operation.replyToPostId();
+      }
+
+      // Add hasCreator, containerOf, isLocatedIn, and hasTag relationships.
+      statement =
+          "   MATCH (m:Comment {id:{commentId}}),"
+          + "       (p:Person {id:{authorId}}),"
+          + "       (r:Message {id:{replyOfId}}),"
+          + "       (c:Place {id:{countryId}})"
+          + " OPTIONAL MATCH (t:Tag)"
+          + " WHERE t.id IN {tagIds}"
+          + " WITH m, p, r, c, collect(t) as tagSet"
+          + " CREATE (m)-[:HAS_CREATOR]->(p),"
+          + "        (m)-[:REPLY_OF]->(r),"
+          + "        (m)-[:IS_LOCATED_IN]->(c)"
+          + " FOREACH (t IN tagSet| CREATE (m)-[:HAS_TAG]->(t))";
+      parameters = parameters(
+          "commentId", state.id(operation.commentId()),
+          "authorId", state.id(operation.authorPersonId()),
+          "replyOfId", state.id(replyOfId),
+          "countryId", state.id(operation.countryId()),
+          "tagIds", state.ids(operation.tagIds()));
+
+      tx.run(statement, parameters);
+    }
   }
 
   /**
@@ -2171,27 +2097,37 @@ public class Neo4jDb extends Db {
         DbConnectionState dbConnectionState,
         ResultReporter reporter) throws DbException {
 
-      Driver driver = ((Neo4jDbConnectionState) dbConnectionState).getDriver();
-
-      try (Session session = driver.session(AccessMode.WRITE)) {
-        try (Transaction tx = session.beginTransaction()) {
-          String statement =
-              "   MATCH (p1:Person {id:{person1Id}}),"
-              + "       (p2:Person {id:{person2Id}})"
-              + " CREATE (p1)-[:KNOWS {creationDate:{creationDate}}]->(p2)";
-          Value parameters = parameters(
-              "person1Id", String.valueOf(operation.person1Id()),
-              "person2Id", String.valueOf(operation.person2Id()),
-              "creationDate", operation.creationDate().getTime());
-
-          tx.run(statement, parameters);
+      Neo4jDbConnectionState state = (Neo4jDbConnectionState) dbConnectionState;
 
+      UpdateBatcher batcher = state.getUpdateBatcher();
+      if (batcher != null) {
+        batcher.execute(operation);
+      } else {
+        state.getSession().writeTransaction((tx) -> {
+          addToTx(state, tx, operation);
           tx.success();
-          tx.close();
-        }
+          return null;
+        });
       }
 
       reporter.report(0, LdbcNoResult.INSTANCE, operation);
     }
+
+    /**
+     * Runs the statements of this update in tx.
+     */
+    static void addToTx(Neo4jDbConnectionState state, Transaction tx,
+        LdbcUpdate8AddFriendship operation) {
+      String statement =
+          "   MATCH (p1:Person {id:{person1Id}}),"
+          + "       (p2:Person {id:{person2Id}})"
+          + " CREATE (p1)-[:KNOWS {creationDate:{creationDate}}]->(p2)";
+      Value parameters = parameters(
+          "person1Id", state.id(operation.person1Id()),
+          "person2Id", state.id(operation.person2Id()),
+          "creationDate", operation.creationDate().getTime());
+
+      tx.run(statement, parameters);
+    }
   }
 }
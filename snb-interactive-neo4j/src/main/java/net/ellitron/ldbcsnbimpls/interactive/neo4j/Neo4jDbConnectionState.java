@@ -20,6 +20,8 @@ import static org.neo4j.driver.v1.Values.parameters;
 
 import com.ldbc.driver.DbConnectionState;
 
+import net.ellitron.ldbcsnbimpls.interactive.neo4j.util.DbHelper;
+
 import org.neo4j.driver.v1.AuthTokens;
 import org.neo4j.driver.v1.Config;
 import org.neo4j.driver.v1.Driver;
@@ -30,13 +32,16 @@ import org.neo4j.driver.v1.StatementResult;
 import org.neo4j.driver.v1.Transaction;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Encapsulates the state of a connection to a Neo4j database. An instance of
  * this object is created on benchmark initialization, and then subsequently
  * passed to each query on execution. It is essentially a wrapper for the Neo4j
- * Bolt driver, which maintains all connection state to the Neo4j cluster.
+ * Bolt driver, which maintains all connection state to the Neo4j cluster,
+ * plus a session for each thread executing queries.
  *
  * @author Jonathan Ellithorpe (jde@cs.stanford.edu)
  */
@@ -44,6 +49,26 @@ public class Neo4jDbConnectionState extends DbConnectionState {
 
   private Driver driver;
 
+  /*
+   * Each thread has its own session that it reuses for all of its queries,
+   * instead of checking out a new one per query. Would have used a
+   * ThreadLocal here but sessions need to be closed when close() is called at
+   * the end of the workload, and a ThreadLocal can't be iterated over.
+   */
+  private final ConcurrentHashMap<Thread, Session> threadLocalSessions =
+      new ConcurrentHashMap<>();
+
+  /*
+   * Whether the database stores IDs as integers (loaded from files converted
+   * with the DataFormatConverter's --longIds option) rather than strings.
+   * Determines the type of the ID parameters passed to queries, which must
+   * match the stored type for index lookups to find anything.
+   */
+  private final boolean longIds;
+
+  // Group commits updates, or null if not enabled.
+  private final UpdateBatcher updateBatcher;
+
   public Neo4jDbConnectionState(Map<String, String> props) {
     
     /*
@@ -70,13 +95,51 @@ public class Neo4jDbConnectionState extends DbConnectionState {
       protocol = "bolt";
     }
 
+    /*
+     * Maximum number of idle Bolt connections the driver keeps open for
+     * reuse. Should be at least the number of threads executing queries,
+     * otherwise connections are closed and reopened between queries.
+     */
+    int connectionPoolSize;
+    if (props.containsKey("connectionPoolSize")) {
+      connectionPoolSize = Integer.decode(props.get("connectionPoolSize"));
+    } else {
+      connectionPoolSize = 10;
+    }
+
+    if (props.containsKey("longIds")) {
+      this.longIds = Boolean.parseBoolean(props.get("longIds"));
+    } else {
+      this.longIds = false;
+    }
+
     /*
      * Configure driver to NOT use encryption (for lowest possible latency),
      * and no authentication.
      */
     this.driver = GraphDatabase.driver(protocol + "://" + host, 
         Config.build().withEncryptionLevel(Config.EncryptionLevel.NONE)
+        .withMaxIdleConnections(connectionPoolSize)
         .toConfig());
+
+    /*
+     * If groupCommitMaxOps is given, updates from concurrent driver threads
+     * are committed in groups of up to that many, waiting up to
+     * groupCommitWindow microseconds for a group to fill.
+     */
+    if (props.containsKey("groupCommitMaxOps")) {
+      long groupCommitWindow;
+      if (props.containsKey("groupCommitWindow")) {
+        groupCommitWindow = Long.decode(props.get("groupCommitWindow"));
+      } else {
+        groupCommitWindow = 100;
+      }
+
+      this.updateBatcher = new UpdateBatcher(this,
+          Integer.decode(props.get("groupCommitMaxOps")), groupCommitWindow);
+    } else {
+      this.updateBatcher = null;
+    }
   }
 
   /**
@@ -84,6 +147,16 @@ public class Neo4jDbConnectionState extends DbConnectionState {
    */
   @Override
   public void close() throws IOException {
+    if (updateBatcher != null) {
+      System.out.println(updateBatcher.toString());
+    }
+
+    threadLocalSessions.forEach((thread, session) -> {
+      session.close();
+    });
+
+    threadLocalSessions.clear();
+
     driver.close();
   }
 
@@ -95,4 +168,81 @@ public class Neo4jDbConnectionState extends DbConnectionState {
   public Driver getDriver() {
     return driver;
   }
+
+  /**
+   * Returns the UpdateBatcher for group committing updates.
+   *
+   * @return The UpdateBatcher, or null if group commit is not enabled.
+   */
+  public UpdateBatcher getUpdateBatcher() {
+    return updateBatcher;
+  }
+
+  /**
+   * Returns the calling thread's session, opening it on first use. Read-only
+   * queries are run on it directly as auto-commit transactions, which takes
+   * a single round trip to the server instead of separate ones for BEGIN,
+   * the query and COMMIT. Updates use its writeTransaction().
+   *
+   * @return This thread's session.
+   */
+  public Session getSession() {
+    Thread us = Thread.currentThread();
+
+    Session session = threadLocalSessions.get(us);
+    if (session == null || !session.isOpen()) {
+      session = driver.session();
+      threadLocalSessions.put(us, session);
+    }
+
+    return session;
+  }
+
+  /**
+   * Returns an ID in the form stored in the database, for use as a query
+   * parameter.
+   *
+   * @param id The ID.
+   *
+   * @return The ID as a Long or a String.
+   */
+  public Object id(long id) {
+    if (longIds) {
+      return id;
+    } else {
+      return String.valueOf(id);
+    }
+  }
+
+  /**
+   * Returns a list of IDs in the form stored in the database, for use as a
+   * query parameter.
+   *
+   * @param ids List of IDs.
+   *
+   * @return List of Longs or Strings.
+   */
+  public Object ids(List<Long> ids) {
+    if (longIds) {
+      return ids;
+    } else {
+      return DbHelper.listLongToListString(ids);
+    }
+  }
+
+  /**
+   * Returns a Cypher expression for sorting on an ID in numeric order. String
+   * IDs need converting for each row, integer IDs are sorted as they are.
+   *
+   * @param expr Cypher expression evaluating to an ID.
+   *
+   * @return Cypher expression to sort on.
+   */
+  public String sortId(String expr) {
+    if (longIds) {
+      return expr;
+    } else {
+      return "toInt(" + expr + ")";
+    }
+  }
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2019 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.neo4j;
+
+import java.util.List;
+
+/**
+ * Receives the rows of statement results from Neo4jTransactionDriver as they
+ * are parsed off of the response stream, instead of as Neo4jCypherResult
+ * objects after the whole response has been read.
+ * <p>
+ * Values in a row are decoded from JSON to the following types: strings to
+ * String, integral numbers to Long, other numbers to Double, booleans to
+ * Boolean, null to null, arrays to List&lt;Object&gt;, and objects (e.g. nodes
+ * and maps) to Map&lt;String, Object&gt;.
+ *
+ * @author Jonathan Ellithorpe (jde@cs.stanford.edu)
+ */
+public interface Neo4jRowHandler {
+
+  /**
+   * Called once for each statement with the names of its result columns,
+   * before any of its rows.
+   *
+   * @param statement Index of the statement in enqueue order.
+   * @param columns Column names.
+   */
+  default void columns(int statement, List<String> columns) {
+  }
+
+  /**
+   * Called for each row of a statement's result, in order.
+   *
+   * @param statement Index of the statement in enqueue order.
+   * @param row Values of the row, in column order.
+   */
+  void row(int statement, List<Object> row);
+}
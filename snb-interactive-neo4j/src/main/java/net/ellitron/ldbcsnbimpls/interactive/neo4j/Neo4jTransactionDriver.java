@@ -17,6 +17,7 @@
 package net.ellitron.ldbcsnbimpls.interactive.neo4j;
 
 import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandlerException;
 import com.sun.jersey.api.client.ClientResponse;
 
 import org.slf4j.Logger;
@@ -26,12 +27,16 @@ import java.util.ArrayList;
 import java.util.List;
 import java.io.StringReader;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonArrayBuilder;
+import javax.json.JsonException;
 import javax.json.JsonObject;
 import javax.json.JsonReader;
+import javax.json.stream.JsonParser;
 import javax.ws.rs.core.MediaType;
 
 /**
@@ -48,6 +53,12 @@ import javax.ws.rs.core.MediaType;
  * situations (for instance, adding a node to the graph) this can save a round
  * trip to the database and save latency.
  * <p>
+ * Both exec and execAndCommit can also be given a {@link Neo4jRowHandler}, in
+ * which case the response is parsed as it streams in from the server and
+ * each row is handed to the handler as soon as it has been decoded. This
+ * avoids holding the whole response body and its parsed object tree in
+ * memory at once, which matters for queries returning many rows.
+ * <p>
  * Special Notes:<br>
  * <ul>
  * <li>This class is not thread-safe. Such thread-safety would have no benefit
@@ -81,9 +92,12 @@ public class Neo4jTransactionDriver {
 
   // Jersey client instance. Used to create WebResource objects, which are in
   // turn used to send requests and return responses to/from the server. This 
-  // object is expensive to create, so we reuse a single instance for all 
-  // operations.
-  private final Client client;
+  // object is expensive to create, so we share a single instance among all
+  // drivers. Requests go through the JDK's HttpURLConnection, which keeps
+  // connections alive and reuses them for later requests to the same server
+  // once a response has been read to the end and closed (how many idle
+  // connections are kept is set by the http.maxConnections system property).
+  private static final Client client = Client.create();
 
   // The root URI of all other URIs used to drive transactions on the server.
   private final String serverRootURI;
@@ -102,7 +116,6 @@ public class Neo4jTransactionDriver {
    * @param port Port of the Neo4j HTTP web server.
    */
   public Neo4jTransactionDriver(String host, String port) {
-    this.client = Client.create();
     this.serverRootURI = "http://" + host + ":" + port + "/db/data";
   }
 
@@ -521,6 +534,95 @@ public class Neo4jTransactionDriver {
     return resultList;
   }
 
+  /**
+   * Same as {@link #exec()}, except that result rows are streamed to the given
+   * handler as they are parsed from the server's response rather than
+   * returned.
+   * <p>
+   * Errors are reported by the server after the results, so the handler may
+   * have been given rows of a transaction before the exception is thrown.
+   *
+   * @param handler Receives result rows in statement enqueue order.
+   *
+   * @throws Neo4jCommunicationException If there is a communication problem
+   * with the server.
+   * @throws Neo4jTransactionException If there was a problem with executing
+   * one or more statements on the server.
+   */
+  public void exec(Neo4jRowHandler handler) {
+    if (statementQueue.isEmpty()) {
+      return;
+    }
+
+    String uri;
+    if (currentTxLocation == null) {
+      uri = serverRootURI + "/transaction";
+    } else {
+      uri = currentTxLocation;
+    }
+
+    ClientResponse response;
+    try {
+      response = post(uri);
+    } catch (Exception e) { // Pokemon Exception Handling
+      currentTxLocation = null;
+      throw new Neo4jCommunicationException(e);
+    }
+
+    if (currentTxLocation == null) {
+      currentTxLocation = response.getLocation().toString();
+    }
+
+    try {
+      streamResponse(response, handler);
+    } catch (RuntimeException e) {
+      /*
+       * Either the server rolled back the transaction on error or we lost
+       * track of it part way through the response. Either way reset.
+       */
+      currentTxLocation = null;
+      throw e;
+    }
+  }
+
+  /**
+   * Same as {@link #execAndCommit()}, except that result rows are streamed to
+   * the given handler as they are parsed from the server's response rather
+   * than returned. See {@link #exec(Neo4jRowHandler)}.
+   *
+   * @param handler Receives result rows in statement enqueue order.
+   *
+   * @throws Neo4jCommunicationException If there is a communication problem
+   * with the server.
+   * @throws Neo4jTransactionException If there was a problem with executing
+   * one or more statements on the server.
+   */
+  public void execAndCommit(Neo4jRowHandler handler) {
+    if (statementQueue.isEmpty()) {
+      commit();
+      return;
+    }
+
+    String uri;
+    if (currentTxLocation == null) {
+      uri = serverRootURI + "/transaction/commit";
+    } else {
+      uri = currentTxLocation + "/commit";
+    }
+
+    ClientResponse response;
+    try {
+      response = post(uri);
+    } catch (Exception e) { // Pokemon Exception Handling
+      throw new Neo4jCommunicationException(e);
+    } finally {
+      // Committed or rolled back by now, or forgotten on failure.
+      currentTxLocation = null;
+    }
+
+    streamResponse(response, handler);
+  }
+
   /**
    * Commit the current transaction. If there is no open transaction then the
    * method returns immediately.
@@ -788,6 +890,200 @@ public class Neo4jTransactionDriver {
     }
   }
 
+  /**
+   * Sends the statements in the queue to the given URI, clearing the queue,
+   * and asks the server to stream its response.
+   *
+   * @param uri URI to post the statements to.
+   *
+   * @return The server's response, with its body not yet read.
+   */
+  private ClientResponse post(String uri) {
+    String requestPayload = makeTxReqPayload();
+
+    statementQueue.clear();
+
+    logger.debug(String.format(
+        "\n"
+        + "URI: %s\n"
+        + "Request Body:\n"
+        + "%s\n",
+        uri,
+        requestPayload));
+
+    return client.resource(uri)
+        .accept(MediaType.APPLICATION_JSON)
+        .type(MediaType.APPLICATION_JSON)
+        .header("X-Stream", "true")
+        .entity(requestPayload)
+        .post(ClientResponse.class);
+  }
+
+  /**
+   * Parses a transaction response as it is read from the server, handing rows
+   * to the handler as it goes, then closes the response. The response has the
+   * form {"results": [{"columns": [...], "data": [{"row": [...]}, ...]}, ...],
+   * "errors": [...], ...}, where fields other than results and errors are
+   * skipped.
+   *
+   * @param response Response to parse.
+   * @param handler Receives result rows.
+   *
+   * @throws Neo4jCommunicationException If the response could not be read.
+   * @throws Neo4jTransactionException If the server reported errors.
+   */
+  private void streamResponse(ClientResponse response,
+      Neo4jRowHandler handler) {
+    JsonArrayBuilder errorsBldr = Json.createArrayBuilder();
+    boolean errorsDetected = false;
+
+    try (JsonParser parser = Json.createParser(response.getEntityInputStream())) {
+      parser.next(); // START_OBJECT
+      while (parser.next() == JsonParser.Event.KEY_NAME) {
+        String key = parser.getString();
+        JsonParser.Event event = parser.next();
+        if (key.equals("results")) {
+          int statement = 0;
+          while (parser.next() == JsonParser.Event.START_OBJECT) {
+            streamResult(parser, statement, handler);
+            statement++;
+          }
+        } else if (key.equals("errors")) {
+          while ((event = parser.next()) != JsonParser.Event.END_ARRAY) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> error = (Map<String, Object>) readValue(parser, event);
+            String statusCode = String.valueOf(error.get("code"));
+            JsonObject errorObject = Json.createObjectBuilder()
+                .add("code", statusCode)
+                .add("message", String.valueOf(error.get("message")))
+                .build();
+
+            // Status codes have the format:
+            // Neo.[Classification].[Category].[Title]
+            if (statusCode.split("\\.")[1].equals("ClientNotification")) {
+              logger.warn(String.format("Received notification message from "
+                  + "server: %s", errorObject.toString()));
+            } else {
+              logger.error(String.format("Received error message from "
+                  + "server: %s", errorObject.toString()));
+              errorsBldr.add(errorObject);
+              errorsDetected = true;
+            }
+          }
+        } else {
+          skipValue(parser, event);
+        }
+      }
+    } catch (JsonException | ClientHandlerException e) {
+      throw new Neo4jCommunicationException(e);
+    } finally {
+      response.close();
+    }
+
+    if (errorsDetected) {
+      throw new Neo4jTransactionException(
+          Json.createObjectBuilder()
+          .add("errors", errorsBldr)
+          .build()
+          .toString());
+    }
+  }
+
+  /**
+   * Parses one statement result object, the START_OBJECT of which has just
+   * been read, through to its END_OBJECT.
+   */
+  private static void streamResult(JsonParser parser, int statement,
+      Neo4jRowHandler handler) {
+    while (parser.next() == JsonParser.Event.KEY_NAME) {
+      String key = parser.getString();
+      JsonParser.Event event = parser.next();
+      if (key.equals("columns")) {
+        List<String> columns = new ArrayList<>();
+        while (parser.next() != JsonParser.Event.END_ARRAY) {
+          columns.add(parser.getString());
+        }
+        handler.columns(statement, columns);
+      } else if (key.equals("data")) {
+        while (parser.next() == JsonParser.Event.START_OBJECT) {
+          while (parser.next() == JsonParser.Event.KEY_NAME) {
+            String dataKey = parser.getString();
+            event = parser.next();
+            if (dataKey.equals("row")) {
+              @SuppressWarnings("unchecked")
+              List<Object> row = (List<Object>) readValue(parser, event);
+              handler.row(statement, row);
+            } else {
+              skipValue(parser, event);
+            }
+          }
+        }
+      } else {
+        skipValue(parser, event);
+      }
+    }
+  }
+
+  /**
+   * Decodes the JSON value starting with the given event into the Java types
+   * described in {@link Neo4jRowHandler}.
+   */
+  private static Object readValue(JsonParser parser, JsonParser.Event event) {
+    switch (event) {
+      case START_ARRAY:
+        List<Object> list = new ArrayList<>();
+        while ((event = parser.next()) != JsonParser.Event.END_ARRAY) {
+          list.add(readValue(parser, event));
+        }
+        return list;
+      case START_OBJECT:
+        Map<String, Object> map = new LinkedHashMap<>();
+        while (parser.next() == JsonParser.Event.KEY_NAME) {
+          String key = parser.getString();
+          map.put(key, readValue(parser, parser.next()));
+        }
+        return map;
+      case VALUE_STRING:
+        return parser.getString();
+      case VALUE_NUMBER:
+        if (parser.isIntegralNumber()) {
+          return parser.getLong();
+        } else {
+          return parser.getBigDecimal().doubleValue();
+        }
+      case VALUE_TRUE:
+        return Boolean.TRUE;
+      case VALUE_FALSE:
+        return Boolean.FALSE;
+      case VALUE_NULL:
+        return null;
+      default:
+        throw new IllegalStateException("Unexpected JSON event: " + event);
+    }
+  }
+
+  /**
+   * Skips over the JSON value starting with the given event.
+   */
+  private static void skipValue(JsonParser parser, JsonParser.Event event) {
+    if (event != JsonParser.Event.START_ARRAY
+        && event != JsonParser.Event.START_OBJECT) {
+      return;
+    }
+
+    int depth = 1;
+    while (depth > 0) {
+      event = parser.next();
+      if (event == JsonParser.Event.START_ARRAY
+          || event == JsonParser.Event.START_OBJECT) {
+        depth++;
+      } else if (event == JsonParser.Event.END_ARRAY
+          || event == JsonParser.Event.END_OBJECT) {
+        depth--;
+      }
+    }
+  }
+
   /**
    * Generates a JSON formatted HTTP request payload body from the statements
    * in the queue in the structure required by the server.
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2019 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.neo4j;
+
+import com.ldbc.driver.DbException;
+import com.ldbc.driver.Operation;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcUpdate2AddPostLike;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcUpdate3AddCommentLike;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcUpdate4AddForum;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcUpdate5AddForumMembership;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcUpdate6AddPost;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcUpdate7AddComment;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcUpdate8AddFriendship;
+
+import org.neo4j.driver.v1.Session;
+import org.neo4j.driver.v1.Transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit for updates 2 through 8 of the workload. On its own each of
+ * these updates is one or two statements, and committing it takes a round
+ * trip of its own, so with many driver threads issuing updates much of the
+ * time goes to transaction overhead.
+ *
+ * Driver threads hand updates to execute(), which blocks until the update is
+ * committed. A single committer thread collects updates as they arrive, for up
+ * to a fixed window of time after the first one or until a maximum number of
+ * updates have been collected, and then runs all of their statements in one
+ * Bolt transaction. Each driver thread then reports its own update's result.
+ * Statements are run in arrival order, so an update may depend on one ahead
+ * of it in the same group (e.g. a comment replying to a new post).
+ *
+ * If the group transaction fails then each update in the group is committed
+ * in a transaction of its own, so that one bad update can't fail the others.
+ *
+ * @author Jonathan Ellithorpe (jde@cs.stanford.edu)
+ */
+public class UpdateBatcher {
+
+  /**
+   * An update waiting to be committed.
+   */
+  private static class PendingUpdate {
+    final Operation op;
+    final CountDownLatch done;
+    volatile RuntimeException error;
+
+    PendingUpdate(Operation op) {
+      this.op = op;
+      this.done = new CountDownLatch(1);
+      this.error = null;
+    }
+  }
+
+  private final Neo4jDbConnectionState state;
+  private final int maxOps;
+  private final long windowNanos;
+  private final BlockingQueue<PendingUpdate> queue;
+
+  // Only updated by the committer thread.
+  private volatile long groups;
+  private volatile long updates;
+  private volatile long fallbacks;
+
+  /**
+   * Constructor for UpdateBatcher. Starts the committer thread.
+   *
+   * @param state Connection state to commit updates through.
+   * @param maxOps Maximum number of updates to commit in one transaction.
+   * @param windowMicros Maximum time to wait for more updates after the first
+   * update of a group arrives.
+   */
+  public UpdateBatcher(Neo4jDbConnectionState state, int maxOps,
+      long windowMicros) {
+    this.state = state;
+    this.maxOps = maxOps;
+    this.windowNanos = windowMicros * 1000L;
+    this.queue = new LinkedBlockingQueue<>();
+    this.groups = 0;
+    this.updates = 0;
+    this.fallbacks = 0;
+
+    Thread committer = new Thread(new Runnable() {
+          @Override
+          public void run() {
+            commitLoop();
+          }
+        }, "UpdateBatcher");
+    committer.setDaemon(true);
+    committer.start();
+
+    System.out.println(String.format("UpdateBatcher: {maxOps: %d, windowMicros: %d}",
+        maxOps, windowMicros));
+  }
+
+  /**
+   * Executes an update as part of a group, blocking until it has been
+   * committed.
+   *
+   * @param op The update.
+   *
+   * @throws DbException If interrupted while waiting.
+   */
+  public void execute(Operation op) throws DbException {
+    PendingUpdate update = new PendingUpdate(op);
+    try {
+      queue.put(update);
+      update.done.await();
+    } catch (InterruptedException e) {
+      throw new DbException(e);
+    }
+
+    if (update.error != null)
+      throw update.error;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("UpdateBatcher: {groups: %d, updates: %d, "
+        + "meanGroupSize: %.2f, fallbacks: %d}",
+        groups,
+        updates,
+        (groups > 0) ? (double) updates / groups : 0.0,
+        fallbacks);
+  }
+
+  private void commitLoop() {
+    List<PendingUpdate> group = new ArrayList<>(maxOps);
+    while (true) {
+      try {
+        group.add(queue.take());
+
+        long deadline = System.nanoTime() + windowNanos;
+        while (group.size() < maxOps) {
+          long remaining = deadline - System.nanoTime();
+          PendingUpdate update = (remaining > 0) ?
+              queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+          if (update == null)
+            break;
+          group.add(update);
+        }
+
+        commit(group);
+      } catch (InterruptedException e) {
+        return;
+      } catch (RuntimeException e) {
+        for (PendingUpdate update : group)
+          update.error = e;
+      } finally {
+        for (PendingUpdate update : group)
+          update.done.countDown();
+        group.clear();
+      }
+    }
+  }
+
+  private void commit(List<PendingUpdate> group) {
+    Session session = state.getSession();
+
+    groups++;
+    updates += group.size();
+
+    try {
+      session.writeTransaction((tx) -> {
+        for (PendingUpdate update : group)
+          addToTx(tx, update.op);
+        tx.success();
+        return null;
+      });
+      return;
+    } catch (RuntimeException e) {
+      fallbacks++;
+    }
+
+    // Something in the group failed, fall back to committing each update on
+    // its own.
+    for (PendingUpdate update : group) {
+      try {
+        session.writeTransaction((tx) -> {
+          addToTx(tx, update.op);
+          tx.success();
+          return null;
+        });
+      } catch (RuntimeException e) {
+        update.error = e;
+      }
+    }
+  }
+
+  private void addToTx(Transaction tx, Operation op) {
+    if (op instanceof LdbcUpdate2AddPostLike)
+      Neo4jDb.LdbcUpdate2AddPostLikeHandler.addToTx(state, tx, (LdbcUpdate2AddPostLike) op);
+    else if (op instanceof LdbcUpdate3AddCommentLike)
+      Neo4jDb.LdbcUpdate3AddCommentLikeHandler.addToTx(state, tx,
+          (LdbcUpdate3AddCommentLike) op);
+    else if (op instanceof LdbcUpdate4AddForum)
+      Neo4jDb.LdbcUpdate4AddForumHandler.addToTx(state, tx, (LdbcUpdate4AddForum) op);
+    else if (op instanceof LdbcUpdate5AddForumMembership)
+      Neo4jDb.LdbcUpdate5AddForumMembershipHandler.addToTx(state, tx,
+          (LdbcUpdate5AddForumMembership) op);
+    else if (op instanceof LdbcUpdate6AddPost)
+      Neo4jDb.LdbcUpdate6AddPostHandler.addToTx(state, tx, (LdbcUpdate6AddPost) op);
+    else if (op instanceof LdbcUpdate7AddComment)
+      Neo4jDb.LdbcUpdate7AddCommentHandler.addToTx(state, tx, (LdbcUpdate7AddComment) op);
+    else if (op instanceof LdbcUpdate8AddFriendship)
+      Neo4jDb.LdbcUpdate8AddFriendshipHandler.addToTx(state, tx,
+          (LdbcUpdate8AddFriendship) op);
+    else
+      throw new IllegalArgumentException("Operation can't be batched: " + op);
+  }
+}
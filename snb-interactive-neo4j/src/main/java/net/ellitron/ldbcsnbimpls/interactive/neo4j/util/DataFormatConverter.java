@@ -66,7 +66,7 @@ public class DataFormatConverter {
       + "your NEO4J_HOME environment variable appropriately."
       + "\n"
       + "Usage:\n"
-      + "  DataFormatConverter SOURCE DEST\n"
+      + "  DataFormatConverter [options] SOURCE DEST\n"
       + "  DataFormatConverter (-h | --help)\n"
       + "  DataFormatConverter --version\n"
       + "\n"
@@ -75,6 +75,8 @@ public class DataFormatConverter {
       + "  DEST    Destination directory for output files.\n"
       + "\n"
       + "Options:\n"
+      + "  --longIds         Store node IDs as integers instead of strings.\n"
+      + "                    Neo4jDb must then be run with longIds=true.\n"
       + "  -h --help         Show this screen.\n"
       + "  --version         Show version.\n"
       + "\n";
@@ -360,6 +362,7 @@ public class DataFormatConverter {
 
     String inputDir = (String) opts.get("SOURCE");
     String outputDir = (String) opts.get("DEST");
+    boolean longIds = (Boolean) opts.get("--longIds");
 
     System.out.println(String.format("Processing person properties..."));
 
@@ -413,9 +416,16 @@ public class DataFormatConverter {
         // Skip over header line of input file.
         inFile.readLine();
 
-        // First field is always the ID.
-        outFile.append(String.format(
-            "%s:ID(%s)", node.getNeoIdPropKey(), node.getNeoIdSpace()));
+        // First field is always the ID. Integer IDs are also written to an
+        // explicitly typed property, rather than relying on how the import
+        // tool stores ID fields.
+        if (longIds) {
+          outFile.append(String.format(
+              ":ID(%s)|%s:long", node.getNeoIdSpace(), node.getNeoIdPropKey()));
+        } else {
+          outFile.append(String.format(
+              "%s:ID(%s)", node.getNeoIdPropKey(), node.getNeoIdSpace()));
+        }
 
         // Then the properties.
         List<String> nodeProps = Arrays.asList(node.getProps());
@@ -471,6 +481,9 @@ public class DataFormatConverter {
               }
             } else {
               outFile.append(colVals[i] + "|");
+              if (longIds) {
+                outFile.append(colVals[i] + "|");
+              }
             }
           }
 
@@ -638,6 +651,10 @@ public class DataFormatConverter {
       outFile.append(" --relationships " + relFile);
     }
 
+    if (longIds) {
+      outFile.append(" --id-type INTEGER");
+    }
+
     outFile.append(" --delimiter \"|\" --array-delimiter \";\"\n");
 
     outFile.close();
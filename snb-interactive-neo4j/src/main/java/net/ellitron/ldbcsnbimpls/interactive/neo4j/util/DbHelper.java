@@ -16,6 +16,8 @@
  */
 package net.ellitron.ldbcsnbimpls.interactive.neo4j.util;
 
+import org.neo4j.driver.v1.Value;
+
 import java.util.List;
 import java.util.ArrayList;
 
@@ -42,4 +44,21 @@ public class DbHelper {
 
     return stringList;
   }
+
+  /**
+   * Read an ID returned by a query, which is either an integer or a String
+   * depending on how the database was loaded.
+   *
+   * @param id Value of the ID.
+   *
+   * @return The ID.
+   */
+  public static long asId(Value id) {
+    Object o = id.asObject();
+    if (o instanceof String) {
+      return Long.parseLong((String) o);
+    } else {
+      return (Long) o;
+    }
+  }
 }
@@ -0,0 +1,748 @@
+/*
+ * Copyright (C) 2019 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.nop;
+
+import com.ldbc.driver.DbConnectionState;
+import com.ldbc.driver.DbException;
+import com.ldbc.driver.Operation;
+import com.ldbc.driver.OperationHandler;
+import com.ldbc.driver.ResultReporter;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcNoResult;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery1;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery1Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery2;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery2Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery3;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery3Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery4;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery4Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery5;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery5Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery6;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery6Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery7;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery7Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery8;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery8Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery9;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery9Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery10;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery10Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery11;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery11Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery12;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery12Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery13;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery13Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery14;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery14Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery1PersonProfile;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery1PersonProfileResult;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery2PersonPosts;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery2PersonPostsResult;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery3PersonFriends;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery3PersonFriendsResult;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery4MessageContent;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery4MessageContentResult;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery5MessageCreator;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery5MessageCreatorResult;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery6MessageForum;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery6MessageForumResult;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery7MessageReplies;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery7MessageRepliesResult;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcUpdate1AddPerson;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcUpdate2AddPostLike;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcUpdate3AddCommentLike;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcUpdate4AddForum;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcUpdate5AddForumMembership;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcUpdate6AddPost;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcUpdate7AddComment;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcUpdate8AddFriendship;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Operation handlers that answer every query of the workload with synthetic
+ * results, for running TorcDbServer and TorcDb2Server in loopback mode
+ * (--loopback). Unlike NopDb, which measures the ceiling of the LDBC driver
+ * alone, results here are of realistic size and shape, so that a client and
+ * server running against them exercise the same networking, serialization
+ * and scheduling as they would against a database, without needing one.
+ *
+ * The following properties control the results and execution times:
+ *
+ * <ul>
+ * <li>resultSize - distribution of the number of results of queries that
+ * return a list, capped at each query's limit (default: limit).</li>
+ * <li>contentSize - distribution of the lengths of message contents, capped
+ * at the dataset's maximum of 2000 (default: uniform:0:200).</li>
+ * <li>serviceMicros - distribution of the time each operation busy-waits
+ * before returning, standing in for its execution time (default:
+ * fixed:0).</li>
+ * </ul>
+ *
+ * Distributions are given in the form described in SizeDistribution.
+ * Handlers ignore the connection state they are given, so any (or null) will
+ * do.
+ *
+ * @author Jonathan Ellithorpe (jde@cs.stanford.edu)
+ */
+public class LoopbackHandlers {
+
+  private static final int MAX_CONTENT_SIZE = 2000;
+
+  // Around the start of the dataset's simulation period (2010-01-01), and
+  // its length (3 years), in ms.
+  private static final long BASE_DATE = 1262304000000L;
+  private static final long DATE_RANGE = 3L * 365 * 24 * 60 * 60 * 1000;
+
+  private static final String[] FIRST_NAMES = {
+    "Mahinda", "Carmen", "Jan", "Chen", "Hossein", "Ali", "Abdul", "Jose",
+    "Karl", "Bingbing", "Rahul", "Alexander", "Aleksandr", "Eun-Hye", "Otto",
+    "Yang"
+  };
+
+  private static final String[] LAST_NAMES = {
+    "Perera", "Lepland", "Zakrzewski", "Wang", "Forouhar", "Achiou", "Khan",
+    "Rodriguez", "Muller", "Xu", "Singh", "Hleb", "Yamamoto", "Kim",
+    "Becker", "Li"
+  };
+
+  private static final String[] PLACE_NAMES = {
+    "Colombo", "Tallinn", "Warsaw", "Beijing", "Tehran", "Algiers",
+    "Karachi", "Madrid"
+  };
+
+  private static final String[] TAG_NAMES = {
+    "Augustine_of_Hippo", "Genghis_Khan", "Hamid_Karzai", "Adolf_Hitler",
+    "Napoleon", "Bob_Dylan", "Wolfgang_Amadeus_Mozart", "Frank_Sinatra"
+  };
+
+  private static final String[] ORGANISATION_NAMES = {
+    "University_of_Colombo", "Tallinn_University_of_Technology",
+    "Warsaw_University", "Peking_University", "Air_Algerie",
+    "Pakistan_International_Airlines", "Iberia", "Lufthansa"
+  };
+
+  private static final String[] EMAILS = {
+    "Mahinda10@gmail.com", "Carmen8@yahoo.com", "Jan24@hotmail.com"
+  };
+
+  private static final String[] LANGUAGES = { "en", "zh", "es", "de" };
+
+  private static final String CONTENT;
+
+  static {
+    StringBuilder sb = new StringBuilder(MAX_CONTENT_SIZE);
+    String text = "About Augustine of Hippo, the writings of Augustine were "
+        + "very influential, and he was one of the most important Church "
+        + "Fathers in Western Christianity. ";
+    while (sb.length() < MAX_CONTENT_SIZE)
+      sb.append(text);
+    sb.setLength(MAX_CONTENT_SIZE);
+    CONTENT = sb.toString();
+  }
+
+  private final SizeDistribution resultSize;
+  private final SizeDistribution contentSize;
+  private final SizeDistribution serviceMicros;
+
+  /**
+   * Constructor for LoopbackHandlers.
+   *
+   * @param props Properties as described above.
+   */
+  public LoopbackHandlers(Map<String, String> props) {
+    this.resultSize =
+        new SizeDistribution(props.getOrDefault("resultSize", "limit"));
+    this.contentSize =
+        new SizeDistribution(props.getOrDefault("contentSize", "uniform:0:200"));
+    this.serviceMicros =
+        new SizeDistribution(props.getOrDefault("serviceMicros", "fixed:0"));
+
+    System.out.println(String.format("LoopbackHandlers: {resultSize: %s, "
+        + "contentSize: %s, serviceMicros: %s}",
+        resultSize,
+        contentSize,
+        serviceMicros));
+  }
+
+  /**
+   * Returns a handler for every operation of the workload.
+   */
+  public Map<Class<? extends Operation>, OperationHandler> handlers() {
+    Map<Class<? extends Operation>, OperationHandler> handlers =
+        new HashMap<>();
+    handlers.put(LdbcQuery1.class, new LdbcQuery1Handler());
+    handlers.put(LdbcQuery2.class, new LdbcQuery2Handler());
+    handlers.put(LdbcQuery3.class, new LdbcQuery3Handler());
+    handlers.put(LdbcQuery4.class, new LdbcQuery4Handler());
+    handlers.put(LdbcQuery5.class, new LdbcQuery5Handler());
+    handlers.put(LdbcQuery6.class, new LdbcQuery6Handler());
+    handlers.put(LdbcQuery7.class, new LdbcQuery7Handler());
+    handlers.put(LdbcQuery8.class, new LdbcQuery8Handler());
+    handlers.put(LdbcQuery9.class, new LdbcQuery9Handler());
+    handlers.put(LdbcQuery10.class, new LdbcQuery10Handler());
+    handlers.put(LdbcQuery11.class, new LdbcQuery11Handler());
+    handlers.put(LdbcQuery12.class, new LdbcQuery12Handler());
+    handlers.put(LdbcQuery13.class, new LdbcQuery13Handler());
+    handlers.put(LdbcQuery14.class, new LdbcQuery14Handler());
+    handlers.put(LdbcShortQuery1PersonProfile.class,
+        new LdbcShortQuery1PersonProfileHandler());
+    handlers.put(LdbcShortQuery2PersonPosts.class,
+        new LdbcShortQuery2PersonPostsHandler());
+    handlers.put(LdbcShortQuery3PersonFriends.class,
+        new LdbcShortQuery3PersonFriendsHandler());
+    handlers.put(LdbcShortQuery4MessageContent.class,
+        new LdbcShortQuery4MessageContentHandler());
+    handlers.put(LdbcShortQuery5MessageCreator.class,
+        new LdbcShortQuery5MessageCreatorHandler());
+    handlers.put(LdbcShortQuery6MessageForum.class,
+        new LdbcShortQuery6MessageForumHandler());
+    handlers.put(LdbcShortQuery7MessageReplies.class,
+        new LdbcShortQuery7MessageRepliesHandler());
+    handlers.put(LdbcUpdate1AddPerson.class, new UpdateHandler());
+    handlers.put(LdbcUpdate2AddPostLike.class, new UpdateHandler());
+    handlers.put(LdbcUpdate3AddCommentLike.class, new UpdateHandler());
+    handlers.put(LdbcUpdate4AddForum.class, new UpdateHandler());
+    handlers.put(LdbcUpdate5AddForumMembership.class, new UpdateHandler());
+    handlers.put(LdbcUpdate6AddPost.class, new UpdateHandler());
+    handlers.put(LdbcUpdate7AddComment.class, new UpdateHandler());
+    handlers.put(LdbcUpdate8AddFriendship.class, new UpdateHandler());
+    return handlers;
+  }
+
+  /*
+   * Busy-waits for a time drawn from serviceMicros. Spins rather than sleeps
+   * so that short times are honored, and so that the handler's thread stays
+   * busy like one executing a query would.
+   */
+  private void serve() {
+    long micros = serviceMicros.sample();
+    if (micros == 0)
+      return;
+
+    long deadline = System.nanoTime() + micros * 1000L;
+    while (System.nanoTime() < deadline);
+  }
+
+  private int numResults(int limit) {
+    return resultSize.sample(limit);
+  }
+
+  private static <T> T pick(T[] values) {
+    return values[ThreadLocalRandom.current().nextInt(values.length)];
+  }
+
+  private static long id() {
+    return ThreadLocalRandom.current().nextLong(1L << 40);
+  }
+
+  private static long date() {
+    return BASE_DATE + ThreadLocalRandom.current().nextLong(DATE_RANGE);
+  }
+
+  private static int count() {
+    return ThreadLocalRandom.current().nextInt(100);
+  }
+
+  private String content() {
+    return CONTENT.substring(0,
+        Math.min(contentSize.sample(), MAX_CONTENT_SIZE));
+  }
+
+  /**
+   * ------------------------------------------------------------------------
+   * Complex Queries
+   * ------------------------------------------------------------------------
+   */
+  public class LdbcQuery1Handler
+      implements OperationHandler<LdbcQuery1, DbConnectionState> {
+
+    @Override
+    public void executeOperation(final LdbcQuery1 operation,
+        DbConnectionState dbConnectionState,
+        ResultReporter resultReporter) throws DbException {
+      serve();
+      int n = numResults(operation.limit());
+      List<LdbcQuery1Result> result = new ArrayList<>(n);
+      for (int i = 0; i < n; i++) {
+        result.add(new LdbcQuery1Result(
+            id(),
+            pick(LAST_NAMES),
+            1 + (i * 3) / Math.max(n, 1),
+            date(),
+            date(),
+            "female",
+            "Firefox",
+            "192.168.0.1",
+            Collections.singletonList(pick(EMAILS)),
+            Arrays.asList(pick(LANGUAGES), pick(LANGUAGES)),
+            pick(PLACE_NAMES),
+            Collections.singletonList(
+                Arrays.asList(pick(ORGANISATION_NAMES), 2010, pick(PLACE_NAMES))),
+            Collections.singletonList(
+                Arrays.asList(pick(ORGANISATION_NAMES), 2012, pick(PLACE_NAMES)))));
+      }
+      resultReporter.report(result.size(), result, operation);
+    }
+  }
+
+  public class LdbcQuery2Handler
+      implements OperationHandler<LdbcQuery2, DbConnectionState> {
+
+    @Override
+    public void executeOperation(final LdbcQuery2 operation,
+        DbConnectionState dbConnectionState,
+        ResultReporter resultReporter) throws DbException {
+      serve();
+      int n = numResults(operation.limit());
+      List<LdbcQuery2Result> result = new ArrayList<>(n);
+      for (int i = 0; i < n; i++) {
+        result.add(new LdbcQuery2Result(
+            id(),
+            pick(FIRST_NAMES),
+            pick(LAST_NAMES),
+            id(),
+            content(),
+            date()));
+      }
+      resultReporter.report(result.size(), result, operation);
+    }
+  }
+
+  public class LdbcQuery3Handler
+      implements OperationHandler<LdbcQuery3, DbConnectionState> {
+
+    @Override
+    public void executeOperation(final LdbcQuery3 operation,
+        DbConnectionState dbConnectionState,
+        ResultReporter resultReporter) throws DbException {
+      serve();
+      int n = numResults(operation.limit());
+      List<LdbcQuery3Result> result = new ArrayList<>(n);
+      for (int i = 0; i < n; i++) {
+        long xCount = count();
+        long yCount = count();
+        result.add(new LdbcQuery3Result(
+            id(),
+            pick(FIRST_NAMES),
+            pick(LAST_NAMES),
+            xCount,
+            yCount,
+            xCount + yCount));
+      }
+      resultReporter.report(result.size(), result, operation);
+    }
+  }
+
+  public class LdbcQuery4Handler
+      implements OperationHandler<LdbcQuery4, DbConnectionState> {
+
+    @Override
+    public void executeOperation(final LdbcQuery4 operation,
+        DbConnectionState dbConnectionState,
+        ResultReporter resultReporter) throws DbException {
+      serve();
+      int n = numResults(operation.limit());
+      List<LdbcQuery4Result> result = new ArrayList<>(n);
+      for (int i = 0; i < n; i++) {
+        result.add(new LdbcQuery4Result(pick(TAG_NAMES), count()));
+      }
+      resultReporter.report(result.size(), result, operation);
+    }
+  }
+
+  public class LdbcQuery5Handler
+      implements OperationHandler<LdbcQuery5, DbConnectionState> {
+
+    @Override
+    public void executeOperation(final LdbcQuery5 operation,
+        DbConnectionState dbConnectionState,
+        ResultReporter resultReporter) throws DbException {
+      serve();
+      int n = numResults(operation.limit());
+      List<LdbcQuery5Result> result = new ArrayList<>(n);
+      for (int i = 0; i < n; i++) {
+        result.add(new LdbcQuery5Result(
+            "Group for " + pick(TAG_NAMES) + " in " + pick(PLACE_NAMES),
+            count()));
+      }
+      resultReporter.report(result.size(), result, operation);
+    }
+  }
+
+  public class LdbcQuery6Handler
+      implements OperationHandler<LdbcQuery6, DbConnectionState> {
+
+    @Override
+    public void executeOperation(final LdbcQuery6 operation,
+        DbConnectionState dbConnectionState,
+        ResultReporter resultReporter) throws DbException {
+      serve();
+      int n = numResults(operation.limit());
+      List<LdbcQuery6Result> result = new ArrayList<>(n);
+      for (int i = 0; i < n; i++) {
+        result.add(new LdbcQuery6Result(pick(TAG_NAMES), count()));
+      }
+      resultReporter.report(result.size(), result, operation);
+    }
+  }
+
+  public class LdbcQuery7Handler
+      implements OperationHandler<LdbcQuery7, DbConnectionState> {
+
+    @Override
+    public void executeOperation(final LdbcQuery7 operation,
+        DbConnectionState dbConnectionState,
+        ResultReporter resultReporter) throws DbException {
+      serve();
+      int n = numResults(operation.limit());
+      List<LdbcQuery7Result> result = new ArrayList<>(n);
+      for (int i = 0; i < n; i++) {
+        result.add(new LdbcQuery7Result(
+            id(),
+            pick(FIRST_NAMES),
+            pick(LAST_NAMES),
+            date(),
+            id(),
+            content(),
+            count(),
+            ThreadLocalRandom.current().nextBoolean()));
+      }
+      resultReporter.report(result.size(), result, operation);
+    }
+  }
+
+  public class LdbcQuery8Handler
+      implements OperationHandler<LdbcQuery8, DbConnectionState> {
+
+    @Override
+    public void executeOperation(final LdbcQuery8 operation,
+        DbConnectionState dbConnectionState,
+        ResultReporter resultReporter) throws DbException {
+      serve();
+      int n = numResults(operation.limit());
+      List<LdbcQuery8Result> result = new ArrayList<>(n);
+      for (int i = 0; i < n; i++) {
+        result.add(new LdbcQuery8Result(
+            id(),
+            pick(FIRST_NAMES),
+            pick(LAST_NAMES),
+            date(),
+            id(),
+            content()));
+      }
+      resultReporter.report(result.size(), result, operation);
+    }
+  }
+
+  public class LdbcQuery9Handler
+      implements OperationHandler<LdbcQuery9, DbConnectionState> {
+
+    @Override
+    public void executeOperation(final LdbcQuery9 operation,
+        DbConnectionState dbConnectionState,
+        ResultReporter resultReporter) throws DbException {
+      serve();
+      int n = numResults(operation.limit());
+      List<LdbcQuery9Result> result = new ArrayList<>(n);
+      for (int i = 0; i < n; i++) {
+        result.add(new LdbcQuery9Result(
+            id(),
+            pick(FIRST_NAMES),
+            pick(LAST_NAMES),
+            id(),
+            content(),
+            date()));
+      }
+      resultReporter.report(result.size(), result, operation);
+    }
+  }
+
+  public class LdbcQuery10Handler
+      implements OperationHandler<LdbcQuery10, DbConnectionState> {
+
+    @Override
+    public void executeOperation(final LdbcQuery10 operation,
+        DbConnectionState dbConnectionState,
+        ResultReporter resultReporter) throws DbException {
+      serve();
+      int n = numResults(operation.limit());
+      List<LdbcQuery10Result> result = new ArrayList<>(n);
+      for (int i = 0; i < n; i++) {
+        result.add(new LdbcQuery10Result(
+            id(),
+            pick(FIRST_NAMES),
+            pick(LAST_NAMES),
+            count() - 50,
+            "male",
+            pick(PLACE_NAMES)));
+      }
+      resultReporter.report(result.size(), result, operation);
+    }
+  }
+
+  public class LdbcQuery11Handler
+      implements OperationHandler<LdbcQuery11, DbConnectionState> {
+
+    @Override
+    public void executeOperation(final LdbcQuery11 operation,
+        DbConnectionState dbConnectionState,
+        ResultReporter resultReporter) throws DbException {
+      serve();
+      int n = numResults(operation.limit());
+      List<LdbcQuery11Result> result = new ArrayList<>(n);
+      for (int i = 0; i < n; i++) {
+        result.add(new LdbcQuery11Result(
+            id(),
+            pick(FIRST_NAMES),
+            pick(LAST_NAMES),
+            pick(ORGANISATION_NAMES),
+            2000 + ThreadLocalRandom.current().nextInt(13)));
+      }
+      resultReporter.report(result.size(), result, operation);
+    }
+  }
+
+  public class LdbcQuery12Handler
+      implements OperationHandler<LdbcQuery12, DbConnectionState> {
+
+    @Override
+    public void executeOperation(final LdbcQuery12 operation,
+        DbConnectionState dbConnectionState,
+        ResultReporter resultReporter) throws DbException {
+      serve();
+      int n = numResults(operation.limit());
+      List<LdbcQuery12Result> result = new ArrayList<>(n);
+      for (int i = 0; i < n; i++) {
+        result.add(new LdbcQuery12Result(
+            id(),
+            pick(FIRST_NAMES),
+            pick(LAST_NAMES),
+            Arrays.asList(pick(TAG_NAMES), pick(TAG_NAMES)),
+            count()));
+      }
+      resultReporter.report(result.size(), result, operation);
+    }
+  }
+
+  public class LdbcQuery13Handler
+      implements OperationHandler<LdbcQuery13, DbConnectionState> {
+
+    @Override
+    public void executeOperation(final LdbcQuery13 operation,
+        DbConnectionState dbConnectionState,
+        ResultReporter resultReporter) throws DbException {
+      serve();
+      resultReporter.report(1,
+          new LdbcQuery13Result(1 + ThreadLocalRandom.current().nextInt(4)),
+          operation);
+    }
+  }
+
+  public class LdbcQuery14Handler
+      implements OperationHandler<LdbcQuery14, DbConnectionState> {
+
+    @Override
+    public void executeOperation(final LdbcQuery14 operation,
+        DbConnectionState dbConnectionState,
+        ResultReporter resultReporter) throws DbException {
+      serve();
+      // Query 14 has no limit, the number of results is the number of
+      // shortest paths.
+      int n = numResults(-1);
+      List<LdbcQuery14Result> result = new ArrayList<>(n);
+      for (int i = 0; i < n; i++) {
+        result.add(new LdbcQuery14Result(
+            Arrays.asList(operation.person1Id(), id(), id(),
+                operation.person2Id()),
+            ThreadLocalRandom.current().nextInt(20) / 2.0));
+      }
+      resultReporter.report(result.size(), result, operation);
+    }
+  }
+
+  /**
+   * ------------------------------------------------------------------------
+   * Short Queries
+   * ------------------------------------------------------------------------
+   */
+  public class LdbcShortQuery1PersonProfileHandler implements
+      OperationHandler<LdbcShortQuery1PersonProfile, DbConnectionState> {
+
+    @Override
+    public void executeOperation(final LdbcShortQuery1PersonProfile operation,
+        DbConnectionState dbConnectionState,
+        ResultReporter resultReporter) throws DbException {
+      serve();
+      LdbcShortQuery1PersonProfileResult result =
+          new LdbcShortQuery1PersonProfileResult(
+              pick(FIRST_NAMES),
+              pick(LAST_NAMES),
+              date(),
+              "192.168.0.1",
+              "Firefox",
+              id(),
+              "female",
+              date());
+      resultReporter.report(1, result, operation);
+    }
+  }
+
+  public class LdbcShortQuery2PersonPostsHandler implements
+      OperationHandler<LdbcShortQuery2PersonPosts, DbConnectionState> {
+
+    @Override
+    public void executeOperation(final LdbcShortQuery2PersonPosts operation,
+        DbConnectionState dbConnectionState,
+        ResultReporter resultReporter) throws DbException {
+      serve();
+      int n = numResults(operation.limit());
+      List<LdbcShortQuery2PersonPostsResult> result = new ArrayList<>(n);
+      for (int i = 0; i < n; i++) {
+        result.add(new LdbcShortQuery2PersonPostsResult(
+            id(),
+            content(),
+            date(),
+            id(),
+            id(),
+            pick(FIRST_NAMES),
+            pick(LAST_NAMES)));
+      }
+      resultReporter.report(result.size(), result, operation);
+    }
+  }
+
+  public class LdbcShortQuery3PersonFriendsHandler implements
+      OperationHandler<LdbcShortQuery3PersonFriends, DbConnectionState> {
+
+    @Override
+    public void executeOperation(final LdbcShortQuery3PersonFriends operation,
+        DbConnectionState dbConnectionState,
+        ResultReporter resultReporter) throws DbException {
+      serve();
+      int n = numResults(-1);
+      List<LdbcShortQuery3PersonFriendsResult> result = new ArrayList<>(n);
+      for (int i = 0; i < n; i++) {
+        result.add(new LdbcShortQuery3PersonFriendsResult(
+            id(),
+            pick(FIRST_NAMES),
+            pick(LAST_NAMES),
+            date()));
+      }
+      resultReporter.report(result.size(), result, operation);
+    }
+  }
+
+  public class LdbcShortQuery4MessageContentHandler implements
+      OperationHandler<LdbcShortQuery4MessageContent, DbConnectionState> {
+
+    @Override
+    public void executeOperation(final LdbcShortQuery4MessageContent operation,
+        DbConnectionState dbConnectionState,
+        ResultReporter resultReporter) throws DbException {
+      serve();
+      resultReporter.report(1,
+          new LdbcShortQuery4MessageContentResult(content(), date()),
+          operation);
+    }
+  }
+
+  public class LdbcShortQuery5MessageCreatorHandler implements
+      OperationHandler<LdbcShortQuery5MessageCreator, DbConnectionState> {
+
+    @Override
+    public void executeOperation(final LdbcShortQuery5MessageCreator operation,
+        DbConnectionState dbConnectionState,
+        ResultReporter resultReporter) throws DbException {
+      serve();
+      resultReporter.report(1,
+          new LdbcShortQuery5MessageCreatorResult(
+              id(),
+              pick(FIRST_NAMES),
+              pick(LAST_NAMES)),
+          operation);
+    }
+  }
+
+  public class LdbcShortQuery6MessageForumHandler implements
+      OperationHandler<LdbcShortQuery6MessageForum, DbConnectionState> {
+
+    @Override
+    public void executeOperation(final LdbcShortQuery6MessageForum operation,
+        DbConnectionState dbConnectionState,
+        ResultReporter resultReporter) throws DbException {
+      serve();
+      resultReporter.report(1,
+          new LdbcShortQuery6MessageForumResult(
+              id(),
+              "Wall of " + pick(FIRST_NAMES) + " " + pick(LAST_NAMES),
+              id(),
+              pick(FIRST_NAMES),
+              pick(LAST_NAMES)),
+          operation);
+    }
+  }
+
+  public class LdbcShortQuery7MessageRepliesHandler implements
+      OperationHandler<LdbcShortQuery7MessageReplies, DbConnectionState> {
+
+    @Override
+    public void executeOperation(final LdbcShortQuery7MessageReplies operation,
+        DbConnectionState dbConnectionState,
+        ResultReporter resultReporter) throws DbException {
+      serve();
+      int n = numResults(-1);
+      List<LdbcShortQuery7MessageRepliesResult> result = new ArrayList<>(n);
+      for (int i = 0; i < n; i++) {
+        result.add(new LdbcShortQuery7MessageRepliesResult(
+            id(),
+            content(),
+            date(),
+            id(),
+            pick(FIRST_NAMES),
+            pick(LAST_NAMES),
+            ThreadLocalRandom.current().nextBoolean()));
+      }
+      resultReporter.report(result.size(), result, operation);
+    }
+  }
+
+  /**
+   * ------------------------------------------------------------------------
+   * Updates
+   * ------------------------------------------------------------------------
+   */
+  public class UpdateHandler
+      implements OperationHandler<Operation, DbConnectionState> {
+
+    @Override
+    public void executeOperation(final Operation operation,
+        DbConnectionState dbConnectionState,
+        ResultReporter reporter) throws DbException {
+      serve();
+      reporter.report(0, LdbcNoResult.INSTANCE, operation);
+    }
+  }
+}
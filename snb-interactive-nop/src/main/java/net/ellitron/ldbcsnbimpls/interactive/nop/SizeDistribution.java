@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2019 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.nop;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A distribution of non-negative integers, such as numbers of results or
+ * string lengths, described by a short spec string:
+ *
+ * <ul>
+ * <li>"fixed:n" - always n.</li>
+ * <li>"uniform:min:max" - uniform over [min, max].</li>
+ * <li>"exponential:mean" - exponential with the given mean, rounded down.</li>
+ * <li>"limit" - the limit of the query the sample is for, e.g. 20 for
+ * LdbcQuery2. For queries without a limit, 20.</li>
+ * </ul>
+ *
+ * @author Jonathan Ellithorpe (jde@cs.stanford.edu)
+ */
+public class SizeDistribution {
+
+  private enum Type { FIXED, UNIFORM, EXPONENTIAL, LIMIT }
+
+  // Sample of "limit" for queries without a limit.
+  private static final int DEFAULT_LIMIT = 20;
+
+  private final String spec;
+  private final Type type;
+  private final long a;
+  private final long b;
+  private final double mean;
+
+  /**
+   * Constructor for SizeDistribution.
+   *
+   * @param spec Spec string of the distribution, as described above.
+   */
+  public SizeDistribution(String spec) {
+    this.spec = spec;
+
+    String[] parts = spec.split(":");
+    try {
+      switch (parts[0]) {
+        case "fixed":
+          type = Type.FIXED;
+          a = Long.decode(parts[1]);
+          b = a;
+          mean = a;
+          break;
+        case "uniform":
+          type = Type.UNIFORM;
+          a = Long.decode(parts[1]);
+          b = Long.decode(parts[2]);
+          mean = (a + b) / 2.0;
+          break;
+        case "exponential":
+          type = Type.EXPONENTIAL;
+          a = 0;
+          b = 0;
+          mean = Double.parseDouble(parts[1]);
+          break;
+        case "limit":
+          type = Type.LIMIT;
+          a = 0;
+          b = 0;
+          mean = 0;
+          break;
+        default:
+          throw new IllegalArgumentException(
+              "Unknown size distribution: " + spec);
+      }
+    } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+      throw new IllegalArgumentException(
+          "Malformed size distribution: " + spec, e);
+    }
+
+    if (a < 0 || b < a || mean < 0)
+      throw new IllegalArgumentException(
+          "Malformed size distribution: " + spec);
+  }
+
+  /**
+   * Draws a sample for a query with the given limit. The sample is never
+   * more than the limit.
+   *
+   * @param limit Limit of the query, or -1 if it has none.
+   *
+   * @return The sample.
+   */
+  public int sample(int limit) {
+    long n;
+    switch (type) {
+      case FIXED:
+        n = a;
+        break;
+      case UNIFORM:
+        n = ThreadLocalRandom.current().nextLong(a, b + 1);
+        break;
+      case EXPONENTIAL:
+        n = (long) (-mean * Math.log(1.0 - ThreadLocalRandom.current().nextDouble()));
+        break;
+      default:
+        n = (limit < 0) ? DEFAULT_LIMIT : limit;
+        break;
+    }
+
+    if (limit >= 0)
+      n = Math.min(n, limit);
+
+    return (int) Math.min(n, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Draws a sample with no limit.
+   */
+  public int sample() {
+    return sample(-1);
+  }
+
+  @Override
+  public String toString() {
+    return spec;
+  }
+}
@@ -23,7 +23,6 @@ import static org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__.unfold
 import static org.apache.tinkerpop.gremlin.process.traversal.Order.incr;
 import static org.apache.tinkerpop.gremlin.process.traversal.P.lt;
 import static org.apache.tinkerpop.gremlin.process.traversal.P.without;
-import static org.apache.tinkerpop.gremlin.process.traversal.P.within;
 
 import net.ellitron.ldbcsnbimpls.interactive.core.Entity;
 
@@ -40,15 +39,28 @@ import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery11;
 import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery12;
 import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery13;
 import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery14;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery10Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery11Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery12Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery13Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery14Result;
 import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery1Result;
 import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery2;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery2Result;
 import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery3;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery3Result;
 import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery4;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery4Result;
 import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery5;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery5Result;
 import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery6;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery6Result;
 import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery7;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery7Result;
 import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery8;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery8Result;
 import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery9;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery9Result;
 import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery1PersonProfile;
 import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery1PersonProfileResult;
 import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery2PersonPosts;
@@ -72,6 +84,13 @@ import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcUpdate6AddPost;
 import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcUpdate7AddComment;
 import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcUpdate8AddFriendship;
 
+import com.thinkaurelius.titan.core.TitanEdge;
+import com.thinkaurelius.titan.core.TitanGraph;
+import com.thinkaurelius.titan.core.TitanMultiVertexQuery;
+import com.thinkaurelius.titan.core.TitanVertex;
+import com.thinkaurelius.titan.core.TitanVertexProperty;
+
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
 import org.apache.tinkerpop.gremlin.process.traversal.Scope;
 import org.apache.tinkerpop.gremlin.structure.Direction;
@@ -87,11 +106,17 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
 
 /**
  * An implementation of the LDBC SNB interactive workload[1] for TitanDB.
@@ -105,6 +130,8 @@ import java.util.Map;
  * 127.0.0.1).</li>
  * <li>graphName - name of the graph stored in TitanDB against which to execute
  * queries (default: default).</li>
+ * <li>queryBatch - whether Titan should fetch the adjacency lists of many
+ * vertices from Cassandra in one batched read (default: true).</li>
  * </ul>
  * <p>
  * References:<br>
@@ -135,17 +162,265 @@ public class TitanDb extends Db {
    * loading phase).
    */
   private static Long getSNBId(Vertex v) {
-    return Long.decode(v.<String>property("iid").value().split(":")[1]);
+    return v.<Long>value("iid");
+  }
+
+  /*
+   * Returns the vertex of the given type with the given LDBC SNB assigned ID.
+   * These IDs are only unique across vertices of the same type, so the lookup
+   * uses the iid index of that type's label. Posts and comments share one ID
+   * space, so a MESSAGE is looked up as a post and then as a comment.
+   */
+  private static Vertex getVertex(GraphTraversalSource g, Entity type,
+      long id) {
+    if (type == Entity.MESSAGE) {
+      GraphTraversal<Vertex, Vertex> post =
+          g.V().has(Entity.POST.getName(), "iid", id);
+      if (post.hasNext()) {
+        return post.next();
+      }
+      type = Entity.COMMENT;
+    }
+
+    return g.V().has(type.getName(), "iid", id).next();
+  }
+
+  /*
+   * Returns, for each of the given vertices that has any, its edges with the
+   * given label in the given direction. The edges of all of the vertices are
+   * read with a single multi-vertex query, which Titan sends to Cassandra as
+   * one batch instead of one read per vertex.
+   */
+  @SuppressWarnings("unchecked")
+  private static Map<Vertex, List<Edge>> traverseEdges(TitanGraph graph,
+      Collection<Vertex> vertices, String label, Direction direction) {
+    Map<Vertex, List<Edge>> result = new HashMap<>(vertices.size());
+    if (vertices.isEmpty()) {
+      return result;
+    }
+
+    TitanMultiVertexQuery query = graph.multiQuery();
+    query.addAllVertices(vertices);
+    query.direction(direction);
+    query.labels(label);
+    collectEdges(query.edges(), result);
+
+    return result;
+  }
+
+  /*
+   * Same as traverseEdges, but only returns edges with a creationDate in
+   * [minDate, maxDate). For knows and hasCreator the range is answered from
+   * the vertex-centric index on creationDate defined by TitanGraphLoader, so
+   * edges outside of it are never read.
+   */
+  @SuppressWarnings("unchecked")
+  private static Map<Vertex, List<Edge>> traverseEdges(TitanGraph graph,
+      Collection<Vertex> vertices, String label, Direction direction,
+      long minDate, long maxDate) {
+    Map<Vertex, List<Edge>> result = new HashMap<>(vertices.size());
+    if (vertices.isEmpty() || minDate >= maxDate) {
+      return result;
+    }
+
+    TitanMultiVertexQuery query = graph.multiQuery();
+    query.addAllVertices(vertices);
+    query.direction(direction);
+    query.labels(label);
+    query.interval("creationDate", minDate, maxDate);
+    collectEdges(query.edges(), result);
+
+    return result;
+  }
+
+  private static void collectEdges(Map<TitanVertex, Iterable<TitanEdge>> edges,
+      Map<Vertex, List<Edge>> result) {
+    edges.forEach((v, vEdges) -> {
+      List<Edge> list = new ArrayList<>();
+      vEdges.forEach(list::add);
+      if (!list.isEmpty()) {
+        result.put(v, list);
+      }
+    });
+  }
+
+  /*
+   * Same as traverseEdges, but returns the vertices at the other ends of the
+   * edges.
+   */
+  private static Map<Vertex, List<Vertex>> traverse(TitanGraph graph,
+      Collection<Vertex> vertices, String label, Direction direction) {
+    return otherEnds(traverseEdges(graph, vertices, label, direction),
+        direction);
+  }
+
+  /*
+   * Same as traverseEdges with a creationDate range, but returns the vertices
+   * at the other ends of the edges.
+   */
+  private static Map<Vertex, List<Vertex>> traverse(TitanGraph graph,
+      Collection<Vertex> vertices, String label, Direction direction,
+      long minDate, long maxDate) {
+    return otherEnds(
+        traverseEdges(graph, vertices, label, direction, minDate, maxDate),
+        direction);
+  }
+
+  private static Map<Vertex, List<Vertex>> otherEnds(
+      Map<Vertex, List<Edge>> edgeMap, Direction direction) {
+    Map<Vertex, List<Vertex>> result = new HashMap<>(edgeMap.size());
+    edgeMap.forEach((v, edges) -> {
+      List<Vertex> list = new ArrayList<>(edges.size());
+      for (Edge e : edges) {
+        list.add(direction == Direction.OUT ? e.inVertex() : e.outVertex());
+      }
+      result.put(v, list);
+    });
+
+    return result;
+  }
+
+  /*
+   * Returns all of the vertices reached from the given vertices by
+   * traverse().
+   */
+  private static Set<Vertex> neighbors(TitanGraph graph,
+      Collection<Vertex> vertices, String label, Direction direction) {
+    Set<Vertex> result = new HashSet<>();
+    traverse(graph, vertices, label, direction).values()
+        .forEach(result::addAll);
+    return result;
+  }
+
+  /*
+   * Returns the properties of each of the given vertices, read with a single
+   * multi-vertex query. Properties are in the same form as those returned by
+   * valueMap(), i.e. a list of values for each key.
+   */
+  @SuppressWarnings("unchecked")
+  private static Map<Vertex, Map<String, List<Object>>> properties(
+      TitanGraph graph, Collection<Vertex> vertices) {
+    Map<Vertex, Map<String, List<Object>>> result =
+        new HashMap<>(vertices.size());
+    if (vertices.isEmpty()) {
+      return result;
+    }
+
+    TitanMultiVertexQuery query = graph.multiQuery();
+    query.addAllVertices(vertices);
+    Map<TitanVertex, Iterable<TitanVertexProperty>> props =
+        query.properties();
+
+    props.forEach((v, vProps) -> {
+      Map<String, List<Object>> map = new HashMap<>();
+      for (TitanVertexProperty prop : vProps) {
+        List<Object> values = map.get(prop.key());
+        if (values == null) {
+          values = new ArrayList<>(1);
+          map.put(prop.key(), values);
+        }
+        values.add(prop.value());
+      }
+      result.put(v, map);
+    });
+
+    for (Vertex v : vertices) {
+      if (!result.containsKey(v)) {
+        result.put(v, new HashMap<>());
+      }
+    }
+
+    return result;
+  }
+
+  /*
+   * Returns the (first) value of a property in a map returned by properties(),
+   * or null if there is none.
+   */
+  @SuppressWarnings("unchecked")
+  private static <T> T value(Map<String, List<Object>> props, String key) {
+    List<Object> values = props.get(key);
+    if (values == null || values.isEmpty()) {
+      return null;
+    }
+    return (T) values.get(0);
+  }
+
+  /*
+   * Returns the content of a message, which for posts without any content is
+   * their image file.
+   */
+  private static String content(Map<String, List<Object>> props) {
+    String content = value(props, "content");
+    if (content == null || content.length() == 0) {
+      content = value(props, "imageFile");
+    }
+    return content;
   }
 
   /*
-   * Return a String representing the globally unique Iid property on all
-   * vertices in the graph. This Iid property is a function of both the Entity
-   * type and the 64-bit LDBC SNB assigned ID to the node (which is only unique
-   * across vertices of that type).
+   * Returns whether the message with the given properties is a post. Titan
+   * reads the label of a vertex with a read of its own, so for messages whose
+   * properties were already read in a batch this checks for the imageFile
+   * property instead, which only posts have.
    */
-  private static String makeIid(Entity type, long id) {
-    return type.getName() + ":" + String.valueOf(id);
+  private static boolean isPost(Map<String, List<Object>> props) {
+    return props.containsKey("imageFile");
+  }
+
+  /*
+   * Returns the friends of the given person up to maxLevels steps away over
+   * knows edges, as one set per distance. Each level is found by traversing
+   * the whole previous level in one batched query.
+   */
+  private static List<Set<Vertex>> friendLevels(TitanGraph graph,
+      Vertex person, int maxLevels) {
+    List<Set<Vertex>> levels = new ArrayList<>(maxLevels);
+    Set<Vertex> seen = new HashSet<>();
+    seen.add(person);
+
+    Set<Vertex> frontier = Collections.singleton(person);
+    for (int level = 0; level < maxLevels && !frontier.isEmpty(); level++) {
+      Set<Vertex> next = new HashSet<>();
+      for (Vertex f : neighbors(graph, frontier, "knows", Direction.OUT)) {
+        if (seen.add(f)) {
+          next.add(f);
+        }
+      }
+      levels.add(next);
+      frontier = next;
+    }
+
+    return levels;
+  }
+
+  /*
+   * Returns the friends and friends of friends of the given person, excluding
+   * the person.
+   */
+  private static Set<Vertex> friendsWithin2(TitanGraph graph,
+      Vertex person) {
+    Set<Vertex> friends = new HashSet<>();
+    friendLevels(graph, person, 2).forEach(friends::addAll);
+    return friends;
+  }
+
+  /*
+   * Returns whether the transaction of a read query ended successfully, i.e.
+   * whether the query should report its result rather than retry.
+   */
+  private static boolean endReadTx(Graph graph) {
+    if (doTransactionalReads) {
+      try {
+        graph.tx().commit();
+      } catch (RuntimeException e) {
+        return false;
+      }
+    } else {
+      graph.tx().rollback();
+    }
+
+    return true;
   }
 
   @Override
@@ -162,6 +437,19 @@ public class TitanDb extends Db {
      * Register operation handlers with the benchmark.
      */
     registerOperationHandler(LdbcQuery1.class, LdbcQuery1Handler.class);
+    registerOperationHandler(LdbcQuery2.class, LdbcQuery2Handler.class);
+    registerOperationHandler(LdbcQuery3.class, LdbcQuery3Handler.class);
+    registerOperationHandler(LdbcQuery4.class, LdbcQuery4Handler.class);
+    registerOperationHandler(LdbcQuery5.class, LdbcQuery5Handler.class);
+    registerOperationHandler(LdbcQuery6.class, LdbcQuery6Handler.class);
+    registerOperationHandler(LdbcQuery7.class, LdbcQuery7Handler.class);
+    registerOperationHandler(LdbcQuery8.class, LdbcQuery8Handler.class);
+    registerOperationHandler(LdbcQuery9.class, LdbcQuery9Handler.class);
+    registerOperationHandler(LdbcQuery10.class, LdbcQuery10Handler.class);
+    registerOperationHandler(LdbcQuery11.class, LdbcQuery11Handler.class);
+    registerOperationHandler(LdbcQuery12.class, LdbcQuery12Handler.class);
+    registerOperationHandler(LdbcQuery13.class, LdbcQuery13Handler.class);
+    registerOperationHandler(LdbcQuery14.class, LdbcQuery14Handler.class);
 
     registerOperationHandler(LdbcShortQuery1PersonProfile.class,
         LdbcShortQuery1PersonProfileHandler.class);
@@ -230,7 +518,169 @@ public class TitanDb extends Db {
     public void executeOperation(final LdbcQuery1 operation,
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
-      executeOperationGremlinV2(operation, dbConnectionState, resultReporter);
+      executeOperationBatched(operation, dbConnectionState, resultReporter);
+    }
+
+    public void executeOperationBatched(final LdbcQuery1 operation,
+        DbConnectionState dbConnectionState,
+        ResultReporter resultReporter) throws DbException {
+
+      int txAttempts = 0;
+      while (txAttempts < MAX_TX_ATTEMPTS) {
+        long personId = operation.personId();
+        String firstName = operation.firstName();
+        int resultLimit = operation.limit();
+        int maxLevels = 3;
+        TitanGraph graph =
+            ((TitanDbConnectionState) dbConnectionState).getClient();
+
+        GraphTraversalSource g = graph.traversal();
+
+        List<Vertex> matchList = new ArrayList<>(resultLimit);
+        List<Integer> distList = new ArrayList<>(resultLimit);
+        Map<Vertex, Map<String, List<Object>>> propertiesMap =
+            new HashMap<>();
+
+        Vertex root = getVertex(g, Entity.PERSON, personId);
+
+        Set<Vertex> seen = new HashSet<>();
+        seen.add(root);
+        Set<Vertex> frontier = Collections.singleton(root);
+        for (int level = 1; level <= maxLevels; level++) {
+          Set<Vertex> next = new HashSet<>();
+          for (Vertex f : neighbors(graph, frontier, "knows", Direction.OUT)) {
+            if (seen.add(f)) {
+              next.add(f);
+            }
+          }
+
+          if (next.isEmpty()) {
+            break;
+          }
+
+          Map<Vertex, Map<String, List<Object>>> levelProps =
+              properties(graph, next);
+
+          List<Vertex> matches = new ArrayList<>();
+          for (Vertex f : next) {
+            if (firstName.equals(value(levelProps.get(f), "firstName"))) {
+              matches.add(f);
+              propertiesMap.put(f, levelProps.get(f));
+            }
+          }
+
+          matches.sort((a, b) -> {
+            String aLastName = value(propertiesMap.get(a), "lastName");
+            String bLastName = value(propertiesMap.get(b), "lastName");
+            int c = aLastName.compareTo(bLastName);
+            if (c != 0) {
+              return c;
+            }
+            Long aId = value(propertiesMap.get(a), "iid");
+            Long bId = value(propertiesMap.get(b), "iid");
+            return aId.compareTo(bId);
+          });
+
+          for (Vertex m : matches) {
+            if (matchList.size() == resultLimit) {
+              break;
+            }
+            matchList.add(m);
+            distList.add(level);
+          }
+
+          if (matchList.size() == resultLimit) {
+            break;
+          }
+
+          frontier = next;
+        }
+
+        Map<Vertex, List<Vertex>> placeMap =
+            traverse(graph, matchList, "isLocatedIn", Direction.OUT);
+        Map<Vertex, List<Edge>> studyAtMap =
+            traverseEdges(graph, matchList, "studyAt", Direction.OUT);
+        Map<Vertex, List<Edge>> workAtMap =
+            traverseEdges(graph, matchList, "workAt", Direction.OUT);
+
+        Set<Vertex> orgs = new HashSet<>();
+        studyAtMap.values().forEach((edges) -> {
+          edges.forEach((e) -> orgs.add(e.inVertex()));
+        });
+        workAtMap.values().forEach((edges) -> {
+          edges.forEach((e) -> orgs.add(e.inVertex()));
+        });
+        Map<Vertex, List<Vertex>> orgPlaceMap =
+            traverse(graph, orgs, "isLocatedIn", Direction.OUT);
+
+        Set<Vertex> named = new HashSet<>(orgs);
+        placeMap.values().forEach(named::addAll);
+        orgPlaceMap.values().forEach(named::addAll);
+        Map<Vertex, Map<String, List<Object>>> namedProps =
+            properties(graph, named);
+
+        List<LdbcQuery1Result> result = new ArrayList<>(matchList.size());
+        for (int i = 0; i < matchList.size(); i++) {
+          Vertex match = matchList.get(i);
+          Map<String, List<Object>> props = propertiesMap.get(match);
+
+          List<String> emails = new ArrayList<>();
+          if (props.containsKey("email")) {
+            props.get("email").forEach((v) -> emails.add((String) v));
+          }
+          List<String> languages = new ArrayList<>();
+          if (props.containsKey("language")) {
+            props.get("language").forEach((v) -> languages.add((String) v));
+          }
+
+          List<List<Object>> universityInfo = new ArrayList<>();
+          for (Edge e : studyAtMap.getOrDefault(match,
+              Collections.emptyList())) {
+            Vertex org = e.inVertex();
+            List<Object> tuple = new ArrayList<>(3);
+            tuple.add(value(namedProps.get(org), "name"));
+            tuple.add(e.<Integer>value("classYear"));
+            tuple.add(value(namedProps.get(orgPlaceMap.get(org).get(0)),
+                "name"));
+            universityInfo.add(tuple);
+          }
+
+          List<List<Object>> companyInfo = new ArrayList<>();
+          for (Edge e : workAtMap.getOrDefault(match,
+              Collections.emptyList())) {
+            Vertex org = e.inVertex();
+            List<Object> tuple = new ArrayList<>(3);
+            tuple.add(value(namedProps.get(org), "name"));
+            tuple.add(e.<Integer>value("workFrom"));
+            tuple.add(value(namedProps.get(orgPlaceMap.get(org).get(0)),
+                "name"));
+            companyInfo.add(tuple);
+          }
+
+          result.add(new LdbcQuery1Result(
+              value(props, "iid"),
+              value(props, "lastName"),
+              distList.get(i),
+              value(props, "birthday"),
+              value(props, "creationDate"),
+              value(props, "gender"),
+              value(props, "browserUsed"),
+              value(props, "locationIP"),
+              emails,
+              languages,
+              value(namedProps.get(placeMap.get(match).get(0)), "name"),
+              universityInfo,
+              companyInfo));
+        }
+
+        if (!endReadTx(graph)) {
+          txAttempts++;
+          continue;
+        }
+
+        resultReporter.report(result.size(), result, operation);
+        break;
+      }
     }
 
     public void executeOperationGremlinV2(final LdbcQuery1 operation,
@@ -251,7 +701,7 @@ public class TitanDb extends Db {
         List<Vertex> matchList = new ArrayList<>(resultLimit);
 
         g.withSideEffect("x", matchList).withSideEffect("d", distList)
-            .V().has("iid", makeIid(Entity.PERSON, personId))
+            .V().has(Entity.PERSON.getName(), "iid", personId)
             .aggregate("done").out("knows")
             .where(without("done")).dedup().fold().sideEffect(
                 unfold().has("firstName", firstName).order()
@@ -278,14 +728,9 @@ public class TitanDb extends Db {
             ).select("x").count(Scope.local)
             .store("d").iterate();
 
-        List<String> matchListIds = new ArrayList<>(matchList.size());
-        matchList.forEach((v) -> {
-          matchListIds.add(v.<String>property("iid").value());
-        });
-
         Map<Vertex, Map<String, List<String>>> propertiesMap =
             new HashMap<>(matchList.size());
-        g.V().has("iid", within(matchListIds)).as("person")
+        g.V(matchList.toArray()).as("person")
             .<List<String>>valueMap().as("props")
             .select("person", "props")
             .forEachRemaining(map -> {
@@ -294,7 +739,7 @@ public class TitanDb extends Db {
             });
 
         Map<Vertex, String> placeNameMap = new HashMap<>(matchList.size());
-        g.V().has("iid", within(matchListIds)).as("person")
+        g.V(matchList.toArray()).as("person")
             .out("isLocatedIn")
             .<String>values("name")
             .as("placeName")
@@ -306,7 +751,7 @@ public class TitanDb extends Db {
 
         Map<Vertex, List<List<Object>>> universityInfoMap =
             new HashMap<>(matchList.size());
-        g.V().has("iid", within(matchListIds)).as("person")
+        g.V(matchList.toArray()).as("person")
             .outE("studyAt").as("classYear")
             .inV().as("universityName")
             .out("isLocatedIn").as("cityName")
@@ -316,7 +761,7 @@ public class TitanDb extends Db {
               Vertex v = (Vertex) map.get("person");
               List<Object> tuple = new ArrayList<>(3);
               tuple.add(map.get("universityName"));
-              tuple.add(Integer.decode((String) map.get("classYear")));
+              tuple.add((Integer) map.get("classYear"));
               tuple.add(map.get("cityName"));
               if (universityInfoMap.containsKey(v)) {
                 universityInfoMap.get(v).add(tuple);
@@ -329,7 +774,7 @@ public class TitanDb extends Db {
 
         Map<Vertex, List<List<Object>>> companyInfoMap =
             new HashMap<>(matchList.size());
-        g.V().has("iid", within(matchListIds)).as("person")
+        g.V(matchList.toArray()).as("person")
             .outE("workAt").as("workFrom")
             .inV().as("companyName")
             .out("isLocatedIn").as("cityName")
@@ -339,7 +784,7 @@ public class TitanDb extends Db {
               Vertex v = (Vertex) map.get("person");
               List<Object> tuple = new ArrayList<>(3);
               tuple.add(map.get("companyName"));
-              tuple.add(Integer.decode((String) map.get("workFrom")));
+              tuple.add((Integer) map.get("workFrom"));
               tuple.add(map.get("cityName"));
               if (companyInfoMap.containsKey(v)) {
                 companyInfoMap.get(v).add(tuple);
@@ -378,8 +823,8 @@ public class TitanDb extends Db {
               getSNBId(match),
               properties.get("lastName").get(0),
               distance,
-              Long.decode(properties.get("birthday").get(0)),
-              Long.decode(properties.get("creationDate").get(0)),
+              match.<Long>value("birthday"),
+              match.<Long>value("creationDate"),
               properties.get("gender").get(0),
               properties.get("browserUsed").get(0),
               properties.get("locationIP").get(0),
@@ -423,8 +868,7 @@ public class TitanDb extends Db {
         List<Integer> distList = new ArrayList<>(resultLimit);
         List<Vertex> matchList = new ArrayList<>(resultLimit);
 
-        Vertex root = g.V().has("iid",
-            makeIid(Entity.PERSON, personId)).next();
+        Vertex root = getVertex(g, Entity.PERSON, personId);
 
         List<Vertex> l1Friends = new ArrayList<>();
         g.V(root).out("knows")
@@ -514,7 +958,7 @@ public class TitanDb extends Db {
               Vertex v = (Vertex) map.get("person");
               List<Object> tuple = new ArrayList<>(3);
               tuple.add(map.get("universityName"));
-              tuple.add(Integer.decode((String) map.get("classYear")));
+              tuple.add((Integer) map.get("classYear"));
               tuple.add(map.get("cityName"));
               if (universityInfoMap.containsKey(v)) {
                 universityInfoMap.get(v).add(tuple);
@@ -537,7 +981,7 @@ public class TitanDb extends Db {
               Vertex v = (Vertex) map.get("person");
               List<Object> tuple = new ArrayList<>(3);
               tuple.add(map.get("companyName"));
-              tuple.add(Integer.decode((String) map.get("workFrom")));
+              tuple.add((Integer) map.get("workFrom"));
               tuple.add(map.get("cityName"));
               if (companyInfoMap.containsKey(v)) {
                 companyInfoMap.get(v).add(tuple);
@@ -574,8 +1018,8 @@ public class TitanDb extends Db {
               getSNBId(match),
               properties.get("lastName").get(0),
               distList.get(i),
-              Long.decode(properties.get("birthday").get(0)),
-              Long.decode(properties.get("creationDate").get(0)),
+              match.<Long>value("birthday"),
+              match.<Long>value("creationDate"),
               properties.get("gender").get(0),
               properties.get("browserUsed").get(0),
               properties.get("locationIP").get(0),
@@ -615,8 +1059,7 @@ public class TitanDb extends Db {
         Graph client = ((TitanDbConnectionState) dbConnectionState).getClient();
         GraphTraversalSource g = client.traversal();
 
-        Vertex rootPerson = g.V().has("iid",
-            makeIid(Entity.PERSON, personId)).next();
+        Vertex rootPerson = getVertex(g, Entity.PERSON, personId);
 
         List<Vertex> friends = new ArrayList<>();
         List<Integer> levelIndices = new ArrayList<>();
@@ -699,34 +1142,34 @@ public class TitanDb extends Db {
             List<List<Object>> friendCompanies = new ArrayList<>();
 
             // Extract normal properties.
-            Iterator<VertexProperty<String>> props = f.properties();
+            Iterator<VertexProperty<Object>> props = f.properties();
             while (props.hasNext()) {
-              VertexProperty<String> prop = props.next();
+              VertexProperty<Object> prop = props.next();
 
               switch (prop.key()) {
                 case "lastName":
-                  friendLastName = prop.value();
+                  friendLastName = (String) prop.value();
                   break;
                 case "birthday":
-                  friendBirthday = Long.decode(prop.value());
+                  friendBirthday = (Long) prop.value();
                   break;
                 case "creationDate":
-                  friendCreationDate = Long.decode(prop.value());
+                  friendCreationDate = (Long) prop.value();
                   break;
                 case "gender":
-                  friendGender = prop.value();
+                  friendGender = (String) prop.value();
                   break;
                 case "browserUsed":
-                  friendBrowserUsed = prop.value();
+                  friendBrowserUsed = (String) prop.value();
                   break;
                 case "locationIP":
-                  friendLocationIp = prop.value();
+                  friendLocationIp = (String) prop.value();
                   break;
                 case "email":
-                  friendEmails.add(prop.value());
+                  friendEmails.add((String) prop.value());
                   break;
                 case "language":
-                  friendLanguages.add(prop.value());
+                  friendLanguages.add((String) prop.value());
                   break;
               }
             }
@@ -738,8 +1181,7 @@ public class TitanDb extends Db {
 
             // Fetch universities studied at
             f.edges(Direction.OUT, "studyAt").forEachRemaining((e) -> {
-              Integer classYear =
-                  Integer.decode(e.<String>property("classYear").value());
+              Integer classYear = e.<Integer>value("classYear");
               Vertex organization = e.inVertex();
               String orgName = organization.<String>property("name").value();
               Vertex place = organization.edges(Direction.OUT, "isLocatedIn")
@@ -756,8 +1198,7 @@ public class TitanDb extends Db {
 
             // Fetch companies worked at
             f.edges(Direction.OUT, "workAt").forEachRemaining((e) -> {
-              Integer workFrom =
-                  Integer.decode(e.<String>property("workFrom").value());
+              Integer workFrom = e.<Integer>value("workFrom");
               Vertex company = e.inVertex();
               String compName = company.<String>property("name").value();
               Vertex place = company.edges(Direction.OUT, "isLocatedIn")
@@ -835,9 +1276,79 @@ public class TitanDb extends Db {
     public void executeOperation(final LdbcQuery2 operation,
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
+      int txAttempts = 0;
+      while (txAttempts < MAX_TX_ATTEMPTS) {
+        long personId = operation.personId();
+        long maxDate = operation.maxDate().getTime();
+        int resultLimit = operation.limit();
+        TitanGraph graph =
+            ((TitanDbConnectionState) dbConnectionState).getClient();
 
-    }
+        GraphTraversalSource g = graph.traversal();
+
+        Vertex person = getVertex(g, Entity.PERSON, personId);
+
+        Set<Vertex> friends =
+            neighbors(graph, Collections.singleton(person), "knows",
+                Direction.OUT);
+
+        Map<Vertex, List<Vertex>> messageMap =
+            traverse(graph, friends, "hasCreator", Direction.IN,
+                Long.MIN_VALUE, (maxDate == Long.MAX_VALUE) ?
+                    Long.MAX_VALUE : maxDate + 1);
+
+        Map<Vertex, Vertex> authorMap = new HashMap<>();
+        messageMap.forEach((f, messages) -> {
+          messages.forEach((m) -> authorMap.put(m, f));
+        });
+
+        Map<Vertex, Map<String, List<Object>>> messageProps =
+            properties(graph, authorMap.keySet());
+
+        List<Vertex> messageList = new ArrayList<>();
+        messageProps.forEach((m, props) -> {
+          if ((Long) value(props, "creationDate") <= maxDate) {
+            messageList.add(m);
+          }
+        });
+
+        messageList.sort(
+            Comparator.<Vertex, Long>comparing((m) ->
+                (Long) value(messageProps.get(m), "creationDate"))
+            .reversed()
+            .thenComparing((m) -> (Long) value(messageProps.get(m), "iid")));
+
+        List<Vertex> topMessages =
+            messageList.subList(0, Math.min(resultLimit, messageList.size()));
+
+        Set<Vertex> authors = new HashSet<>();
+        topMessages.forEach((m) -> authors.add(authorMap.get(m)));
+        Map<Vertex, Map<String, List<Object>>> authorProps =
+            properties(graph, authors);
+
+        List<LdbcQuery2Result> result = new ArrayList<>(topMessages.size());
+        for (Vertex m : topMessages) {
+          Map<String, List<Object>> mProps = messageProps.get(m);
+          Map<String, List<Object>> aProps =
+              authorProps.get(authorMap.get(m));
+          result.add(new LdbcQuery2Result(
+              value(aProps, "iid"),
+              value(aProps, "firstName"),
+              value(aProps, "lastName"),
+              value(mProps, "iid"),
+              content(mProps),
+              (Long) value(mProps, "creationDate")));
+        }
+
+        if (!endReadTx(graph)) {
+          txAttempts++;
+          continue;
+        }
 
+        resultReporter.report(result.size(), result, operation);
+        break;
+      }
+    }
   }
 
   /**
@@ -860,9 +1371,119 @@ public class TitanDb extends Db {
     public void executeOperation(final LdbcQuery3 operation,
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
+      int txAttempts = 0;
+      while (txAttempts < MAX_TX_ATTEMPTS) {
+        long personId = operation.personId();
+        String countryXName = operation.countryXName();
+        String countryYName = operation.countryYName();
+        long startDate = operation.startDate().getTime();
+        long endDate = startDate
+            + (long) operation.durationDays() * 24L * 60L * 60L * 1000L;
+        int resultLimit = operation.limit();
+        TitanGraph graph =
+            ((TitanDbConnectionState) dbConnectionState).getClient();
 
-    }
+        GraphTraversalSource g = graph.traversal();
+
+        Vertex person = getVertex(g, Entity.PERSON, personId);
+
+        Set<Vertex> friends = friendsWithin2(graph, person);
+
+        // Only consider friends that are foreign to both countries.
+        Map<Vertex, List<Vertex>> cityMap =
+            traverse(graph, friends, "isLocatedIn", Direction.OUT);
+        Set<Vertex> cities = new HashSet<>();
+        cityMap.values().forEach(cities::addAll);
+        Map<Vertex, List<Vertex>> countryMap =
+            traverse(graph, cities, "isPartOf", Direction.OUT);
+        Set<Vertex> countries = new HashSet<>();
+        countryMap.values().forEach(countries::addAll);
+        Map<Vertex, Map<String, List<Object>>> countryProps =
+            properties(graph, countries);
+
+        friends.removeIf((f) -> {
+          Vertex country = countryMap.get(cityMap.get(f).get(0)).get(0);
+          String name = value(countryProps.get(country), "name");
+          return name.equals(countryXName) || name.equals(countryYName);
+        });
+
+        Map<Vertex, List<Vertex>> messageMap =
+            traverse(graph, friends, "hasCreator", Direction.IN, startDate,
+                endDate);
+        Set<Vertex> messages = new HashSet<>();
+        messageMap.values().forEach(messages::addAll);
+        Map<Vertex, Map<String, List<Object>>> messageProps =
+            properties(graph, messages);
+
+        messages.removeIf((m) -> {
+          long creationDate =
+              (Long) value(messageProps.get(m), "creationDate");
+          return creationDate < startDate || creationDate >= endDate;
+        });
+
+        Map<Vertex, List<Vertex>> messageCountryMap =
+            traverse(graph, messages, "isLocatedIn", Direction.OUT);
+        Set<Vertex> messageCountries = new HashSet<>();
+        messageCountryMap.values().forEach(messageCountries::addAll);
+        Map<Vertex, Map<String, List<Object>>> messageCountryProps =
+            properties(graph, messageCountries);
+
+        Map<Vertex, Long> xCounts = new HashMap<>();
+        Map<Vertex, Long> yCounts = new HashMap<>();
+        messageMap.forEach((f, fMessages) -> {
+          long xCount = 0;
+          long yCount = 0;
+          for (Vertex m : fMessages) {
+            if (!messages.contains(m)) {
+              continue;
+            }
+            String name = value(messageCountryProps.get(
+                messageCountryMap.get(m).get(0)), "name");
+            if (name.equals(countryXName)) {
+              xCount++;
+            } else if (name.equals(countryYName)) {
+              yCount++;
+            }
+          }
+
+          if (xCount > 0 && yCount > 0) {
+            xCounts.put(f, xCount);
+            yCounts.put(f, yCount);
+          }
+        });
 
+        List<Vertex> matchList = new ArrayList<>(xCounts.keySet());
+        Map<Vertex, Map<String, List<Object>>> matchProps =
+            properties(graph, matchList);
+
+        matchList.sort(
+            Comparator.<Vertex, Long>comparing((f) ->
+                xCounts.get(f) + yCounts.get(f))
+            .reversed()
+            .thenComparing((f) -> (Long) value(matchProps.get(f), "iid")));
+
+        List<LdbcQuery3Result> result = new ArrayList<>(resultLimit);
+        for (Vertex f : matchList.subList(0,
+            Math.min(resultLimit, matchList.size()))) {
+          Map<String, List<Object>> props = matchProps.get(f);
+          result.add(new LdbcQuery3Result(
+              value(props, "iid"),
+              value(props, "firstName"),
+              value(props, "lastName"),
+              xCounts.get(f),
+              yCounts.get(f),
+              xCounts.get(f) + yCounts.get(f)));
+        }
+
+        if (!endReadTx(graph)) {
+          txAttempts++;
+          continue;
+        }
+
+        resultReporter.report(result.size(), result, operation);
+        break;
+      }
+    }
   }
 
   /**
@@ -884,9 +1505,83 @@ public class TitanDb extends Db {
     public void executeOperation(final LdbcQuery4 operation,
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
+      int txAttempts = 0;
+      while (txAttempts < MAX_TX_ATTEMPTS) {
+        long personId = operation.personId();
+        long startDate = operation.startDate().getTime();
+        long endDate = startDate
+            + (long) operation.durationDays() * 24L * 60L * 60L * 1000L;
+        int resultLimit = operation.limit();
+        TitanGraph graph =
+            ((TitanDbConnectionState) dbConnectionState).getClient();
 
-    }
+        GraphTraversalSource g = graph.traversal();
+
+        Vertex person = getVertex(g, Entity.PERSON, personId);
+
+        Set<Vertex> friends =
+            neighbors(graph, Collections.singleton(person), "knows",
+                Direction.OUT);
 
+        Set<Vertex> messages =
+            neighbors(graph, friends, "hasCreator", Direction.IN);
+        Map<Vertex, Map<String, List<Object>>> messageProps =
+            properties(graph, messages);
+
+        // Posts from before the interval, and posts within it.
+        Set<Vertex> oldPosts = new HashSet<>();
+        Set<Vertex> newPosts = new HashSet<>();
+        messageProps.forEach((m, props) -> {
+          if (!isPost(props)) {
+            return;
+          }
+          long creationDate = (Long) value(props, "creationDate");
+          if (creationDate < startDate) {
+            oldPosts.add(m);
+          } else if (creationDate < endDate) {
+            newPosts.add(m);
+          }
+        });
+
+        Set<Vertex> oldTags =
+            neighbors(graph, oldPosts, "hasTag", Direction.OUT);
+
+        Map<Vertex, Integer> postCounts = new HashMap<>();
+        traverse(graph, newPosts, "hasTag", Direction.OUT).values()
+            .forEach((tags) -> {
+              for (Vertex t : tags) {
+                if (!oldTags.contains(t)) {
+                  postCounts.merge(t, 1, Integer::sum);
+                }
+              }
+            });
+
+        Map<Vertex, Map<String, List<Object>>> tagProps =
+            properties(graph, postCounts.keySet());
+
+        List<Vertex> tagList = new ArrayList<>(postCounts.keySet());
+        tagList.sort(
+            Comparator.<Vertex, Integer>comparing((t) -> postCounts.get(t))
+            .reversed()
+            .thenComparing((t) -> (String) value(tagProps.get(t), "name")));
+
+        List<LdbcQuery4Result> result = new ArrayList<>(resultLimit);
+        for (Vertex t : tagList.subList(0,
+            Math.min(resultLimit, tagList.size()))) {
+          result.add(new LdbcQuery4Result(
+              value(tagProps.get(t), "name"),
+              postCounts.get(t)));
+        }
+
+        if (!endReadTx(graph)) {
+          txAttempts++;
+          continue;
+        }
+
+        resultReporter.report(result.size(), result, operation);
+        break;
+      }
+    }
   }
 
   /**
@@ -908,9 +1603,91 @@ public class TitanDb extends Db {
     public void executeOperation(final LdbcQuery5 operation,
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
+      int txAttempts = 0;
+      while (txAttempts < MAX_TX_ATTEMPTS) {
+        long personId = operation.personId();
+        long minDate = operation.minDate().getTime();
+        int resultLimit = operation.limit();
+        TitanGraph graph =
+            ((TitanDbConnectionState) dbConnectionState).getClient();
 
-    }
+        GraphTraversalSource g = graph.traversal();
+
+        Vertex person = getVertex(g, Entity.PERSON, personId);
+
+        Set<Vertex> friends = friendsWithin2(graph, person);
+
+        // The friends that joined each forum after minDate.
+        Map<Vertex, Set<Vertex>> forumMembers = new HashMap<>();
+        traverseEdges(graph, friends, "hasMember", Direction.IN)
+            .forEach((f, edges) -> {
+              for (Edge e : edges) {
+                if (e.<Long>value("joinDate") > minDate) {
+                  forumMembers.computeIfAbsent(e.outVertex(),
+                      (k) -> new HashSet<>()).add(f);
+                }
+              }
+            });
+
+        // Count each friend's posts in the forums they joined after minDate.
+        Map<Vertex, List<Vertex>> messageMap =
+            traverse(graph, friends, "hasCreator", Direction.IN);
+        Set<Vertex> messages = new HashSet<>();
+        messageMap.values().forEach(messages::addAll);
+        Map<Vertex, Map<String, List<Object>>> messageProps =
+            properties(graph, messages);
+
+        Set<Vertex> posts = new HashSet<>();
+        messageProps.forEach((m, props) -> {
+          if (isPost(props)) {
+            posts.add(m);
+          }
+        });
+
+        Map<Vertex, List<Vertex>> postForumMap =
+            traverse(graph, posts, "containerOf", Direction.IN);
+
+        Map<Vertex, Integer> postCounts = new HashMap<>();
+        forumMembers.keySet().forEach((forum) -> postCounts.put(forum, 0));
+        messageMap.forEach((f, fMessages) -> {
+          for (Vertex m : fMessages) {
+            if (!postForumMap.containsKey(m)) {
+              continue;
+            }
+            Vertex forum = postForumMap.get(m).get(0);
+            if (forumMembers.containsKey(forum)
+                && forumMembers.get(forum).contains(f)) {
+              postCounts.merge(forum, 1, Integer::sum);
+            }
+          }
+        });
 
+        Map<Vertex, Map<String, List<Object>>> forumProps =
+            properties(graph, postCounts.keySet());
+
+        List<Vertex> forumList = new ArrayList<>(postCounts.keySet());
+        forumList.sort(
+            Comparator.<Vertex, Integer>comparing((f) -> postCounts.get(f))
+            .reversed()
+            .thenComparing((f) -> (Long) value(forumProps.get(f), "iid")));
+
+        List<LdbcQuery5Result> result = new ArrayList<>(resultLimit);
+        for (Vertex f : forumList.subList(0,
+            Math.min(resultLimit, forumList.size()))) {
+          result.add(new LdbcQuery5Result(
+              value(forumProps.get(f), "title"),
+              postCounts.get(f)));
+        }
+
+        if (!endReadTx(graph)) {
+          txAttempts++;
+          continue;
+        }
+
+        resultReporter.report(result.size(), result, operation);
+        break;
+      }
+    }
   }
 
   /**
@@ -931,9 +1708,81 @@ public class TitanDb extends Db {
     public void executeOperation(final LdbcQuery6 operation,
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
+      int txAttempts = 0;
+      while (txAttempts < MAX_TX_ATTEMPTS) {
+        long personId = operation.personId();
+        String tagName = operation.tagName();
+        int resultLimit = operation.limit();
+        TitanGraph graph =
+            ((TitanDbConnectionState) dbConnectionState).getClient();
 
-    }
+        GraphTraversalSource g = graph.traversal();
+
+        Vertex person = getVertex(g, Entity.PERSON, personId);
+
+        Set<Vertex> friends = friendsWithin2(graph, person);
 
+        Set<Vertex> messages =
+            neighbors(graph, friends, "hasCreator", Direction.IN);
+        Map<Vertex, Map<String, List<Object>>> messageProps =
+            properties(graph, messages);
+
+        Set<Vertex> posts = new HashSet<>();
+        messageProps.forEach((m, props) -> {
+          if (isPost(props)) {
+            posts.add(m);
+          }
+        });
+
+        Map<Vertex, List<Vertex>> postTagMap =
+            traverse(graph, posts, "hasTag", Direction.OUT);
+        Set<Vertex> tags = new HashSet<>();
+        postTagMap.values().forEach(tags::addAll);
+        Map<Vertex, Map<String, List<Object>>> tagProps =
+            properties(graph, tags);
+
+        Map<Vertex, Integer> postCounts = new HashMap<>();
+        postTagMap.values().forEach((pTags) -> {
+          boolean hasTag = false;
+          for (Vertex t : pTags) {
+            if (tagName.equals(value(tagProps.get(t), "name"))) {
+              hasTag = true;
+              break;
+            }
+          }
+
+          if (hasTag) {
+            for (Vertex t : pTags) {
+              if (!tagName.equals(value(tagProps.get(t), "name"))) {
+                postCounts.merge(t, 1, Integer::sum);
+              }
+            }
+          }
+        });
+
+        List<Vertex> tagList = new ArrayList<>(postCounts.keySet());
+        tagList.sort(
+            Comparator.<Vertex, Integer>comparing((t) -> postCounts.get(t))
+            .reversed()
+            .thenComparing((t) -> (String) value(tagProps.get(t), "name")));
+
+        List<LdbcQuery6Result> result = new ArrayList<>(resultLimit);
+        for (Vertex t : tagList.subList(0,
+            Math.min(resultLimit, tagList.size()))) {
+          result.add(new LdbcQuery6Result(
+              value(tagProps.get(t), "name"),
+              postCounts.get(t)));
+        }
+
+        if (!endReadTx(graph)) {
+          txAttempts++;
+          continue;
+        }
+
+        resultReporter.report(result.size(), result, operation);
+        break;
+      }
+    }
   }
 
   /**
@@ -957,9 +1806,83 @@ public class TitanDb extends Db {
     public void executeOperation(final LdbcQuery7 operation,
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
+      int txAttempts = 0;
+      while (txAttempts < MAX_TX_ATTEMPTS) {
+        long personId = operation.personId();
+        int resultLimit = operation.limit();
+        TitanGraph graph =
+            ((TitanDbConnectionState) dbConnectionState).getClient();
 
-    }
+        GraphTraversalSource g = graph.traversal();
+
+        Vertex person = getVertex(g, Entity.PERSON, personId);
+
+        Set<Vertex> friends =
+            neighbors(graph, Collections.singleton(person), "knows",
+                Direction.OUT);
+
+        Set<Vertex> messages =
+            neighbors(graph, Collections.singleton(person), "hasCreator",
+                Direction.IN);
+        Map<Vertex, Map<String, List<Object>>> messageProps =
+            properties(graph, messages);
+
+        // The most recent like of each liker, and which message it was on.
+        Map<Vertex, Long> likeDates = new HashMap<>();
+        Map<Vertex, Vertex> likedMessages = new HashMap<>();
+        traverseEdges(graph, messages, "likes", Direction.IN)
+            .forEach((m, edges) -> {
+              long messageId = value(messageProps.get(m), "iid");
+              for (Edge e : edges) {
+                Vertex liker = e.outVertex();
+                long likeDate = e.<Long>value("creationDate");
+                Long lastDate = likeDates.get(liker);
+                if (lastDate == null || likeDate > lastDate
+                    || (likeDate == lastDate && messageId < (Long) value(
+                        messageProps.get(likedMessages.get(liker)), "iid"))) {
+                  likeDates.put(liker, likeDate);
+                  likedMessages.put(liker, m);
+                }
+              }
+            });
 
+        Map<Vertex, Map<String, List<Object>>> likerProps =
+            properties(graph, likeDates.keySet());
+
+        List<Vertex> likerList = new ArrayList<>(likeDates.keySet());
+        likerList.sort(
+            Comparator.<Vertex, Long>comparing((l) -> likeDates.get(l))
+            .reversed()
+            .thenComparing((l) -> (Long) value(likerProps.get(l), "iid")));
+
+        List<LdbcQuery7Result> result = new ArrayList<>(resultLimit);
+        for (Vertex l : likerList.subList(0,
+            Math.min(resultLimit, likerList.size()))) {
+          Map<String, List<Object>> lProps = likerProps.get(l);
+          Map<String, List<Object>> mProps =
+              messageProps.get(likedMessages.get(l));
+          long likeDate = likeDates.get(l);
+          long messageDate = (Long) value(mProps, "creationDate");
+          result.add(new LdbcQuery7Result(
+              value(lProps, "iid"),
+              value(lProps, "firstName"),
+              value(lProps, "lastName"),
+              likeDate,
+              value(mProps, "iid"),
+              content(mProps),
+              (int) ((likeDate - messageDate) / (1000 * 60)),
+              !friends.contains(l)));
+        }
+
+        if (!endReadTx(graph)) {
+          txAttempts++;
+          continue;
+        }
+
+        resultReporter.report(result.size(), result, operation);
+        break;
+      }
+    }
   }
 
   /**
@@ -980,9 +1903,65 @@ public class TitanDb extends Db {
     public void executeOperation(final LdbcQuery8 operation,
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
+      int txAttempts = 0;
+      while (txAttempts < MAX_TX_ATTEMPTS) {
+        long personId = operation.personId();
+        int resultLimit = operation.limit();
+        TitanGraph graph =
+            ((TitanDbConnectionState) dbConnectionState).getClient();
 
-    }
+        GraphTraversalSource g = graph.traversal();
+
+        Vertex person = getVertex(g, Entity.PERSON, personId);
+
+        Set<Vertex> messages =
+            neighbors(graph, Collections.singleton(person), "hasCreator",
+                Direction.IN);
+        Set<Vertex> replies =
+            neighbors(graph, messages, "replyOf", Direction.IN);
+        Map<Vertex, Map<String, List<Object>>> replyProps =
+            properties(graph, replies);
+
+        List<Vertex> replyList = new ArrayList<>(replies);
+        replyList.sort(
+            Comparator.<Vertex, Long>comparing((r) ->
+                (Long) value(replyProps.get(r), "creationDate"))
+            .reversed()
+            .thenComparing((r) -> (Long) value(replyProps.get(r), "iid")));
+
+        List<Vertex> topReplies =
+            replyList.subList(0, Math.min(resultLimit, replyList.size()));
+
+        Map<Vertex, List<Vertex>> authorMap =
+            traverse(graph, topReplies, "hasCreator", Direction.OUT);
+        Set<Vertex> authors = new HashSet<>();
+        authorMap.values().forEach(authors::addAll);
+        Map<Vertex, Map<String, List<Object>>> authorProps =
+            properties(graph, authors);
+
+        List<LdbcQuery8Result> result = new ArrayList<>(topReplies.size());
+        for (Vertex r : topReplies) {
+          Map<String, List<Object>> rProps = replyProps.get(r);
+          Map<String, List<Object>> aProps =
+              authorProps.get(authorMap.get(r).get(0));
+          result.add(new LdbcQuery8Result(
+              value(aProps, "iid"),
+              value(aProps, "firstName"),
+              value(aProps, "lastName"),
+              (Long) value(rProps, "creationDate"),
+              value(rProps, "iid"),
+              value(rProps, "content")));
+        }
 
+        if (!endReadTx(graph)) {
+          txAttempts++;
+          continue;
+        }
+
+        resultReporter.report(result.size(), result, operation);
+        break;
+      }
+    }
   }
 
   /**
@@ -1003,9 +1982,76 @@ public class TitanDb extends Db {
     public void executeOperation(final LdbcQuery9 operation,
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
+      int txAttempts = 0;
+      while (txAttempts < MAX_TX_ATTEMPTS) {
+        long personId = operation.personId();
+        long maxDate = operation.maxDate().getTime();
+        int resultLimit = operation.limit();
+        TitanGraph graph =
+            ((TitanDbConnectionState) dbConnectionState).getClient();
 
-    }
+        GraphTraversalSource g = graph.traversal();
+
+        Vertex person = getVertex(g, Entity.PERSON, personId);
+
+        Set<Vertex> friends = friendsWithin2(graph, person);
+
+        Map<Vertex, List<Vertex>> messageMap =
+            traverse(graph, friends, "hasCreator", Direction.IN,
+                Long.MIN_VALUE, maxDate);
+
+        Map<Vertex, Vertex> authorMap = new HashMap<>();
+        messageMap.forEach((f, messages) -> {
+          messages.forEach((m) -> authorMap.put(m, f));
+        });
+
+        Map<Vertex, Map<String, List<Object>>> messageProps =
+            properties(graph, authorMap.keySet());
+
+        List<Vertex> messageList = new ArrayList<>();
+        messageProps.forEach((m, props) -> {
+          if ((Long) value(props, "creationDate") < maxDate) {
+            messageList.add(m);
+          }
+        });
+
+        messageList.sort(
+            Comparator.<Vertex, Long>comparing((m) ->
+                (Long) value(messageProps.get(m), "creationDate"))
+            .reversed()
+            .thenComparing((m) -> (Long) value(messageProps.get(m), "iid")));
+
+        List<Vertex> topMessages =
+            messageList.subList(0, Math.min(resultLimit, messageList.size()));
+
+        Set<Vertex> authors = new HashSet<>();
+        topMessages.forEach((m) -> authors.add(authorMap.get(m)));
+        Map<Vertex, Map<String, List<Object>>> authorProps =
+            properties(graph, authors);
+
+        List<LdbcQuery9Result> result = new ArrayList<>(topMessages.size());
+        for (Vertex m : topMessages) {
+          Map<String, List<Object>> mProps = messageProps.get(m);
+          Map<String, List<Object>> aProps =
+              authorProps.get(authorMap.get(m));
+          result.add(new LdbcQuery9Result(
+              value(aProps, "iid"),
+              value(aProps, "firstName"),
+              value(aProps, "lastName"),
+              value(mProps, "iid"),
+              content(mProps),
+              (Long) value(mProps, "creationDate")));
+        }
 
+        if (!endReadTx(graph)) {
+          txAttempts++;
+          continue;
+        }
+
+        resultReporter.report(result.size(), result, operation);
+        break;
+      }
+    }
   }
 
   /**
@@ -1035,9 +2081,121 @@ public class TitanDb extends Db {
     public void executeOperation(final LdbcQuery10 operation,
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
+      int txAttempts = 0;
+      while (txAttempts < MAX_TX_ATTEMPTS) {
+        long personId = operation.personId();
+        int month = operation.month() - 1; // Calendar months are zero based.
+        int resultLimit = operation.limit();
+        TitanGraph graph =
+            ((TitanDbConnectionState) dbConnectionState).getClient();
 
-    }
+        GraphTraversalSource g = graph.traversal();
+
+        Vertex person = getVertex(g, Entity.PERSON, personId);
+
+        List<Set<Vertex>> levels = friendLevels(graph, person, 2);
+        Set<Vertex> candidates = (levels.size() == 2) ?
+            levels.get(1) : new HashSet<>();
+        Map<Vertex, Map<String, List<Object>>> candidateProps =
+            properties(graph, candidates);
+
+        Calendar calendar =
+            new GregorianCalendar(TimeZone.getTimeZone("GMT"));
+        candidates.removeIf((f) -> {
+          calendar.setTimeInMillis(
+              (Long) value(candidateProps.get(f), "birthday"));
+          int bmonth = calendar.get(Calendar.MONTH);
+          int bday = calendar.get(Calendar.DAY_OF_MONTH);
+          return !((bmonth == month && bday >= 21)
+              || (bmonth == (month + 1) % 12 && bday < 22));
+        });
+
+        Set<Vertex> interests =
+            neighbors(graph, Collections.singleton(person), "hasInterest",
+                Direction.OUT);
+
+        Map<Vertex, List<Vertex>> messageMap =
+            traverse(graph, candidates, "hasCreator", Direction.IN);
+        Set<Vertex> messages = new HashSet<>();
+        messageMap.values().forEach(messages::addAll);
+        Map<Vertex, Map<String, List<Object>>> messageProps =
+            properties(graph, messages);
+
+        Set<Vertex> posts = new HashSet<>();
+        messageProps.forEach((m, props) -> {
+          if (isPost(props)) {
+            posts.add(m);
+          }
+        });
 
+        Map<Vertex, List<Vertex>> postTagMap =
+            traverse(graph, posts, "hasTag", Direction.OUT);
+
+        Map<Vertex, Integer> scores = new HashMap<>();
+        for (Vertex f : candidates) {
+          int common = 0;
+          int uncommon = 0;
+          for (Vertex m : messageMap.getOrDefault(f,
+              Collections.emptyList())) {
+            if (!posts.contains(m)) {
+              continue;
+            }
+            boolean isCommon = false;
+            for (Vertex t : postTagMap.getOrDefault(m,
+                Collections.emptyList())) {
+              if (interests.contains(t)) {
+                isCommon = true;
+                break;
+              }
+            }
+            if (isCommon) {
+              common++;
+            } else {
+              uncommon++;
+            }
+          }
+          scores.put(f, common - uncommon);
+        }
+
+        List<Vertex> candidateList = new ArrayList<>(candidates);
+        candidateList.sort(
+            Comparator.<Vertex, Integer>comparing((f) -> scores.get(f))
+            .reversed()
+            .thenComparing((f) ->
+                (Long) value(candidateProps.get(f), "iid")));
+
+        List<Vertex> topCandidates = candidateList.subList(0,
+            Math.min(resultLimit, candidateList.size()));
+
+        Map<Vertex, List<Vertex>> cityMap =
+            traverse(graph, topCandidates, "isLocatedIn", Direction.OUT);
+        Set<Vertex> cities = new HashSet<>();
+        cityMap.values().forEach(cities::addAll);
+        Map<Vertex, Map<String, List<Object>>> cityProps =
+            properties(graph, cities);
+
+        List<LdbcQuery10Result> result =
+            new ArrayList<>(topCandidates.size());
+        for (Vertex f : topCandidates) {
+          Map<String, List<Object>> props = candidateProps.get(f);
+          result.add(new LdbcQuery10Result(
+              value(props, "iid"),
+              value(props, "firstName"),
+              value(props, "lastName"),
+              scores.get(f),
+              value(props, "gender"),
+              value(cityProps.get(cityMap.get(f).get(0)), "name")));
+        }
+
+        if (!endReadTx(graph)) {
+          txAttempts++;
+          continue;
+        }
+
+        resultReporter.report(result.size(), result, operation);
+        break;
+      }
+    }
   }
 
   /**
@@ -1058,9 +2216,79 @@ public class TitanDb extends Db {
     public void executeOperation(final LdbcQuery11 operation,
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
+      int txAttempts = 0;
+      while (txAttempts < MAX_TX_ATTEMPTS) {
+        long personId = operation.personId();
+        String countryName = operation.countryName();
+        int workFromYear = operation.workFromYear();
+        int resultLimit = operation.limit();
+        TitanGraph graph =
+            ((TitanDbConnectionState) dbConnectionState).getClient();
 
-    }
+        GraphTraversalSource g = graph.traversal();
+
+        Vertex person = getVertex(g, Entity.PERSON, personId);
+
+        Set<Vertex> friends = friendsWithin2(graph, person);
+
+        List<Edge> workAtList = new ArrayList<>();
+        traverseEdges(graph, friends, "workAt", Direction.OUT).values()
+            .forEach((edges) -> {
+              for (Edge e : edges) {
+                if (e.<Integer>value("workFrom")
+                    < workFromYear) {
+                  workAtList.add(e);
+                }
+              }
+            });
+
+        Set<Vertex> companies = new HashSet<>();
+        workAtList.forEach((e) -> companies.add(e.inVertex()));
+        Map<Vertex, List<Vertex>> countryMap =
+            traverse(graph, companies, "isLocatedIn", Direction.OUT);
+        Set<Vertex> named = new HashSet<>(companies);
+        countryMap.values().forEach(named::addAll);
+        Map<Vertex, Map<String, List<Object>>> namedProps =
+            properties(graph, named);
+
+        workAtList.removeIf((e) -> !countryName.equals(value(
+            namedProps.get(countryMap.get(e.inVertex()).get(0)), "name")));
+
+        Set<Vertex> employees = new HashSet<>();
+        workAtList.forEach((e) -> employees.add(e.outVertex()));
+        Map<Vertex, Map<String, List<Object>>> employeeProps =
+            properties(graph, employees);
+
+        workAtList.sort(
+            Comparator.<Edge, Integer>comparing((e) ->
+                e.<Integer>value("workFrom"))
+            .thenComparing((e) ->
+                (Long) value(employeeProps.get(e.outVertex()), "iid"))
+            .thenComparing((e) ->
+                (String) value(namedProps.get(e.inVertex()), "name"),
+                Comparator.reverseOrder()));
+
+        List<LdbcQuery11Result> result = new ArrayList<>(resultLimit);
+        for (Edge e : workAtList.subList(0,
+            Math.min(resultLimit, workAtList.size()))) {
+          Map<String, List<Object>> props = employeeProps.get(e.outVertex());
+          result.add(new LdbcQuery11Result(
+              value(props, "iid"),
+              value(props, "firstName"),
+              value(props, "lastName"),
+              value(namedProps.get(e.inVertex()), "name"),
+              e.<Integer>value("workFrom")));
+        }
+
+        if (!endReadTx(graph)) {
+          txAttempts++;
+          continue;
+        }
 
+        resultReporter.report(result.size(), result, operation);
+        break;
+      }
+    }
   }
 
   /**
@@ -1084,9 +2312,151 @@ public class TitanDb extends Db {
     public void executeOperation(final LdbcQuery12 operation,
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
+      int txAttempts = 0;
+      while (txAttempts < MAX_TX_ATTEMPTS) {
+        long personId = operation.personId();
+        String tagClassName = operation.tagClassName();
+        int resultLimit = operation.limit();
+        TitanGraph graph =
+            ((TitanDbConnectionState) dbConnectionState).getClient();
 
-    }
+        GraphTraversalSource g = graph.traversal();
+
+        Vertex person = getVertex(g, Entity.PERSON, personId);
+
+        Set<Vertex> friends =
+            neighbors(graph, Collections.singleton(person), "knows",
+                Direction.OUT);
+
+        Map<Vertex, List<Vertex>> messageMap =
+            traverse(graph, friends, "hasCreator", Direction.IN);
+        Set<Vertex> messages = new HashSet<>();
+        messageMap.values().forEach(messages::addAll);
+        Map<Vertex, Map<String, List<Object>>> messageProps =
+            properties(graph, messages);
 
+        Set<Vertex> comments = new HashSet<>();
+        messageProps.forEach((m, props) -> {
+          if (!isPost(props)) {
+            comments.add(m);
+          }
+        });
+
+        Map<Vertex, List<Vertex>> parentMap =
+            traverse(graph, comments, "replyOf", Direction.OUT);
+        Set<Vertex> parents = new HashSet<>();
+        parentMap.values().forEach(parents::addAll);
+        Map<Vertex, Map<String, List<Object>>> parentProps =
+            properties(graph, parents);
+
+        Set<Vertex> posts = new HashSet<>();
+        parentProps.forEach((m, props) -> {
+          if (isPost(props)) {
+            posts.add(m);
+          }
+        });
+
+        Map<Vertex, List<Vertex>> postTagMap =
+            traverse(graph, posts, "hasTag", Direction.OUT);
+        Set<Vertex> tags = new HashSet<>();
+        postTagMap.values().forEach(tags::addAll);
+        Map<Vertex, List<Vertex>> tagClassMap =
+            traverse(graph, tags, "hasType", Direction.OUT);
+
+        // Find the tag classes that are the given tag class or one of its
+        // descendants by walking up the class hierarchy from all of them at
+        // once.
+        Set<Vertex> validClasses = new HashSet<>();
+        Map<Vertex, Vertex> ancestors = new HashMap<>();
+        tagClassMap.values().forEach((classes) -> {
+          classes.forEach((c) -> ancestors.put(c, c));
+        });
+        while (!ancestors.isEmpty()) {
+          Set<Vertex> current = new HashSet<>(ancestors.values());
+          Map<Vertex, Map<String, List<Object>>> classProps =
+              properties(graph, current);
+          Map<Vertex, List<Vertex>> superClassMap =
+              traverse(graph, current, "isSubclassOf", Direction.OUT);
+
+          Iterator<Map.Entry<Vertex, Vertex>> it =
+              ancestors.entrySet().iterator();
+          while (it.hasNext()) {
+            Map.Entry<Vertex, Vertex> entry = it.next();
+            Vertex ancestor = entry.getValue();
+            if (tagClassName.equals(
+                value(classProps.get(ancestor), "name"))) {
+              validClasses.add(entry.getKey());
+              it.remove();
+            } else if (superClassMap.containsKey(ancestor)) {
+              entry.setValue(superClassMap.get(ancestor).get(0));
+            } else {
+              it.remove();
+            }
+          }
+        }
+
+        Set<Vertex> validTags = new HashSet<>();
+        tagClassMap.forEach((t, classes) -> {
+          if (validClasses.contains(classes.get(0))) {
+            validTags.add(t);
+          }
+        });
+        Map<Vertex, Map<String, List<Object>>> tagProps =
+            properties(graph, validTags);
+
+        Map<Vertex, Integer> replyCounts = new HashMap<>();
+        Map<Vertex, Set<String>> tagNames = new HashMap<>();
+        messageMap.forEach((f, fMessages) -> {
+          for (Vertex c : fMessages) {
+            if (!parentMap.containsKey(c)) {
+              continue;
+            }
+            Vertex post = parentMap.get(c).get(0);
+            boolean valid = false;
+            for (Vertex t : postTagMap.getOrDefault(post,
+                Collections.emptyList())) {
+              if (validTags.contains(t)) {
+                valid = true;
+                tagNames.computeIfAbsent(f, (k) -> new HashSet<>())
+                    .add(value(tagProps.get(t), "name"));
+              }
+            }
+            if (valid) {
+              replyCounts.merge(f, 1, Integer::sum);
+            }
+          }
+        });
+
+        Map<Vertex, Map<String, List<Object>>> friendProps =
+            properties(graph, replyCounts.keySet());
+
+        List<Vertex> friendList = new ArrayList<>(replyCounts.keySet());
+        friendList.sort(
+            Comparator.<Vertex, Integer>comparing((f) -> replyCounts.get(f))
+            .reversed()
+            .thenComparing((f) -> (Long) value(friendProps.get(f), "iid")));
+
+        List<LdbcQuery12Result> result = new ArrayList<>(resultLimit);
+        for (Vertex f : friendList.subList(0,
+            Math.min(resultLimit, friendList.size()))) {
+          Map<String, List<Object>> props = friendProps.get(f);
+          result.add(new LdbcQuery12Result(
+              value(props, "iid"),
+              value(props, "firstName"),
+              value(props, "lastName"),
+              new ArrayList<>(tagNames.get(f)),
+              replyCounts.get(f)));
+        }
+
+        if (!endReadTx(graph)) {
+          txAttempts++;
+          continue;
+        }
+
+        resultReporter.report(result.size(), result, operation);
+        break;
+      }
+    }
   }
 
   /**
@@ -1105,9 +2475,77 @@ public class TitanDb extends Db {
     public void executeOperation(final LdbcQuery13 operation,
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
+      int txAttempts = 0;
+      while (txAttempts < MAX_TX_ATTEMPTS) {
+        long person1Id = operation.person1Id();
+        long person2Id = operation.person2Id();
+        TitanGraph graph =
+            ((TitanDbConnectionState) dbConnectionState).getClient();
 
-    }
+        GraphTraversalSource g = graph.traversal();
+
+        Vertex person1 = getVertex(g, Entity.PERSON, person1Id);
+        Vertex person2 = getVertex(g, Entity.PERSON, person2Id);
+
+        /*
+         * Bidirectional breadth first search, expanding the smaller of the
+         * two frontiers one whole level at a time.
+         */
+        int length = -1;
+        if (person1.equals(person2)) {
+          length = 0;
+        } else {
+          Map<Vertex, Integer> dist1 = new HashMap<>();
+          Map<Vertex, Integer> dist2 = new HashMap<>();
+          dist1.put(person1, 0);
+          dist2.put(person2, 0);
+          Set<Vertex> frontier1 = Collections.singleton(person1);
+          Set<Vertex> frontier2 = Collections.singleton(person2);
+          int depth1 = 0;
+          int depth2 = 0;
+          while (!frontier1.isEmpty() && !frontier2.isEmpty()) {
+            boolean forward = frontier1.size() <= frontier2.size();
+            Set<Vertex> frontier = forward ? frontier1 : frontier2;
+            Map<Vertex, Integer> dist = forward ? dist1 : dist2;
+            Map<Vertex, Integer> otherDist = forward ? dist2 : dist1;
+            int depth = (forward ? ++depth1 : ++depth2);
+
+            Set<Vertex> next = new HashSet<>();
+            for (Vertex f : neighbors(graph, frontier, "knows",
+                Direction.OUT)) {
+              Integer d = otherDist.get(f);
+              if (d != null && (length == -1 || depth + d < length)) {
+                length = depth + d;
+              }
+              if (!dist.containsKey(f)) {
+                dist.put(f, depth);
+                next.add(f);
+              }
+            }
 
+            if (length != -1) {
+              break;
+            }
+
+            if (forward) {
+              frontier1 = next;
+            } else {
+              frontier2 = next;
+            }
+          }
+        }
+
+        LdbcQuery13Result result = new LdbcQuery13Result(length);
+
+        if (!endReadTx(graph)) {
+          txAttempts++;
+          continue;
+        }
+
+        resultReporter.report(1, result, operation);
+        break;
+      }
+    }
   }
 
   /**
@@ -1132,9 +2570,133 @@ public class TitanDb extends Db {
     public void executeOperation(final LdbcQuery14 operation,
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
+      int txAttempts = 0;
+      while (txAttempts < MAX_TX_ATTEMPTS) {
+        long person1Id = operation.person1Id();
+        long person2Id = operation.person2Id();
+        TitanGraph graph =
+            ((TitanDbConnectionState) dbConnectionState).getClient();
 
-    }
+        GraphTraversalSource g = graph.traversal();
+
+        Vertex person1 = getVertex(g, Entity.PERSON, person1Id);
+        Vertex person2 = getVertex(g, Entity.PERSON, person2Id);
+
+        /*
+         * Breadth first search from person1, one whole level at a time,
+         * recording for each person reached the persons on the previous
+         * level that they were reached from, until person2 is reached.
+         */
+        Map<Vertex, List<Vertex>> predecessors = new HashMap<>();
+        predecessors.put(person1, Collections.emptyList());
+        Set<Vertex> frontier = Collections.singleton(person1);
+        while (!frontier.isEmpty() && !predecessors.containsKey(person2)) {
+          Map<Vertex, List<Vertex>> levelPredecessors = new HashMap<>();
+          traverse(graph, frontier, "knows", Direction.OUT)
+              .forEach((p, friends) -> {
+                for (Vertex f : friends) {
+                  if (!predecessors.containsKey(f)) {
+                    levelPredecessors.computeIfAbsent(f,
+                        (k) -> new ArrayList<>()).add(p);
+                  }
+                }
+              });
+          predecessors.putAll(levelPredecessors);
+          frontier = levelPredecessors.keySet();
+        }
+
+        // Enumerate all of the shortest paths, walking back from person2.
+        List<List<Vertex>> paths = new ArrayList<>();
+        if (predecessors.containsKey(person2)) {
+          List<List<Vertex>> partials = new ArrayList<>();
+          partials.add(Collections.singletonList(person2));
+          while (!partials.isEmpty()) {
+            List<List<Vertex>> extended = new ArrayList<>();
+            for (List<Vertex> partial : partials) {
+              Vertex head = partial.get(0);
+              if (head.equals(person1)) {
+                paths.add(partial);
+                continue;
+              }
+              for (Vertex p : predecessors.get(head)) {
+                List<Vertex> path = new ArrayList<>(partial.size() + 1);
+                path.add(p);
+                path.addAll(partial);
+                extended.add(path);
+              }
+            }
+            partials = extended;
+          }
+        }
+
+        /*
+         * Weight each pair of persons on the paths by their replies to each
+         * other's messages: 1.0 for each reply to a post and 0.5 for each
+         * reply to a comment.
+         */
+        Set<Vertex> pathPersons = new HashSet<>();
+        paths.forEach(pathPersons::addAll);
+
+        Map<Vertex, Vertex> authorMap = new HashMap<>();
+        traverse(graph, pathPersons, "hasCreator", Direction.IN)
+            .forEach((p, messages) -> {
+              messages.forEach((m) -> authorMap.put(m, p));
+            });
+        Map<Vertex, Map<String, List<Object>>> messageProps =
+            properties(graph, authorMap.keySet());
 
+        Set<Vertex> comments = new HashSet<>();
+        messageProps.forEach((m, props) -> {
+          if (!isPost(props)) {
+            comments.add(m);
+          }
+        });
+
+        Map<Vertex, Map<Vertex, Double>> pairWeights = new HashMap<>();
+        traverse(graph, comments, "replyOf", Direction.OUT)
+            .forEach((c, parents) -> {
+              Vertex parent = parents.get(0);
+              Vertex replier = authorMap.get(c);
+              Vertex author = authorMap.get(parent);
+              if (author == null || author.equals(replier)) {
+                return;
+              }
+              double w = isPost(messageProps.get(parent)) ? 1.0 : 0.5;
+              pairWeights.computeIfAbsent(replier, (k) -> new HashMap<>())
+                  .merge(author, w, Double::sum);
+              pairWeights.computeIfAbsent(author, (k) -> new HashMap<>())
+                  .merge(replier, w, Double::sum);
+            });
+
+        Map<Vertex, Map<String, List<Object>>> personProps =
+            properties(graph, pathPersons);
+
+        List<LdbcQuery14Result> result = new ArrayList<>(paths.size());
+        for (List<Vertex> path : paths) {
+          double weight = 0.0;
+          List<Long> ids = new ArrayList<>(path.size());
+          for (int i = 0; i < path.size(); i++) {
+            ids.add(value(personProps.get(path.get(i)), "iid"));
+            if (i > 0) {
+              weight += pairWeights
+                  .getOrDefault(path.get(i - 1), Collections.emptyMap())
+                  .getOrDefault(path.get(i), 0.0);
+            }
+          }
+          result.add(new LdbcQuery14Result(ids, weight));
+        }
+
+        result.sort((a, b) -> Double.compare(b.pathWeight(), a.pathWeight()));
+
+        if (!endReadTx(graph)) {
+          txAttempts++;
+          continue;
+        }
+
+        resultReporter.report(result.size(), result, operation);
+        break;
+      }
+    }
   }
 
   /**
@@ -1162,11 +2724,10 @@ public class TitanDb extends Db {
         Graph client = ((TitanDbConnectionState) dbConnectionState).getClient();
         GraphTraversalSource g = client.traversal();
 
-        Vertex person = g.V().has("iid",
-            makeIid(Entity.PERSON, person_id)).next();
+        Vertex person = getVertex(g, Entity.PERSON, person_id);
 
-        Iterator<VertexProperty<String>> props = person.properties();
-        Map<String, String> propertyMap = new HashMap<>();
+        Iterator<VertexProperty<Object>> props = person.properties();
+        Map<String, Object> propertyMap = new HashMap<>();
         props.forEachRemaining((prop) -> {
           propertyMap.put(prop.key(), prop.value());
         });
@@ -1177,14 +2738,14 @@ public class TitanDb extends Db {
 
         LdbcShortQuery1PersonProfileResult res =
             new LdbcShortQuery1PersonProfileResult(
-                propertyMap.get("firstName"),
-                propertyMap.get("lastName"),
-                Long.parseLong(propertyMap.get("birthday")),
-                propertyMap.get("locationIP"),
-                propertyMap.get("browserUsed"),
+                (String) propertyMap.get("firstName"),
+                (String) propertyMap.get("lastName"),
+                (Long) propertyMap.get("birthday"),
+                (String) propertyMap.get("locationIP"),
+                (String) propertyMap.get("browserUsed"),
                 placeId,
-                propertyMap.get("gender"),
-                Long.parseLong(propertyMap.get("creationDate")));
+                (String) propertyMap.get("gender"),
+                (Long) propertyMap.get("creationDate"));
 
         if (doTransactionalReads) {
           try {
@@ -1228,8 +2789,7 @@ public class TitanDb extends Db {
 
         List<LdbcShortQuery2PersonPostsResult> result = new ArrayList<>();
 
-        Vertex person = g.V().has("iid",
-            makeIid(Entity.PERSON, operation.personId())).next();
+        Vertex person = getVertex(g, Entity.PERSON, operation.personId());
         Iterator<Edge> edges = person.edges(Direction.IN, "hasCreator");
 
         List<Vertex> messageList = new ArrayList<>();
@@ -1238,10 +2798,8 @@ public class TitanDb extends Db {
           Vertex v1 = (Vertex) a;
           Vertex v2 = (Vertex) b;
 
-          long v1Date =
-              Long.decode(v1.<String>property("creationDate").value());
-          long v2Date =
-              Long.decode(v2.<String>property("creationDate").value());
+          long v1Date = v1.<Long>value("creationDate");
+          long v2Date = v2.<Long>value("creationDate");
 
           if (v1Date > v2Date) {
             return -1;
@@ -1264,21 +2822,19 @@ public class TitanDb extends Db {
             i++) {
           Vertex message = messageList.get(i);
 
-          Map<String, String> propMap = new HashMap<>();
-          message.<String>properties().forEachRemaining((vp) -> {
+          Map<String, Object> propMap = new HashMap<>();
+          message.<Object>properties().forEachRemaining((vp) -> {
             propMap.put(vp.key(), vp.value());
           });
 
           long messageId = getSNBId(message);
 
-          String messageContent;
-          if (propMap.get("content").length() != 0) {
-            messageContent = propMap.get("content");
-          } else {
-            messageContent = propMap.get("imageFile");
+          String messageContent = (String) propMap.get("content");
+          if (messageContent.length() == 0) {
+            messageContent = (String) propMap.get("imageFile");
           }
 
-          long messageCreationDate = Long.decode(propMap.get("creationDate"));
+          long messageCreationDate = (Long) propMap.get("creationDate");
 
           long originalPostId;
           long originalPostAuthorId;
@@ -1365,14 +2921,12 @@ public class TitanDb extends Db {
 
         List<LdbcShortQuery3PersonFriendsResult> result = new ArrayList<>();
 
-        Vertex person = g.V().has("iid",
-            makeIid(Entity.PERSON, operation.personId())).next();
+        Vertex person = getVertex(g, Entity.PERSON, operation.personId());
 
         Iterator<Edge> edges = person.edges(Direction.OUT, "knows");
 
         edges.forEachRemaining((e) -> {
-          long creationDate =
-              Long.decode(e.<String>property("creationDate").value());
+          long creationDate = e.<Long>value("creationDate");
 
           Vertex friend = e.inVertex();
 
@@ -1450,11 +3004,9 @@ public class TitanDb extends Db {
         Graph client = ((TitanDbConnectionState) dbConnectionState).getClient();
         GraphTraversalSource g = client.traversal();
 
-        Vertex message = g.V().has("iid",
-            makeIid(Entity.MESSAGE, operation.messageId())).next();
+        Vertex message = getVertex(g, Entity.MESSAGE, operation.messageId());
 
-        long creationDate =
-            Long.decode(message.<String>property("creationDate").value());
+        long creationDate = message.<Long>value("creationDate");
         String content = message.<String>property("content").value();
         if (content.length() == 0) {
           content = message.<String>property("imageFile").value();
@@ -1501,8 +3053,7 @@ public class TitanDb extends Db {
         Graph client = ((TitanDbConnectionState) dbConnectionState).getClient();
         GraphTraversalSource g = client.traversal();
 
-        Vertex message = g.V().has("iid",
-            makeIid(Entity.MESSAGE, operation.messageId())).next();
+        Vertex message = getVertex(g, Entity.MESSAGE, operation.messageId());
 
         Vertex creator =
             message.edges(Direction.OUT, "hasCreator").next().inVertex();
@@ -1557,8 +3108,7 @@ public class TitanDb extends Db {
         Graph client = ((TitanDbConnectionState) dbConnectionState).getClient();
         GraphTraversalSource g = client.traversal();
 
-        Vertex vertex = g.V().has("iid",
-            makeIid(Entity.MESSAGE, operation.messageId())).next();
+        Vertex vertex = getVertex(g, Entity.MESSAGE, operation.messageId());
 
         LdbcShortQuery6MessageForumResult result;
         while (true) {
@@ -1631,8 +3181,7 @@ public class TitanDb extends Db {
         Graph client = ((TitanDbConnectionState) dbConnectionState).getClient();
         GraphTraversalSource g = client.traversal();
 
-        Vertex message = g.V().has("iid",
-            makeIid(Entity.MESSAGE, operation.messageId())).next();
+        Vertex message = getVertex(g, Entity.MESSAGE, operation.messageId());
         Vertex messageAuthor =
             message.edges(Direction.OUT, "hasCreator").next().inVertex();
         long messageAuthorId = getSNBId(messageAuthor);
@@ -1652,8 +3201,7 @@ public class TitanDb extends Db {
         for (Vertex reply : replies) {
           long replyId = getSNBId(reply);
           String replyContent = reply.<String>property("content").value();
-          long replyCreationDate =
-              Long.decode(reply.<String>property("creationDate").value());
+          long replyCreationDate = reply.<Long>value("creationDate");
 
           Vertex replyAuthor =
               reply.edges(Direction.OUT, "hasCreator").next().inVertex();
@@ -1753,7 +3301,7 @@ public class TitanDb extends Db {
           new ArrayList<>(18 + 2 * operation.languages().size()
               + 2 * operation.emails().size());
       personKeyValues.add("iid");
-      personKeyValues.add(makeIid(Entity.PERSON, operation.personId()));
+      personKeyValues.add(operation.personId());
       personKeyValues.add(T.label);
       personKeyValues.add("person");
       personKeyValues.add("firstName");
@@ -1763,9 +3311,9 @@ public class TitanDb extends Db {
       personKeyValues.add("gender");
       personKeyValues.add(operation.gender());
       personKeyValues.add("birthday");
-      personKeyValues.add(String.valueOf(operation.birthday().getTime()));
+      personKeyValues.add(operation.birthday().getTime());
       personKeyValues.add("creationDate");
-      personKeyValues.add(String.valueOf(operation.creationDate().getTime()));
+      personKeyValues.add(operation.creationDate().getTime());
       personKeyValues.add("locationIP");
       personKeyValues.add(operation.locationIp());
       personKeyValues.add("browserUsed");
@@ -1785,28 +3333,21 @@ public class TitanDb extends Db {
       Vertex person = client.addVertex(personKeyValues.toArray());
 
       // Add edge to place
-      Vertex place = g.V().has("iid",
-          makeIid(Entity.PLACE, operation.cityId())).next();
+      Vertex place = getVertex(g, Entity.PLACE, operation.cityId());
       person.addEdge("isLocatedIn", place);
 
       // Add edges to tags
-      List<String> tagIds = new ArrayList<>(operation.tagIds().size());
-      operation.tagIds().forEach((id) ->
-          tagIds.add(Entity.TAG.getName() + ":" + String.valueOf(id)));
-      Iterator<Vertex> tagVItr =
-          client.vertices(tagIds.toArray());
-      tagVItr.forEachRemaining((tag) -> {
-        person.addEdge("hasInterest", tag);
-      });
+      for (Long tagId : operation.tagIds()) {
+        person.addEdge("hasInterest", getVertex(g, Entity.TAG, tagId));
+      }
 
       // Add edges to universities
       List<Object> studiedAtKeyValues = new ArrayList<>(2);
       for (LdbcUpdate1AddPerson.Organization org : operation.studyAt()) {
         studiedAtKeyValues.clear();
         studiedAtKeyValues.add("classYear");
-        studiedAtKeyValues.add(String.valueOf(org.year()));
-        Vertex orgV = g.V().has("iid",
-            makeIid(Entity.ORGANISATION, org.organizationId())).next();
+        studiedAtKeyValues.add(org.year());
+        Vertex orgV = getVertex(g, Entity.ORGANISATION, org.organizationId());
         person.addEdge("studyAt", orgV, studiedAtKeyValues.toArray());
       }
 
@@ -1815,9 +3356,8 @@ public class TitanDb extends Db {
       for (LdbcUpdate1AddPerson.Organization org : operation.workAt()) {
         workedAtKeyValues.clear();
         workedAtKeyValues.add("workFrom");
-        workedAtKeyValues.add(String.valueOf(org.year()));
-        Vertex orgV = g.V().has("iid",
-            makeIid(Entity.ORGANISATION, org.organizationId())).next();
+        workedAtKeyValues.add(org.year());
+        Vertex orgV = getVertex(g, Entity.ORGANISATION, org.organizationId());
         person.addEdge("workAt", orgV, workedAtKeyValues.toArray());
       }
 
@@ -1843,13 +3383,11 @@ public class TitanDb extends Db {
       Graph client = ((TitanDbConnectionState) dbConnectionState).getClient();
       GraphTraversalSource g = client.traversal();
 
-      Vertex person = g.V().has("iid",
-          makeIid(Entity.PERSON, operation.personId())).next();
-      Vertex post = g.V().has("iid",
-          makeIid(Entity.POST, operation.postId())).next();
+      Vertex person = getVertex(g, Entity.PERSON, operation.personId());
+      Vertex post = getVertex(g, Entity.POST, operation.postId());
       List<Object> keyValues = new ArrayList<>(2);
       keyValues.add("creationDate");
-      keyValues.add(String.valueOf(operation.creationDate().getTime()));
+      keyValues.add(operation.creationDate().getTime());
       person.addEdge("likes", post, keyValues.toArray());
 
       client.tx().commit();
@@ -1874,13 +3412,11 @@ public class TitanDb extends Db {
       Graph client = ((TitanDbConnectionState) dbConnectionState).getClient();
       GraphTraversalSource g = client.traversal();
 
-      Vertex person = g.V().has("iid",
-          makeIid(Entity.PERSON, operation.personId())).next();
-      Vertex comment = g.V().has("iid",
-          makeIid(Entity.COMMENT, operation.commentId())).next();
+      Vertex person = getVertex(g, Entity.PERSON, operation.personId());
+      Vertex comment = getVertex(g, Entity.COMMENT, operation.commentId());
       List<Object> keyValues = new ArrayList<>(2);
       keyValues.add("creationDate");
-      keyValues.add(String.valueOf(operation.creationDate().getTime()));
+      keyValues.add(operation.creationDate().getTime());
       person.addEdge("likes", comment, keyValues.toArray());
 
       client.tx().commit();
@@ -1907,33 +3443,21 @@ public class TitanDb extends Db {
 
       List<Object> forumKeyValues = new ArrayList<>(8);
       forumKeyValues.add("iid");
-      forumKeyValues.add(makeIid(Entity.FORUM, operation.forumId()));
+      forumKeyValues.add(operation.forumId());
       forumKeyValues.add(T.label);
       forumKeyValues.add(Entity.FORUM.getName());
       forumKeyValues.add("title");
       forumKeyValues.add(operation.forumTitle());
       forumKeyValues.add("creationDate");
-      forumKeyValues.add(String.valueOf(operation.creationDate().getTime()));
+      forumKeyValues.add(operation.creationDate().getTime());
 
       Vertex forum = client.addVertex(forumKeyValues.toArray());
 
-      List<String> ids = new ArrayList<>(operation.tagIds().size() + 1);
-      operation.tagIds().forEach((id) -> {
-        ids.add(makeIid(Entity.TAG, id));
-      });
-      ids.add(makeIid(Entity.PERSON, operation.moderatorPersonId()));
-
-      g.V().has("iid", within(ids)).forEachRemaining((v) -> {
-        if (v.label().equals(Entity.TAG.getName())) {
-          forum.addEdge("hasTag", v);
-        } else if (v.label().equals(Entity.PERSON.getName())) {
-          forum.addEdge("hasModerator", v);
-        } else {
-          throw new RuntimeException(
-              "ERROR: LdbcUpdate4AddForum query tried to add an edge to a "
-              + "vertex that is neither a tag nor a person.");
-        }
-      });
+      for (Long tagId : operation.tagIds()) {
+        forum.addEdge("hasTag", getVertex(g, Entity.TAG, tagId));
+      }
+      forum.addEdge("hasModerator",
+          getVertex(g, Entity.PERSON, operation.moderatorPersonId()));
 
       client.tx().commit();
 
@@ -1957,14 +3481,12 @@ public class TitanDb extends Db {
       Graph client = ((TitanDbConnectionState) dbConnectionState).getClient();
       GraphTraversalSource g = client.traversal();
 
-      Vertex forum = g.V().has("iid",
-          makeIid(Entity.FORUM, operation.forumId())).next();
-      Vertex member = g.V().has("iid",
-          makeIid(Entity.PERSON, operation.personId())).next();
+      Vertex forum = getVertex(g, Entity.FORUM, operation.forumId());
+      Vertex member = getVertex(g, Entity.PERSON, operation.personId());
 
       List<Object> edgeKeyValues = new ArrayList<>(2);
       edgeKeyValues.add("joinDate");
-      edgeKeyValues.add(String.valueOf(operation.joinDate().getTime()));
+      edgeKeyValues.add(operation.joinDate().getTime());
 
       forum.addEdge("hasMember", member, edgeKeyValues.toArray());
 
@@ -1992,13 +3514,13 @@ public class TitanDb extends Db {
 
       List<Object> postKeyValues = new ArrayList<>(18);
       postKeyValues.add("iid");
-      postKeyValues.add(makeIid(Entity.POST, operation.postId()));
+      postKeyValues.add(operation.postId());
       postKeyValues.add(T.label);
       postKeyValues.add(Entity.POST.getName());
       postKeyValues.add("imageFile");
       postKeyValues.add(operation.imageFile());
       postKeyValues.add("creationDate");
-      postKeyValues.add(String.valueOf(operation.creationDate().getTime()));
+      postKeyValues.add(operation.creationDate().getTime());
       postKeyValues.add("locationIP");
       postKeyValues.add(operation.locationIp());
       postKeyValues.add("browserUsed");
@@ -2008,33 +3530,20 @@ public class TitanDb extends Db {
       postKeyValues.add("content");
       postKeyValues.add(operation.content());
       postKeyValues.add("length");
-      postKeyValues.add(String.valueOf(operation.length()));
+      postKeyValues.add(operation.length());
 
       Vertex post = client.addVertex(postKeyValues.toArray());
 
-      List<String> ids = new ArrayList<>(3 + operation.tagIds().size());
-      ids.add(makeIid(Entity.PERSON, operation.authorPersonId()));
-      ids.add(makeIid(Entity.FORUM, operation.forumId()));
-      ids.add(makeIid(Entity.PLACE, operation.countryId()));
-      operation.tagIds().forEach((id) -> {
-        ids.add(makeIid(Entity.TAG, id));
-      });
-
-      g.V().has("iid", within(ids)).forEachRemaining((v) -> {
-        if (v.label().equals(Entity.PERSON.getName())) {
-          post.addEdge("hasCreator", v);
-        } else if (v.label().equals(Entity.FORUM.getName())) {
-          v.addEdge("containerOf", post);
-        } else if (v.label().equals(Entity.PLACE.getName())) {
-          post.addEdge("isLocatedIn", v);
-        } else if (v.label().equals(Entity.TAG.getName())) {
-          post.addEdge("hasTag", v);
-        } else {
-          throw new RuntimeException(
-              "ERROR: LdbcUpdate6AddPostHandler query tried to add an edge "
-              + "to a vertex that is none of {person, forum, place, tag}.");
-        }
-      });
+      post.addEdge("hasCreator",
+          getVertex(g, Entity.PERSON, operation.authorPersonId()),
+          "creationDate", operation.creationDate().getTime());
+      getVertex(g, Entity.FORUM, operation.forumId())
+          .addEdge("containerOf", post);
+      post.addEdge("isLocatedIn",
+          getVertex(g, Entity.PLACE, operation.countryId()));
+      for (Long tagId : operation.tagIds()) {
+        post.addEdge("hasTag", getVertex(g, Entity.TAG, tagId));
+      }
 
       client.tx().commit();
 
@@ -2060,11 +3569,11 @@ public class TitanDb extends Db {
 
       List<Object> commentKeyValues = new ArrayList<>(14);
       commentKeyValues.add("iid");
-      commentKeyValues.add(makeIid(Entity.COMMENT, operation.commentId()));
+      commentKeyValues.add(operation.commentId());
       commentKeyValues.add(T.label);
       commentKeyValues.add(Entity.COMMENT.getName());
       commentKeyValues.add("creationDate");
-      commentKeyValues.add(String.valueOf(operation.creationDate().getTime()));
+      commentKeyValues.add(operation.creationDate().getTime());
       commentKeyValues.add("locationIP");
       commentKeyValues.add(operation.locationIp());
       commentKeyValues.add("browserUsed");
@@ -2072,42 +3581,27 @@ public class TitanDb extends Db {
       commentKeyValues.add("content");
       commentKeyValues.add(operation.content());
       commentKeyValues.add("length");
-      commentKeyValues.add(String.valueOf(operation.length()));
+      commentKeyValues.add(operation.length());
 
       Vertex comment = client.addVertex(commentKeyValues.toArray());
 
-      List<String> ids = new ArrayList<>(4 + operation.tagIds().size());
-      ids.add(makeIid(Entity.PERSON, operation.authorPersonId()));
-      ids.add(makeIid(Entity.PLACE, operation.countryId()));
-      operation.tagIds().forEach((id) -> {
-        ids.add(makeIid(Entity.TAG, id));
-      });
+      comment.addEdge("hasCreator",
+          getVertex(g, Entity.PERSON, operation.authorPersonId()),
+          "creationDate", operation.creationDate().getTime());
+      comment.addEdge("isLocatedIn",
+          getVertex(g, Entity.PLACE, operation.countryId()));
+      for (Long tagId : operation.tagIds()) {
+        comment.addEdge("hasTag", getVertex(g, Entity.TAG, tagId));
+      }
       if (operation.replyToCommentId() != -1) {
-        ids.add(makeIid(Entity.COMMENT, operation.replyToCommentId()));
+        comment.addEdge("replyOf",
+            getVertex(g, Entity.COMMENT, operation.replyToCommentId()));
       }
       if (operation.replyToPostId() != -1) {
-        ids.add(makeIid(Entity.POST, operation.replyToPostId()));
+        comment.addEdge("replyOf",
+            getVertex(g, Entity.POST, operation.replyToPostId()));
       }
 
-      g.V().has("iid", within(ids)).forEachRemaining((v) -> {
-        if (v.label().equals(Entity.PERSON.getName())) {
-          comment.addEdge("hasCreator", v);
-        } else if (v.label().equals(Entity.PLACE.getName())) {
-          comment.addEdge("isLocatedIn", v);
-        } else if (v.label().equals(Entity.COMMENT.getName())) {
-          comment.addEdge("replyOf", v);
-        } else if (v.label().equals(Entity.POST.getName())) {
-          comment.addEdge("replyOf", v);
-        } else if (v.label().equals(Entity.TAG.getName())) {
-          comment.addEdge("hasTag", v);
-        } else {
-          throw new RuntimeException(
-              "ERROR: LdbcUpdate7AddCommentHandler query tried to add an "
-              + "edge to a vertex that is none of {person, place, comment, "
-              + "post, tag}.");
-        }
-      });
-
       client.tx().commit();
 
       reporter.report(0, LdbcNoResult.INSTANCE, operation);
@@ -2133,13 +3627,10 @@ public class TitanDb extends Db {
       List<Object> knowsEdgeKeyValues = new ArrayList<>(2);
       knowsEdgeKeyValues.add("creationDate");
       knowsEdgeKeyValues.add(
-          String.valueOf(operation.creationDate().getTime()));
-
-      String p1Iid = makeIid(Entity.PERSON, operation.person1Id());
-      String p2Iid = makeIid(Entity.PERSON, operation.person2Id());
+          operation.creationDate().getTime());
 
-      Vertex person1 = g.V().has("iid", p1Iid).next();
-      Vertex person2 = g.V().has("iid", p2Iid).next();
+      Vertex person1 = getVertex(g, Entity.PERSON, operation.person1Id());
+      Vertex person2 = getVertex(g, Entity.PERSON, operation.person2Id());
 
       person1.addEdge("knows", person2, knowsEdgeKeyValues.toArray());
       person2.addEdge("knows", person1, knowsEdgeKeyValues.toArray());
@@ -19,9 +19,9 @@ package net.ellitron.ldbcsnbimpls.interactive.titan;
 import com.ldbc.driver.DbConnectionState;
 
 import com.thinkaurelius.titan.core.TitanFactory;
+import com.thinkaurelius.titan.core.TitanGraph;
 
 import org.apache.commons.configuration.BaseConfiguration;
-import org.apache.tinkerpop.gremlin.structure.Graph;
 
 import java.io.IOException;
 import java.util.Map;
@@ -33,7 +33,7 @@ import java.util.logging.Level;
  */
 public class TitanDbConnectionState extends DbConnectionState {
 
-  private Graph client;
+  private TitanGraph client;
 
   public TitanDbConnectionState(Map<String, String> props) {
     BaseConfiguration config = new BaseConfiguration();
@@ -55,15 +55,34 @@ public class TitanDbConnectionState extends DbConnectionState {
     } else {
       graphName = "default";
     }
+
+    /*
+     * Have Titan fetch the adjacency lists of all of the vertices at a
+     * traversal step from the storage backend in one batch, instead of with
+     * one read per vertex.
+     */
+    boolean queryBatch;
+    if (props.containsKey("queryBatch")) {
+      queryBatch = Boolean.parseBoolean(props.get("queryBatch"));
+    } else {
+      queryBatch = true;
+    }
+
+    System.out.println(String.format("TitanDbConnectionState: {"
+        + "cassandraLocator: %s, graphName: %s, queryBatch: %b}",
+        cassandraLocator,
+        graphName,
+        queryBatch));
     
     config.setProperty("storage.backend", "cassandra");
     config.setProperty("storage.hostname", cassandraLocator);
     config.setProperty("storage.cassandra.keyspace", graphName);
+    config.setProperty("query.batch", queryBatch);
 
     client = TitanFactory.open(config);
   }
 
-  public Graph getClient() {
+  public TitanGraph getClient() {
     return client;
   }
 
@@ -33,7 +33,9 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.configuration.BaseConfiguration;
 
+import org.apache.tinkerpop.gremlin.process.traversal.Order;
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.structure.Direction;
 import org.apache.tinkerpop.gremlin.structure.Graph;
 import org.apache.tinkerpop.gremlin.structure.T;
 import org.apache.tinkerpop.gremlin.structure.Vertex;
@@ -107,13 +109,15 @@ public class TitanGraphLoader {
 
           for (int j = 0; j < colVals.length; ++j) {
             if (colNames[j].equals("id")) {
-              propertiesMap.put("iid", entityName + ":" + colVals[j]);
+              propertiesMap.put("iid", Long.decode(colVals[j]));
             } else if (colNames[j].equals("birthday")) {
-              propertiesMap.put(colNames[j], String.valueOf(
-                    birthdayDateFormat.parse(colVals[j]).getTime()));
+              propertiesMap.put(colNames[j], 
+                  birthdayDateFormat.parse(colVals[j]).getTime());
             } else if (colNames[j].equals("creationDate")) {
-              propertiesMap.put(colNames[j], String.valueOf(
-                    creationDateDateFormat.parse(colVals[j]).getTime()));
+              propertiesMap.put(colNames[j], 
+                  creationDateDateFormat.parse(colVals[j]).getTime());
+            } else if (colNames[j].equals("length")) {
+              propertiesMap.put(colNames[j], Integer.decode(colVals[j]));
             } else {
               propertiesMap.put(colNames[j], colVals[j]);
             }
@@ -192,7 +196,7 @@ public class TitanGraphLoader {
 
           GraphTraversalSource g = graph.traversal();
           Vertex vertex = 
-            g.V().has("iid", entityName + ":" + colVals[0]).next();
+            g.V().has(entityName, "iid", Long.decode(colVals[0])).next();
 
           for (int j = 1; j < colVals.length; ++j) {
             vertex.property(VertexProperty.Cardinality.list, colNames[j],
@@ -271,23 +275,33 @@ public class TitanGraphLoader {
 
           GraphTraversalSource g = graph.traversal();
           Vertex vertex1 = 
-            g.V().has("iid", v1EntityName + ":" + colVals[0]).next();
+            g.V().has(v1EntityName, "iid", Long.decode(colVals[0])).next();
           Vertex vertex2 = 
-            g.V().has("iid", v2EntityName + ":" + colVals[1]).next();
+            g.V().has(v2EntityName, "iid", Long.decode(colVals[1])).next();
 
           propertiesMap = new HashMap<>();
           for (int j = 2; j < colVals.length; ++j) {
             if (colNames[j].equals("creationDate")) {
-              propertiesMap.put(colNames[j], String.valueOf(
-                    creationDateDateFormat.parse(colVals[j]).getTime()));
+              propertiesMap.put(colNames[j], 
+                  creationDateDateFormat.parse(colVals[j]).getTime());
             } else if (colNames[j].equals("joinDate")) {
-              propertiesMap.put(colNames[j], String.valueOf(
-                    joinDateDateFormat.parse(colVals[j]).getTime()));
+              propertiesMap.put(colNames[j], 
+                  joinDateDateFormat.parse(colVals[j]).getTime());
+            } else if (colNames[j].equals("classYear") 
+                || colNames[j].equals("workFrom")) {
+              propertiesMap.put(colNames[j], Integer.decode(colVals[j]));
             } else {
               propertiesMap.put(colNames[j], colVals[j]);
             }
           }
 
+          // hasCreator edges carry a copy of the message's creationDate for
+          // the hasCreatorByCreationDate vertex-centric index.
+          if (edgeLabel.equals("hasCreator")) {
+            propertiesMap.put("creationDate", 
+                vertex1.<Long>value("creationDate"));
+          }
+
           List<Object> keyValues = new ArrayList<>();
           propertiesMap.forEach((key, val) -> {
             keyValues.add(key);
@@ -330,6 +344,185 @@ public class TitanGraphLoader {
     }
   }
 
+  /**
+   * Defines the graph schema: vertex labels, edge labels with their
+   * multiplicities, typed property keys, the per-label composite indexes on
+   * iid used to look up vertices by their SNB ID, and vertex-centric indexes
+   * for the edges that the queries scan in creationDate order.
+   *
+   * Note: For unknown reasons, it seems that each modification to the
+   * schema must be committed in its own transaction.
+   */
+  public static void defineSchema(TitanGraph graph) throws Exception {
+    String vertexLabels[] = {  
+      "person",
+      "comment",
+      "forum",
+      "organisation",
+      "place",
+      "post",
+      "tag",
+      "tagclass" 
+    };
+
+    // Edge labels and their multiplicities. Messages have exactly one
+    // creator, location and parent, so these are MANY2ONE, and a post is in
+    // exactly one forum. The rest are SIMPLE (at most one edge of the label
+    // between any pair of vertices).
+    Map<String, Multiplicity> edgeLabels = new HashMap<>();
+    edgeLabels.put("containerOf", Multiplicity.ONE2MANY);
+    edgeLabels.put("hasCreator", Multiplicity.MANY2ONE);
+    edgeLabels.put("hasInterest", Multiplicity.SIMPLE);
+    edgeLabels.put("hasMember", Multiplicity.SIMPLE);
+    edgeLabels.put("hasModerator", Multiplicity.MANY2ONE);
+    edgeLabels.put("hasTag", Multiplicity.SIMPLE);
+    edgeLabels.put("hasType", Multiplicity.MANY2ONE);
+    edgeLabels.put("isLocatedIn", Multiplicity.MANY2ONE);
+    edgeLabels.put("isPartOf", Multiplicity.MANY2ONE);
+    edgeLabels.put("isSubclassOf", Multiplicity.MANY2ONE);
+    edgeLabels.put("knows", Multiplicity.SIMPLE);
+    edgeLabels.put("likes", Multiplicity.SIMPLE);
+    edgeLabels.put("replyOf", Multiplicity.MANY2ONE);
+    edgeLabels.put("studyAt", Multiplicity.SIMPLE);
+    edgeLabels.put("workAt", Multiplicity.SIMPLE);
+
+    // All property keys with Cardinality.SINGLE and their types. Dates are
+    // stored as milliseconds since the epoch.
+    Map<String, Class<?>> singleCardPropKeys = new HashMap<>();
+    singleCardPropKeys.put("birthday", Long.class); // person
+    singleCardPropKeys.put("browserUsed", String.class); // comment person post
+    singleCardPropKeys.put("classYear", Integer.class); // studyAt
+    singleCardPropKeys.put("content", String.class); // comment post
+    // comment forum person post knows likes hasCreator
+    singleCardPropKeys.put("creationDate", Long.class);
+    singleCardPropKeys.put("firstName", String.class); // person
+    singleCardPropKeys.put("gender", String.class); // person
+    singleCardPropKeys.put("imageFile", String.class); // post
+    singleCardPropKeys.put("joinDate", Long.class); // hasMember
+    singleCardPropKeys.put("lastName", String.class); // person
+    singleCardPropKeys.put("length", Integer.class); // comment post
+    singleCardPropKeys.put("locationIP", String.class); // comment person post
+    singleCardPropKeys.put("name", String.class); // organisation place tag tagclass
+    singleCardPropKeys.put("title", String.class); // forum
+    singleCardPropKeys.put("type", String.class); // organisation place
+    singleCardPropKeys.put("url", String.class); // organisation place tag tagclass
+    singleCardPropKeys.put("workFrom", Integer.class); // workAt
+
+    // All property keys with Cardinality.LIST
+    String listCardPropKeys[] = {
+      "email", // person
+      "language" // person, post
+    };
+
+    ManagementSystem mgmt;
+
+    // Declare all vertex labels.
+    for( String vLabel : vertexLabels ) {
+      System.out.println(vLabel);
+      mgmt = (ManagementSystem) graph.openManagement();
+      mgmt.makeVertexLabel(vLabel).make();
+      mgmt.commit();
+    }
+
+    // Declare all edge labels.
+    for( Map.Entry<String, Multiplicity> eLabel : edgeLabels.entrySet() ) {
+      System.out.println(eLabel.getKey());
+      mgmt = (ManagementSystem) graph.openManagement();
+      mgmt.makeEdgeLabel(eLabel.getKey()).multiplicity(eLabel.getValue())
+        .make();
+      mgmt.commit();
+    }
+
+    // Delcare all properties with Cardinality.SINGLE
+    for ( Map.Entry<String, Class<?>> propKey : 
+        singleCardPropKeys.entrySet() ) {
+      System.out.println(propKey.getKey());
+      mgmt = (ManagementSystem) graph.openManagement();
+      mgmt.makePropertyKey(propKey.getKey()).dataType(propKey.getValue())
+        .cardinality(Cardinality.SINGLE).make();     
+      mgmt.commit();
+    }
+
+    // Delcare all properties with Cardinality.LIST
+    for ( String propKey : listCardPropKeys ) {
+      System.out.println(propKey);
+      mgmt = (ManagementSystem) graph.openManagement();
+      mgmt.makePropertyKey(propKey).dataType(String.class)
+        .cardinality(Cardinality.LIST).make();     
+      mgmt.commit();
+    }
+
+    /* 
+     * Create a special ID property where we will store the IDs of
+     * vertices in the SNB dataset, and a corresponding index. This is
+     * necessary because TitanDB generates its own IDs for graph
+     * vertices, but the benchmark references vertices by the ID they
+     * were originally assigned during dataset generation. These IDs are
+     * only unique among vertices with the same label, so each label gets
+     * its own index on the property.
+     */
+    mgmt = (ManagementSystem) graph.openManagement();
+    mgmt.makePropertyKey("iid").dataType(Long.class)
+      .cardinality(Cardinality.SINGLE).make();     
+    mgmt.commit();
+
+    for ( String vLabel : vertexLabels ) {
+      String indexName = vLabel + "ByIid";
+      System.out.println(indexName);
+      mgmt = (ManagementSystem) graph.openManagement();
+      PropertyKey iid = mgmt.getPropertyKey("iid");
+      mgmt.buildIndex(indexName, Vertex.class).addKey(iid)
+        .indexOnly(mgmt.getVertexLabel(vLabel)).buildCompositeIndex();
+      mgmt.commit();
+
+      mgmt.awaitGraphIndexStatus(graph, indexName).call();
+
+      mgmt = (ManagementSystem) graph.openManagement();
+      mgmt.updateIndex(mgmt.getGraphIndex(indexName), SchemaAction.REINDEX)
+        .get();
+      mgmt.commit();
+    }
+
+    /*
+     * Vertex-centric indexes, which keep a vertex's edges of a label sorted
+     * by creationDate so that the most recent friendships and messages of a
+     * person can be read without scanning and sorting all of them. For
+     * hasCreator the creationDate is the message's, copied onto the edge.
+     */
+    buildCreationDateIndex(graph, "knows", "knowsByCreationDate", 
+        Direction.BOTH);
+    buildCreationDateIndex(graph, "hasCreator", "hasCreatorByCreationDate", 
+        Direction.IN);
+  }
+
+  /**
+   * Builds a vertex-centric index on the edges of the given label, ordered
+   * by descending creationDate. As with the ByIid indexes, the new index is
+   * only REGISTERED once its transaction commits, so we wait for that and
+   * then reindex it to make it ENABLED. Otherwise Titan would never use it.
+   *
+   * @param graph The graph.
+   * @param eLabel Label of the edges to index.
+   * @param indexName Name of the index.
+   * @param dir Direction of the edges to index.
+   */
+  private static void buildCreationDateIndex(TitanGraph graph, String eLabel,
+      String indexName, Direction dir) throws Exception {
+    System.out.println(indexName);
+    ManagementSystem mgmt = (ManagementSystem) graph.openManagement();
+    mgmt.buildEdgeIndex(mgmt.getEdgeLabel(eLabel), indexName, dir, 
+        Order.decr, mgmt.getPropertyKey("creationDate"));
+    mgmt.commit();
+
+    mgmt.awaitRelationIndexStatus(graph, indexName, eLabel).call();
+
+    mgmt = (ManagementSystem) graph.openManagement();
+    mgmt.updateIndex(
+        mgmt.getRelationIndex(mgmt.getRelationType(eLabel), indexName), 
+        SchemaAction.REINDEX).get();
+    mgmt.commit();
+  }
+
   public static void main(String[] args) throws IOException {
     Options options = new Options();
     options.addOption("C", "cassandraLocator", true, 
@@ -342,6 +535,14 @@ public class TitanGraphLoader {
         "Input file directory.");
     options.addOption(null, "progReportPeriod", true, 
         "How often, in seconds, to report loading progress (default 10s).");
+    options.addOption(null, "schemaOnly", false, 
+        "Only define the graph schema, don't load any data.");
+    options.addOption(null, "idsBlockSize", true, 
+        "Number of vertex IDs each loader instance reserves at a time "
+        + "(default 1000000).");
+    options.addOption(null, "noBatchLoading", false, 
+        "Don't use Titan's batch loading mode, which skips consistency "
+        + "checks and locking while loading.");
     options.addOption("h", "help", false, 
         "Print usage.");
 
@@ -360,6 +561,8 @@ public class TitanGraphLoader {
       return;
     }
 
+    boolean schemaOnly = cmd.hasOption("schemaOnly");
+
     // Required parameters.
     String cassandraLocator;
     if (cmd.hasOption("cassandraLocator")) {
@@ -369,10 +572,10 @@ public class TitanGraphLoader {
       return;
     }
 
-    int batchSize;
+    int batchSize = 0;
     if (cmd.hasOption("batchSize")) {
       batchSize = Integer.decode(cmd.getOptionValue("batchSize"));
-    } else {
+    } else if (!schemaOnly) {
       logger.log(Level.SEVERE, "Missing required argument: batchSize");
       return;
     }
@@ -385,10 +588,10 @@ public class TitanGraphLoader {
       return;
     }
 
-    String inputBaseDir;
+    String inputBaseDir = null;
     if (cmd.hasOption("input")) {
       inputBaseDir = cmd.getOptionValue("input");
-    } else {
+    } else if (!schemaOnly) {
       logger.log(Level.SEVERE, "Missing required argument: input");
       return;
     }
@@ -398,143 +601,50 @@ public class TitanGraphLoader {
       progReportPeriod = Long.decode(cmd.getOptionValue("progReportPeriod"));
     } 
 
+    long idsBlockSize = 1000000;
+    if (cmd.hasOption("idsBlockSize")) {
+      idsBlockSize = Long.decode(cmd.getOptionValue("idsBlockSize"));
+    }
+
+    boolean batchLoading = !cmd.hasOption("noBatchLoading");
+
+    System.out.println(String.format("TitanGraphLoader: {cassandraLocator: %s, "
+        + "graphName: %s, batchSize: %d, idsBlockSize: %d, batchLoading: %b, "
+        + "schemaOnly: %b}",
+        cassandraLocator,
+        graphName,
+        batchSize,
+        idsBlockSize,
+        batchLoading,
+        schemaOnly));
+
     // Create the Titan graph client instance with several configuration
-    // parameters
+    // parameters. With schema.default set to none, any label or property key
+    // missing from the schema is an error rather than silently created with
+    // default (untyped, unindexed) settings.
     TitanGraph graph = TitanFactory.build()
       .set("storage.backend", "cassandra")
       .set("storage.hostname", cassandraLocator)
       .set("storage.cassandra.keyspace", graphName)
-      .set("storage.batch-loading", true)
-      .set("ids.block-size", 1000000)
-      //                .set("schema.default", "none")
+      .set("storage.batch-loading", batchLoading)
+      .set("ids.block-size", idsBlockSize)
+      .set("schema.default", "none")
       .open();
 
-    String vertexLabels[] = {  
-      "person",
-      "comment",
-      "forum",
-      "organisation",
-      "place",
-      "post",
-      "tag",
-      "tagclass" 
-    };
-
-    String edgeLabels[] = {  
-      "containerOf",
-      "hasCreator",
-      "hasInterest",
-      "hasMember",
-      "hasModerator",
-      "hasTag",
-      "hasType",
-      "isLocatedIn",
-      "isPartOf",
-      "isSubclassOf",
-      "knows",
-      "likes",
-      "replyOf",
-      "studyAt",
-      "workAt"
-    };
-
-    // All property keys with Cardinality.SINGLE
-    String singleCardPropKeys[] = {
-      "birthday", // person
-      "browserUsed", // comment person post
-      "classYear", // studyAt
-      "content", // comment post
-      "creationDate", // comment forum person post knows likes
-      "firstName", // person
-      "gender", // person
-      "imageFile", // post
-      "joinDate", // hasMember
-      //"language", // post
-      "lastName", // person
-      "length", // comment post
-      "locationIP", // comment person post
-      "name", // organisation place tag tagclass
-      "title", // forum
-      "type", // organisation place
-      "url", // organisation place tag tagclass
-      "workFrom", // workAt
-    };
-
-    // All property keys with Cardinality.LIST
-    String listCardPropKeys[] = {
-      "email", // person
-      "language" // person, post
-    };
-
-    /*
-     * Explicitly define the graph schema.
-     *
-     * Note: For unknown reasons, it seems that each modification to the
-     * schema must be committed in its own transaction.
-     */
     try {
-      ManagementSystem mgmt;
-
-      // Declare all vertex labels.
-      for( String vLabel : vertexLabels ) {
-        System.out.println(vLabel);
-        mgmt = (ManagementSystem) graph.openManagement();
-        mgmt.makeVertexLabel(vLabel).make();
-        mgmt.commit();
-      }
-
-      // Declare all edge labels.
-      for( String eLabel : edgeLabels ) {
-        System.out.println(eLabel);
-        mgmt = (ManagementSystem) graph.openManagement();
-        mgmt.makeEdgeLabel(eLabel).multiplicity(Multiplicity.SIMPLE).make();
-        mgmt.commit();
-      }
-
-      // Delcare all properties with Cardinality.SINGLE
-      for ( String propKey : singleCardPropKeys ) {
-        System.out.println(propKey);
-        mgmt = (ManagementSystem) graph.openManagement();
-        mgmt.makePropertyKey(propKey).dataType(String.class)
-          .cardinality(Cardinality.SINGLE).make();     
-        mgmt.commit();
-      }
-
-      // Delcare all properties with Cardinality.LIST
-      for ( String propKey : listCardPropKeys ) {
-        System.out.println(propKey);
-        mgmt = (ManagementSystem) graph.openManagement();
-        mgmt.makePropertyKey(propKey).dataType(String.class)
-          .cardinality(Cardinality.LIST).make();     
-        mgmt.commit();
+      if (graph.containsRelationType("iid")) {
+        System.out.println("Schema already defined for graph " + graphName);
+      } else {
+        defineSchema(graph);
       }
-
-      /* 
-       * Create a special ID property where we will store the IDs of
-       * vertices in the SNB dataset, and a corresponding index. This is
-       * necessary because TitanDB generates its own IDs for graph
-       * vertices, but the benchmark references vertices by the ID they
-       * were originally assigned during dataset generation.
-       */
-      mgmt = (ManagementSystem) graph.openManagement();
-      mgmt.makePropertyKey("iid").dataType(String.class)
-        .cardinality(Cardinality.SINGLE).make();     
-      mgmt.commit();
-
-      mgmt = (ManagementSystem) graph.openManagement();
-      PropertyKey iid = mgmt.getPropertyKey("iid");
-      mgmt.buildIndex("byIid", Vertex.class).addKey(iid).buildCompositeIndex();
-      mgmt.commit();
-
-      mgmt.awaitGraphIndexStatus(graph, "byIid").call();
-
-      mgmt = (ManagementSystem) graph.openManagement();
-      mgmt.updateIndex(mgmt.getGraphIndex("byIid"), SchemaAction.REINDEX)
-        .get();
-      mgmt.commit();
-
     } catch (Exception e) {
       logger.log(Level.SEVERE, e.toString());
+      graph.close();
+      return;
+    }
+
+    if (schemaOnly) {
+      graph.close();
       return;
     }
 
@@ -27,6 +27,11 @@ import static org.apache.tinkerpop.gremlin.process.traversal.Scope.local;
 import static org.apache.tinkerpop.gremlin.process.traversal.Pop.*;
 import static org.apache.tinkerpop.gremlin.structure.Column.*;
 
+import net.ellitron.ldbcsnbimpls.interactive.core.LongHashSet;
+import net.ellitron.ldbcsnbimpls.interactive.core.RetryPolicy;
+import net.ellitron.ldbcsnbimpls.interactive.core.TxRetry;
+import net.ellitron.ldbcsnbimpls.interactive.core.TxStats;
+
 import net.ellitron.torc.*;
 import net.ellitron.torc.util.UInt128;
 import net.ellitron.torc.util.TorcHelper;
@@ -38,6 +43,7 @@ import com.ldbc.driver.control.LoggingService;
 import com.ldbc.driver.Db;
 import com.ldbc.driver.DbConnectionState;
 import com.ldbc.driver.DbException;
+import com.ldbc.driver.Operation;
 import com.ldbc.driver.OperationHandler;
 import com.ldbc.driver.ResultReporter;
 import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcNoResult;
@@ -159,6 +165,8 @@ public class TorcDb extends Db {
   private TorcDbConnectionState connectionState = null;
   private static boolean doTransactionalReads = false;
   private static boolean useRAMCloudTransactionAPIForReads = false;
+  private static boolean doSnapshotReads = false;
+  private static int snapshotReadMaxAttempts = 3;
   private static boolean fakeComplexReads = false;
   private static boolean fakeUpdates = false;
   private static String personIDsFilename;
@@ -166,8 +174,12 @@ public class TorcDb extends Db {
   private static List<Long> personIDs;
   private static List<Long> messageIDs;
 
-  // Maximum number of times to try a transaction before giving up.
-  private static int MAX_TX_ATTEMPTS = 100;
+  // How to retry transactions that fail to commit (by default up to 100
+  // times with no backoff), and per operation type counts of how often that
+  // happens.
+  private static RetryPolicy retryPolicy = RetryPolicy.immediate(
+      RetryPolicy.DEFAULT_MAX_ATTEMPTS);
+  private static final TxStats txStats = new TxStats();
 
   @Override
   protected void onInit(Map<String, String> properties,
@@ -183,6 +195,12 @@ public class TorcDb extends Db {
       useRAMCloudTransactionAPIForReads = true;
     }
 
+    if (properties.containsKey("snapshotReads")) {
+      doSnapshotReads = true;
+      snapshotReadMaxAttempts = Integer.decode(
+          properties.getOrDefault("snapshotReadMaxAttempts", "3"));
+    }
+
     if (properties.containsKey("personIDsFile") && 
         properties.containsKey("messageIDsFile")) {
       this.personIDsFilename = properties.get("personIDsFile");
@@ -222,6 +240,8 @@ public class TorcDb extends Db {
       fakeUpdates = true;
     }
 
+    retryPolicy = RetryPolicy.fromProps(properties);
+
     /*
      * Register operation handlers with the benchmark.
      */
@@ -288,12 +308,17 @@ public class TorcDb extends Db {
 
     System.out.println("doTransactionalReads: " + doTransactionalReads);
     System.out.println("useRAMCloudTransactionAPIForReads: " + useRAMCloudTransactionAPIForReads);
+    System.out.println("doSnapshotReads: " + doSnapshotReads);
+    if (doSnapshotReads)
+      System.out.println("snapshotReadMaxAttempts: " + snapshotReadMaxAttempts);
     System.out.println("fakeComplexReads: " + fakeComplexReads);
     System.out.println("fakeUpdates: " + fakeUpdates);
+    System.out.println("retryPolicy: " + retryPolicy);
   }
 
   @Override
   protected void onClose() throws IOException {
+    System.out.print(txStats.toString());
     connectionState.close();
   }
 
@@ -302,6 +327,94 @@ public class TorcDb extends Db {
     return connectionState;
   }
 
+  /**
+   * Ends the transaction of a complex read executed in snapshot read mode.
+   *
+   * In this mode the read goes through the RAMCloud transaction API, which
+   * records the version of every object read, and at the end the read-only
+   * transaction is committed. Since it has no writes, committing only checks
+   * that the objects we actually read are unchanged, so a successful commit
+   * means the result reflects a consistent snapshot of the graph.
+   *
+   * Complex reads are expensive to run again, so a read whose validation
+   * fails is only run again up to snapshotReadMaxAttempts times in total. If
+   * validation fails on the last of those attempts then the operation fails,
+   * since its result may not be consistent.
+   *
+   * @return True if the result of the read should be reported, false if the
+   * read should be run again.
+   *
+   * @throws DbException If validation failed on the last attempt.
+   */
+  private static boolean endSnapshotRead(TorcGraph graph, TxRetry retry,
+      Operation op) throws DbException {
+    try {
+      graph.tx().commit();
+      retry.committed();
+      return true;
+    } catch (RuntimeException e) {
+      if (retry.attempts() < snapshotReadMaxAttempts)
+        return false;
+
+      graph.tx().rollback();
+      retry.gaveUp();
+      throw new DbException(String.format("Snapshot read %s failed "
+          + "validation on all %d attempts", op.toString(),
+          retry.attempts()), e);
+    }
+  }
+
+  /**
+   * Returns a TxRetry for driving the transaction retry loop of one execution
+   * of op.
+   */
+  private static TxRetry txRetry(Operation op) {
+    return new TxRetry(retryPolicy, txStats, op.getClass().getSimpleName());
+  }
+
+  /**
+   * Adds the IDs of the given vertices to a set of IDs. Only the lower 64 bits
+   * of each ID are kept, so the vertices should all be in the same ID space
+   * (e.g. Persons).
+   */
+  private static void addIds(LongHashSet ids, Collection<TorcVertex> vertices) {
+    for (TorcVertex v : vertices)
+      ids.add(((UInt128) v.id()).getLowerLong());
+  }
+
+  /**
+   * Removes the vertices whose IDs are in ids from a traversal result, like
+   * TorcHelper.subtract() does for a set of vertices. Vertices are removed
+   * from vSet and from the neighbor lists in vMap (along with their edge
+   * properties in pMap), and base vertices left with no neighbors are dropped
+   * from vMap.
+   */
+  private static void subtract(TraversalResult tr, LongHashSet ids) {
+    tr.vSet.removeIf(v -> ids.contains(((UInt128) v.id()).getLowerLong()));
+
+    Iterator<Map.Entry<TorcVertex, List<TorcVertex>>> it =
+        tr.vMap.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<TorcVertex, List<TorcVertex>> e = it.next();
+      List<TorcVertex> nList = e.getValue();
+      List<Map<Object, Object>> pList =
+          (tr.pMap != null) ? tr.pMap.get(e.getKey()) : null;
+      for (int i = nList.size() - 1; i >= 0; i--) {
+        if (ids.contains(((UInt128) nList.get(i).id()).getLowerLong())) {
+          nList.remove(i);
+          if (pList != null)
+            pList.remove(i);
+        }
+      }
+
+      if (nList.size() == 0) {
+        it.remove();
+        if (tr.pMap != null)
+          tr.pMap.remove(e.getKey());
+      }
+    }
+  }
+
   /**
    * ------------------------------------------------------------------------
    * Complex Queries
@@ -363,11 +476,12 @@ public class TorcDb extends Db {
       TorcGraph graph = 
         (TorcGraph)((TorcDbConnectionState) dbConnectionState).getClient();
 
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = txRetry(operation);
+      while (retry.attempt()) {
         GraphTraversalSource g = graph.traversal();
 
-        if (!(doTransactionalReads || useRAMCloudTransactionAPIForReads))
+        if (!(doTransactionalReads || useRAMCloudTransactionAPIForReads ||
+              doSnapshotReads))
           graph.disableTx();
 
         List<LdbcQuery1Result> result = new ArrayList<>(limit);
@@ -387,14 +501,14 @@ public class TorcDb extends Db {
           }
         }
 
-        Set<TorcVertex> seenSet = new HashSet<>();
-        seenSet.add(start);
-        seenSet.addAll(l1_friends.vSet);
+        LongHashSet seenSet = new LongHashSet(l1_friends.vSet.size() + 1);
+        seenSet.add(((UInt128) start.id()).getLowerLong());
+        addIds(seenSet, l1_friends.vSet);
 
         if (l1_matches.size() < limit) {
           TraversalResult l2_friends = graph.traverse(l1_friends, "knows", Direction.OUT, false, "Person");
 
-          TorcHelper.subtract(l2_friends, seenSet);
+          subtract(l2_friends, seenSet);
 
           graph.fillProperties(l2_friends);
           for (TorcVertex v : l2_friends.vSet) {
@@ -403,12 +517,12 @@ public class TorcDb extends Db {
             }
           }
 
-          seenSet.addAll(l2_friends.vSet);
+          addIds(seenSet, l2_friends.vSet);
 
           if (l1_matches.size() + l2_matches.size() < limit) {
             TraversalResult l3_friends = graph.traverse(l2_friends, "knows", Direction.OUT, false, "Person");
 
-            TorcHelper.subtract(l3_friends, seenSet);
+            subtract(l3_friends, seenSet);
 
             graph.fillProperties(l3_friends);
             for (TorcVertex v : l3_friends.vSet) {
@@ -518,19 +632,24 @@ public class TorcDb extends Db {
               companyInfo)); //(List<List<Object>>)t.get().get("companyInfo")));
         }
 
-        if (doTransactionalReads) {
-          try {
-            graph.tx().commit();
-          } catch (RuntimeException e) {
-            txAttempts++;
+        if (doSnapshotReads) {
+          if (!endSnapshotRead(graph, retry, operation))
             continue;
-          }
-        } else if (useRAMCloudTransactionAPIForReads) {
-          graph.tx().rollback();
         } else {
-          graph.enableTx();
-        }
+          if (doTransactionalReads) {
+            try {
+              graph.tx().commit();
+            } catch (RuntimeException e) {
+              continue;
+            }
+          } else if (useRAMCloudTransactionAPIForReads) {
+            graph.tx().rollback();
+          } else {
+            graph.enableTx();
+          }
 
+          retry.committed();
+        }
         resultReporter.report(result.size(), result, operation);
         break;
       }
@@ -586,11 +705,12 @@ public class TorcDb extends Db {
       TorcGraph graph = 
         (TorcGraph)((TorcDbConnectionState) dbConnectionState).getClient();
 
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = txRetry(operation);
+      while (retry.attempt()) {
         GraphTraversalSource g = graph.traversal();
 
-        if (!(doTransactionalReads || useRAMCloudTransactionAPIForReads))
+        if (!(doTransactionalReads || useRAMCloudTransactionAPIForReads ||
+              doSnapshotReads))
           graph.disableTx();
 
         List<LdbcQuery2Result> result = new ArrayList<>(limit);
@@ -666,19 +786,24 @@ public class TorcDb extends Db {
               ((Long)m.getProperty("creationDate")))); //Long.valueOf((String)t.get().get("creationDate"))))
         }
 
-        if (doTransactionalReads) {
-          try {
-            graph.tx().commit();
-          } catch (RuntimeException e) {
-            txAttempts++;
+        if (doSnapshotReads) {
+          if (!endSnapshotRead(graph, retry, operation))
             continue;
-          }
-        } else if (useRAMCloudTransactionAPIForReads) {
-          graph.tx().rollback();
         } else {
-          graph.enableTx();
-        }
+          if (doTransactionalReads) {
+            try {
+              graph.tx().commit();
+            } catch (RuntimeException e) {
+              continue;
+            }
+          } else if (useRAMCloudTransactionAPIForReads) {
+            graph.tx().rollback();
+          } else {
+            graph.enableTx();
+          }
 
+          retry.committed();
+        }
         resultReporter.report(result.size(), result, operation);
         break;
       }
@@ -739,11 +864,12 @@ public class TorcDb extends Db {
 
       TorcGraph graph = (TorcGraph)((TorcDbConnectionState) dbConnectionState).getClient();
 
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = txRetry(operation);
+      while (retry.attempt()) {
         GraphTraversalSource g = graph.traversal();
 
-        if (!(doTransactionalReads || useRAMCloudTransactionAPIForReads))
+        if (!(doTransactionalReads || useRAMCloudTransactionAPIForReads ||
+              doSnapshotReads))
           graph.disableTx();
 
         List<LdbcQuery3Result> result = new ArrayList<>(limit);
@@ -859,19 +985,24 @@ public class TorcDb extends Db {
               friendCountryXMsgCounts.get(f) + friendCountryYMsgCounts.get(f))); //(Long)((Traverser<Map>)t).get().get("totalCount")))
         }
 
-        if (doTransactionalReads) {
-          try {
-            graph.tx().commit();
-          } catch (RuntimeException e) {
-            txAttempts++;
+        if (doSnapshotReads) {
+          if (!endSnapshotRead(graph, retry, operation))
             continue;
-          }
-        } else if (useRAMCloudTransactionAPIForReads) {
-          graph.tx().rollback();
         } else {
-          ((TorcGraph)graph).enableTx();
-        }
+          if (doTransactionalReads) {
+            try {
+              graph.tx().commit();
+            } catch (RuntimeException e) {
+              continue;
+            }
+          } else if (useRAMCloudTransactionAPIForReads) {
+            graph.tx().rollback();
+          } else {
+            ((TorcGraph)graph).enableTx();
+          }
 
+          retry.committed();
+        }
         resultReporter.report(result.size(), result, operation);
         break;
       }
@@ -923,11 +1054,12 @@ public class TorcDb extends Db {
 
       TorcGraph graph = (TorcGraph)((TorcDbConnectionState) dbConnectionState).getClient();
 
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = txRetry(operation);
+      while (retry.attempt()) {
         GraphTraversalSource g = graph.traversal();
 
-        if (!(doTransactionalReads || useRAMCloudTransactionAPIForReads))
+        if (!(doTransactionalReads || useRAMCloudTransactionAPIForReads ||
+              doSnapshotReads))
           graph.disableTx();
 
         List<LdbcQuery4Result> result = new ArrayList<>(limit);
@@ -1006,19 +1138,24 @@ public class TorcDb extends Db {
                 tagCounts.get(t).intValue()));
         }
 
-        if (doTransactionalReads) {
-          try {
-            graph.tx().commit();
-          } catch (RuntimeException e) {
-            txAttempts++;
+        if (doSnapshotReads) {
+          if (!endSnapshotRead(graph, retry, operation))
             continue;
-          }
-        } else if (useRAMCloudTransactionAPIForReads) {
-          graph.tx().rollback();
         } else {
-          graph.enableTx();
-        }
+          if (doTransactionalReads) {
+            try {
+              graph.tx().commit();
+            } catch (RuntimeException e) {
+              continue;
+            }
+          } else if (useRAMCloudTransactionAPIForReads) {
+            graph.tx().rollback();
+          } else {
+            graph.enableTx();
+          }
 
+          retry.committed();
+        }
         resultReporter.report(result.size(), result, operation);
         break;
       }
@@ -1067,11 +1204,12 @@ public class TorcDb extends Db {
 
       TorcGraph graph = (TorcGraph)((TorcDbConnectionState) dbConnectionState).getClient();
 
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = txRetry(operation);
+      while (retry.attempt()) {
         GraphTraversalSource g = graph.traversal();
 
-        if (!(doTransactionalReads || useRAMCloudTransactionAPIForReads))
+        if (!(doTransactionalReads || useRAMCloudTransactionAPIForReads ||
+              doSnapshotReads))
           graph.disableTx();
 
         List<LdbcQuery5Result> result = new ArrayList<>(limit);
@@ -1167,19 +1305,24 @@ public class TorcDb extends Db {
               forumFriendPostCounts.get(forum)));
         }
 
-        if (doTransactionalReads) {
-          try {
-            graph.tx().commit();
-          } catch (RuntimeException e) {
-            txAttempts++;
+        if (doSnapshotReads) {
+          if (!endSnapshotRead(graph, retry, operation))
             continue;
-          }
-        } else if (useRAMCloudTransactionAPIForReads) {
-          graph.tx().rollback();
         } else {
-          graph.enableTx();
-        }
+          if (doTransactionalReads) {
+            try {
+              graph.tx().commit();
+            } catch (RuntimeException e) {
+              continue;
+            }
+          } else if (useRAMCloudTransactionAPIForReads) {
+            graph.tx().rollback();
+          } else {
+            graph.enableTx();
+          }
 
+          retry.committed();
+        }
         resultReporter.report(result.size(), result, operation);
         break;
       }
@@ -1227,11 +1370,12 @@ public class TorcDb extends Db {
 
       TorcGraph graph = (TorcGraph)((TorcDbConnectionState) dbConnectionState).getClient();
 
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = txRetry(operation);
+      while (retry.attempt()) {
         GraphTraversalSource g = graph.traversal();
 
-        if (!(doTransactionalReads || useRAMCloudTransactionAPIForReads))
+        if (!(doTransactionalReads || useRAMCloudTransactionAPIForReads ||
+              doSnapshotReads))
           graph.disableTx();
 
         List<LdbcQuery6Result> result = new ArrayList<>(limit);
@@ -1308,19 +1452,24 @@ public class TorcDb extends Db {
                 coTagCounts.get(t).intValue()));
         }
 
-        if (doTransactionalReads) {
-          try {
-            graph.tx().commit();
-          } catch (RuntimeException e) {
-            txAttempts++;
+        if (doSnapshotReads) {
+          if (!endSnapshotRead(graph, retry, operation))
             continue;
-          }
-        } else if (useRAMCloudTransactionAPIForReads) {
-          graph.tx().rollback();
         } else {
-          graph.enableTx();
-        }
+          if (doTransactionalReads) {
+            try {
+              graph.tx().commit();
+            } catch (RuntimeException e) {
+              continue;
+            }
+          } else if (useRAMCloudTransactionAPIForReads) {
+            graph.tx().rollback();
+          } else {
+            graph.enableTx();
+          }
 
+          retry.committed();
+        }
         resultReporter.report(result.size(), result, operation);
         break;
       }
@@ -1380,11 +1529,12 @@ public class TorcDb extends Db {
 
       TorcGraph graph = (TorcGraph)((TorcDbConnectionState) dbConnectionState).getClient();
 
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = txRetry(operation);
+      while (retry.attempt()) {
         GraphTraversalSource g = graph.traversal();
 
-        if (!(doTransactionalReads || useRAMCloudTransactionAPIForReads))
+        if (!(doTransactionalReads || useRAMCloudTransactionAPIForReads ||
+              doSnapshotReads))
           graph.disableTx();
 
         List<LdbcQuery7Result> result = new ArrayList<>(limit);
@@ -1556,19 +1706,24 @@ public class TorcDb extends Db {
               !friends.vSet.contains(liker)));
         }
 
-        if (doTransactionalReads) {
-          try {
-            graph.tx().commit();
-          } catch (RuntimeException e) {
-            txAttempts++;
+        if (doSnapshotReads) {
+          if (!endSnapshotRead(graph, retry, operation))
             continue;
-          }
-        } else if (useRAMCloudTransactionAPIForReads) {
-          graph.tx().rollback();
         } else {
-          graph.enableTx();
-        }
+          if (doTransactionalReads) {
+            try {
+              graph.tx().commit();
+            } catch (RuntimeException e) {
+              continue;
+            }
+          } else if (useRAMCloudTransactionAPIForReads) {
+            graph.tx().rollback();
+          } else {
+            graph.enableTx();
+          }
 
+          retry.committed();
+        }
         resultReporter.report(result.size(), result, operation);
         break;
       }
@@ -1623,11 +1778,12 @@ public class TorcDb extends Db {
 
       TorcGraph graph = (TorcGraph)((TorcDbConnectionState) dbConnectionState).getClient();
 
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = txRetry(operation);
+      while (retry.attempt()) {
         GraphTraversalSource g = graph.traversal();
 
-        if (!(doTransactionalReads || useRAMCloudTransactionAPIForReads))
+        if (!(doTransactionalReads || useRAMCloudTransactionAPIForReads ||
+              doSnapshotReads))
           graph.disableTx();
 
         List<LdbcQuery8Result> result = new ArrayList<>(limit);
@@ -1699,19 +1855,24 @@ public class TorcDb extends Db {
                 content));
         }
 
-        if (doTransactionalReads) {
-          try {
-            graph.tx().commit();
-          } catch (RuntimeException e) {
-            txAttempts++;
+        if (doSnapshotReads) {
+          if (!endSnapshotRead(graph, retry, operation))
             continue;
-          }
-        } else if (useRAMCloudTransactionAPIForReads) {
-          graph.tx().rollback();
         } else {
-          graph.enableTx();
-        }
+          if (doTransactionalReads) {
+            try {
+              graph.tx().commit();
+            } catch (RuntimeException e) {
+              continue;
+            }
+          } else if (useRAMCloudTransactionAPIForReads) {
+            graph.tx().rollback();
+          } else {
+            graph.enableTx();
+          }
 
+          retry.committed();
+        }
         resultReporter.report(result.size(), result, operation);
         break;
       }
@@ -1767,11 +1928,12 @@ public class TorcDb extends Db {
 
       TorcGraph graph = (TorcGraph)((TorcDbConnectionState) dbConnectionState).getClient();
 
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = txRetry(operation);
+      while (retry.attempt()) {
         GraphTraversalSource g = graph.traversal();
 
-        if (!(doTransactionalReads || useRAMCloudTransactionAPIForReads))
+        if (!(doTransactionalReads || useRAMCloudTransactionAPIForReads ||
+              doSnapshotReads))
           graph.disableTx();
 
         List<LdbcQuery9Result> result = new ArrayList<>(limit);
@@ -1855,19 +2017,24 @@ public class TorcDb extends Db {
               ((Long)m.getProperty("creationDate")))); //Long.valueOf((String)t.get().get("creationDate"))))
         }
 
-        if (doTransactionalReads) {
-          try {
-            graph.tx().commit();
-          } catch (RuntimeException e) {
-            txAttempts++;
+        if (doSnapshotReads) {
+          if (!endSnapshotRead(graph, retry, operation))
             continue;
-          }
-        } else if (useRAMCloudTransactionAPIForReads) {
-          graph.tx().rollback();
         } else {
-          graph.enableTx();
-        }
+          if (doTransactionalReads) {
+            try {
+              graph.tx().commit();
+            } catch (RuntimeException e) {
+              continue;
+            }
+          } else if (useRAMCloudTransactionAPIForReads) {
+            graph.tx().rollback();
+          } else {
+            graph.enableTx();
+          }
 
+          retry.committed();
+        }
         resultReporter.report(result.size(), result, operation);
         break;
       }
@@ -1932,11 +2099,12 @@ public class TorcDb extends Db {
 
       TorcGraph graph = (TorcGraph)((TorcDbConnectionState) dbConnectionState).getClient();
 
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = txRetry(operation);
+      while (retry.attempt()) {
         GraphTraversalSource g = graph.traversal();
 
-        if (!(doTransactionalReads || useRAMCloudTransactionAPIForReads))
+        if (!(doTransactionalReads || useRAMCloudTransactionAPIForReads ||
+              doSnapshotReads))
           graph.disableTx();
 
         List<LdbcQuery10Result> result = new ArrayList<>(limit);
@@ -2052,19 +2220,24 @@ public class TorcDb extends Db {
                 (String)locations.vMap.get(f).get(0).getProperty("name")));
         }
 
-        if (doTransactionalReads) {
-          try {
-            graph.tx().commit();
-          } catch (RuntimeException e) {
-            txAttempts++;
+        if (doSnapshotReads) {
+          if (!endSnapshotRead(graph, retry, operation))
             continue;
-          }
-        } else if (useRAMCloudTransactionAPIForReads) {
-          graph.tx().rollback();
         } else {
-          graph.enableTx();
-        }
+          if (doTransactionalReads) {
+            try {
+              graph.tx().commit();
+            } catch (RuntimeException e) {
+              continue;
+            }
+          } else if (useRAMCloudTransactionAPIForReads) {
+            graph.tx().rollback();
+          } else {
+            graph.enableTx();
+          }
 
+          retry.committed();
+        }
         resultReporter.report(result.size(), result, operation);
         break;
       }
@@ -2130,11 +2303,12 @@ public class TorcDb extends Db {
         }
       };
 
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = txRetry(operation);
+      while (retry.attempt()) {
         GraphTraversalSource g = graph.traversal();
 
-        if (!(doTransactionalReads || useRAMCloudTransactionAPIForReads))
+        if (!(doTransactionalReads || useRAMCloudTransactionAPIForReads ||
+              doSnapshotReads))
           graph.disableTx();
 
         List<LdbcQuery11Result> result = new ArrayList<>(limit);
@@ -2240,19 +2414,24 @@ public class TorcDb extends Db {
                 rt.year));
         }
 
-        if (doTransactionalReads) {
-          try {
-            graph.tx().commit();
-          } catch (RuntimeException e) {
-            txAttempts++;
+        if (doSnapshotReads) {
+          if (!endSnapshotRead(graph, retry, operation))
             continue;
-          }
-        } else if (useRAMCloudTransactionAPIForReads) {
-          graph.tx().rollback();
         } else {
-          graph.enableTx();
-        }
+          if (doTransactionalReads) {
+            try {
+              graph.tx().commit();
+            } catch (RuntimeException e) {
+              continue;
+            }
+          } else if (useRAMCloudTransactionAPIForReads) {
+            graph.tx().rollback();
+          } else {
+            graph.enableTx();
+          }
 
+          retry.committed();
+        }
         resultReporter.report(result.size(), result, operation);
         break;
       }
@@ -2309,11 +2488,12 @@ public class TorcDb extends Db {
       TorcGraph graph = 
         (TorcGraph)((TorcDbConnectionState) dbConnectionState).getClient();
 
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = txRetry(operation);
+      while (retry.attempt()) {
         GraphTraversalSource g = graph.traversal();
 
-        if (!(doTransactionalReads || useRAMCloudTransactionAPIForReads))
+        if (!(doTransactionalReads || useRAMCloudTransactionAPIForReads ||
+              doSnapshotReads))
           graph.disableTx();
 
         List<LdbcQuery12Result> result = new ArrayList<>(limit);
@@ -2421,19 +2601,24 @@ public class TorcDb extends Db {
               friendComments.vMap.get(f).size()));
         }
 
-        if (doTransactionalReads) {
-          try {
-            graph.tx().commit();
-          } catch (RuntimeException e) {
-            txAttempts++;
+        if (doSnapshotReads) {
+          if (!endSnapshotRead(graph, retry, operation))
             continue;
-          }
-        } else if (useRAMCloudTransactionAPIForReads) {
-          graph.tx().rollback();
         } else {
-          graph.enableTx();
-        }
+          if (doTransactionalReads) {
+            try {
+              graph.tx().commit();
+            } catch (RuntimeException e) {
+              continue;
+            }
+          } else if (useRAMCloudTransactionAPIForReads) {
+            graph.tx().rollback();
+          } else {
+            graph.enableTx();
+          }
 
+          retry.committed();
+        }
         resultReporter.report(result.size(), result, operation);
         break;
       }
@@ -2477,11 +2662,12 @@ public class TorcDb extends Db {
 
       TorcGraph graph = (TorcGraph)((TorcDbConnectionState) dbConnectionState).getClient();
 
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = txRetry(operation);
+      while (retry.attempt()) {
         GraphTraversalSource g = graph.traversal();
 
-        if (!(doTransactionalReads || useRAMCloudTransactionAPIForReads))
+        if (!(doTransactionalReads || useRAMCloudTransactionAPIForReads ||
+              doSnapshotReads))
           graph.disableTx();
 
         Set<TorcVertex> start = new HashSet<>();
@@ -2490,11 +2676,11 @@ public class TorcDb extends Db {
         TorcVertex end = new TorcVertex(graph, torcPerson2Id);
 
         TraversalResult friends = new TraversalResult(null, null, start);
-        Set<TorcVertex> seenSet = new HashSet<>();
+        LongHashSet seenSet = new LongHashSet();
         int n = 1;
         do {
           friends = graph.traverse(friends, "knows", Direction.OUT, false, "Person");
-          TorcHelper.subtract(friends, seenSet);
+          subtract(friends, seenSet);
           
           // No path to destination vertex.
           if (friends.vSet.size() == 0) {
@@ -2505,24 +2691,29 @@ public class TorcDb extends Db {
           if (friends.vSet.contains(end))
             break;
 
-          seenSet.addAll(friends.vSet);
+          addIds(seenSet, friends.vSet);
 
           n++;
         } while (true);
 
-        if (doTransactionalReads) {
-          try {
-            graph.tx().commit();
-          } catch (RuntimeException e) {
-            txAttempts++;
+        if (doSnapshotReads) {
+          if (!endSnapshotRead(graph, retry, operation))
             continue;
-          }
-        } else if (useRAMCloudTransactionAPIForReads) {
-          graph.tx().rollback();
         } else {
-          graph.enableTx();
-        }
+          if (doTransactionalReads) {
+            try {
+              graph.tx().commit();
+            } catch (RuntimeException e) {
+              continue;
+            }
+          } else if (useRAMCloudTransactionAPIForReads) {
+            graph.tx().rollback();
+          } else {
+            graph.enableTx();
+          }
 
+          retry.committed();
+        }
         resultReporter.report(1, new LdbcQuery13Result(n), operation);
         break;
       }
@@ -2641,11 +2832,12 @@ public class TorcDb extends Db {
 
       TorcGraph graph = (TorcGraph)((TorcDbConnectionState) dbConnectionState).getClient();
 
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = txRetry(operation);
+      while (retry.attempt()) {
         GraphTraversalSource g = graph.traversal();
 
-        if (!(doTransactionalReads || useRAMCloudTransactionAPIForReads))
+        if (!(doTransactionalReads || useRAMCloudTransactionAPIForReads ||
+              doSnapshotReads))
           graph.disableTx();
 
         List<LdbcQuery14Result> result = new ArrayList<>();
@@ -2659,16 +2851,16 @@ public class TorcDb extends Db {
         // Handle start == end here
 
         TraversalResult friends = new TraversalResult(null, null, startSet);
-        Set<TorcVertex> seenSet = new HashSet<>();
+        LongHashSet seenSet = new LongHashSet();
 
         // Keep around each of the traversal results during the serach.
         List<TraversalResult> trList = new ArrayList<>();
         int hops = 0;
         while (!friends.vSet.contains(end)) {
-          seenSet.addAll(friends.vSet);
+          addIds(seenSet, friends.vSet);
 
           friends = graph.traverse(friends, "knows", Direction.OUT, false, "Person");
-          TorcHelper.subtract(friends, seenSet);
+          subtract(friends, seenSet);
 
           // No path to destination vertex.
           if (friends.vSet.size() == 0) {
@@ -2838,19 +3030,24 @@ public class TorcDb extends Db {
           }
         }
 
-        if (doTransactionalReads) {
-          try {
-            graph.tx().commit();
-          } catch (RuntimeException e) {
-            txAttempts++;
+        if (doSnapshotReads) {
+          if (!endSnapshotRead(graph, retry, operation))
             continue;
-          }
-        } else if (useRAMCloudTransactionAPIForReads) {
-          graph.tx().rollback();
         } else {
-          graph.enableTx();
-        }
+          if (doTransactionalReads) {
+            try {
+              graph.tx().commit();
+            } catch (RuntimeException e) {
+              continue;
+            }
+          } else if (useRAMCloudTransactionAPIForReads) {
+            graph.tx().rollback();
+          } else {
+            graph.enableTx();
+          }
 
+          retry.committed();
+        }
         resultReporter.report(result.size(), result, operation);
         break;
       }
@@ -2876,8 +3073,8 @@ public class TorcDb extends Db {
     public void executeOperation(final LdbcShortQuery1PersonProfile operation,
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = txRetry(operation);
+      while (retry.attempt()) {
         long person_id = operation.personId();
         Graph client = ((TorcDbConnectionState) dbConnectionState).getClient();
 
@@ -2906,17 +3103,17 @@ public class TorcDb extends Db {
                 (String)propertyMap.get("gender"),
                 (Long)propertyMap.get("creationDate"));
 
-        if (doTransactionalReads) {
+        if (doTransactionalReads || doSnapshotReads) {
           try {
             client.tx().commit();
           } catch (RuntimeException e) {
-            txAttempts++;
             continue;
           }
         } else {
           client.tx().rollback();
         }
 
+        retry.committed();
         resultReporter.report(0, res, operation);
         break;
       }
@@ -2942,8 +3139,8 @@ public class TorcDb extends Db {
     public void executeOperation(final LdbcShortQuery2PersonPosts operation,
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = txRetry(operation);
+      while (retry.attempt()) {
         Graph client = ((TorcDbConnectionState) dbConnectionState).getClient();
 
         List<LdbcShortQuery2PersonPostsResult> result = new ArrayList<>();
@@ -3013,12 +3210,23 @@ public class TorcDb extends Db {
             originalPostAuthorLastName =
                 person.<String>property("lastName").value();
           } else {
-            Vertex parentMessage =
-                ((TorcVertex) message).edges(Direction.OUT, 
-                  new String[] {"replyOf"},
-                  new String[] {TorcEntity.POST.label, 
-                    TorcEntity.COMMENT.label})
-                  .next().inVertex();
+            // Comments carry the ID of the Post at the root of their reply
+            // tree in the "rootPost" property. Images made before this
+            // property was introduced don't have it, in which case we walk up
+            // the reply tree instead.
+            Vertex parentMessage;
+            if (propMap.containsKey("rootPost")) {
+              parentMessage = client.vertices(new UInt128(
+                  TorcEntity.POST.idSpace, (Long)propMap.get("rootPost")))
+                  .next();
+            } else {
+              parentMessage =
+                  ((TorcVertex) message).edges(Direction.OUT, 
+                    new String[] {"replyOf"},
+                    new String[] {TorcEntity.POST.label, 
+                      TorcEntity.COMMENT.label})
+                    .next().inVertex();
+            }
             while (true) {
               if (parentMessage.label().equals(TorcEntity.POST.label)) {
                 originalPostId = ((UInt128) parentMessage.id()).getLowerLong();
@@ -3058,17 +3266,17 @@ public class TorcDb extends Db {
           result.add(res);
         }
 
-        if (doTransactionalReads) {
+        if (doTransactionalReads || doSnapshotReads) {
           try {
             client.tx().commit();
           } catch (RuntimeException e) {
-            txAttempts++;
             continue;
           }
         } else {
           client.tx().rollback();
         }
 
+        retry.committed();
         resultReporter.report(result.size(), result, operation);
         break;
       }
@@ -3090,8 +3298,8 @@ public class TorcDb extends Db {
     public void executeOperation(final LdbcShortQuery3PersonFriends operation,
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = txRetry(operation);
+      while (retry.attempt()) {
         Graph client = ((TorcDbConnectionState) dbConnectionState).getClient();
 
         List<LdbcShortQuery3PersonFriendsResult> result = new ArrayList<>();
@@ -3146,17 +3354,17 @@ public class TorcDb extends Db {
           }
         });
 
-        if (doTransactionalReads) {
+        if (doTransactionalReads || doSnapshotReads) {
           try {
             client.tx().commit();
           } catch (RuntimeException e) {
-            txAttempts++;
             continue;
           }
         } else {
           client.tx().rollback();
         }
 
+        retry.committed();
         resultReporter.report(result.size(), result, operation);
         break;
       }
@@ -3178,8 +3386,8 @@ public class TorcDb extends Db {
     public void executeOperation(final LdbcShortQuery4MessageContent operation,
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = txRetry(operation);
+      while (retry.attempt()) {
         Graph client = ((TorcDbConnectionState) dbConnectionState).getClient();
 
         Vertex message = client.vertices(
@@ -3198,17 +3406,17 @@ public class TorcDb extends Db {
                 content,
                 creationDate);
 
-        if (doTransactionalReads) {
+        if (doTransactionalReads || doSnapshotReads) {
           try {
             client.tx().commit();
           } catch (RuntimeException e) {
-            txAttempts++;
             continue;
           }
         } else {
           client.tx().rollback();
         }
 
+        retry.committed();
         resultReporter.report(1, result, operation);
         break;
       }
@@ -3229,8 +3437,8 @@ public class TorcDb extends Db {
     public void executeOperation(final LdbcShortQuery5MessageCreator operation,
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = txRetry(operation);
+      while (retry.attempt()) {
         Graph client = ((TorcDbConnectionState) dbConnectionState).getClient();
 
         Vertex message = client.vertices(
@@ -3255,17 +3463,17 @@ public class TorcDb extends Db {
                 creatorFirstName,
                 creatorLastName);
 
-        if (doTransactionalReads) {
+        if (doTransactionalReads || doSnapshotReads) {
           try {
             client.tx().commit();
           } catch (RuntimeException e) {
-            txAttempts++;
             continue;
           }
         } else {
           client.tx().rollback();
         }
 
+        retry.committed();
         resultReporter.report(1, result, operation);
         break;
       }
@@ -3289,14 +3497,24 @@ public class TorcDb extends Db {
     public void executeOperation(final LdbcShortQuery6MessageForum operation,
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = txRetry(operation);
+      while (retry.attempt()) {
         Graph client = ((TorcDbConnectionState) dbConnectionState).getClient();
 
         Vertex vertex = client.vertices(
             new UInt128(TorcEntity.COMMENT.idSpace, operation.messageId()))
             .next();
 
+        // Skip straight to the root Post if the Comment knows what it is.
+        if (vertex.label().equals(TorcEntity.COMMENT.label)) {
+          VertexProperty<Long> rootPost = vertex.<Long>property("rootPost");
+          if (rootPost.isPresent()) {
+            vertex = client.vertices(
+                new UInt128(TorcEntity.POST.idSpace, rootPost.value()))
+                .next();
+          }
+        }
+
         LdbcShortQuery6MessageForumResult result;
         while (true) {
           if (vertex.label().equals(TorcEntity.FORUM.label)) {
@@ -3336,17 +3554,17 @@ public class TorcDb extends Db {
           }
         }
 
-        if (doTransactionalReads) {
+        if (doTransactionalReads || doSnapshotReads) {
           try {
             client.tx().commit();
           } catch (RuntimeException e) {
-            txAttempts++;
             continue;
           }
         } else {
           client.tx().rollback();
         }
 
+        retry.committed();
         resultReporter.report(1, result, operation);
         break;
       }
@@ -3371,8 +3589,8 @@ public class TorcDb extends Db {
     public void executeOperation(final LdbcShortQuery7MessageReplies operation,
         DbConnectionState dbConnectionState,
         ResultReporter resultReporter) throws DbException {
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = txRetry(operation);
+      while (retry.attempt()) {
         Graph client = ((TorcDbConnectionState) dbConnectionState).getClient();
 
         Vertex message = client.vertices(
@@ -3458,17 +3676,17 @@ public class TorcDb extends Db {
           }
         });
 
-        if (doTransactionalReads) {
+        if (doTransactionalReads || doSnapshotReads) {
           try {
             client.tx().commit();
           } catch (RuntimeException e) {
-            txAttempts++;
             continue;
           }
         } else {
           client.tx().rollback();
         }
 
+        retry.committed();
         resultReporter.report(result.size(), result, operation);
         break;
       }
@@ -3539,9 +3757,8 @@ public class TorcDb extends Db {
         personKeyValues.add(email);
       }
 
-      boolean txSucceeded = false;
-      int txFailCount = 0;
-      do {
+      TxRetry retry = txRetry(operation);
+      while (retry.attempt()) {
         // Add person
         Vertex person = client.addVertex(personKeyValues.toArray());
 
@@ -3586,17 +3803,18 @@ public class TorcDb extends Db {
 
         try {
           client.tx().commit();
-          txSucceeded = true;
+          retry.committed();
+          break;
         } catch (Exception e) {
-          txFailCount++;
+          // Try again if the retry policy allows.
         }
+      }
 
-        if (txFailCount >= MAX_TX_ATTEMPTS) {
-          throw new RuntimeException(String.format(
-              "ERROR: Transaction failed %d times, aborting...",
-              txFailCount));
-        }
-      } while (!txSucceeded);
+      if (!retry.succeeded()) {
+        throw new RuntimeException(String.format(
+            "ERROR: Transaction failed %d times, aborting...",
+            retry.attempts()));
+      }
 
       reporter.report(0, LdbcNoResult.INSTANCE, operation);
     }
@@ -3626,9 +3844,8 @@ public class TorcDb extends Db {
       UInt128 postId =
           new UInt128(TorcEntity.POST.idSpace, operation.postId());
 
-      boolean txSucceeded = false;
-      int txFailCount = 0;
-      do {
+      TxRetry retry = txRetry(operation);
+      while (retry.attempt()) {
         Iterator<Vertex> results = client.vertices(personId, postId);
         Vertex person = results.next();
         Vertex post = results.next();
@@ -3639,17 +3856,18 @@ public class TorcDb extends Db {
 
         try {
           client.tx().commit();
-          txSucceeded = true;
+          retry.committed();
+          break;
         } catch (Exception e) {
-          txFailCount++;
+          // Try again if the retry policy allows.
         }
+      }
 
-        if (txFailCount >= MAX_TX_ATTEMPTS) {
-          throw new RuntimeException(String.format(
-              "ERROR: Transaction failed %d times, aborting...",
-              txFailCount));
-        }
-      } while (!txSucceeded);
+      if (!retry.succeeded()) {
+        throw new RuntimeException(String.format(
+            "ERROR: Transaction failed %d times, aborting...",
+            retry.attempts()));
+      }
 
       reporter.report(0, LdbcNoResult.INSTANCE, operation);
     }
@@ -3679,9 +3897,8 @@ public class TorcDb extends Db {
       UInt128 commentId =
           new UInt128(TorcEntity.COMMENT.idSpace, operation.commentId());
 
-      boolean txSucceeded = false;
-      int txFailCount = 0;
-      do {
+      TxRetry retry = txRetry(operation);
+      while (retry.attempt()) {
         Iterator<Vertex> results = client.vertices(personId, commentId);
         Vertex person = results.next();
         Vertex comment = results.next();
@@ -3692,17 +3909,18 @@ public class TorcDb extends Db {
 
         try {
           client.tx().commit();
-          txSucceeded = true;
+          retry.committed();
+          break;
         } catch (Exception e) {
-          txFailCount++;
+          // Try again if the retry policy allows.
         }
+      }
 
-        if (txFailCount >= MAX_TX_ATTEMPTS) {
-          throw new RuntimeException(String.format(
-              "ERROR: Transaction failed %d times, aborting...",
-              txFailCount));
-        }
-      } while (!txSucceeded);
+      if (!retry.succeeded()) {
+        throw new RuntimeException(String.format(
+            "ERROR: Transaction failed %d times, aborting...",
+            retry.attempts()));
+      }
 
       reporter.report(0, LdbcNoResult.INSTANCE, operation);
     }
@@ -3738,9 +3956,8 @@ public class TorcDb extends Db {
       forumKeyValues.add("creationDate");
       forumKeyValues.add(new Long(operation.creationDate().getTime()));
 
-      boolean txSucceeded = false;
-      int txFailCount = 0;
-      do {
+      TxRetry retry = txRetry(operation);
+      while (retry.attempt()) {
         Vertex forum = client.addVertex(forumKeyValues.toArray());
 
         List<UInt128> ids = new ArrayList<>(operation.tagIds().size() + 1);
@@ -3764,17 +3981,18 @@ public class TorcDb extends Db {
 
         try {
           client.tx().commit();
-          txSucceeded = true;
+          retry.committed();
+          break;
         } catch (Exception e) {
-          txFailCount++;
+          // Try again if the retry policy allows.
         }
+      }
 
-        if (txFailCount >= MAX_TX_ATTEMPTS) {
-          throw new RuntimeException(String.format(
-              "ERROR: Transaction failed %d times, aborting...",
-              txFailCount));
-        }
-      } while (!txSucceeded);
+      if (!retry.succeeded()) {
+        throw new RuntimeException(String.format(
+            "ERROR: Transaction failed %d times, aborting...",
+            retry.attempts()));
+      }
 
       reporter.report(0, LdbcNoResult.INSTANCE, operation);
     }
@@ -3803,9 +4021,8 @@ public class TorcDb extends Db {
       ids.add(new UInt128(TorcEntity.FORUM.idSpace, operation.forumId()));
       ids.add(new UInt128(TorcEntity.PERSON.idSpace, operation.personId()));
 
-      boolean txSucceeded = false;
-      int txFailCount = 0;
-      do {
+      TxRetry retry = txRetry(operation);
+      while (retry.attempt()) {
         Iterator<Vertex> vItr = client.vertices(ids.toArray());
         Vertex forum = vItr.next();
         Vertex member = vItr.next();
@@ -3818,17 +4035,18 @@ public class TorcDb extends Db {
 
         try {
           client.tx().commit();
-          txSucceeded = true;
+          retry.committed();
+          break;
         } catch (Exception e) {
-          txFailCount++;
+          // Try again if the retry policy allows.
         }
+      }
 
-        if (txFailCount >= MAX_TX_ATTEMPTS) {
-          throw new RuntimeException(String.format(
-              "ERROR: Transaction failed %d times, aborting...",
-              txFailCount));
-        }
-      } while (!txSucceeded);
+      if (!retry.succeeded()) {
+        throw new RuntimeException(String.format(
+            "ERROR: Transaction failed %d times, aborting...",
+            retry.attempts()));
+      }
 
       reporter.report(0, LdbcNoResult.INSTANCE, operation);
     }
@@ -3874,9 +4092,8 @@ public class TorcDb extends Db {
       postKeyValues.add("length");
       postKeyValues.add(new Integer(operation.length()));
 
-      boolean txSucceeded = false;
-      int txFailCount = 0;
-      do {
+      TxRetry retry = txRetry(operation);
+      while (retry.attempt()) {
         Vertex post = client.addVertex(postKeyValues.toArray());
 
         List<UInt128> ids = new ArrayList<>(2);
@@ -3906,17 +4123,18 @@ public class TorcDb extends Db {
 
         try {
           client.tx().commit();
-          txSucceeded = true;
+          retry.committed();
+          break;
         } catch (Exception e) {
-          txFailCount++;
+          // Try again if the retry policy allows.
         }
+      }
 
-        if (txFailCount >= MAX_TX_ATTEMPTS) {
-          throw new RuntimeException(String.format(
-              "ERROR: Transaction failed %d times, aborting...",
-              txFailCount));
-        }
-      } while (!txSucceeded);
+      if (!retry.succeeded()) {
+        throw new RuntimeException(String.format(
+            "ERROR: Transaction failed %d times, aborting...",
+            retry.attempts()));
+      }
 
       reporter.report(0, LdbcNoResult.INSTANCE, operation);
     }
@@ -3941,7 +4159,7 @@ public class TorcDb extends Db {
 
       Graph client = ((TorcDbConnectionState) dbConnectionState).getClient();
 
-      List<Object> commentKeyValues = new ArrayList<>(14);
+      List<Object> commentKeyValues = new ArrayList<>(16);
       commentKeyValues.add(T.id);
       commentKeyValues.add(
           new UInt128(TorcEntity.COMMENT.idSpace, operation.commentId()));
@@ -3957,11 +4175,28 @@ public class TorcDb extends Db {
       commentKeyValues.add(operation.content());
       commentKeyValues.add("length");
       commentKeyValues.add(new Integer(operation.length()));
+      if (operation.replyToCommentId() == -1) {
+        commentKeyValues.add("rootPost");
+        commentKeyValues.add(new Long(operation.replyToPostId()));
+      }
+
+      TxRetry retry = txRetry(operation);
+      while (retry.attempt()) {
+        // Replies to Comments inherit the root Post of their parent.
+        List<Object> keyValues = commentKeyValues;
+        if (operation.replyToCommentId() != -1) {
+          Vertex parent = client.vertices(new UInt128(
+              TorcEntity.COMMENT.idSpace, operation.replyToCommentId()))
+              .next();
+          VertexProperty<Long> rootPost = parent.<Long>property("rootPost");
+          if (rootPost.isPresent()) {
+            keyValues = new ArrayList<>(commentKeyValues);
+            keyValues.add("rootPost");
+            keyValues.add(rootPost.value());
+          }
+        }
 
-      boolean txSucceeded = false;
-      int txFailCount = 0;
-      do {
-        Vertex comment = client.addVertex(commentKeyValues.toArray());
+        Vertex comment = client.addVertex(keyValues.toArray());
 
         List<UInt128> ids = new ArrayList<>(2);
         ids.add(new UInt128(TorcEntity.PERSON.idSpace,
@@ -3999,17 +4234,18 @@ public class TorcDb extends Db {
 
         try {
           client.tx().commit();
-          txSucceeded = true;
+          retry.committed();
+          break;
         } catch (Exception e) {
-          txFailCount++;
+          // Try again if the retry policy allows.
         }
+      }
 
-        if (txFailCount >= MAX_TX_ATTEMPTS) {
-          throw new RuntimeException(String.format(
-              "ERROR: Transaction failed %d times, aborting...",
-              txFailCount));
-        }
-      } while (!txSucceeded);
+      if (!retry.succeeded()) {
+        throw new RuntimeException(String.format(
+            "ERROR: Transaction failed %d times, aborting...",
+            retry.attempts()));
+      }
 
       reporter.report(0, LdbcNoResult.INSTANCE, operation);
     }
@@ -4042,9 +4278,8 @@ public class TorcDb extends Db {
       ids.add(new UInt128(TorcEntity.PERSON.idSpace, operation.person1Id()));
       ids.add(new UInt128(TorcEntity.PERSON.idSpace, operation.person2Id()));
 
-      boolean txSucceeded = false;
-      int txFailCount = 0;
-      do {
+      TxRetry retry = txRetry(operation);
+      while (retry.attempt()) {
         Iterator<Vertex> vItr = client.vertices(ids.toArray());
 
         Vertex person1 = vItr.next();
@@ -4055,17 +4290,18 @@ public class TorcDb extends Db {
 
         try {
           client.tx().commit();
-          txSucceeded = true;
+          retry.committed();
+          break;
         } catch (Exception e) {
-          txFailCount++;
+          // Try again if the retry policy allows.
         }
+      }
 
-        if (txFailCount >= MAX_TX_ATTEMPTS) {
-          throw new RuntimeException(String.format(
-              "ERROR: Transaction failed %d times, aborting...",
-              txFailCount));
-        }
-      } while (!txSucceeded);
+      if (!retry.succeeded()) {
+        throw new RuntimeException(String.format(
+            "ERROR: Transaction failed %d times, aborting...",
+            retry.attempts()));
+      }
 
       reporter.report(0, LdbcNoResult.INSTANCE, operation);
     }
@@ -16,6 +16,8 @@
  */
 package net.ellitron.ldbcsnbimpls.interactive.torc;
 
+import net.ellitron.ldbcsnbimpls.interactive.core.VirtualThreads;
+import net.ellitron.ldbcsnbimpls.interactive.nop.LoopbackHandlers;
 import net.ellitron.ldbcsnbimpls.interactive.torc.TorcDb.*;
 import net.ellitron.ldbcsnbimpls.interactive.torc.TorcDbClient.*;
 import net.ellitron.ldbcsnbimpls.interactive.torc.LdbcSerializableQueriesAndResults.*;
@@ -101,6 +103,7 @@ public class TorcDbServer {
       + "\n"
       + "Usage:\n"
       + "  TorcDbServer [options] COORDLOC GRAPHNAME\n"
+      + "  TorcDbServer [options] --loopback\n"
       + "  TorcDbServer (-h | --help)\n"
       + "  TorcDbServer --version\n"
       + "\n"
@@ -111,6 +114,21 @@ public class TorcDbServer {
       + "Options:\n"
       + "  --port=<n>        Port on which to listen for new connections.\n"
       + "                    [default: 5577].\n"
+      + "  --loopback        Instead of executing queries against TorcDB,\n"
+      + "                    answer them with synthetic results of realistic\n"
+      + "                    size, for measuring client/server transport on\n"
+      + "                    its own.\n"
+      + "  --loopbackResultSize=<d>  Distribution of the number of results of\n"
+      + "                    queries returning lists, capped at each query's\n"
+      + "                    limit (fixed:n, uniform:min:max, exponential:mean\n"
+      + "                    or limit) [default: limit].\n"
+      + "  --loopbackContentSize=<d>  Distribution of the length of message\n"
+      + "                    contents in results [default: uniform:0:200].\n"
+      + "  --loopbackServiceMicros=<d>  Distribution of the time each query\n"
+      + "                    takes to execute [default: fixed:0].\n"
+      + "  --virtualThreads  Serve each client connection on a virtual thread\n"
+      + "                    instead of a platform thread. Requires Java 21\n"
+      + "                    or later, otherwise platform threads are used.\n"
       + "  --verbose         Print verbose output to stdout.\n"
       + "  -h --help         Show this screen.\n"
       + "  --version         Show version.\n"
@@ -132,13 +150,18 @@ public class TorcDbServer {
     private final ConcurrentErrorReporter concurrentErrorReporter;
     private int clientID = 1;
 
+    // Whether to serve clients on virtual threads.
+    private final boolean virtualThreads;
+
     public ListenerThread(int port, TorcDbConnectionState connectionState,
         Map<Class<? extends Operation>, OperationHandler> queryHandlerMap,
-        ConcurrentErrorReporter concurrentErrorReporter) {
+        ConcurrentErrorReporter concurrentErrorReporter,
+        boolean virtualThreads) {
       this.port = port;
       this.connectionState = connectionState;
       this.queryHandlerMap = queryHandlerMap;
       this.concurrentErrorReporter = concurrentErrorReporter;
+      this.virtualThreads = virtualThreads;
     }
 
     @Override
@@ -153,9 +176,9 @@ public class TorcDbServer {
 
           System.out.println("Client connected: " + client.toString());
 
-          Thread clientThread = new Thread(new ClientThread(client, 
+          Thread clientThread = VirtualThreads.newThread(new ClientThread(client, 
                concurrentErrorReporter, connectionState, queryHandlerMap,
-               clientID));
+               clientID), virtualThreads);
 
           clientThread.start();
 
@@ -614,67 +637,84 @@ public class TorcDbServer {
     final String coordinatorLocator = (String) opts.get("COORDLOC");
     final String graphName = (String) opts.get("GRAPHNAME");
     final int port = Integer.decode((String) opts.get("--port"));
+    final boolean virtualThreads =
+        VirtualThreads.resolve((Boolean) opts.get("--virtualThreads"));
+    final boolean loopback = (Boolean) opts.get("--loopback");
 
     System.out.println(String.format("TorcDbServer: {coordinatorLocator: %s, "
-        + "graphName: %s, port: %d}",
+        + "graphName: %s, port: %d, virtualThreads: %s, loopback: %s}",
         coordinatorLocator,
         graphName,
-        port));
-   
-    // Connect to database. 
-    Map<String, String> props = new HashMap<>();
-    props.put("coordinatorLocator", coordinatorLocator);
-    props.put("graphName", graphName);
-    System.out.println("Connecting to TorcDB...");
-    TorcDbConnectionState connectionState = new TorcDbConnectionState(props);
+        port,
+        virtualThreads,
+        loopback));
+
+    // Connect to database. In loopback mode queries are answered by
+    // LoopbackHandlers, which don't use a connection state.
+    TorcDbConnectionState connectionState = null;
+    if (!loopback) {
+      Map<String, String> props = new HashMap<>();
+      props.put("coordinatorLocator", coordinatorLocator);
+      props.put("graphName", graphName);
+      System.out.println("Connecting to TorcDB...");
+      connectionState = new TorcDbConnectionState(props);
+    }
 
     // Create mapping from op type to op handler for processing requests.
     Map<Class<? extends Operation>, OperationHandler> queryHandlerMap = 
         new HashMap<>();
-    queryHandlerMap.put(LdbcQuery1.class, new TorcDb.LdbcQuery1Handler());
-    queryHandlerMap.put(LdbcQuery2.class, new TorcDb.LdbcQuery2Handler());
-    queryHandlerMap.put(LdbcQuery3.class, new TorcDb.LdbcQuery3Handler());
-    queryHandlerMap.put(LdbcQuery4.class, new TorcDb.LdbcQuery4Handler());
-    queryHandlerMap.put(LdbcQuery5.class, new TorcDb.LdbcQuery5Handler());
-    queryHandlerMap.put(LdbcQuery6.class, new TorcDb.LdbcQuery6Handler());
-    queryHandlerMap.put(LdbcQuery7.class, new TorcDb.LdbcQuery7Handler());
-    queryHandlerMap.put(LdbcQuery8.class, new TorcDb.LdbcQuery8Handler());
-    queryHandlerMap.put(LdbcQuery9.class, new TorcDb.LdbcQuery9Handler());
-    queryHandlerMap.put(LdbcQuery10.class, new TorcDb.LdbcQuery10Handler());
-    queryHandlerMap.put(LdbcQuery11.class, new TorcDb.LdbcQuery11Handler());
-    queryHandlerMap.put(LdbcQuery12.class, new TorcDb.LdbcQuery12Handler());
-    queryHandlerMap.put(LdbcQuery13.class, new TorcDb.LdbcQuery13Handler());
-    queryHandlerMap.put(LdbcQuery14.class, new TorcDb.LdbcQuery14Handler());
-    queryHandlerMap.put(LdbcShortQuery1PersonProfile.class, 
-        new TorcDb.LdbcShortQuery1PersonProfileHandler());
-    queryHandlerMap.put(LdbcShortQuery2PersonPosts.class, 
-        new TorcDb.LdbcShortQuery2PersonPostsHandler());
-    queryHandlerMap.put(LdbcShortQuery3PersonFriends.class, 
-        new TorcDb.LdbcShortQuery3PersonFriendsHandler());
-    queryHandlerMap.put(LdbcShortQuery4MessageContent.class, 
-        new TorcDb.LdbcShortQuery4MessageContentHandler());
-    queryHandlerMap.put(LdbcShortQuery5MessageCreator.class, 
-        new TorcDb.LdbcShortQuery5MessageCreatorHandler());
-    queryHandlerMap.put(LdbcShortQuery6MessageForum.class, 
-        new TorcDb.LdbcShortQuery6MessageForumHandler());
-    queryHandlerMap.put(LdbcShortQuery7MessageReplies.class, 
-        new TorcDb.LdbcShortQuery7MessageRepliesHandler());
-    queryHandlerMap.put(LdbcUpdate1AddPerson.class, 
-        new TorcDb.LdbcUpdate1AddPersonHandler());
-    queryHandlerMap.put(LdbcUpdate2AddPostLike.class, 
-        new TorcDb.LdbcUpdate2AddPostLikeHandler());
-    queryHandlerMap.put(LdbcUpdate3AddCommentLike.class, 
-        new TorcDb.LdbcUpdate3AddCommentLikeHandler());
-    queryHandlerMap.put(LdbcUpdate4AddForum.class, 
-        new TorcDb.LdbcUpdate4AddForumHandler());
-    queryHandlerMap.put(LdbcUpdate5AddForumMembership.class, 
-        new TorcDb.LdbcUpdate5AddForumMembershipHandler());
-    queryHandlerMap.put(LdbcUpdate6AddPost.class, 
-        new TorcDb.LdbcUpdate6AddPostHandler());
-    queryHandlerMap.put(LdbcUpdate7AddComment.class, 
-        new TorcDb.LdbcUpdate7AddCommentHandler());
-    queryHandlerMap.put(LdbcUpdate8AddFriendship.class, 
-        new TorcDb.LdbcUpdate8AddFriendshipHandler());
+    if (loopback) {
+      Map<String, String> loopbackProps = new HashMap<>();
+      loopbackProps.put("resultSize", (String) opts.get("--loopbackResultSize"));
+      loopbackProps.put("contentSize", (String) opts.get("--loopbackContentSize"));
+      loopbackProps.put("serviceMicros", (String) opts.get("--loopbackServiceMicros"));
+      queryHandlerMap.putAll(new LoopbackHandlers(loopbackProps).handlers());
+    } else {
+      queryHandlerMap.put(LdbcQuery1.class, new TorcDb.LdbcQuery1Handler());
+      queryHandlerMap.put(LdbcQuery2.class, new TorcDb.LdbcQuery2Handler());
+      queryHandlerMap.put(LdbcQuery3.class, new TorcDb.LdbcQuery3Handler());
+      queryHandlerMap.put(LdbcQuery4.class, new TorcDb.LdbcQuery4Handler());
+      queryHandlerMap.put(LdbcQuery5.class, new TorcDb.LdbcQuery5Handler());
+      queryHandlerMap.put(LdbcQuery6.class, new TorcDb.LdbcQuery6Handler());
+      queryHandlerMap.put(LdbcQuery7.class, new TorcDb.LdbcQuery7Handler());
+      queryHandlerMap.put(LdbcQuery8.class, new TorcDb.LdbcQuery8Handler());
+      queryHandlerMap.put(LdbcQuery9.class, new TorcDb.LdbcQuery9Handler());
+      queryHandlerMap.put(LdbcQuery10.class, new TorcDb.LdbcQuery10Handler());
+      queryHandlerMap.put(LdbcQuery11.class, new TorcDb.LdbcQuery11Handler());
+      queryHandlerMap.put(LdbcQuery12.class, new TorcDb.LdbcQuery12Handler());
+      queryHandlerMap.put(LdbcQuery13.class, new TorcDb.LdbcQuery13Handler());
+      queryHandlerMap.put(LdbcQuery14.class, new TorcDb.LdbcQuery14Handler());
+      queryHandlerMap.put(LdbcShortQuery1PersonProfile.class, 
+          new TorcDb.LdbcShortQuery1PersonProfileHandler());
+      queryHandlerMap.put(LdbcShortQuery2PersonPosts.class, 
+          new TorcDb.LdbcShortQuery2PersonPostsHandler());
+      queryHandlerMap.put(LdbcShortQuery3PersonFriends.class, 
+          new TorcDb.LdbcShortQuery3PersonFriendsHandler());
+      queryHandlerMap.put(LdbcShortQuery4MessageContent.class, 
+          new TorcDb.LdbcShortQuery4MessageContentHandler());
+      queryHandlerMap.put(LdbcShortQuery5MessageCreator.class, 
+          new TorcDb.LdbcShortQuery5MessageCreatorHandler());
+      queryHandlerMap.put(LdbcShortQuery6MessageForum.class, 
+          new TorcDb.LdbcShortQuery6MessageForumHandler());
+      queryHandlerMap.put(LdbcShortQuery7MessageReplies.class, 
+          new TorcDb.LdbcShortQuery7MessageRepliesHandler());
+      queryHandlerMap.put(LdbcUpdate1AddPerson.class, 
+          new TorcDb.LdbcUpdate1AddPersonHandler());
+      queryHandlerMap.put(LdbcUpdate2AddPostLike.class, 
+          new TorcDb.LdbcUpdate2AddPostLikeHandler());
+      queryHandlerMap.put(LdbcUpdate3AddCommentLike.class, 
+          new TorcDb.LdbcUpdate3AddCommentLikeHandler());
+      queryHandlerMap.put(LdbcUpdate4AddForum.class, 
+          new TorcDb.LdbcUpdate4AddForumHandler());
+      queryHandlerMap.put(LdbcUpdate5AddForumMembership.class, 
+          new TorcDb.LdbcUpdate5AddForumMembershipHandler());
+      queryHandlerMap.put(LdbcUpdate6AddPost.class, 
+          new TorcDb.LdbcUpdate6AddPostHandler());
+      queryHandlerMap.put(LdbcUpdate7AddComment.class, 
+          new TorcDb.LdbcUpdate7AddCommentHandler());
+      queryHandlerMap.put(LdbcUpdate8AddFriendship.class, 
+          new TorcDb.LdbcUpdate8AddFriendshipHandler());
+    }
     
     // Presumably for reporting LDBC driver errors.
     ConcurrentErrorReporter concurrentErrorReporter = 
@@ -682,7 +722,7 @@ public class TorcDbServer {
 
     // Listener thread accepts connections and spawns client threads.
     Thread listener = new Thread(new ListenerThread(port, connectionState,
-          queryHandlerMap, concurrentErrorReporter));
+          queryHandlerMap, concurrentErrorReporter, virtualThreads));
     listener.start();
     listener.join();
   }
@@ -16,6 +16,7 @@
  */
 package net.ellitron.ldbcsnbimpls.interactive.torc.util;
 
+import net.ellitron.ldbcsnbimpls.interactive.core.LongLongHashMap;
 import net.ellitron.ldbcsnbimpls.interactive.core.SnbEntity;
 import net.ellitron.ldbcsnbimpls.interactive.core.SnbRelation;
 import net.ellitron.ldbcsnbimpls.interactive.torc.TorcEntity;
@@ -69,6 +70,12 @@ public class ImageMaker {
 
   private static final Logger logger = Logger.getLogger(ImageMaker.class);
 
+  /*
+   * Default value for lookups of entity IDs in a LongLongHashMap, returned
+   * for IDs not in the map. SNB entity IDs are never negative.
+   */
+  private static final long MISSING_ID = -1;
+
   private static final String doc =
       "ImageMaker: A utility for converting dataset files generated by the\n"
       + "LDBC SNB Data Generator into TorcDB image files. Nodes and edges can\n"
@@ -257,6 +264,13 @@ public class ImageMaker {
     private final int threadIdx;
     private final ThreadStats stats;
 
+    /*
+     * Map from Comment ID to the ID of the Post at the root of its reply
+     * tree, stored as the "rootPost" property of Comment vertices. Null if
+     * we're not loading vertices.
+     */
+    private final LongLongHashMap rootPosts;
+
     /*
      * Used for parsing dates in the original dataset files output by the data
      * generator, and converting them to milliseconds since Jan. 1 9170. We
@@ -281,14 +295,17 @@ public class ImageMaker {
      * @param threadIdx The index of this particular loader thread.
      * @param stats ThreadStats instance to update with loading statistics
      * info.
+     * @param rootPosts Map from Comment ID to root Post ID.
      */
     public LoaderThread(TorcGraph graph, List<LoadUnit> loadList, 
-        int totalThreads, int threadIdx, ThreadStats stats) {
+        int totalThreads, int threadIdx, ThreadStats stats,
+        LongLongHashMap rootPosts) {
       this.graph = graph;
       this.loadList = loadList;
       this.totalThreads = totalThreads;
       this.threadIdx = threadIdx;
       this.stats = stats;
+      this.rootPosts = rootPosts;
 
       this.birthdayDateFormat =
           new SimpleDateFormat("yyyy-MM-dd");
@@ -399,6 +416,13 @@ public class ImageMaker {
                 }
               }
 
+              if (snbEntity == SnbEntity.COMMENT && rootPosts != null) {
+                long rootPost =
+                    rootPosts.get(vertexId.getLowerLong(), MISSING_ID);
+                if (rootPost != MISSING_ID)
+                  propMap.put("rootPost", rootPost);
+              }
+
               graph.loadVertex(vertexId, vertexLabel, propMap);
 
               localLinesProcessed++;
@@ -680,6 +704,94 @@ public class ImageMaker {
     }
   }
 
+  /**
+   * Reads the edge list files of the given relation out of dir into a map
+   * from tail vertex ID to head vertex ID. Only makes sense for relations
+   * where each tail has at most one head.
+   */
+  private static void readEdgeList(File dir, SnbRelation snbRelation,
+      LongLongHashMap edges) {
+    File[] fileList = dir.listFiles(new FilenameFilter() {
+          @Override
+          public boolean accept(File dir, String name) {
+            return name.matches(
+                "^" + snbRelation.tail.name + 
+                "_" + snbRelation.name + 
+                "_" + snbRelation.head.name + 
+                "_[0-9]+_[0-9]+\\.csv");
+          }
+        });
+
+    if (fileList == null)
+      throw new RuntimeException(String.format("Cannot list directory %s. "
+          + "Does it exist and is it readable?", dir.getPath()));
+
+    for (File f : fileList) {
+      Path path = f.toPath();
+      try (BufferedReader inFile =
+          Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+        // Skip the header line.
+        inFile.readLine();
+
+        String line;
+        while ((line = inFile.readLine()) != null) {
+          String[] fieldValues = line.split("\\|");
+          edges.put(Long.decode(fieldValues[0]), Long.decode(fieldValues[1]));
+        }
+      } catch (IOException ex) {
+        throw new RuntimeException(String.format("Encountered error reading "
+            + "file %s", path.getFileName()), ex);
+      }
+    }
+  }
+
+  /**
+   * Computes the root Post of every Comment in the dataset from the replyOf
+   * edge lists. Comments replying directly to a Post have that Post as their
+   * root. Comments replying to a Comment have the same root as their parent,
+   * which we find by walking up the reply tree until we reach a Comment whose
+   * root is already known, and then fill in the root for every Comment on the
+   * way.
+   *
+   * Both maps here have an entry per Comment in the dataset, so we use
+   * primitive long maps rather than HashMaps of boxed Longs to keep this
+   * within memory for large scale factors.
+   *
+   * @param baseFilesDir Directory containing the original SNB dataset files.
+   *
+   * @return Map from Comment ID to root Post ID.
+   */
+  private static LongLongHashMap readRootPosts(File baseFilesDir) {
+    LongLongHashMap rootPosts = new LongLongHashMap();
+    LongLongHashMap parentComments = new LongLongHashMap();
+    readEdgeList(baseFilesDir, SnbRelation.REPLYOF_COMMENT_POST, rootPosts);
+    readEdgeList(baseFilesDir, SnbRelation.REPLYOF_COMMENT_COMMENT,
+        parentComments);
+
+    List<Long> walked = new ArrayList<>();
+    parentComments.forEach((commentId, parentId) -> {
+      long c = commentId;
+      long root = rootPosts.get(c, MISSING_ID);
+      while (root == MISSING_ID && c != MISSING_ID) {
+        walked.add(c);
+        c = parentComments.get(c, MISSING_ID);
+        if (c != MISSING_ID)
+          root = rootPosts.get(c, MISSING_ID);
+      }
+
+      if (root != MISSING_ID)
+        for (Long w : walked)
+          rootPosts.put(w, root);
+
+      walked.clear();
+    });
+
+    System.out.println(String.format("Computed root posts for %d comments",
+        rootPosts.size()));
+
+    return rootPosts;
+  }
+
   public static void main(String[] args)
       throws FileNotFoundException, IOException, ParseException, InterruptedException {
     Map<String, Object> opts =
@@ -716,7 +828,10 @@ public class ImageMaker {
     File baseFilesDir = new File(baseFilesInputDir);
     File suppFilesDir = new File(suppFilesInputDir);
     int totalNodeFiles = 0;
+    LongLongHashMap rootPosts = null;
     if (mode.equals("all") || mode.equals("nodes")) {
+      rootPosts = readRootPosts(baseFilesDir);
+
       for (SnbEntity snbEntity : SnbEntity.values()) {
         File [] fileList;
         if (snbEntity.name == "person") {
@@ -881,7 +996,8 @@ public class ImageMaker {
       TorcGraph graph = TorcGraph.open(torcConfig);
 
       threads.add(new Thread(new LoaderThread(graph, loadList,
-          numLoaders * numThreads, loaderIdx * numThreads + i, stats)));
+          numLoaders * numThreads, loaderIdx * numThreads + i, stats,
+          rootPosts)));
 
       threads.get(i).start();
 
@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2019 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.torcdb2;
+
+import net.ellitron.ldbcsnbimpls.interactive.core.SnbEntity;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory index from Person ID to the (month, day) of that Person's
+ * birthday, used by LdbcQuery10 to filter friends of friends by birthday
+ * without fetching the birthday property of each one and running it through
+ * a Calendar.
+ *
+ * Entries are packed into a short as (month << 5) | day, where month is zero
+ * based and day starts from 1, and stored in an open addressing hash table
+ * keyed on the raw Person ID. The index is populated at startup from the
+ * person files of the dataset and then kept up to date by
+ * LdbcUpdate1AddPersonHandler. Persons added through another server process
+ * will not be in this index, so lookups can return MISSING and callers must be
+ * prepared to fall back to fetching the birthday from the database.
+ *
+ * @author Jonathan Ellithorpe (jde@cs.stanford.edu)
+ */
+public class BirthdayIndex {
+
+  /*
+   * Value returned by get() for persons that are not in the index.
+   */
+  public static final int MISSING = -1;
+
+  private static final long EMPTY_KEY = Long.MIN_VALUE;
+
+  private long[] keys;
+  private short[] vals;
+  private int size;
+
+  private final ReadWriteLock lock;
+
+  /*
+   * Used for turning birthdays added via updates into (month, day) pairs.
+   * Dates are stored in GMT in TorcDB2. Only used while holding the write
+   * lock.
+   */
+  private final Calendar calendar;
+
+  /**
+   * Constructor for BirthdayIndex. Reads the "id" and "birthday" columns of
+   * the person files found in the given directory.
+   *
+   * @param personDir Directory containing person_[0-9]+_[0-9]+.csv files.
+   */
+  public BirthdayIndex(File personDir) {
+    this.keys = new long[1 << 16];
+    this.vals = new short[1 << 16];
+    Arrays.fill(keys, EMPTY_KEY);
+    this.size = 0;
+    this.lock = new ReentrantReadWriteLock();
+    this.calendar = Calendar.getInstance(TimeZone.getTimeZone("GMT"));
+
+    File[] fileList = personDir.listFiles(new FilenameFilter() {
+          @Override
+          public boolean accept(File dir, String name) {
+            return name.matches("^" + SnbEntity.PERSON.name + "_[0-9]+_[0-9]+\\.csv");
+          }
+        });
+
+    if (fileList == null || fileList.length == 0)
+      throw new RuntimeException(String.format("Error: Missing files for %s in %s",
+            SnbEntity.PERSON.name, personDir.getPath()));
+
+    for (File f : fileList) {
+      Path path = f.toPath();
+      try (BufferedReader inFile = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+        // First line of the file contains the column headers.
+        List<String> fieldNames = Arrays.asList(inFile.readLine().split("\\|"));
+        int idIdx = fieldNames.indexOf("id");
+        int birthdayIdx = fieldNames.indexOf("birthday");
+        if (idIdx == -1 || birthdayIdx == -1)
+          throw new RuntimeException(String.format("Error: Missing id or birthday column in "
+                + "file %s", path.getFileName()));
+
+        String line;
+        while ((line = inFile.readLine()) != null) {
+          String[] fieldValues = line.split("\\|");
+          // Birthdays are in "yyyy-MM-dd" format.
+          String birthday = fieldValues[birthdayIdx];
+          int month = Integer.parseInt(birthday.substring(5, 7)) - 1;
+          int day = Integer.parseInt(birthday.substring(8, 10));
+          insert(Long.decode(fieldValues[idIdx]), pack(month, day));
+        }
+      } catch (IOException ex) {
+        throw new RuntimeException(String.format("Encountered error reading file %s",
+              path.getFileName()), ex);
+      }
+    }
+
+    System.out.println(String.format("BirthdayIndex: {persons: %d}", size));
+  }
+
+  /**
+   * Adds a person to the index.
+   *
+   * @param personId ID of the person.
+   * @param birthday Birthday of the person in milliseconds since the epoch.
+   */
+  public void put(long personId, long birthday) {
+    lock.writeLock().lock();
+    try {
+      calendar.setTimeInMillis(birthday);
+      insert(personId, pack(calendar.get(Calendar.MONTH), calendar.get(Calendar.DAY_OF_MONTH)));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Looks up the packed (month, day) birthday of a person.
+   *
+   * @param personId ID of the person.
+   * @return Packed birthday, or MISSING if the person is not in the index.
+   */
+  public int get(long personId) {
+    lock.readLock().lock();
+    try {
+      return lookup(personId);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Looks up the packed birthdays of a batch of persons while only acquiring
+   * the lock once.
+   *
+   * @param personIds IDs of the persons.
+   * @param birthdays Output array, filled in with the packed birthday (or
+   * MISSING) of each person in personIds.
+   */
+  public void get(long[] personIds, int[] birthdays) {
+    lock.readLock().lock();
+    try {
+      for (int i = 0; i < personIds.length; i++)
+        birthdays[i] = lookup(personIds[i]);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return size;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the zero based month of a packed birthday.
+   */
+  public static int month(int birthday) {
+    return birthday >>> 5;
+  }
+
+  /**
+   * Returns the day of the month (starting from 1) of a packed birthday.
+   */
+  public static int day(int birthday) {
+    return birthday & 0x1F;
+  }
+
+  private static short pack(int month, int day) {
+    return (short)((month << 5) | day);
+  }
+
+  private static int slot(long key, int mask) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int)(h ^ (h >>> 32)) & mask;
+  }
+
+  private int lookup(long key) {
+    int mask = keys.length - 1;
+    int i = slot(key, mask);
+    while (keys[i] != EMPTY_KEY) {
+      if (keys[i] == key)
+        return vals[i];
+      i = (i + 1) & mask;
+    }
+    return MISSING;
+  }
+
+  private void insert(long key, short val) {
+    // Keep the load factor under 1/2.
+    if ((size + 1) * 2 > keys.length)
+      resize();
+
+    int mask = keys.length - 1;
+    int i = slot(key, mask);
+    while (keys[i] != EMPTY_KEY) {
+      if (keys[i] == key) {
+        vals[i] = val;
+        return;
+      }
+      i = (i + 1) & mask;
+    }
+    keys[i] = key;
+    vals[i] = val;
+    size++;
+  }
+
+  private void resize() {
+    long[] oldKeys = keys;
+    short[] oldVals = vals;
+    keys = new long[oldKeys.length * 2];
+    vals = new short[oldVals.length * 2];
+    Arrays.fill(keys, EMPTY_KEY);
+    size = 0;
+    for (int i = 0; i < oldKeys.length; i++)
+      if (oldKeys[i] != EMPTY_KEY)
+        insert(oldKeys[i], oldVals[i]);
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2019 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.torcdb2;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * A pool of equally sized direct ByteBuffers, shared by TorcDb2Server's
+ * client threads for encoding responses. Direct buffers are expensive to
+ * allocate and are only freed by the garbage collector, so buffers are
+ * returned here after use instead of being dropped. At most maxPooled free
+ * buffers are kept; any returned beyond that are left to the garbage
+ * collector.
+ *
+ * @author Jonathan Ellithorpe (jde@cs.stanford.edu)
+ */
+public class BufferPool {
+
+  private final int bufferSize;
+  private final int maxPooled;
+
+  // All of the following are guarded by this.
+  private final ArrayDeque<ByteBuffer> free;
+  private long acquires;
+  private long allocations;
+
+  /**
+   * Constructor for BufferPool.
+   *
+   * @param bufferSize Size of each buffer in bytes.
+   * @param maxPooled Maximum number of free buffers to keep.
+   */
+  public BufferPool(int bufferSize, int maxPooled) {
+    this.bufferSize = bufferSize;
+    this.maxPooled = maxPooled;
+    this.free = new ArrayDeque<>(maxPooled);
+    this.acquires = 0;
+    this.allocations = 0;
+
+    System.out.println(String.format("BufferPool: {bufferSize: %d, maxPooled: %d}",
+        bufferSize, maxPooled));
+  }
+
+  /**
+   * Returns a cleared buffer, taken from the pool if there is one free.
+   */
+  public ByteBuffer acquire() {
+    ByteBuffer b;
+    synchronized (this) {
+      acquires++;
+      b = free.pollFirst();
+      if (b == null)
+        allocations++;
+    }
+
+    if (b == null)
+      return ByteBuffer.allocateDirect(bufferSize);
+
+    b.clear();
+    return b;
+  }
+
+  /**
+   * Returns a buffer obtained from acquire() to the pool.
+   */
+  public synchronized void release(ByteBuffer b) {
+    if (free.size() < maxPooled)
+      free.addFirst(b);
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format("BufferPool: {acquires: %d, allocations: %d, free: %d}",
+        acquires, allocations, free.size());
+  }
+}
@@ -0,0 +1,352 @@
+/*
+ * Copyright (C) 2019 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.torcdb2;
+
+import net.ellitron.torcdb2.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A Graph that serves traversals and property reads out of a GraphCache when
+ * it can, and otherwise reads from the database and fills in the cache. Query
+ * handlers use it exactly like a Graph, so caching can be switched on and off
+ * without touching them.
+ *
+ * Writes are write-through: addVertex() and addEdge() go to the database as
+ * usual and drop the cache entries they affect, both right away and again
+ * when the transaction ends (whether or not it commits), since a read in
+ * the same transaction may have cached the uncommitted write in between.
+ * loadVertex() and loadEdges() clear the whole cache.
+ *
+ * Reads served from the cache are not part of the RAMCloud transaction, so
+ * the cache only stays consistent with the database if every write goes
+ * through this process.
+ *
+ * Without a shared cache, a thread can still get a short lived cache of its
+ * own with beginBatch(), e.g. for the requests of one batch sent by a
+ * client, so that they share the fetches of the same vertices. Writes drop
+ * entries from the shared cache and from all batch caches in use. Without
+ * either, reads go straight to the database.
+ *
+ * @author Jonathan Ellithorpe (jde@cs.stanford.edu)
+ */
+public class CachingGraph extends Graph {
+
+  // Shared by all threads, or null.
+  private final GraphCache cache;
+
+  // Cache of each thread's current batch, if any, and all of them together.
+  private final ThreadLocal<GraphCache> batchCache;
+  private final Set<GraphCache> batchCaches;
+
+  // Cache keys written by the current transaction of each thread.
+  private final ThreadLocal<List<Object>> txWrites;
+
+  /**
+   * Constructor for CachingGraph.
+   *
+   * @param config Graph configuration.
+   * @param cache Cache shared by all threads, or null to only cache within
+   * batches.
+   */
+  public CachingGraph(Map<String, String> config, GraphCache cache) {
+    super(config);
+    this.cache = cache;
+    this.batchCache = new ThreadLocal<>();
+    this.batchCaches = ConcurrentHashMap.newKeySet();
+    this.txWrites = ThreadLocal.withInitial(ArrayList::new);
+  }
+
+  public GraphCache cache() {
+    return cache;
+  }
+
+  /**
+   * Makes the calling thread's reads go through batchCache until endBatch()
+   * is called, unless there is a shared cache, which is used instead.
+   */
+  public void beginBatch(GraphCache batchCache) {
+    if (cache != null)
+      return;
+
+    this.batchCaches.add(batchCache);
+    this.batchCache.set(batchCache);
+  }
+
+  public void endBatch() {
+    GraphCache c = batchCache.get();
+    if (c != null) {
+      batchCaches.remove(c);
+      batchCache.remove();
+    }
+  }
+
+  @Override
+  public void beginTx() {
+    txWrites.get().clear();
+    super.beginTx();
+  }
+
+  @Override
+  public boolean commitAndSyncTx() {
+    boolean committed = super.commitAndSyncTx();
+    List<Object> writes = txWrites.get();
+    for (Object key : writes) {
+      if (key instanceof GraphCache.AdjKey)
+        invalidateAdj((GraphCache.AdjKey) key);
+      else
+        invalidateProps((UInt128) key);
+    }
+    writes.clear();
+    return committed;
+  }
+
+  @Override
+  public void addVertex(Vertex v, Map<Object, Object> props) {
+    super.addVertex(v, props);
+    invalidateProps(v.id());
+    txWrites.get().add(v.id());
+  }
+
+  @Override
+  public void addEdge(Vertex a, String label, Vertex b, Map<Object, Object> props) {
+    super.addEdge(a, label, b, props);
+    GraphCache.AdjKey out = new GraphCache.AdjKey(a.id(), label, Direction.OUT, b.label());
+    GraphCache.AdjKey in = new GraphCache.AdjKey(b.id(), label, Direction.IN, a.label());
+    invalidateAdj(out);
+    invalidateAdj(in);
+    txWrites.get().add(out);
+    txWrites.get().add(in);
+  }
+
+  @Override
+  public void loadVertex(Vertex v, Map<Object, Object> props) {
+    super.loadVertex(v, props);
+    clearCaches();
+  }
+
+  @Override
+  public void loadEdges(UInt128 base, String label, Direction dir, String nLabel,
+      List<UInt128> ns, List<Map<Object, Object>> props) {
+    super.loadEdges(base, label, dir, nLabel, ns, props);
+    clearCaches();
+  }
+
+  @Override
+  public TraversalResult traverse(Vertex base, String eLabel, Direction dir, boolean fillEdge,
+      String... nLabels) {
+    return traverse(Arrays.asList(base), eLabel, dir, fillEdge, nLabels);
+  }
+
+  @Override
+  public TraversalResult traverse(TraversalResult base, String eLabel, Direction dir,
+      boolean fillEdge, String... nLabels) {
+    return traverse(base.vSet, eLabel, dir, fillEdge, nLabels);
+  }
+
+  @Override
+  public TraversalResult traverse(Collection<Vertex> base, String eLabel, Direction dir,
+      boolean fillEdge, String... nLabels) {
+    GraphCache cache = activeCache();
+    if (cache == null || nLabels.length == 0)
+      return super.traverse(base, eLabel, dir, fillEdge, nLabels);
+
+    Map<Vertex, List<Vertex>> vMap = new HashMap<>();
+    Map<Vertex, List<Map<Object, Object>>> pMap = fillEdge ? new HashMap<>() : null;
+    Set<Vertex> vSet = new HashSet<>();
+
+    // Base vertices for which some neighbor label is not cached.
+    Set<Vertex> misses = new LinkedHashSet<>();
+    GraphCache.AdjList[] lists = new GraphCache.AdjList[nLabels.length];
+    for (Vertex b : base) {
+      boolean hit = true;
+      for (int i = 0; i < nLabels.length; i++) {
+        lists[i] = cache.getAdj(new GraphCache.AdjKey(b.id(), eLabel, dir, nLabels[i]));
+        if (lists[i] == null || (fillEdge && !lists[i].hasEdgeProps())) {
+          hit = false;
+          break;
+        }
+      }
+
+      if (!hit) {
+        misses.add(b);
+        continue;
+      }
+
+      List<Vertex> neighbors = new ArrayList<>();
+      List<Map<Object, Object>> edgeProps = fillEdge ? new ArrayList<>() : null;
+      for (int i = 0; i < nLabels.length; i++) {
+        neighbors.addAll(lists[i].neighbors(nLabels[i]));
+        if (fillEdge)
+          edgeProps.addAll(lists[i].edgeProps());
+      }
+
+      if (!neighbors.isEmpty()) {
+        vMap.put(b, neighbors);
+        if (fillEdge)
+          pMap.put(b, edgeProps);
+        vSet.addAll(neighbors);
+      }
+    }
+
+    if (misses.isEmpty())
+      return new TraversalResult(vMap, pMap, vSet);
+
+    long readStamp = cache.stamp();
+    TraversalResult tr = super.traverse(misses, eLabel, dir, fillEdge, nLabels);
+    for (Vertex b : misses) {
+      List<Vertex> neighbors = (tr.vMap != null) ? tr.vMap.get(b) : null;
+      List<Map<Object, Object>> edgeProps = (fillEdge && tr.pMap != null) ? tr.pMap.get(b) : null;
+
+      // Split the neighbors up by label for caching.
+      for (String nLabel : nLabels) {
+        List<Vertex> labelNeighbors = new ArrayList<>();
+        List<Map<Object, Object>> labelEdgeProps = (edgeProps != null) ? new ArrayList<>() : null;
+        if (neighbors != null) {
+          for (int j = 0; j < neighbors.size(); j++) {
+            if (neighbors.get(j).label().equals(nLabel)) {
+              labelNeighbors.add(neighbors.get(j));
+              if (edgeProps != null)
+                labelEdgeProps.add(edgeProps.get(j));
+            }
+          }
+        }
+        cache.putAdj(readStamp, new GraphCache.AdjKey(b.id(), eLabel, dir, nLabel),
+            labelNeighbors, labelEdgeProps);
+      }
+
+      if (neighbors != null && !neighbors.isEmpty()) {
+        vMap.put(b, neighbors);
+        if (fillEdge)
+          pMap.put(b, edgeProps);
+        vSet.addAll(neighbors);
+      }
+    }
+
+    return new TraversalResult(vMap, pMap, vSet);
+  }
+
+  @Override
+  public void getProperties(Map<Vertex, Map<Object, Object>> vProps, Vertex... vs) {
+    GraphCache cache = activeCache();
+    if (cache == null) {
+      super.getProperties(vProps, vs);
+      return;
+    }
+
+    List<Vertex> misses = new ArrayList<>();
+    for (Vertex v : vs) {
+      Map<Object, Object> props = cache.getProps(v.id());
+      if (props != null)
+        vProps.put(v, props);
+      else
+        misses.add(v);
+    }
+
+    if (misses.isEmpty())
+      return;
+
+    long readStamp = cache.stamp();
+    super.getProperties(vProps, misses.toArray(new Vertex[misses.size()]));
+    for (Vertex v : misses) {
+      Map<Object, Object> props = vProps.get(v);
+      if (props != null)
+        cache.putProps(readStamp, v.id(), props);
+    }
+  }
+
+  @Override
+  public void getProperties(Map<Vertex, Map<Object, Object>> vProps, TraversalResult... trs) {
+    Set<Vertex> vs = new HashSet<>();
+    for (TraversalResult tr : trs)
+      vs.addAll(tr.vSet);
+
+    getProperties(vProps, vs.toArray(new Vertex[vs.size()]));
+  }
+
+  /**
+   * Without keys this is the same as fetching all properties of vs, and what
+   * is read from the database is cached. Fetching only some keys is served
+   * from the cache when all properties of a vertex are cached (in which case
+   * all of them are returned), but what is read from the database is
+   * deliberately not cached, since it is incomplete.
+   */
+  @Override
+  public void getProperties(Map<Vertex, Map<Object, Object>> vProps, Collection<Vertex> vs,
+      String... keys) {
+    if (keys.length == 0) {
+      getProperties(vProps, vs.toArray(new Vertex[vs.size()]));
+      return;
+    }
+
+    GraphCache cache = activeCache();
+    if (cache == null) {
+      super.getProperties(vProps, vs, keys);
+      return;
+    }
+
+    List<Vertex> misses = new ArrayList<>();
+    for (Vertex v : vs) {
+      Map<Object, Object> props = cache.getProps(v.id());
+      if (props != null)
+        vProps.put(v, props);
+      else
+        misses.add(v);
+    }
+
+    if (!misses.isEmpty())
+      super.getProperties(vProps, misses, keys);
+  }
+
+  /*
+   * Returns the cache to read through for the calling thread, or null if
+   * there is none.
+   */
+  private GraphCache activeCache() {
+    return (cache != null) ? cache : batchCache.get();
+  }
+
+  private void invalidateAdj(GraphCache.AdjKey key) {
+    if (cache != null)
+      cache.invalidateAdj(key);
+    for (GraphCache c : batchCaches)
+      c.invalidateAdj(key);
+  }
+
+  private void invalidateProps(UInt128 id) {
+    if (cache != null)
+      cache.invalidateProps(id);
+    for (GraphCache c : batchCaches)
+      c.invalidateProps(id);
+  }
+
+  private void clearCaches() {
+    if (cache != null)
+      cache.clear();
+    for (GraphCache c : batchCaches)
+      c.clear();
+  }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2019 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.torcdb2;
+
+import net.ellitron.ldbcsnbimpls.interactive.core.VirtualThreads;
+import net.ellitron.ldbcsnbimpls.interactive.torcdb2.LdbcSerializableQueriesAndResults.*;
+
+import org.docopt.Docopt;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how many client connections a TorcDb2Server can hold and how fast
+ * it serves them, for comparing the server's platform thread and virtual
+ * thread (--virtualThreads) modes.
+ *
+ * Opens the given number of connections to the server and leaves them idle
+ * for a moment. If the server is running on this machine and its process ID
+ * is given, its resident memory and thread count are sampled from /proc
+ * before and after, giving the memory used per connection. Then every
+ * connection sends the same number of ShortQuery1 requests as fast as the
+ * server answers them, giving the server's throughput with that many
+ * connections.
+ *
+ * @author Jonathan Ellithorpe (jde@cs.stanford.edu)
+ */
+public class ConnectionBenchmark {
+
+  private static final String doc =
+      "ConnectionBenchmark: Measures memory per connection and throughput of\n"
+      + "a TorcDb2Server with many client connections.\n"
+      + "\n"
+      + "Usage:\n"
+      + "  ConnectionBenchmark [options] SERVERIP\n"
+      + "  ConnectionBenchmark (-h | --help)\n"
+      + "  ConnectionBenchmark --version\n"
+      + "\n"
+      + "Arguments:\n"
+      + "  SERVERIP  IP address of the TorcDb2Server.\n"
+      + "\n"
+      + "Options:\n"
+      + "  --port=<n>        Port of the TorcDb2Server [default: 5577].\n"
+      + "  --connections=<n>  Number of connections to open [default: 1000].\n"
+      + "  --requests=<n>    Number of requests to send on each connection\n"
+      + "                    [default: 100].\n"
+      + "  --personId=<id>   Person to request the profile of\n"
+      + "                    [default: 933].\n"
+      + "  --idleMillis=<ms>  Time to leave the connections idle before\n"
+      + "                    sampling the server's memory [default: 5000].\n"
+      + "  --serverPid=<pid>  Process ID of the TorcDb2Server, if running on\n"
+      + "                    this machine, for sampling its memory use.\n"
+      + "  --virtualThreads  Drive each connection from a virtual thread.\n"
+      + "  -h --help         Show this screen.\n"
+      + "  --version         Show version.\n"
+      + "\n";
+
+  private static class Connection {
+    final Socket socket;
+    final ObjectOutputStream out;
+    final ObjectInputStream in;
+
+    Connection(String ip, int port) throws IOException {
+      this.socket = new Socket(ip, port);
+      this.out = new ObjectOutputStream(socket.getOutputStream());
+      this.out.flush();
+      this.in = new ObjectInputStream(socket.getInputStream());
+    }
+  }
+
+  /*
+   * Returns the value of a field of /proc/<pid>/status, e.g. "VmRSS" (in kB)
+   * or "Threads", or -1 if not available.
+   */
+  private static long procStatus(String pid, String field) {
+    if (pid == null)
+      return -1;
+
+    try {
+      for (String line : Files.readAllLines(Paths.get("/proc", pid, "status"),
+            StandardCharsets.UTF_8)) {
+        if (line.startsWith(field + ":"))
+          return Long.parseLong(line.substring(field.length() + 1).trim().split("\\s+")[0]);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+
+    return -1;
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, Object> opts =
+        new Docopt(doc).withVersion("ConnectionBenchmark 1.0").parse(args);
+
+    final String serverIP = (String) opts.get("SERVERIP");
+    final int port = Integer.decode((String) opts.get("--port"));
+    final int numConnections = Integer.decode((String) opts.get("--connections"));
+    final int numRequests = Integer.decode((String) opts.get("--requests"));
+    final long personId = Long.decode((String) opts.get("--personId"));
+    final long idleMillis = Long.decode((String) opts.get("--idleMillis"));
+    final String serverPid = (String) opts.get("--serverPid");
+    final boolean virtualThreads =
+        VirtualThreads.resolve((Boolean) opts.get("--virtualThreads"));
+
+    System.out.println(String.format("ConnectionBenchmark: {serverIP: %s, port: %d, "
+        + "connections: %d, requests: %d, personId: %d, idleMillis: %d, "
+        + "serverPid: %s, virtualThreads: %s}",
+        serverIP,
+        port,
+        numConnections,
+        numRequests,
+        personId,
+        idleMillis,
+        serverPid,
+        virtualThreads));
+
+    long rssBefore = procStatus(serverPid, "VmRSS");
+    long threadsBefore = procStatus(serverPid, "Threads");
+
+    List<Connection> conns = new ArrayList<>(numConnections);
+    long startTime = System.nanoTime();
+    for (int i = 0; i < numConnections; i++)
+      conns.add(new Connection(serverIP, port));
+    long connectNanos = System.nanoTime() - startTime;
+
+    Thread.sleep(idleMillis);
+
+    long rssAfter = procStatus(serverPid, "VmRSS");
+    long threadsAfter = procStatus(serverPid, "Threads");
+
+    System.out.println(String.format("Opened %d connections in %.1f ms",
+        numConnections, connectNanos / 1e6));
+    if (serverPid != null) {
+      System.out.println(String.format("Server VmRSS: %d kB -> %d kB (%.1f kB per "
+          + "connection), threads: %d -> %d",
+          rssBefore,
+          rssAfter,
+          (double)(rssAfter - rssBefore) / numConnections,
+          threadsBefore,
+          threadsAfter));
+    }
+
+    CountDownLatch start = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(numConnections);
+    AtomicLong totalLatencyNanos = new AtomicLong(0);
+    AtomicLong errors = new AtomicLong(0);
+    for (Connection c : conns) {
+      VirtualThreads.newThread(() -> {
+        try {
+          start.await();
+          for (int i = 0; i < numRequests; i++) {
+            long reqStart = System.nanoTime();
+            c.out.writeObject(new LdbcShortQuery1PersonProfileSerializable(personId));
+            c.out.flush();
+            c.in.readObject();
+            totalLatencyNanos.addAndGet(System.nanoTime() - reqStart);
+          }
+        } catch (Exception e) {
+          errors.incrementAndGet();
+        } finally {
+          done.countDown();
+        }
+      }, virtualThreads).start();
+    }
+
+    startTime = System.nanoTime();
+    start.countDown();
+    done.await();
+    long elapsedNanos = System.nanoTime() - startTime;
+
+    long total = (long) numConnections * numRequests;
+    System.out.println(String.format("Completed %d requests in %.1f ms: %.1f requests/s, "
+        + "mean latency %.1f us, %d connections failed",
+        total,
+        elapsedNanos / 1e6,
+        total / (elapsedNanos / 1e9),
+        totalLatencyNanos.get() / 1e3 / total,
+        errors.get()));
+
+    for (Connection c : conns)
+      c.socket.close();
+  }
+}
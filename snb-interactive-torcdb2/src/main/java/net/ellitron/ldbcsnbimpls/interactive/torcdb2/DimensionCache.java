@@ -0,0 +1,330 @@
+/*
+ * Copyright (C) 2019 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.torcdb2;
+
+import net.ellitron.ldbcsnbimpls.interactive.core.SnbEntity;
+import net.ellitron.ldbcsnbimpls.interactive.core.SnbRelation;
+
+import net.ellitron.torcdb2.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A read-only, in-memory copy of the "dimension" part of the SNB graph: Places,
+ * Organisations, Tags and TagClasses, along with the isPartOf, isLocatedIn,
+ * hasType and isSubclassOf edges between them. This data is small (tens of
+ * thousands of vertices regardless of scale factor) and is never modified by
+ * the SNB update queries, so it can be loaded once at startup from the
+ * original dataset files and then consulted by query handlers in place of
+ * round trips to RAMCloud.
+ *
+ * Everything is stored in arrays indexed by the SNB identifier of the entity
+ * (these identifiers are dense and start from 0 for dimension entities).
+ * Parent links and locations use -1 to mean "none".
+ *
+ * @author Jonathan Ellithorpe (jde@cs.stanford.edu)
+ */
+public class DimensionCache {
+
+  private final String[] placeName;
+  private final String[] placeType;
+  private final long[] placeIsPartOf;
+
+  private final String[] organisationName;
+  private final String[] organisationType;
+  private final long[] organisationIsLocatedIn;
+
+  private final String[] tagName;
+  private final long[] tagHasType;
+
+  private final String[] tagClassName;
+  private final long[] tagClassIsSubclassOf;
+
+  private final Map<String, Long> tagClassIdsByName;
+
+  /**
+   * Constructor for DimensionCache. Reads the dimension entity and relation
+   * files out of the given directory.
+   *
+   * @param datasetDir Directory containing the original SNB dataset files
+   * (the same directory given to ImageMaker as SOURCE1).
+   */
+  public DimensionCache(File datasetDir) {
+    Map<Long, String[]> places = readEntity(datasetDir, SnbEntity.PLACE, "name", "type");
+    Map<Long, String[]> organisations =
+        readEntity(datasetDir, SnbEntity.ORGANISATION, "name", "type");
+    Map<Long, String[]> tags = readEntity(datasetDir, SnbEntity.TAG, "name");
+    Map<Long, String[]> tagClasses = readEntity(datasetDir, SnbEntity.TAGCLASS, "name");
+
+    int numPlaces = maxId(places) + 1;
+    placeName = new String[numPlaces];
+    placeType = new String[numPlaces];
+    for (Map.Entry<Long, String[]> e : places.entrySet()) {
+      placeName[e.getKey().intValue()] = e.getValue()[0];
+      placeType[e.getKey().intValue()] = e.getValue()[1];
+    }
+
+    int numOrganisations = maxId(organisations) + 1;
+    organisationName = new String[numOrganisations];
+    organisationType = new String[numOrganisations];
+    for (Map.Entry<Long, String[]> e : organisations.entrySet()) {
+      organisationName[e.getKey().intValue()] = e.getValue()[0];
+      organisationType[e.getKey().intValue()] = e.getValue()[1];
+    }
+
+    int numTags = maxId(tags) + 1;
+    tagName = new String[numTags];
+    for (Map.Entry<Long, String[]> e : tags.entrySet())
+      tagName[e.getKey().intValue()] = e.getValue()[0];
+
+    int numTagClasses = maxId(tagClasses) + 1;
+    tagClassName = new String[numTagClasses];
+    tagClassIdsByName = new HashMap<>(numTagClasses);
+    for (Map.Entry<Long, String[]> e : tagClasses.entrySet()) {
+      tagClassName[e.getKey().intValue()] = e.getValue()[0];
+      tagClassIdsByName.put(e.getValue()[0], e.getKey());
+    }
+
+    placeIsPartOf = readRelation(datasetDir, SnbRelation.ISPARTOF_PLACE_PLACE, numPlaces);
+    organisationIsLocatedIn = readRelation(datasetDir,
+        SnbRelation.ISLOCATEDIN_ORGANISATION_PLACE, numOrganisations);
+    tagHasType = readRelation(datasetDir, SnbRelation.HASTYPE_TAG_TAGCLASS, numTags);
+    tagClassIsSubclassOf = readRelation(datasetDir,
+        SnbRelation.ISSUBCLASSOF_TAGCLASS_TAGCLASS, numTagClasses);
+
+    System.out.println(String.format("DimensionCache: {places: %d, organisations: %d, "
+        + "tags: %d, tagClasses: %d}",
+        places.size(),
+        organisations.size(),
+        tags.size(),
+        tagClasses.size()));
+  }
+
+  public String placeName(long id) {
+    return (id >= 0 && id < placeName.length) ? placeName[(int)id] : null;
+  }
+
+  public String placeType(long id) {
+    return (id >= 0 && id < placeType.length) ? placeType[(int)id] : null;
+  }
+
+  /**
+   * Returns the place that the given place is part of (city to country,
+   * country to continent), or -1 if there is none.
+   */
+  public long placeIsPartOf(long id) {
+    return (id >= 0 && id < placeIsPartOf.length) ? placeIsPartOf[(int)id] : -1;
+  }
+
+  public String organisationName(long id) {
+    return (id >= 0 && id < organisationName.length) ? organisationName[(int)id] : null;
+  }
+
+  public String organisationType(long id) {
+    return (id >= 0 && id < organisationType.length) ? organisationType[(int)id] : null;
+  }
+
+  public long organisationIsLocatedIn(long id) {
+    return (id >= 0 && id < organisationIsLocatedIn.length) ?
+        organisationIsLocatedIn[(int)id] : -1;
+  }
+
+  public String tagName(long id) {
+    return (id >= 0 && id < tagName.length) ? tagName[(int)id] : null;
+  }
+
+  public long tagHasType(long id) {
+    return (id >= 0 && id < tagHasType.length) ? tagHasType[(int)id] : -1;
+  }
+
+  public String tagClassName(long id) {
+    return (id >= 0 && id < tagClassName.length) ? tagClassName[(int)id] : null;
+  }
+
+  public long tagClassIsSubclassOf(long id) {
+    return (id >= 0 && id < tagClassIsSubclassOf.length) ? tagClassIsSubclassOf[(int)id] : -1;
+  }
+
+  /**
+   * Returns the identifier of the TagClass with the given name, or -1 if
+   * there is no such TagClass.
+   */
+  public long tagClassId(String name) {
+    Long id = tagClassIdsByName.get(name);
+    return (id != null) ? id : -1;
+  }
+
+  /**
+   * Returns whether the given tag is directly of the given type or of any
+   * subclass of it.
+   */
+  public boolean tagIsOfClass(long tagId, long tagClassId) {
+    long tc = tagHasType(tagId);
+    while (tc != -1) {
+      if (tc == tagClassId)
+        return true;
+      tc = tagClassIsSubclassOf(tc);
+    }
+    return false;
+  }
+
+  /**
+   * Returns the name of the given Place, Organisation, Tag or TagClass
+   * vertex, or null if the vertex is not a dimension vertex.
+   */
+  public String name(Vertex v) {
+    long id = v.id().getLowerLong();
+    String label = v.label();
+    if (label.equals(TorcEntity.PLACE.label))
+      return placeName(id);
+    else if (label.equals(TorcEntity.ORGANISATION.label))
+      return organisationName(id);
+    else if (label.equals(TorcEntity.TAG.label))
+      return tagName(id);
+    else if (label.equals(TorcEntity.TAGCLASS.label))
+      return tagClassName(id);
+    else
+      return null;
+  }
+
+  /**
+   * Fills in the "name" property of the given dimension vertices in vProps,
+   * in the same way that Graph.getProperties() would.
+   *
+   * @param vProps Map of vertex to properties to fill in.
+   * @param vertices Place, Organisation, Tag or TagClass vertices.
+   */
+  public void getProperties(Map<Vertex, Map<Object, Object>> vProps,
+      Collection<Vertex> vertices) {
+    for (Vertex v : vertices) {
+      Map<Object, Object> props = vProps.get(v);
+      if (props == null) {
+        props = new HashMap<>(1);
+        vProps.put(v, props);
+      }
+      props.put("name", name(v));
+    }
+  }
+
+  /*
+   * Returns the list of dataset files in datasetDir whose names match the
+   * given prefix in the standard "prefix_[0-9]+_[0-9]+.csv" format.
+   */
+  private static File[] listFiles(File datasetDir, String prefix) {
+    File[] fileList = datasetDir.listFiles(new FilenameFilter() {
+          @Override
+          public boolean accept(File dir, String name) {
+            return name.matches("^" + prefix + "_[0-9]+_[0-9]+\\.csv");
+          }
+        });
+
+    if (fileList == null || fileList.length == 0)
+      throw new RuntimeException(String.format("Error: Missing files for %s in %s", prefix,
+            datasetDir.getPath()));
+
+    return fileList;
+  }
+
+  /*
+   * Reads all the files for the given entity, returning a map from entity ID
+   * to the values of the requested columns (in the order requested).
+   */
+  private static Map<Long, String[]> readEntity(File datasetDir, SnbEntity entity,
+      String... columns) {
+    Map<Long, String[]> entityMap = new HashMap<>();
+    for (File f : listFiles(datasetDir, entity.name)) {
+      Path path = f.toPath();
+      try (BufferedReader inFile = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+        // First line of the file contains the column headers.
+        String[] fieldNames = inFile.readLine().split("\\|");
+        List<String> fieldNameList = Arrays.asList(fieldNames);
+        int idIdx = fieldNameList.indexOf("id");
+        int[] colIdx = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+          colIdx[i] = fieldNameList.indexOf(columns[i]);
+          if (colIdx[i] == -1)
+            throw new RuntimeException(String.format("Error: Column %s missing from file %s",
+                  columns[i], path.getFileName()));
+        }
+
+        String line;
+        while ((line = inFile.readLine()) != null) {
+          String[] fieldValues = line.split("\\|");
+          String[] vals = new String[columns.length];
+          for (int i = 0; i < columns.length; i++)
+            vals[i] = fieldValues[colIdx[i]];
+          entityMap.put(Long.decode(fieldValues[idIdx]), vals);
+        }
+      } catch (IOException ex) {
+        throw new RuntimeException(String.format("Encountered error reading file %s",
+              path.getFileName()), ex);
+      }
+    }
+
+    return entityMap;
+  }
+
+  /*
+   * Reads all the files for the given one-to-one (from the tail's
+   * perspective) relation, returning an array indexed by tail ID containing
+   * the head ID, or -1 for tails that have no such edge.
+   */
+  private static long[] readRelation(File datasetDir, SnbRelation relation, int numTails) {
+    long[] heads = new long[numTails];
+    Arrays.fill(heads, -1);
+
+    String prefix = relation.tail.name + "_" + relation.name + "_" + relation.head.name;
+    for (File f : listFiles(datasetDir, prefix)) {
+      Path path = f.toPath();
+      try (BufferedReader inFile = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+        // Skip the header line.
+        inFile.readLine();
+
+        String line;
+        while ((line = inFile.readLine()) != null) {
+          String[] fieldValues = line.split("\\|");
+          heads[Long.decode(fieldValues[0]).intValue()] = Long.decode(fieldValues[1]);
+        }
+      } catch (IOException ex) {
+        throw new RuntimeException(String.format("Encountered error reading file %s",
+              path.getFileName()), ex);
+      }
+    }
+
+    return heads;
+  }
+
+  private static int maxId(Map<Long, String[]> entityMap) {
+    long max = -1;
+    for (Long id : entityMap.keySet())
+      max = Math.max(max, id);
+    return (int)max;
+  }
+}
@@ -0,0 +1,392 @@
+/*
+ * Copyright (C) 2019 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.torcdb2;
+
+import net.ellitron.torcdb2.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A memory bounded cache of adjacency lists and vertex properties, used by
+ * CachingGraph to avoid going to RAMCloud for the same high degree persons'
+ * "knows" lists and the same persons' properties over and over again across
+ * queries.
+ *
+ * Adjacency lists are keyed by (vertex, edge label, direction, neighbor
+ * label), and hold the neighbor IDs along with the edge properties if they
+ * have been fetched. Neighbor IDs of lists with at least offHeapMinSize
+ * entries are kept in direct buffers outside of the Java heap, so that large
+ * lists don't add to garbage collection work. Vertex properties are keyed by
+ * vertex ID.
+ *
+ * Entries are spread across shards by key hash, each shard being an LRU map
+ * with its own lock and an equal share of the total byte budget. Sizes are
+ * estimates.
+ *
+ * Writers call invalidate methods, which bump a global stamp. Readers take
+ * the stamp before reading from the database and only insert what they read
+ * if the stamp is unchanged, so that a read racing with a write can't leave
+ * a stale entry behind.
+ *
+ * @author Jonathan Ellithorpe (jde@cs.stanford.edu)
+ */
+public class GraphCache {
+
+  private static final int NUM_SHARDS = 64;
+
+  /**
+   * Key of a cached adjacency list.
+   */
+  public static final class AdjKey {
+    final UInt128 base;
+    final String eLabel;
+    final Direction dir;
+    final String nLabel;
+    final int hash;
+
+    public AdjKey(UInt128 base, String eLabel, Direction dir, String nLabel) {
+      this.base = base;
+      this.eLabel = eLabel;
+      this.dir = dir;
+      this.nLabel = nLabel;
+      this.hash = ((base.hashCode() * 31 + eLabel.hashCode()) * 31 + dir.hashCode()) * 31
+          + nLabel.hashCode();
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof AdjKey))
+        return false;
+      AdjKey k = (AdjKey) o;
+      return hash == k.hash && dir == k.dir && base.equals(k.base) &&
+          eLabel.equals(k.eLabel) && nLabel.equals(k.nLabel);
+    }
+  }
+
+  /**
+   * A cached adjacency list. Neighbor IDs are stored as (upper, lower) pairs
+   * of longs, either in a heap array or in a direct buffer.
+   */
+  public static final class AdjList {
+    private final long[] heapIds;
+    private final LongBuffer offHeapIds;
+    private final int size;
+    private final List<Map<Object, Object>> edgeProps;
+    final long bytes;
+
+    AdjList(List<Vertex> neighbors, List<Map<Object, Object>> edgeProps, int offHeapMinSize) {
+      this.size = neighbors.size();
+      if (size >= offHeapMinSize) {
+        this.heapIds = null;
+        this.offHeapIds = ByteBuffer.allocateDirect(size * 16).order(ByteOrder.nativeOrder())
+          .asLongBuffer();
+        for (Vertex v : neighbors) {
+          offHeapIds.put(v.id().getUpperLong());
+          offHeapIds.put(v.id().getLowerLong());
+        }
+      } else {
+        this.offHeapIds = null;
+        this.heapIds = new long[size * 2];
+        int i = 0;
+        for (Vertex v : neighbors) {
+          heapIds[i++] = v.id().getUpperLong();
+          heapIds[i++] = v.id().getLowerLong();
+        }
+      }
+
+      if (edgeProps != null) {
+        this.edgeProps = new ArrayList<>(edgeProps.size());
+        for (Map<Object, Object> p : edgeProps)
+          this.edgeProps.add(new HashMap<>(p));
+      } else {
+        this.edgeProps = null;
+      }
+
+      long b = 64 + size * 16L;
+      if (edgeProps != null)
+        for (Map<Object, Object> p : edgeProps)
+          b += sizeOf(p);
+      this.bytes = b;
+    }
+
+    public int size() {
+      return size;
+    }
+
+    public boolean hasEdgeProps() {
+      return edgeProps != null;
+    }
+
+    /**
+     * Returns new Vertex objects for the neighbors, with the given label.
+     */
+    public List<Vertex> neighbors(String nLabel) {
+      List<Vertex> list = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        long upper = (heapIds != null) ? heapIds[2*i] : offHeapIds.get(2*i);
+        long lower = (heapIds != null) ? heapIds[2*i + 1] : offHeapIds.get(2*i + 1);
+        list.add(new Vertex(new UInt128(upper, lower), nLabel));
+      }
+      return list;
+    }
+
+    /**
+     * Returns copies of the edge properties, parallel to neighbors().
+     */
+    public List<Map<Object, Object>> edgeProps() {
+      List<Map<Object, Object>> list = new ArrayList<>(size);
+      for (Map<Object, Object> p : edgeProps)
+        list.add(new HashMap<>(p));
+      return list;
+    }
+  }
+
+  private static final class PropsEntry {
+    final Map<Object, Object> props;
+    final long bytes;
+
+    PropsEntry(Map<Object, Object> props) {
+      this.props = new HashMap<>(props);
+      this.bytes = 48 + sizeOf(props);
+    }
+  }
+
+  private static final class Shard {
+    long bytes = 0;
+    LinkedHashMap<Object, Object> entries;
+  }
+
+  private final long maxBytesPerShard;
+  private final int offHeapMinSize;
+  private final Shard[] shards;
+  private final AtomicLong stamp;
+
+  private final LongAdder adjHits = new LongAdder();
+  private final LongAdder adjMisses = new LongAdder();
+  private final LongAdder propHits = new LongAdder();
+  private final LongAdder propMisses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder invalidations = new LongAdder();
+
+  /**
+   * Constructor for GraphCache.
+   *
+   * @param maxBytes Approximate maximum memory to use, on and off heap.
+   * @param offHeapMinSize Adjacency lists with at least this many neighbors
+   * are stored off heap.
+   */
+  public GraphCache(long maxBytes, int offHeapMinSize) {
+    this.maxBytesPerShard = Math.max(1, maxBytes / NUM_SHARDS);
+    this.offHeapMinSize = offHeapMinSize;
+    this.shards = new Shard[NUM_SHARDS];
+    for (int i = 0; i < NUM_SHARDS; i++) {
+      shards[i] = new Shard();
+      shards[i].entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+    this.stamp = new AtomicLong(0);
+  }
+
+  /**
+   * Returns the current write stamp, to be taken before reading anything
+   * from the database that will be passed to a put method.
+   */
+  public long stamp() {
+    return stamp.get();
+  }
+
+  public AdjList getAdj(AdjKey key) {
+    Shard shard = shard(key);
+    Object e;
+    synchronized (shard) {
+      e = shard.entries.get(key);
+    }
+
+    if (e == null)
+      adjMisses.increment();
+    else
+      adjHits.increment();
+
+    return (AdjList) e;
+  }
+
+  /**
+   * Caches an adjacency list read from the database, unless there has been
+   * a write since readStamp was taken.
+   */
+  public void putAdj(long readStamp, AdjKey key, List<Vertex> neighbors,
+      List<Map<Object, Object>> edgeProps) {
+    AdjList list = new AdjList(neighbors, edgeProps, offHeapMinSize);
+    put(readStamp, key, list, list.bytes);
+  }
+
+  /**
+   * Returns a copy of the cached properties of a vertex, or null if there
+   * are none cached.
+   */
+  public Map<Object, Object> getProps(UInt128 id) {
+    Shard shard = shard(id);
+    Object e;
+    synchronized (shard) {
+      e = shard.entries.get(id);
+    }
+
+    if (e == null) {
+      propMisses.increment();
+      return null;
+    }
+
+    propHits.increment();
+    return new HashMap<>(((PropsEntry) e).props);
+  }
+
+  /**
+   * Caches the full set of properties of a vertex read from the database,
+   * unless there has been a write since readStamp was taken.
+   */
+  public void putProps(long readStamp, UInt128 id, Map<Object, Object> props) {
+    PropsEntry entry = new PropsEntry(props);
+    put(readStamp, id, entry, entry.bytes);
+  }
+
+  public void invalidateAdj(AdjKey key) {
+    stamp.incrementAndGet();
+    remove(key);
+  }
+
+  public void invalidateProps(UInt128 id) {
+    stamp.incrementAndGet();
+    remove(id);
+  }
+
+  public void clear() {
+    stamp.incrementAndGet();
+    for (Shard shard : shards) {
+      synchronized (shard) {
+        shard.entries.clear();
+        shard.bytes = 0;
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    long bytes = 0;
+    long entries = 0;
+    for (Shard shard : shards) {
+      synchronized (shard) {
+        bytes += shard.bytes;
+        entries += shard.entries.size();
+      }
+    }
+
+    return String.format("GraphCache: {entries: %d, bytes: %d, adjHits: %d, adjMisses: %d, "
+        + "propHits: %d, propMisses: %d, evictions: %d, invalidations: %d}",
+        entries,
+        bytes,
+        adjHits.sum(),
+        adjMisses.sum(),
+        propHits.sum(),
+        propMisses.sum(),
+        evictions.sum(),
+        invalidations.sum());
+  }
+
+  private Shard shard(Object key) {
+    int h = key.hashCode() * 0x9E3779B9;
+    return shards[(h >>> 26) & (NUM_SHARDS - 1)];
+  }
+
+  private void put(long readStamp, Object key, Object entry, long bytes) {
+    if (bytes > maxBytesPerShard)
+      return;
+
+    Shard shard = shard(key);
+    synchronized (shard) {
+      // Checked under the shard lock, since invalidations bump the stamp
+      // before taking the lock to remove the entry.
+      if (stamp.get() != readStamp)
+        return;
+
+      Object old = shard.entries.put(key, entry);
+      if (old != null)
+        shard.bytes -= bytesOf(old);
+      shard.bytes += bytes;
+
+      Iterator<Object> it = shard.entries.values().iterator();
+      while (shard.bytes > maxBytesPerShard && it.hasNext()) {
+        Object eldest = it.next();
+        shard.bytes -= bytesOf(eldest);
+        it.remove();
+        evictions.increment();
+      }
+    }
+  }
+
+  private void remove(Object key) {
+    Shard shard = shard(key);
+    synchronized (shard) {
+      Object old = shard.entries.remove(key);
+      if (old != null) {
+        shard.bytes -= bytesOf(old);
+        invalidations.increment();
+      }
+    }
+  }
+
+  private static long bytesOf(Object entry) {
+    return (entry instanceof AdjList) ? ((AdjList) entry).bytes : ((PropsEntry) entry).bytes;
+  }
+
+  /*
+   * Rough estimate of the memory used by a property map.
+   */
+  private static long sizeOf(Map<Object, Object> props) {
+    long b = 32;
+    for (Map.Entry<Object, Object> e : props.entrySet())
+      b += 32 + sizeOf(e.getKey()) + sizeOf(e.getValue());
+    return b;
+  }
+
+  private static long sizeOf(Object o) {
+    if (o instanceof String)
+      return 40 + 2 * ((String) o).length();
+    else if (o instanceof Collection) {
+      long b = 32;
+      for (Object e : (Collection) o)
+        b += 8 + sizeOf(e);
+      return b;
+    } else
+      return 16;
+  }
+}
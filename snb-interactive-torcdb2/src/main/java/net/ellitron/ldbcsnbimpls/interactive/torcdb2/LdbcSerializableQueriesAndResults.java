@@ -82,6 +82,65 @@ import java.util.*;
 
 public class LdbcSerializableQueriesAndResults {
 
+  /**
+   * Converts the result of a query handler, either a single result object or
+   * a list of them, into its serializable form.
+   */
+  public static Object pack(Object result) {
+    if (result instanceof List) {
+      List<Object> packed = new ArrayList<>(((List<?>) result).size());
+      for (Object r : (List<?>) result)
+        packed.add(pack(r));
+      return packed;
+    }
+
+    if (result instanceof LdbcQuery1Result)
+      return new LdbcQuery1ResultSerializable((LdbcQuery1Result) result);
+    else if (result instanceof LdbcQuery2Result)
+      return new LdbcQuery2ResultSerializable((LdbcQuery2Result) result);
+    else if (result instanceof LdbcQuery3Result)
+      return new LdbcQuery3ResultSerializable((LdbcQuery3Result) result);
+    else if (result instanceof LdbcQuery4Result)
+      return new LdbcQuery4ResultSerializable((LdbcQuery4Result) result);
+    else if (result instanceof LdbcQuery5Result)
+      return new LdbcQuery5ResultSerializable((LdbcQuery5Result) result);
+    else if (result instanceof LdbcQuery6Result)
+      return new LdbcQuery6ResultSerializable((LdbcQuery6Result) result);
+    else if (result instanceof LdbcQuery7Result)
+      return new LdbcQuery7ResultSerializable((LdbcQuery7Result) result);
+    else if (result instanceof LdbcQuery8Result)
+      return new LdbcQuery8ResultSerializable((LdbcQuery8Result) result);
+    else if (result instanceof LdbcQuery9Result)
+      return new LdbcQuery9ResultSerializable((LdbcQuery9Result) result);
+    else if (result instanceof LdbcQuery10Result)
+      return new LdbcQuery10ResultSerializable((LdbcQuery10Result) result);
+    else if (result instanceof LdbcQuery11Result)
+      return new LdbcQuery11ResultSerializable((LdbcQuery11Result) result);
+    else if (result instanceof LdbcQuery12Result)
+      return new LdbcQuery12ResultSerializable((LdbcQuery12Result) result);
+    else if (result instanceof LdbcQuery13Result)
+      return new LdbcQuery13ResultSerializable((LdbcQuery13Result) result);
+    else if (result instanceof LdbcQuery14Result)
+      return new LdbcQuery14ResultSerializable((LdbcQuery14Result) result);
+    else if (result instanceof LdbcShortQuery1PersonProfileResult)
+      return new LdbcShortQuery1PersonProfileResultSerializable((LdbcShortQuery1PersonProfileResult) result);
+    else if (result instanceof LdbcShortQuery2PersonPostsResult)
+      return new LdbcShortQuery2PersonPostsResultSerializable((LdbcShortQuery2PersonPostsResult) result);
+    else if (result instanceof LdbcShortQuery3PersonFriendsResult)
+      return new LdbcShortQuery3PersonFriendsResultSerializable((LdbcShortQuery3PersonFriendsResult) result);
+    else if (result instanceof LdbcShortQuery4MessageContentResult)
+      return new LdbcShortQuery4MessageContentResultSerializable((LdbcShortQuery4MessageContentResult) result);
+    else if (result instanceof LdbcShortQuery5MessageCreatorResult)
+      return new LdbcShortQuery5MessageCreatorResultSerializable((LdbcShortQuery5MessageCreatorResult) result);
+    else if (result instanceof LdbcShortQuery6MessageForumResult)
+      return new LdbcShortQuery6MessageForumResultSerializable((LdbcShortQuery6MessageForumResult) result);
+    else if (result instanceof LdbcShortQuery7MessageRepliesResult)
+      return new LdbcShortQuery7MessageRepliesResultSerializable((LdbcShortQuery7MessageRepliesResult) result);
+    else
+      throw new RuntimeException("Unrecognized result type: "
+          + result.getClass().getName());
+  }
+
   public static class LdbcQuery1Serializable implements Serializable {
       public final long personId;
       public final String firstName;
@@ -1605,6 +1664,73 @@ public class LdbcSerializableQueriesAndResults {
       }
   }
 
+  /**
+   * Several requests sent to a TorcDb2Server in one message. The server
+   * executes them in order and answers with an LdbcBatchResultSerializable.
+   */
+  public static class LdbcBatchSerializable implements Serializable {
+      public final List<Object> requests;
+
+      public LdbcBatchSerializable(List<Object> requests) {
+          this.requests = requests;
+      }
+
+      @Override
+      public String toString()
+      {
+          return "LdbcBatch{" +
+                "requests=" + requests +
+                '}';
+      }
+  }
+
+  /**
+   * Sent by a client as its first request on a connection to ask the server
+   * to send all further responses on the connection encoded by
+   * ResponseEncoder instead of with Java serialization. The server
+   * acknowledges with an LdbcNoResultSerializable, sent with Java
+   * serialization.
+   */
+  public static class LdbcBinaryResponsesSerializable implements Serializable {
+      public static final LdbcBinaryResponsesSerializable INSTANCE = 
+        new LdbcBinaryResponsesSerializable();
+
+      public LdbcBinaryResponsesSerializable() {
+      }
+  }
+
+  /**
+   * Responses to the requests of an LdbcBatchSerializable, in the same order.
+   */
+  public static class LdbcBatchResultSerializable implements Serializable {
+      public final List<Object> responses;
+
+      public LdbcBatchResultSerializable(List<Object> responses) {
+          this.responses = responses;
+      }
+  }
+
+  /**
+   * Response in an LdbcBatchResultSerializable in place of the result of a
+   * request that failed, so that the other requests of the batch still get
+   * their results.
+   */
+  public static class LdbcErrorSerializable implements Serializable {
+      public final String message;
+
+      public LdbcErrorSerializable(String message) {
+          this.message = message;
+      }
+
+      @Override
+      public String toString()
+      {
+          return "LdbcError{" +
+                "message='" + message + '\'' +
+                '}';
+      }
+  }
+
   public static class LdbcUpdate1AddPersonSerializable implements Serializable
   {
       public final long personId;
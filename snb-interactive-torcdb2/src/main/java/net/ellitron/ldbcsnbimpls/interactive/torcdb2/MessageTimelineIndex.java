@@ -0,0 +1,340 @@
+/*
+ * Copyright (C) 2019 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.torcdb2;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An in-memory index of the most recent messages created by each person, used
+ * to answer LdbcShortQuery2 and to avoid scanning every message of every
+ * friend in LdbcQuery2 and LdbcQuery9.
+ *
+ * For each person we keep a Timeline holding up to N of that person's
+ * messages, sorted descending by creation date and then descending by message
+ * ID, along with the root Post of each message (UNKNOWN for Comments whose
+ * root we haven't found yet). Timelines are created lazily by queries that end
+ * up reading all of a person's messages anyway ("seeding"), and are then kept
+ * current by LdbcUpdate6AddPostHandler and LdbcUpdate7AddCommentHandler.
+ *
+ * Timelines are immutable once published, so readers can use them without
+ * holding any lock. Persons are spread across a fixed number of shards, each
+ * with its own lock, LRU map of timelines, and "stamp". The stamp of a shard
+ * is incremented by every update to any person in the shard, whether or not
+ * that person has a timeline. Queries take a snapshot of the stamps before
+ * reading messages from the database, and seeding is refused if the stamp has
+ * moved in the meantime, since the messages read might then be stale.
+ *
+ * Note that this index only sees updates executed through this process. If
+ * updates can be executed by other processes (e.g. multiple TorcDb2Server
+ * instances in front of the same graph) then it must not be enabled.
+ *
+ * @author Jonathan Ellithorpe (jde@cs.stanford.edu)
+ */
+public class MessageTimelineIndex {
+
+  /*
+   * Root post ID used for Comments whose root post is not known.
+   */
+  public static final long UNKNOWN = -1;
+
+  private static final int NUM_SHARDS = 64;
+
+  /**
+   * An immutable list of a person's most recent messages.
+   */
+  public static class Timeline {
+
+    private final long[] messageIds;
+    private final long[] creationDates;
+    private final long[] rootPostIds;
+    private final int size;
+    private final boolean complete;
+
+    private Timeline(long[] messageIds, long[] creationDates, long[] rootPostIds, int size,
+        boolean complete) {
+      this.messageIds = messageIds;
+      this.creationDates = creationDates;
+      this.rootPostIds = rootPostIds;
+      this.size = size;
+      this.complete = complete;
+    }
+
+    public int size() {
+      return size;
+    }
+
+    /**
+     * Returns whether this timeline contains all of the person's messages,
+     * rather than just the most recent ones.
+     */
+    public boolean complete() {
+      return complete;
+    }
+
+    public long messageId(int i) {
+      return messageIds[i];
+    }
+
+    public long creationDate(int i) {
+      return creationDates[i];
+    }
+
+    public long rootPostId(int i) {
+      return rootPostIds[i];
+    }
+
+    public boolean isPost(int i) {
+      return rootPostIds[i] == messageIds[i];
+    }
+
+    /**
+     * Returns the index of the first (most recent) message created before
+     * maxDate.
+     *
+     * @param maxDate Date bound.
+     * @param inclusive Whether messages created at exactly maxDate count.
+     */
+    public int first(long maxDate, boolean inclusive) {
+      int i = 0;
+      while (i < size &&
+          (inclusive ? creationDates[i] > maxDate : creationDates[i] >= maxDate))
+        i++;
+      return i;
+    }
+
+    /**
+     * Returns the end (exclusive) of the range of messages starting from
+     * "from" that is guaranteed to include every message of this person that
+     * could appear in a top-"limit" result ordered by creation date, with any
+     * tie-breaking on message ID. This is the whole rest of the timeline if it
+     * is complete. Otherwise messages not in the timeline may share the
+     * creation date of the oldest message we have, so only messages strictly
+     * newer than that one are safe to use, and there must be at least limit
+     * of them. Returns -1 if the timeline can't be used.
+     */
+    public int coveredEnd(int from, int limit) {
+      if (complete)
+        return size;
+
+      if (size == 0)
+        return -1;
+
+      long oldest = creationDates[size - 1];
+      int end = from;
+      while (end < size && creationDates[end] > oldest)
+        end++;
+
+      if (end - from < limit)
+        return -1;
+
+      return end;
+    }
+  }
+
+  private static class Shard {
+    long stamp = 0;
+    Map<Long, Timeline> timelines;
+  }
+
+  private final int capacity;
+  private final Shard[] shards;
+
+  /**
+   * Constructor for MessageTimelineIndex.
+   *
+   * @param capacity Maximum number of messages to keep per person.
+   * @param maxPersons Maximum number of timelines to keep in total. Least
+   * recently used timelines are dropped beyond this.
+   */
+  public MessageTimelineIndex(int capacity, int maxPersons) {
+    this.capacity = capacity;
+    this.shards = new Shard[NUM_SHARDS];
+    final int maxPersonsPerShard = Math.max(1, maxPersons / NUM_SHARDS);
+    for (int i = 0; i < NUM_SHARDS; i++) {
+      shards[i] = new Shard();
+      shards[i].timelines = new LinkedHashMap<Long, Timeline>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Timeline> eldest) {
+              return size() > maxPersonsPerShard;
+            }
+          };
+    }
+
+    System.out.println(String.format("MessageTimelineIndex: {capacity: %d, maxPersons: %d}",
+        capacity, maxPersons));
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  private static int shardIdx(long personId) {
+    long h = personId * 0x9E3779B97F4A7C15L;
+    return (int)(h >>> 58);
+  }
+
+  /**
+   * Returns the timeline of the given person, or null if we don't have one.
+   */
+  public Timeline get(long personId) {
+    Shard shard = shards[shardIdx(personId)];
+    synchronized (shard) {
+      return shard.timelines.get(personId);
+    }
+  }
+
+  /**
+   * Returns a snapshot of the stamps of all shards, to be taken before
+   * reading the messages that will be passed to seed().
+   */
+  public long[] stamps() {
+    long[] stamps = new long[NUM_SHARDS];
+    for (int i = 0; i < NUM_SHARDS; i++) {
+      synchronized (shards[i]) {
+        stamps[i] = shards[i].stamp;
+      }
+    }
+    return stamps;
+  }
+
+  /**
+   * Installs a timeline for a person from the full set of that person's
+   * messages as read from the database. Ignored if there may have been
+   * updates to the person since stamps were taken.
+   *
+   * @param personId ID of the person.
+   * @param stamps Snapshot of shard stamps taken before reading the messages.
+   * @param messageIds IDs of all the person's messages.
+   * @param creationDates Creation dates of the messages.
+   * @param rootPostIds Root posts of the messages, or UNKNOWN.
+   * @param n Number of messages in the arrays.
+   */
+  public void seed(long personId, long[] stamps, long[] messageIds, long[] creationDates,
+      long[] rootPostIds, int n) {
+    // Sort the messages descending by creation date, then message ID.
+    Integer[] order = new Integer[n];
+    for (int i = 0; i < n; i++)
+      order[i] = i;
+    Arrays.sort(order, (a, b) -> {
+        if (creationDates[a] != creationDates[b])
+          return Long.compare(creationDates[b], creationDates[a]);
+        return Long.compare(messageIds[b], messageIds[a]);
+      });
+
+    int size = Math.min(n, capacity);
+    long[] ids = new long[capacity];
+    long[] dates = new long[capacity];
+    long[] roots = new long[capacity];
+    for (int i = 0; i < size; i++) {
+      ids[i] = messageIds[order[i]];
+      dates[i] = creationDates[order[i]];
+      roots[i] = rootPostIds[order[i]];
+    }
+    Timeline timeline = new Timeline(ids, dates, roots, size, n <= capacity);
+
+    int idx = shardIdx(personId);
+    Shard shard = shards[idx];
+    synchronized (shard) {
+      if (shard.stamp == stamps[idx])
+        shard.timelines.put(personId, timeline);
+    }
+  }
+
+  /**
+   * Records a new message created by a person. Must be called after the
+   * message has been committed to the database.
+   *
+   * @param personId ID of the message's creator.
+   * @param messageId ID of the message.
+   * @param creationDate Creation date of the message.
+   * @param rootPostId ID of the message's root post (its own ID for posts),
+   * or UNKNOWN.
+   */
+  public void add(long personId, long messageId, long creationDate, long rootPostId) {
+    Shard shard = shards[shardIdx(personId)];
+    synchronized (shard) {
+      shard.stamp++;
+
+      Timeline t = shard.timelines.get(personId);
+      if (t == null)
+        return;
+
+      // Find where the message goes, and make sure we don't already have it
+      // (a query may have seeded the timeline after the commit).
+      int pos = 0;
+      while (pos < t.size && (t.creationDates[pos] > creationDate ||
+            (t.creationDates[pos] == creationDate && t.messageIds[pos] > messageId)))
+        pos++;
+
+      if (pos < t.size && t.messageIds[pos] == messageId)
+        return;
+
+      if (pos == capacity) {
+        // Older than everything in a full timeline.
+        shard.timelines.put(personId, new Timeline(t.messageIds, t.creationDates,
+              t.rootPostIds, t.size, false));
+        return;
+      }
+
+      long[] ids = new long[capacity];
+      long[] dates = new long[capacity];
+      long[] roots = new long[capacity];
+      System.arraycopy(t.messageIds, 0, ids, 0, pos);
+      System.arraycopy(t.creationDates, 0, dates, 0, pos);
+      System.arraycopy(t.rootPostIds, 0, roots, 0, pos);
+      ids[pos] = messageId;
+      dates[pos] = creationDate;
+      roots[pos] = rootPostId;
+      int rest = Math.min(t.size - pos, capacity - pos - 1);
+      System.arraycopy(t.messageIds, pos, ids, pos + 1, rest);
+      System.arraycopy(t.creationDates, pos, dates, pos + 1, rest);
+      System.arraycopy(t.rootPostIds, pos, roots, pos + 1, rest);
+      int size = pos + 1 + rest;
+
+      shard.timelines.put(personId,
+          new Timeline(ids, dates, roots, size, t.complete && size > t.size));
+    }
+  }
+
+  /**
+   * Fills in root posts discovered for messages in a person's timeline. Root
+   * posts never change, so no stamp check is needed.
+   *
+   * @param personId ID of the person.
+   * @param rootPostIds Map of message ID to root post ID.
+   */
+  public void setRootPosts(long personId, Map<Long, Long> rootPostIds) {
+    Shard shard = shards[shardIdx(personId)];
+    synchronized (shard) {
+      Timeline t = shard.timelines.get(personId);
+      if (t == null)
+        return;
+
+      long[] roots = Arrays.copyOf(t.rootPostIds, t.rootPostIds.length);
+      for (int i = 0; i < t.size; i++) {
+        Long root = rootPostIds.get(t.messageIds[i]);
+        if (root != null)
+          roots[i] = root;
+      }
+
+      shard.timelines.put(personId,
+          new Timeline(t.messageIds, t.creationDates, roots, t.size, t.complete));
+    }
+  }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2019 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.torcdb2;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Decides the order in which TorcDb2Server's client threads get to execute
+ * their queries. TorcDb2Server executes one query at a time, and without
+ * this whichever thread grabs the lock next goes next, so a burst of complex
+ * reads taking tens of milliseconds each can hold up short reads taking tens
+ * of microseconds.
+ *
+ * Waiting queries are dispatched shortest expected job first, where the
+ * expected execution time of each type of query is a moving average of its
+ * measured execution times. A query that has waited longer than the
+ * starvation limit is dispatched ahead of everything else (oldest first), so
+ * complex reads still make progress under a steady stream of short ones.
+ *
+ * Queries are also divided into two cost classes, complex reads and
+ * everything else (short reads and updates), each with a limit on how many
+ * queries of the class may be waiting or executing at once. Queries beyond
+ * the limit wait, in arrival order, to be admitted to the scheduler.
+ *
+ * @author Jonathan Ellithorpe (jde@cs.stanford.edu)
+ */
+public class QueryScheduler {
+
+  // Weight of each new measurement in the moving averages.
+  private static final double ALPHA = 0.2;
+
+  // Starting estimates for query types we have not measured yet.
+  private static final long COMPLEX_PRIOR_NANOS = 10000000L;
+  private static final long SHORT_PRIOR_NANOS = 100000L;
+
+  private static class Ticket {
+    final String opName;
+    final long expectedNanos;
+    final long arrivalTime;
+
+    Ticket(String opName, long expectedNanos, long arrivalTime) {
+      this.opName = opName;
+      this.expectedNanos = expectedNanos;
+      this.arrivalTime = arrivalTime;
+    }
+  }
+
+  private static class OpStats {
+    double estimateNanos;
+    long executions = 0;
+    long totalWaitNanos = 0;
+    long maxWaitNanos = 0;
+
+    OpStats(long priorNanos) {
+      this.estimateNanos = priorNanos;
+    }
+  }
+
+  private final long starvationNanos;
+  private final Semaphore complexAdmission;
+  private final Semaphore shortAdmission;
+
+  // All of the following are guarded by this.
+  private final List<Ticket> waiting;
+  private final Map<String, OpStats> opStats;
+  private boolean busy;
+
+  /**
+   * Constructor for QueryScheduler.
+   *
+   * @param starvationMillis Time after which a waiting query is dispatched
+   * regardless of its expected execution time.
+   * @param complexLimit Maximum number of complex reads admitted at once.
+   * @param shortLimit Maximum number of other queries admitted at once.
+   */
+  public QueryScheduler(long starvationMillis, int complexLimit, int shortLimit) {
+    this.starvationNanos = starvationMillis * 1000000L;
+    this.complexAdmission = new Semaphore(complexLimit, true);
+    this.shortAdmission = new Semaphore(shortLimit, true);
+    this.waiting = new ArrayList<>();
+    this.opStats = new HashMap<>();
+    this.busy = false;
+
+    System.out.println(String.format("QueryScheduler: {starvationMillis: %d, "
+        + "complexLimit: %d, shortLimit: %d}",
+        starvationMillis, complexLimit, shortLimit));
+  }
+
+  /**
+   * Returns whether opName (e.g. "Query3", "ShortQuery1", "Update2") names a
+   * complex read.
+   */
+  public static boolean isComplex(String opName) {
+    return opName.startsWith("Query");
+  }
+
+  /**
+   * Waits until it is this query's turn to execute. Every call must be
+   * followed by a call to release() once the query has executed.
+   *
+   * @param opName Type of the query.
+   */
+  public void acquire(String opName) throws InterruptedException {
+    Semaphore admission = isComplex(opName) ? complexAdmission : shortAdmission;
+    admission.acquire();
+
+    try {
+      synchronized (this) {
+        Ticket t = new Ticket(opName, (long) stats(opName).estimateNanos, System.nanoTime());
+        waiting.add(t);
+        try {
+          while (busy || next() != t)
+            wait();
+        } catch (InterruptedException e) {
+          waiting.remove(t);
+          notifyAll();
+          throw e;
+        }
+
+        waiting.remove(t);
+        busy = true;
+
+        long waitNanos = System.nanoTime() - t.arrivalTime;
+        OpStats s = stats(opName);
+        s.totalWaitNanos += waitNanos;
+        s.maxWaitNanos = Math.max(s.maxWaitNanos, waitNanos);
+      }
+    } catch (InterruptedException e) {
+      admission.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Lets the next query execute, and records how long this one took.
+   *
+   * @param opName Type of the query.
+   * @param execNanos Execution time of the query.
+   */
+  public void release(String opName, long execNanos) {
+    synchronized (this) {
+      OpStats s = stats(opName);
+      s.estimateNanos = (s.executions == 0) ? execNanos :
+          (1 - ALPHA) * s.estimateNanos + ALPHA * execNanos;
+      s.executions++;
+      busy = false;
+      notifyAll();
+    }
+
+    if (isComplex(opName))
+      complexAdmission.release();
+    else
+      shortAdmission.release();
+  }
+
+  @Override
+  public synchronized String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format("%-20s %10s %14s %14s %14s\n",
+        "Operation", "Executions", "Estimate(us)", "MeanWait(us)", "MaxWait(us)"));
+    for (Map.Entry<String, OpStats> e : new TreeMap<>(opStats).entrySet()) {
+      OpStats s = e.getValue();
+      sb.append(String.format("%-20s %10d %14.1f %14.1f %14.1f\n",
+          e.getKey(),
+          s.executions,
+          s.estimateNanos / 1000.0,
+          (s.executions > 0) ? s.totalWaitNanos / 1000.0 / s.executions : 0.0,
+          s.maxWaitNanos / 1000.0));
+    }
+    return sb.toString();
+  }
+
+  /*
+   * Returns the ticket to dispatch next. Caller must hold the monitor, and
+   * waiting must not be empty.
+   */
+  private Ticket next() {
+    long now = System.nanoTime();
+    Ticket oldest = null;
+    Ticket shortest = null;
+    for (Ticket t : waiting) {
+      if (oldest == null || t.arrivalTime < oldest.arrivalTime)
+        oldest = t;
+      if (shortest == null || t.expectedNanos < shortest.expectedNanos ||
+          (t.expectedNanos == shortest.expectedNanos && t.arrivalTime < shortest.arrivalTime))
+        shortest = t;
+    }
+
+    if (now - oldest.arrivalTime > starvationNanos)
+      return oldest;
+
+    return shortest;
+  }
+
+  private OpStats stats(String opName) {
+    OpStats s = opStats.get(opName);
+    if (s == null) {
+      s = new OpStats(isComplex(opName) ? COMPLEX_PRIOR_NANOS : SHORT_PRIOR_NANOS);
+      opStats.put(opName, s);
+    }
+    return s;
+  }
+}
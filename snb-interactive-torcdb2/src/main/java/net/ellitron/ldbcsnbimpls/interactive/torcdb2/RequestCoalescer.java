@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2019 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.torcdb2;
+
+import net.ellitron.ldbcsnbimpls.interactive.torcdb2.LdbcSerializableQueriesAndResults.*;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+
+/**
+ * Sends the requests of many client threads to one TorcDb2Server over a
+ * single shared connection, packing the requests that are waiting at the
+ * same time into one LdbcBatchSerializable so that they share a network
+ * round trip.
+ *
+ * A single sender thread keeps at most one batch in flight. While it waits
+ * for the response to one batch, new requests queue up and go out together
+ * in the next one, so batches grow with load and a lone request is sent on
+ * its own without waiting.
+ *
+ * Since the server answers a batch only once it has executed every request
+ * in it, this should only be used for requests with short and similar
+ * execution times.
+ *
+ * @author Jonathan Ellithorpe (jde@cs.stanford.edu)
+ */
+public class RequestCoalescer {
+
+  private static class Pending {
+    final Object request;
+    Object response = null;
+    Exception error = null;
+    boolean done = false;
+
+    Pending(Object request) {
+      this.request = request;
+    }
+  }
+
+  private final String serverIP;
+  private final Socket socket;
+  private final ObjectOutputStream out;
+  private final ObjectInputStream in;
+  private final ResponseDecoder decoder;
+  private final int maxOps;
+
+  // All of the following are guarded by this.
+  private final List<Pending> queue;
+  private boolean closed;
+  private long batches;
+  private long requests;
+  private int maxBatchSize;
+
+  /**
+   * Constructor for RequestCoalescer.
+   *
+   * @param serverIP IP of the TorcDb2Server.
+   * @param port Port of the TorcDb2Server.
+   * @param maxOps Maximum number of requests to send in one batch.
+   * @param binaryResponses Whether to ask the server for binary responses.
+   */
+  public RequestCoalescer(String serverIP, int port, int maxOps, boolean binaryResponses)
+      throws IOException {
+    this.serverIP = serverIP;
+    this.socket = new Socket(serverIP, port);
+    this.out = new ObjectOutputStream(socket.getOutputStream());
+    this.out.flush();
+    this.in = new ObjectInputStream(socket.getInputStream());
+    if (binaryResponses) {
+      out.writeObject(LdbcBinaryResponsesSerializable.INSTANCE);
+      out.flush();
+      try {
+        in.readObject();
+      } catch (ClassNotFoundException e) {
+        throw new IOException(e);
+      }
+      this.decoder = new ResponseDecoder(socket.getInputStream());
+    } else {
+      this.decoder = null;
+    }
+    this.maxOps = maxOps;
+    this.queue = new ArrayList<>();
+    this.closed = false;
+    this.batches = 0;
+    this.requests = 0;
+    this.maxBatchSize = 0;
+
+    Thread sender = new Thread(this::sendLoop);
+    sender.setDaemon(true);
+    sender.start();
+  }
+
+  /**
+   * Sends a request to the server, possibly along with other threads'
+   * requests, and waits for its response.
+   *
+   * @param request The request.
+   *
+   * @return The server's response to the request.
+   */
+  public Object call(Object request) throws IOException, InterruptedException {
+    Pending p = new Pending(request);
+    synchronized (this) {
+      if (closed)
+        throw new IOException("Connection to " + serverIP + " is closed");
+
+      queue.add(p);
+      notifyAll();
+      while (!p.done)
+        wait();
+    }
+
+    if (p.error != null)
+      throw new IOException(p.error);
+
+    return p.response;
+  }
+
+  public void close() throws IOException {
+    synchronized (this) {
+      closed = true;
+      notifyAll();
+    }
+    socket.close();
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format("RequestCoalescer: {server: %s, batches: %d, requests: %d, "
+        + "meanBatchSize: %.2f, maxBatchSize: %d}",
+        serverIP,
+        batches,
+        requests,
+        (batches > 0) ? (double) requests / batches : 0.0,
+        maxBatchSize);
+  }
+
+  private void sendLoop() {
+    while (true) {
+      List<Pending> batch;
+      synchronized (this) {
+        try {
+          while (queue.isEmpty() && !closed)
+            wait();
+        } catch (InterruptedException e) {
+          closed = true;
+        }
+
+        if (closed) {
+          fail(queue, new IOException("Connection to " + serverIP + " is closed"));
+          queue.clear();
+          notifyAll();
+          return;
+        }
+
+        List<Pending> head = queue.subList(0, Math.min(queue.size(), maxOps));
+        batch = new ArrayList<>(head);
+        head.clear();
+      }
+
+      List<Object> responses = null;
+      Exception error = null;
+      try {
+        if (batch.size() == 1) {
+          out.writeObject(batch.get(0).request);
+          out.flush();
+          responses = Collections.singletonList(readResponse());
+        } else {
+          List<Object> batchRequests = new ArrayList<>(batch.size());
+          for (Pending p : batch)
+            batchRequests.add(p.request);
+          out.writeObject(new LdbcBatchSerializable(batchRequests));
+          out.flush();
+          responses = ((LdbcBatchResultSerializable) readResponse()).responses;
+        }
+      } catch (Exception e) {
+        error = e;
+      }
+
+      synchronized (this) {
+        if (error != null) {
+          // The stream may be out of step with the server now, so give up
+          // on the connection.
+          fail(batch, error);
+          closed = true;
+        } else {
+          // A request that failed on the server only fails its own caller.
+          for (int i = 0; i < batch.size(); i++) {
+            Object response = responses.get(i);
+            if (response instanceof LdbcErrorSerializable)
+              batch.get(i).error = new IOException(((LdbcErrorSerializable) response).message);
+            else
+              batch.get(i).response = response;
+            batch.get(i).done = true;
+          }
+        }
+
+        batches++;
+        requests += batch.size();
+        maxBatchSize = Math.max(maxBatchSize, batch.size());
+        notifyAll();
+      }
+    }
+  }
+
+  private Object readResponse() throws IOException, ClassNotFoundException {
+    return (decoder != null) ? decoder.read() : in.readObject();
+  }
+
+  private static void fail(List<Pending> pending, Exception error) {
+    for (Pending p : pending) {
+      p.error = error;
+      p.done = true;
+    }
+  }
+}
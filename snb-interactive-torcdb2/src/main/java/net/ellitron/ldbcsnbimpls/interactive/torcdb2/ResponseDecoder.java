@@ -0,0 +1,329 @@
+/*
+ * Copyright (C) 2019 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.torcdb2;
+
+import net.ellitron.ldbcsnbimpls.interactive.torcdb2.LdbcSerializableQueriesAndResults.*;
+
+import static net.ellitron.ldbcsnbimpls.interactive.torcdb2.ResponseEncoder.*;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads responses written by a TorcDb2Server's ResponseEncoder off of a
+ * connection. Results are decoded into the same serializable result classes
+ * that the server sends when using Java serialization, so callers handle
+ * both kinds of response the same way.
+ *
+ * Not thread safe, each connection should have its own.
+ *
+ * @author Jonathan Ellithorpe (jde@cs.stanford.edu)
+ */
+public class ResponseDecoder {
+
+  private final DataInputStream in;
+  private byte[] buf;
+  private ByteBuffer bb;
+
+  /**
+   * Constructor for ResponseDecoder. Nothing but encoded responses may be
+   * read from the stream afterwards, since it is read ahead.
+   *
+   * @param in Stream of the connection to the server.
+   */
+  public ResponseDecoder(InputStream in) {
+    this.in = new DataInputStream(new BufferedInputStream(in));
+    this.buf = new byte[1 << 16];
+    this.bb = ByteBuffer.wrap(buf);
+  }
+
+  /**
+   * Reads the next response, blocking until it has arrived.
+   */
+  public Object read() throws IOException {
+    int length = in.readInt();
+    if (buf.length < length) {
+      buf = new byte[Math.max(length, 2 * buf.length)];
+      bb = ByteBuffer.wrap(buf);
+    }
+
+    in.readFully(buf, 0, length);
+    bb.clear();
+    bb.limit(length);
+    return get();
+  }
+
+  private Object get() {
+    byte tag = bb.get();
+    switch (tag) {
+      case NO_RESULT:
+        return LdbcNoResultSerializable.INSTANCE;
+      case LIST: {
+        int n = bb.getInt();
+        List<Object> list = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+          list.add(get());
+        return list;
+      }
+      case BATCH: {
+        int n = bb.getInt();
+        List<Object> responses = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+          responses.add(get());
+        return new LdbcBatchResultSerializable(responses);
+      }
+      case ERROR:
+        return new LdbcErrorSerializable(getString());
+      case QUERY1_RESULT:
+        return new LdbcQuery1ResultSerializable(
+            getLong(),
+            getString(),
+            getInt(),
+            getLong(),
+            getLong(),
+            getString(),
+            getString(),
+            getString(),
+            getStrings(),
+            getStrings(),
+            getString(),
+            getObjectLists(),
+            getObjectLists());
+      case QUERY2_RESULT:
+        return new LdbcQuery2ResultSerializable(
+            getLong(),
+            getString(),
+            getString(),
+            getLong(),
+            getString(),
+            getLong());
+      case QUERY3_RESULT:
+        return new LdbcQuery3ResultSerializable(
+            getLong(),
+            getString(),
+            getString(),
+            getLong(),
+            getLong(),
+            getLong());
+      case QUERY4_RESULT:
+        return new LdbcQuery4ResultSerializable(getString(), getInt());
+      case QUERY5_RESULT:
+        return new LdbcQuery5ResultSerializable(getString(), getInt());
+      case QUERY6_RESULT:
+        return new LdbcQuery6ResultSerializable(getString(), getInt());
+      case QUERY7_RESULT:
+        return new LdbcQuery7ResultSerializable(
+            getLong(),
+            getString(),
+            getString(),
+            getLong(),
+            getLong(),
+            getString(),
+            getInt(),
+            getBoolean());
+      case QUERY8_RESULT:
+        return new LdbcQuery8ResultSerializable(
+            getLong(),
+            getString(),
+            getString(),
+            getLong(),
+            getLong(),
+            getString());
+      case QUERY9_RESULT:
+        return new LdbcQuery9ResultSerializable(
+            getLong(),
+            getString(),
+            getString(),
+            getLong(),
+            getString(),
+            getLong());
+      case QUERY10_RESULT:
+        return new LdbcQuery10ResultSerializable(
+            getLong(),
+            getString(),
+            getString(),
+            getInt(),
+            getString(),
+            getString());
+      case QUERY11_RESULT:
+        return new LdbcQuery11ResultSerializable(
+            getLong(),
+            getString(),
+            getString(),
+            getString(),
+            getInt());
+      case QUERY12_RESULT:
+        return new LdbcQuery12ResultSerializable(
+            getLong(),
+            getString(),
+            getString(),
+            getStrings(),
+            getInt());
+      case QUERY13_RESULT:
+        return new LdbcQuery13ResultSerializable(getInt());
+      case QUERY14_RESULT:
+        return new LdbcQuery14ResultSerializable(getLongs(), getDouble());
+      case SHORT_QUERY1_PERSON_PROFILE_RESULT:
+        return new LdbcShortQuery1PersonProfileResultSerializable(
+            getString(),
+            getString(),
+            getLong(),
+            getString(),
+            getString(),
+            getLong(),
+            getString(),
+            getLong());
+      case SHORT_QUERY2_PERSON_POSTS_RESULT:
+        return new LdbcShortQuery2PersonPostsResultSerializable(
+            getLong(),
+            getString(),
+            getLong(),
+            getLong(),
+            getLong(),
+            getString(),
+            getString());
+      case SHORT_QUERY3_PERSON_FRIENDS_RESULT:
+        return new LdbcShortQuery3PersonFriendsResultSerializable(
+            getLong(),
+            getString(),
+            getString(),
+            getLong());
+      case SHORT_QUERY4_MESSAGE_CONTENT_RESULT:
+        return new LdbcShortQuery4MessageContentResultSerializable(
+            getString(),
+            getLong());
+      case SHORT_QUERY5_MESSAGE_CREATOR_RESULT:
+        return new LdbcShortQuery5MessageCreatorResultSerializable(
+            getLong(),
+            getString(),
+            getString());
+      case SHORT_QUERY6_MESSAGE_FORUM_RESULT:
+        return new LdbcShortQuery6MessageForumResultSerializable(
+            getLong(),
+            getString(),
+            getLong(),
+            getString(),
+            getString());
+      case SHORT_QUERY7_MESSAGE_REPLIES_RESULT:
+        return new LdbcShortQuery7MessageRepliesResultSerializable(
+            getLong(),
+            getString(),
+            getLong(),
+            getLong(),
+            getString(),
+            getString(),
+            getBoolean());
+      default:
+        throw new RuntimeException("Unknown response tag: " + tag);
+    }
+  }
+
+  private boolean getBoolean() {
+    return bb.get() != 0;
+  }
+
+  private int getInt() {
+    return bb.getInt();
+  }
+
+  private long getLong() {
+    return bb.getLong();
+  }
+
+  private double getDouble() {
+    return bb.getDouble();
+  }
+
+  private String getString() {
+    int len = bb.getInt();
+    if (len == -1)
+      return null;
+
+    String s = new String(buf, bb.position(), len, StandardCharsets.UTF_8);
+    bb.position(bb.position() + len);
+    return s;
+  }
+
+  private List<String> getStrings() {
+    int n = bb.getInt();
+    if (n == -1)
+      return null;
+
+    List<String> strings = new ArrayList<>(n);
+    for (int i = 0; i < n; i++)
+      strings.add(getString());
+    return strings;
+  }
+
+  private List<Long> getLongs() {
+    int n = bb.getInt();
+    if (n == -1)
+      return null;
+
+    List<Long> longs = new ArrayList<>(n);
+    for (int i = 0; i < n; i++)
+      longs.add(bb.getLong());
+    return longs;
+  }
+
+  private List<List<Object>> getObjectLists() {
+    int n = bb.getInt();
+    if (n == -1)
+      return null;
+
+    List<List<Object>> lists = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      int m = bb.getInt();
+      if (m == -1) {
+        lists.add(null);
+        continue;
+      }
+
+      List<Object> list = new ArrayList<>(m);
+      for (int j = 0; j < m; j++)
+        list.add(getObject());
+      lists.add(list);
+    }
+    return lists;
+  }
+
+  private Object getObject() {
+    byte tag = bb.get();
+    switch (tag) {
+      case NULL:
+        return null;
+      case STRING:
+        return getString();
+      case INT:
+        return bb.getInt();
+      case LONG:
+        return bb.getLong();
+      case DOUBLE:
+        return bb.getDouble();
+      case BOOLEAN:
+        return getBoolean();
+      default:
+        throw new RuntimeException("Unknown value tag: " + tag);
+    }
+  }
+}
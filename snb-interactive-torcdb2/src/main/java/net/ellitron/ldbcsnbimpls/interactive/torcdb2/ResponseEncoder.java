@@ -0,0 +1,523 @@
+/*
+ * Copyright (C) 2019 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.torcdb2;
+
+import net.ellitron.ldbcsnbimpls.interactive.torcdb2.LdbcSerializableQueriesAndResults.*;
+
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery1Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery2Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery3Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery4Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery5Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery6Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery7Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery8Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery9Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery10Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery11Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery12Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery13Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery14Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery1PersonProfileResult;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery2PersonPostsResult;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery3PersonFriendsResult;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery4MessageContentResult;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery5MessageCreatorResult;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery6MessageForumResult;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery7MessageRepliesResult;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Encodes responses for clients that asked for binary responses (see
+ * LdbcBinaryResponsesSerializable) and writes them to the client's socket.
+ * Query handler results are written field by field straight into direct
+ * buffers from a BufferPool, which are then handed to the socket channel in
+ * one gathering write, so unlike the Java serialization path no
+ * serializable copy of each result is made and no serialization stream
+ * state is built up.
+ *
+ * Each response is sent as a frame of a 4 byte length followed by an
+ * encoded value. A value is a tag byte followed by the value's fields:
+ * integers and floating point numbers in big endian order, booleans as one
+ * byte, strings as a 4 byte length (-1 for null) followed by UTF-8 bytes, and
+ * collections as a 4 byte count (-1 for null) followed by the elements.
+ * ResponseDecoder reads them on the client side.
+ *
+ * Not thread safe, each client thread should have its own.
+ *
+ * @author Jonathan Ellithorpe (jde@cs.stanford.edu)
+ */
+public class ResponseEncoder {
+
+  // Tags of encoded values.
+  static final byte NO_RESULT = 0;
+  static final byte LIST = 1;
+  static final byte BATCH = 2;
+  static final byte ERROR = 3;
+  static final byte QUERY1_RESULT = 11;
+  static final byte QUERY2_RESULT = 12;
+  static final byte QUERY3_RESULT = 13;
+  static final byte QUERY4_RESULT = 14;
+  static final byte QUERY5_RESULT = 15;
+  static final byte QUERY6_RESULT = 16;
+  static final byte QUERY7_RESULT = 17;
+  static final byte QUERY8_RESULT = 18;
+  static final byte QUERY9_RESULT = 19;
+  static final byte QUERY10_RESULT = 20;
+  static final byte QUERY11_RESULT = 21;
+  static final byte QUERY12_RESULT = 22;
+  static final byte QUERY13_RESULT = 23;
+  static final byte QUERY14_RESULT = 24;
+  static final byte SHORT_QUERY1_PERSON_PROFILE_RESULT = 31;
+  static final byte SHORT_QUERY2_PERSON_POSTS_RESULT = 32;
+  static final byte SHORT_QUERY3_PERSON_FRIENDS_RESULT = 33;
+  static final byte SHORT_QUERY4_MESSAGE_CONTENT_RESULT = 34;
+  static final byte SHORT_QUERY5_MESSAGE_CREATOR_RESULT = 35;
+  static final byte SHORT_QUERY6_MESSAGE_FORUM_RESULT = 36;
+  static final byte SHORT_QUERY7_MESSAGE_REPLIES_RESULT = 37;
+
+  // Tags of the elements of untyped lists, e.g. LdbcQuery1Result's
+  // friendUniversities.
+  static final byte NULL = 0;
+  static final byte STRING = 1;
+  static final byte INT = 2;
+  static final byte LONG = 3;
+  static final byte DOUBLE = 4;
+  static final byte BOOLEAN = 5;
+
+  // Smallest usable buffer size, that of the widest fixed size value (a long
+  // or double). Strings are split across buffers.
+  static final int MIN_BUFFER_SIZE = 8;
+
+  private final BufferPool pool;
+  private final ByteBuffer header;
+  private final List<ByteBuffer> chunks;
+  private ByteBuffer[] gather;
+  private ByteBuffer cur;
+
+  public ResponseEncoder(BufferPool pool) {
+    this.pool = pool;
+    this.header = ByteBuffer.allocateDirect(4);
+    this.chunks = new ArrayList<>();
+    this.gather = new ByteBuffer[16];
+    this.cur = null;
+  }
+
+  /**
+   * Encodes a response and writes it to a channel, blocking until all of it
+   * has been written.
+   *
+   * @param channel Blocking channel to the client (normally its socket).
+   * @param response A query handler's result (a single result object or a
+   * list of them), LdbcNoResultSerializable, or an LdbcBatchResultSerializable
+   * holding any of these or LdbcErrorSerializables.
+   */
+  public void write(GatheringByteChannel channel, Object response) throws IOException {
+    try {
+      put(response);
+
+      int n = chunks.size() + 1;
+      if (gather.length < n)
+        gather = new ByteBuffer[Math.max(n, 2 * gather.length)];
+
+      int length = 0;
+      for (int i = 0; i < chunks.size(); i++) {
+        ByteBuffer b = chunks.get(i);
+        b.flip();
+        length += b.remaining();
+        gather[i + 1] = b;
+      }
+
+      header.clear();
+      header.putInt(length);
+      header.flip();
+      gather[0] = header;
+
+      long remaining = 4L + length;
+      while (remaining > 0)
+        remaining -= channel.write(gather, 0, n);
+    } finally {
+      for (int i = 0; i < chunks.size(); i++)
+        pool.release(chunks.get(i));
+      chunks.clear();
+      Arrays.fill(gather, null);
+      cur = null;
+    }
+  }
+
+  private void put(Object v) {
+    if (v instanceof LdbcNoResultSerializable) {
+      putByte(NO_RESULT);
+    } else if (v instanceof LdbcBatchResultSerializable) {
+      List<Object> responses = ((LdbcBatchResultSerializable) v).responses;
+      putByte(BATCH);
+      putInt(responses.size());
+      for (int i = 0; i < responses.size(); i++)
+        put(responses.get(i));
+    } else if (v instanceof LdbcErrorSerializable) {
+      putByte(ERROR);
+      putString(((LdbcErrorSerializable) v).message);
+    } else if (v instanceof List) {
+      List<?> list = (List<?>) v;
+      putByte(LIST);
+      putInt(list.size());
+      if (list instanceof RandomAccess) {
+        for (int i = 0; i < list.size(); i++)
+          put(list.get(i));
+      } else {
+        for (Object e : list)
+          put(e);
+      }
+    } else if (v instanceof LdbcQuery1Result) {
+      LdbcQuery1Result r = (LdbcQuery1Result) v;
+      putByte(QUERY1_RESULT);
+      putLong(r.friendId());
+      putString(r.friendLastName());
+      putInt(r.distanceFromPerson());
+      putLong(r.friendBirthday());
+      putLong(r.friendCreationDate());
+      putString(r.friendGender());
+      putString(r.friendBrowserUsed());
+      putString(r.friendLocationIp());
+      putStrings(r.friendEmails());
+      putStrings(r.friendLanguages());
+      putString(r.friendCityName());
+      putObjectLists(r.friendUniversities());
+      putObjectLists(r.friendCompanies());
+    } else if (v instanceof LdbcQuery2Result) {
+      LdbcQuery2Result r = (LdbcQuery2Result) v;
+      putByte(QUERY2_RESULT);
+      putLong(r.personId());
+      putString(r.personFirstName());
+      putString(r.personLastName());
+      putLong(r.messageId());
+      putString(r.messageContent());
+      putLong(r.messageCreationDate());
+    } else if (v instanceof LdbcQuery3Result) {
+      LdbcQuery3Result r = (LdbcQuery3Result) v;
+      putByte(QUERY3_RESULT);
+      putLong(r.personId());
+      putString(r.personFirstName());
+      putString(r.personLastName());
+      putLong(r.xCount());
+      putLong(r.yCount());
+      putLong(r.count());
+    } else if (v instanceof LdbcQuery4Result) {
+      LdbcQuery4Result r = (LdbcQuery4Result) v;
+      putByte(QUERY4_RESULT);
+      putString(r.tagName());
+      putInt(r.postCount());
+    } else if (v instanceof LdbcQuery5Result) {
+      LdbcQuery5Result r = (LdbcQuery5Result) v;
+      putByte(QUERY5_RESULT);
+      putString(r.forumTitle());
+      putInt(r.postCount());
+    } else if (v instanceof LdbcQuery6Result) {
+      LdbcQuery6Result r = (LdbcQuery6Result) v;
+      putByte(QUERY6_RESULT);
+      putString(r.tagName());
+      putInt(r.postCount());
+    } else if (v instanceof LdbcQuery7Result) {
+      LdbcQuery7Result r = (LdbcQuery7Result) v;
+      putByte(QUERY7_RESULT);
+      putLong(r.personId());
+      putString(r.personFirstName());
+      putString(r.personLastName());
+      putLong(r.likeCreationDate());
+      putLong(r.messageId());
+      putString(r.messageContent());
+      putInt(r.minutesLatency());
+      putBoolean(r.isNew());
+    } else if (v instanceof LdbcQuery8Result) {
+      LdbcQuery8Result r = (LdbcQuery8Result) v;
+      putByte(QUERY8_RESULT);
+      putLong(r.personId());
+      putString(r.personFirstName());
+      putString(r.personLastName());
+      putLong(r.commentCreationDate());
+      putLong(r.commentId());
+      putString(r.commentContent());
+    } else if (v instanceof LdbcQuery9Result) {
+      LdbcQuery9Result r = (LdbcQuery9Result) v;
+      putByte(QUERY9_RESULT);
+      putLong(r.personId());
+      putString(r.personFirstName());
+      putString(r.personLastName());
+      putLong(r.messageId());
+      putString(r.messageContent());
+      putLong(r.messageCreationDate());
+    } else if (v instanceof LdbcQuery10Result) {
+      LdbcQuery10Result r = (LdbcQuery10Result) v;
+      putByte(QUERY10_RESULT);
+      putLong(r.personId());
+      putString(r.personFirstName());
+      putString(r.personLastName());
+      putInt(r.commonInterestScore());
+      putString(r.personGender());
+      putString(r.personCityName());
+    } else if (v instanceof LdbcQuery11Result) {
+      LdbcQuery11Result r = (LdbcQuery11Result) v;
+      putByte(QUERY11_RESULT);
+      putLong(r.personId());
+      putString(r.personFirstName());
+      putString(r.personLastName());
+      putString(r.organizationName());
+      putInt(r.organizationWorkFromYear());
+    } else if (v instanceof LdbcQuery12Result) {
+      LdbcQuery12Result r = (LdbcQuery12Result) v;
+      putByte(QUERY12_RESULT);
+      putLong(r.personId());
+      putString(r.personFirstName());
+      putString(r.personLastName());
+      putStrings(r.tagNames());
+      putInt(r.replyCount());
+    } else if (v instanceof LdbcQuery13Result) {
+      LdbcQuery13Result r = (LdbcQuery13Result) v;
+      putByte(QUERY13_RESULT);
+      putInt(r.shortestPathLength());
+    } else if (v instanceof LdbcQuery14Result) {
+      LdbcQuery14Result r = (LdbcQuery14Result) v;
+      putByte(QUERY14_RESULT);
+      putLongs(r.personsIdsInPath());
+      putDouble(r.pathWeight());
+    } else if (v instanceof LdbcShortQuery1PersonProfileResult) {
+      LdbcShortQuery1PersonProfileResult r = (LdbcShortQuery1PersonProfileResult) v;
+      putByte(SHORT_QUERY1_PERSON_PROFILE_RESULT);
+      putString(r.firstName());
+      putString(r.lastName());
+      putLong(r.birthday());
+      putString(r.locationIp());
+      putString(r.browserUsed());
+      putLong(r.cityId());
+      putString(r.gender());
+      putLong(r.creationDate());
+    } else if (v instanceof LdbcShortQuery2PersonPostsResult) {
+      LdbcShortQuery2PersonPostsResult r = (LdbcShortQuery2PersonPostsResult) v;
+      putByte(SHORT_QUERY2_PERSON_POSTS_RESULT);
+      putLong(r.messageId());
+      putString(r.messageContent());
+      putLong(r.messageCreationDate());
+      putLong(r.originalPostId());
+      putLong(r.originalPostAuthorId());
+      putString(r.originalPostAuthorFirstName());
+      putString(r.originalPostAuthorLastName());
+    } else if (v instanceof LdbcShortQuery3PersonFriendsResult) {
+      LdbcShortQuery3PersonFriendsResult r = (LdbcShortQuery3PersonFriendsResult) v;
+      putByte(SHORT_QUERY3_PERSON_FRIENDS_RESULT);
+      putLong(r.personId());
+      putString(r.firstName());
+      putString(r.lastName());
+      putLong(r.friendshipCreationDate());
+    } else if (v instanceof LdbcShortQuery4MessageContentResult) {
+      LdbcShortQuery4MessageContentResult r = (LdbcShortQuery4MessageContentResult) v;
+      putByte(SHORT_QUERY4_MESSAGE_CONTENT_RESULT);
+      putString(r.messageContent());
+      putLong(r.messageCreationDate());
+    } else if (v instanceof LdbcShortQuery5MessageCreatorResult) {
+      LdbcShortQuery5MessageCreatorResult r = (LdbcShortQuery5MessageCreatorResult) v;
+      putByte(SHORT_QUERY5_MESSAGE_CREATOR_RESULT);
+      putLong(r.personId());
+      putString(r.firstName());
+      putString(r.lastName());
+    } else if (v instanceof LdbcShortQuery6MessageForumResult) {
+      LdbcShortQuery6MessageForumResult r = (LdbcShortQuery6MessageForumResult) v;
+      putByte(SHORT_QUERY6_MESSAGE_FORUM_RESULT);
+      putLong(r.forumId());
+      putString(r.forumTitle());
+      putLong(r.moderatorId());
+      putString(r.moderatorFirstName());
+      putString(r.moderatorLastName());
+    } else if (v instanceof LdbcShortQuery7MessageRepliesResult) {
+      LdbcShortQuery7MessageRepliesResult r = (LdbcShortQuery7MessageRepliesResult) v;
+      putByte(SHORT_QUERY7_MESSAGE_REPLIES_RESULT);
+      putLong(r.commentId());
+      putString(r.commentContent());
+      putLong(r.commentCreationDate());
+      putLong(r.replyAuthorId());
+      putString(r.replyAuthorFirstName());
+      putString(r.replyAuthorLastName());
+      putBoolean(r.isReplyAuthorKnowsOriginalMessageAuthor());
+    } else {
+      throw new RuntimeException("Cannot encode response of type "
+          + v.getClass().getName());
+    }
+  }
+
+  /*
+   * Makes sure there are at least n bytes of room in the current buffer.
+   */
+  private void ensure(int n) {
+    if (cur == null || cur.remaining() < n) {
+      cur = pool.acquire();
+      chunks.add(cur);
+    }
+  }
+
+  private void putByte(byte b) {
+    ensure(1);
+    cur.put(b);
+  }
+
+  private void putBoolean(boolean b) {
+    putByte(b ? (byte) 1 : (byte) 0);
+  }
+
+  private void putInt(int i) {
+    ensure(4);
+    cur.putInt(i);
+  }
+
+  private void putLong(long l) {
+    ensure(8);
+    cur.putLong(l);
+  }
+
+  private void putDouble(double d) {
+    ensure(8);
+    cur.putDouble(d);
+  }
+
+  private void putString(String s) {
+    if (s == null) {
+      putInt(-1);
+      return;
+    }
+
+    int len = s.length();
+    int bytes = 0;
+    for (int i = 0; i < len; i++) {
+      char c = s.charAt(i);
+      if (c < 0x80) {
+        bytes += 1;
+      } else if (c < 0x800) {
+        bytes += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < len
+          && Character.isLowSurrogate(s.charAt(i + 1))) {
+        bytes += 4;
+        i++;
+      } else {
+        bytes += 3;
+      }
+    }
+    putInt(bytes);
+
+    for (int i = 0; i < len; i++) {
+      char c = s.charAt(i);
+      if (c < 0x80) {
+        ensure(1);
+        cur.put((byte) c);
+      } else if (c < 0x800) {
+        ensure(2);
+        cur.put((byte) (0xc0 | (c >> 6)));
+        cur.put((byte) (0x80 | (c & 0x3f)));
+      } else if (Character.isHighSurrogate(c) && i + 1 < len
+          && Character.isLowSurrogate(s.charAt(i + 1))) {
+        int cp = Character.toCodePoint(c, s.charAt(++i));
+        ensure(4);
+        cur.put((byte) (0xf0 | (cp >> 18)));
+        cur.put((byte) (0x80 | ((cp >> 12) & 0x3f)));
+        cur.put((byte) (0x80 | ((cp >> 6) & 0x3f)));
+        cur.put((byte) (0x80 | (cp & 0x3f)));
+      } else {
+        ensure(3);
+        cur.put((byte) (0xe0 | (c >> 12)));
+        cur.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+        cur.put((byte) (0x80 | (c & 0x3f)));
+      }
+    }
+  }
+
+  private void putStrings(Iterable<String> strings) {
+    putInt(count(strings));
+    if (strings == null)
+      return;
+
+    for (String s : strings)
+      putString(s);
+  }
+
+  private void putLongs(Iterable<? extends Number> numbers) {
+    putInt(count(numbers));
+    if (numbers == null)
+      return;
+
+    for (Number n : numbers)
+      putLong(n.longValue());
+  }
+
+  private void putObjectLists(Iterable<List<Object>> lists) {
+    putInt(count(lists));
+    if (lists == null)
+      return;
+
+    for (List<Object> list : lists) {
+      putInt(count(list));
+      if (list == null)
+        continue;
+
+      for (Object o : list)
+        putObject(o);
+    }
+  }
+
+  private void putObject(Object o) {
+    if (o == null) {
+      putByte(NULL);
+    } else if (o instanceof String) {
+      putByte(STRING);
+      putString((String) o);
+    } else if (o instanceof Integer) {
+      putByte(INT);
+      putInt((Integer) o);
+    } else if (o instanceof Long) {
+      putByte(LONG);
+      putLong((Long) o);
+    } else if (o instanceof Double) {
+      putByte(DOUBLE);
+      putDouble((Double) o);
+    } else if (o instanceof Boolean) {
+      putByte(BOOLEAN);
+      putBoolean((Boolean) o);
+    } else {
+      throw new RuntimeException("Cannot encode value of type " + o.getClass().getName());
+    }
+  }
+
+  /*
+   * Returns the number of elements of it, or -1 if it is null.
+   */
+  private static int count(Iterable<?> it) {
+    if (it == null)
+      return -1;
+
+    if (it instanceof Collection)
+      return ((Collection<?>) it).size();
+
+    int n = 0;
+    for (Object o : it)
+      n++;
+    return n;
+  }
+}
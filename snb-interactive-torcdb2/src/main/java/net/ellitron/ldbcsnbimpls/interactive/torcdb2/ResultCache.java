@@ -0,0 +1,297 @@
+/*
+ * Copyright (C) 2019 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.torcdb2;
+
+import com.ldbc.driver.Operation;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery1PersonProfile;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery2PersonPosts;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery3PersonFriends;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery4MessageContent;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery5MessageCreator;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery6MessageForum;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery7MessageReplies;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery7MessageRepliesResult;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcUpdate6AddPost;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcUpdate7AddComment;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcUpdate8AddFriendship;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A size bounded, least recently used cache of the responses to read queries,
+ * used by TorcDb2Server to answer repeated queries without executing them
+ * again. Entries are keyed on the query operation itself, since the LDBC
+ * operation classes define equals() and hashCode() over their parameters.
+ *
+ * Cached responses must be dropped when an update could change them. For
+ * short reads we know exactly which Persons and Messages the response depends
+ * on, so each entry records those IDs and invalidate() drops only the entries
+ * depending on an entity that the update changes in a way visible to short
+ * reads:
+ *
+ *   Update6AddPost: the author (ShortQuery2).
+ *   Update7AddComment: the author (ShortQuery2) and the message replied to
+ *     (ShortQuery7).
+ *   Update8AddFriendship: both persons (ShortQuery3, and ShortQuery7 through
+ *     the reply authors' "knows" flag).
+ *
+ * The other updates only add new entities or edges that no short read looks
+ * at. Complex read responses can depend on almost anything, so they are
+ * instead tagged with the number of updates seen so far and dropped when any
+ * update has happened since.
+ *
+ * As with MessageTimelineIndex, this only sees updates executed through this
+ * process, so must not be enabled if other processes execute updates against
+ * the same graph.
+ *
+ * @author Jonathan Ellithorpe (jde@cs.stanford.edu)
+ */
+public class ResultCache {
+
+  /*
+   * Epoch of entries that are invalidated by entity ID instead.
+   */
+  private static final long NO_EPOCH = -1;
+
+  private static final long[] NO_IDS = new long[0];
+
+  private static class Entry {
+    final Object response;
+    final long epoch;
+    final long[] personIds;
+    final long[] messageIds;
+
+    Entry(Object response, long epoch, long[] personIds, long[] messageIds) {
+      this.response = response;
+      this.epoch = epoch;
+      this.personIds = personIds;
+      this.messageIds = messageIds;
+    }
+  }
+
+  private static class Counters {
+    final LongAdder hits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+    final LongAdder invalidations = new LongAdder();
+  }
+
+  private final int capacity;
+
+  // All of the following are guarded by this.
+  private final LinkedHashMap<Operation, Entry> entries;
+  private final Map<Long, Set<Operation>> personDeps;
+  private final Map<Long, Set<Operation>> messageDeps;
+  private long epoch;
+
+  private final ConcurrentHashMap<String, Counters> counters;
+
+  /**
+   * Constructor for ResultCache.
+   *
+   * @param capacity Maximum number of responses to keep.
+   */
+  public ResultCache(int capacity) {
+    this.capacity = capacity;
+    this.entries = new LinkedHashMap<Operation, Entry>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Operation, Entry> eldest) {
+            if (size() > ResultCache.this.capacity) {
+              removeDeps(eldest.getKey(), eldest.getValue());
+              return true;
+            }
+            return false;
+          }
+        };
+    this.personDeps = new HashMap<>();
+    this.messageDeps = new HashMap<>();
+    this.epoch = 0;
+    this.counters = new ConcurrentHashMap<>();
+
+    System.out.println(String.format("ResultCache: {capacity: %d}", capacity));
+  }
+
+  /**
+   * Returns the cached response to op, or null if there is none.
+   */
+  public Object get(Operation op) {
+    Counters c = counters(op);
+    synchronized (this) {
+      Entry e = entries.get(op);
+      if (e != null && e.epoch != NO_EPOCH && e.epoch != epoch) {
+        entries.remove(op);
+        c.invalidations.increment();
+        e = null;
+      }
+
+      if (e == null) {
+        c.misses.increment();
+        return null;
+      }
+
+      c.hits.increment();
+      return e.response;
+    }
+  }
+
+  /**
+   * Caches the response to a read query. Must be called while no update can
+   * be executing, i.e. while holding the lock that the query was executed
+   * under.
+   *
+   * @param op The query.
+   * @param result The query's result, as reported by its handler.
+   * @param response The response sent to the client, which is what get()
+   * will return.
+   */
+  public void put(Operation op, Object result, Object response) {
+    long[] personIds = NO_IDS;
+    long[] messageIds = NO_IDS;
+    boolean isShortRead = true;
+    if (op instanceof LdbcShortQuery1PersonProfile) {
+      personIds = new long[] {((LdbcShortQuery1PersonProfile) op).personId()};
+    } else if (op instanceof LdbcShortQuery2PersonPosts) {
+      personIds = new long[] {((LdbcShortQuery2PersonPosts) op).personId()};
+    } else if (op instanceof LdbcShortQuery3PersonFriends) {
+      personIds = new long[] {((LdbcShortQuery3PersonFriends) op).personId()};
+    } else if (op instanceof LdbcShortQuery4MessageContent) {
+      messageIds = new long[] {((LdbcShortQuery4MessageContent) op).messageId()};
+    } else if (op instanceof LdbcShortQuery5MessageCreator) {
+      messageIds = new long[] {((LdbcShortQuery5MessageCreator) op).messageId()};
+    } else if (op instanceof LdbcShortQuery6MessageForum) {
+      messageIds = new long[] {((LdbcShortQuery6MessageForum) op).messageId()};
+    } else if (op instanceof LdbcShortQuery7MessageReplies) {
+      messageIds = new long[] {((LdbcShortQuery7MessageReplies) op).messageId()};
+      List<LdbcShortQuery7MessageRepliesResult> replies =
+          (List<LdbcShortQuery7MessageRepliesResult>) result;
+      personIds = new long[replies.size()];
+      for (int i = 0; i < replies.size(); i++)
+        personIds[i] = replies.get(i).replyAuthorId();
+    } else {
+      isShortRead = false;
+    }
+
+    synchronized (this) {
+      Entry old = entries.remove(op);
+      if (old != null)
+        removeDeps(op, old);
+
+      entries.put(op, new Entry(response, isShortRead ? NO_EPOCH : epoch, personIds,
+            messageIds));
+      for (long id : personIds)
+        personDeps.computeIfAbsent(id, k -> new HashSet<>()).add(op);
+      for (long id : messageIds)
+        messageDeps.computeIfAbsent(id, k -> new HashSet<>()).add(op);
+    }
+  }
+
+  /**
+   * Drops the responses that an update may have changed. Must be called after
+   * the update has committed, and before it is acknowledged to the client.
+   */
+  public void invalidate(Operation update) {
+    synchronized (this) {
+      epoch++;
+
+      if (update instanceof LdbcUpdate6AddPost) {
+        invalidate(personDeps, ((LdbcUpdate6AddPost) update).authorPersonId());
+      } else if (update instanceof LdbcUpdate7AddComment) {
+        LdbcUpdate7AddComment u7 = (LdbcUpdate7AddComment) update;
+        invalidate(personDeps, u7.authorPersonId());
+        if (u7.replyToPostId() != -1)
+          invalidate(messageDeps, u7.replyToPostId());
+        if (u7.replyToCommentId() != -1)
+          invalidate(messageDeps, u7.replyToCommentId());
+      } else if (update instanceof LdbcUpdate8AddFriendship) {
+        invalidate(personDeps, ((LdbcUpdate8AddFriendship) update).person1Id());
+        invalidate(personDeps, ((LdbcUpdate8AddFriendship) update).person2Id());
+      }
+    }
+  }
+
+  /**
+   * Returns the hit, miss and invalidation counts of each type of query, as
+   * a table.
+   */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format("%-40s %10s %10s %8s %13s\n",
+        "Operation", "Hits", "Misses", "HitRate", "Invalidations"));
+    for (Map.Entry<String, Counters> e : new TreeMap<>(counters).entrySet()) {
+      Counters c = e.getValue();
+      long hits = c.hits.sum();
+      long misses = c.misses.sum();
+      sb.append(String.format("%-40s %10d %10d %8.3f %13d\n",
+          e.getKey(),
+          hits,
+          misses,
+          (hits + misses > 0) ? (double)hits / (hits + misses) : 0.0,
+          c.invalidations.sum()));
+    }
+    return sb.toString();
+  }
+
+  private Counters counters(Operation op) {
+    return counters.computeIfAbsent(op.getClass().getSimpleName(), k -> new Counters());
+  }
+
+  /*
+   * Drops all entries depending on the given ID. Caller must hold the
+   * monitor.
+   */
+  private void invalidate(Map<Long, Set<Operation>> deps, long id) {
+    Set<Operation> ops = deps.remove(id);
+    if (ops == null)
+      return;
+
+    for (Operation op : ops) {
+      Entry e = entries.remove(op);
+      if (e != null) {
+        removeDeps(op, e);
+        counters(op).invalidations.increment();
+      }
+    }
+  }
+
+  /*
+   * Removes op from the dependency sets of the IDs in e. Caller must hold the
+   * monitor.
+   */
+  private void removeDeps(Operation op, Entry e) {
+    for (long id : e.personIds)
+      removeDep(personDeps, id, op);
+    for (long id : e.messageIds)
+      removeDep(messageDeps, id, op);
+  }
+
+  private static void removeDep(Map<Long, Set<Operation>> deps, long id, Operation op) {
+    Set<Operation> ops = deps.get(id);
+    if (ops != null) {
+      ops.remove(op);
+      if (ops.isEmpty())
+        deps.remove(id);
+    }
+  }
+}
@@ -16,6 +16,9 @@
  */
 package net.ellitron.ldbcsnbimpls.interactive.torcdb2;
 
+import net.ellitron.ldbcsnbimpls.interactive.core.LongHashSet;
+import net.ellitron.ldbcsnbimpls.interactive.core.TxRetry;
+
 import net.ellitron.torcdb2.*;
 
 import com.ldbc.driver.control.LoggingService;
@@ -60,9 +63,6 @@ public class TorcDb2 extends Db {
 
   private TorcDb2ConnectionState connState;
 
-  // Maximum number of times to try a transaction before giving up.
-  private static int MAX_TX_ATTEMPTS = 100;
-
   public TorcDb2() {
     this.connState = null;
   }
@@ -147,6 +147,133 @@ public class TorcDb2 extends Db {
     return connState;
   }
 
+  /**
+   * Collects candidate messages for a "most recent messages of these persons"
+   * query from the persons' timelines in the MessageTimelineIndex. For each
+   * person whose timeline is guaranteed to contain their top-limit messages
+   * created before maxDate, those messages are added to msgAuthors (mapped to
+   * the person) and their creationDate is filled in in vProps. All other
+   * persons are returned, and their messages need to be read from the graph.
+   *
+   * @param timelines The index, or null if not enabled.
+   * @param persons The persons whose messages we are interested in.
+   * @param maxDate Only messages created before this date are candidates.
+   * @param inclusive Whether messages created exactly at maxDate count.
+   * @param limit The number of messages the query returns.
+   * @param vProps Properties map to fill in creationDate in.
+   * @param msgAuthors Map to add candidate messages and their authors to.
+   *
+   * @return The persons whose messages must be read from the graph.
+   */
+  private static Set<Vertex> timelineCandidates(MessageTimelineIndex timelines,
+      Set<Vertex> persons, long maxDate, boolean inclusive, int limit,
+      Map<Vertex, Map<Object, Object>> vProps, Map<Vertex, Vertex> msgAuthors) {
+    if (timelines == null)
+      return persons;
+
+    Set<Vertex> scanPersons = new HashSet<>();
+    for (Vertex p : persons) {
+      MessageTimelineIndex.Timeline t = timelines.get(p.id().getLowerLong());
+      int from = (t != null) ? t.first(maxDate, inclusive) : 0;
+      int end = (t != null) ? t.coveredEnd(from, limit) : -1;
+      if (end == -1) {
+        scanPersons.add(p);
+        continue;
+      }
+
+      for (int i = from; i < end; i++) {
+        Vertex m = new Vertex(new UInt128(TorcEntity.COMMENT.idSpace, t.messageId(i)),
+            t.isPost(i) ? TorcEntity.POST.label : TorcEntity.COMMENT.label);
+        Map<Object, Object> mProps = new HashMap<>();
+        mProps.put("creationDate", t.creationDate(i));
+        vProps.put(m, mProps);
+        msgAuthors.put(m, p);
+      }
+    }
+
+    return scanPersons;
+  }
+
+  /**
+   * Builds timelines in the MessageTimelineIndex for persons whose messages
+   * (and their creation dates) were all read from the graph.
+   *
+   * @param timelines The index, or null if not enabled.
+   * @param stamps Stamps of the index taken before the messages were read.
+   * @param persons The persons whose messages were read.
+   * @param messages Result of traversing hasCreator IN from persons.
+   * @param vProps Properties map containing creationDate of the messages.
+   */
+  private static void seedTimelines(MessageTimelineIndex timelines, long[] stamps,
+      Set<Vertex> persons, TraversalResult messages, Map<Vertex, Map<Object, Object>> vProps) {
+    if (timelines == null)
+      return;
+
+    for (Vertex p : persons) {
+      List<Vertex> mList = messages.vMap.get(p);
+      int n = (mList != null) ? mList.size() : 0;
+      long[] messageIds = new long[n];
+      long[] creationDates = new long[n];
+      long[] rootPostIds = new long[n];
+      for (int i = 0; i < n; i++) {
+        Vertex m = mList.get(i);
+        messageIds[i] = m.id().getLowerLong();
+        creationDates[i] = (Long)vProps.get(m).get("creationDate");
+        if (m.label().equals(TorcEntity.POST.label))
+          rootPostIds[i] = messageIds[i];
+        else
+          rootPostIds[i] = MessageTimelineIndex.UNKNOWN;
+      }
+      timelines.seed(p.id().getLowerLong(), stamps, messageIds, creationDates, rootPostIds, n);
+    }
+  }
+
+  /**
+   * Adds the IDs of the given vertices to a set of IDs. Only the lower 64 bits of each ID are
+   * kept, so the vertices should all be in the same ID space (e.g. Persons).
+   */
+  private static void addIds(LongHashSet ids, Collection<Vertex> vertices) {
+    for (Vertex v : vertices)
+      ids.add(v.id().getLowerLong());
+  }
+
+  /**
+   * Removes the vertices whose IDs are in ids from a set of vertices.
+   */
+  private static void removeIds(Set<Vertex> vertices, LongHashSet ids) {
+    vertices.removeIf(v -> ids.contains(v.id().getLowerLong()));
+  }
+
+  /**
+   * Removes the vertices whose IDs are in ids from a traversal result, like GraphHelper.subtract()
+   * does for a set of vertices. Vertices are removed from vSet and from the neighbor lists in
+   * vMap (along with their edge properties in pMap), and base vertices left with no neighbors
+   * are dropped from vMap.
+   */
+  private static void subtract(TraversalResult tr, LongHashSet ids) {
+    removeIds(tr.vSet, ids);
+
+    Iterator<Map.Entry<Vertex, List<Vertex>>> it = tr.vMap.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<Vertex, List<Vertex>> e = it.next();
+      List<Vertex> nList = e.getValue();
+      List<Map<Object, Object>> pList = (tr.pMap != null) ? tr.pMap.get(e.getKey()) : null;
+      for (int i = nList.size() - 1; i >= 0; i--) {
+        if (ids.contains(nList.get(i).id().getLowerLong())) {
+          nList.remove(i);
+          if (pList != null)
+            pList.remove(i);
+        }
+      }
+
+      if (nList.size() == 0) {
+        it.remove();
+        if (tr.pMap != null)
+          tr.pMap.remove(e.getKey());
+      }
+    }
+  }
+
   /**
    * ------------------------------------------------------------------------
    * Complex Queries
@@ -225,14 +352,14 @@ public class TorcDb2 extends Db {
         }
       }
 
-      Set<Vertex> seenSet = new HashSet<>();
-      seenSet.add(start);
-      seenSet.addAll(l1_friends.vSet);
+      LongHashSet seenSet = new LongHashSet(l1_friends.vSet.size() + 1);
+      seenSet.add(start.id().getLowerLong());
+      addIds(seenSet, l1_friends.vSet);
 
       if (l1_matches.size() < limit) {
         TraversalResult l2_friends = graph.traverse(l1_friends, "knows", Direction.OUT, false, "Person");
 
-        GraphHelper.subtract(l2_friends, seenSet);
+        subtract(l2_friends, seenSet);
 
         graph.getProperties(vProps, l2_friends);
         for (Vertex v : l2_friends.vSet) {
@@ -241,12 +368,12 @@ public class TorcDb2 extends Db {
           }
         }
 
-        seenSet.addAll(l2_friends.vSet);
+        addIds(seenSet, l2_friends.vSet);
 
         if (l1_matches.size() + l2_matches.size() < limit) {
           TraversalResult l3_friends = graph.traverse(l2_friends, "knows", Direction.OUT, false, "Person");
 
-          GraphHelper.subtract(l3_friends, seenSet);
+          subtract(l3_friends, seenSet);
 
           graph.getProperties(vProps, l3_friends);
           for (Vertex v : l3_friends.vSet) {
@@ -285,13 +412,25 @@ public class TorcDb2 extends Db {
 
       matches = matches.subList(0, Math.min(matches.size(), limit));
 
+      DimensionCache dims = cState.dimensionCache();
+
       TraversalResult match_place = graph.traverse(matches, "isLocatedIn", Direction.OUT, false, "Place");
       TraversalResult match_universities = graph.traverse(matches, "studyAt", Direction.OUT, true, "Organisation");
       TraversalResult match_companies = graph.traverse(matches, "workAt", Direction.OUT, true, "Organisation");
-      TraversalResult university_place = graph.traverse(match_universities, "isLocatedIn", Direction.OUT, false, "Place");
-      TraversalResult company_place = graph.traverse(match_companies, "isLocatedIn", Direction.OUT, false, "Place");
-
-      graph.getProperties(vProps, match_place, match_universities, match_companies, university_place, company_place);
+      TraversalResult university_place;
+      TraversalResult company_place;
+
+      // Organisation and place names (and where organisations are located)
+      // can be answered from the dimension cache if we have one.
+      if (dims == null) {
+        university_place = graph.traverse(match_universities, "isLocatedIn", Direction.OUT, false, "Place");
+        company_place = graph.traverse(match_companies, "isLocatedIn", Direction.OUT, false, "Place");
+
+        graph.getProperties(vProps, match_place, match_universities, match_companies, university_place, company_place);
+      } else {
+        university_place = null;
+        company_place = null;
+      }
 
       for (int j = 0; j < matches.size(); j++) {
         Vertex f = matches.get(j);
@@ -312,9 +451,16 @@ public class TorcDb2 extends Db {
             Map<Object, Object> props = uniProps.get(i);
 
             List<Object> info = new ArrayList<>(3);
-            info.add(vProps.get(university).get("name"));
-            info.add(props.get("classYear"));
-            info.add(vProps.get(university_place.vMap.get(university).get(0)).get("name"));
+            if (dims == null) {
+              info.add(vProps.get(university).get("name"));
+              info.add(props.get("classYear"));
+              info.add(vProps.get(university_place.vMap.get(university).get(0)).get("name"));
+            } else {
+              long universityId = university.id().getLowerLong();
+              info.add(dims.organisationName(universityId));
+              info.add(props.get("classYear"));
+              info.add(dims.placeName(dims.organisationIsLocatedIn(universityId)));
+            }
             universityInfo.add(info);
           }
         }
@@ -328,13 +474,27 @@ public class TorcDb2 extends Db {
             Map<Object, Object> props = comProps.get(i);
 
             List<Object> info = new ArrayList<>(3);
-            info.add(vProps.get(company).get("name"));
-            info.add(props.get("workFrom"));
-            info.add(vProps.get(company_place.vMap.get(company).get(0)).get("name"));
+            if (dims == null) {
+              info.add(vProps.get(company).get("name"));
+              info.add(props.get("workFrom"));
+              info.add(vProps.get(company_place.vMap.get(company).get(0)).get("name"));
+            } else {
+              long companyId = company.id().getLowerLong();
+              info.add(dims.organisationName(companyId));
+              info.add(props.get("workFrom"));
+              info.add(dims.placeName(dims.organisationIsLocatedIn(companyId)));
+            }
             companyInfo.add(info);
           }
         }
 
+        Vertex place = match_place.vMap.get(f).get(0);
+        String placeName;
+        if (dims == null)
+          placeName = (String)vProps.get(place).get("name");
+        else
+          placeName = dims.placeName(place.id().getLowerLong());
+
         result.add(new LdbcQuery1Result(
             f.id().getLowerLong(), //((UInt128)t.get().get("friendId")).getLowerLong(),
             ((String)vProps.get(f).get("lastName")), //(String)t.get().get("lastName"),
@@ -346,7 +506,7 @@ public class TorcDb2 extends Db {
             ((String)vProps.get(f).get("locationIP")), //(String)t.get().get("locationIP"),
             ((List<String>)vProps.get(f).get("email")), //(List<String>)t.get().get("emails"),
             ((List<String>)vProps.get(f).get("language")), //(List<String>)t.get().get("languages"),
-            ((String)vProps.get(match_place.vMap.get(f).get(0)).get("name")), //(String)t.get().get("placeName"),
+            placeName, //(String)t.get().get("placeName"),
             universityInfo, //(List<List<Object>>)t.get().get("universityInfo"),
             companyInfo)); //(List<List<Object>>)t.get().get("companyInfo")));
       }
@@ -411,9 +571,30 @@ public class TorcDb2 extends Db {
       Vertex start = new Vertex(torcPersonId, TorcEntity.PERSON.label);
       TraversalResult friends = graph.traverse(start, "knows", Direction.OUT, false, "Person");
 
-      TraversalResult messages = graph.traverse(friends, "hasCreator", Direction.IN, false, "Post", "Comment");
+      // Author of each of the candidate messages.
+      Map<Vertex, Vertex> msgAuthors = new HashMap<>();
+
+      // Messages found in friends' timelines, which we still need to fetch
+      // properties for if they make it into the result.
+      Set<Vertex> timelineMsgs = new HashSet<>();
+
+      MessageTimelineIndex timelines = cState.messageTimelineIndex();
+      Set<Vertex> scanFriends = 
+        timelineCandidates(timelines, friends.vSet, maxDate, true, limit, vProps, msgAuthors);
+      timelineMsgs.addAll(msgAuthors.keySet());
+      long[] stamps = (timelines != null) ? timelines.stamps() : null;
+
+      TraversalResult messages = graph.traverse(scanFriends, "hasCreator", Direction.IN, false, "Post", "Comment");
 
       graph.getProperties(vProps, messages);
+
+      seedTimelines(timelines, stamps, scanFriends, messages, vProps);
+
+      for (Vertex f : messages.vMap.keySet())
+        for (Vertex m : messages.vMap.get(f))
+          msgAuthors.put(m, f);
+      
+      List<Vertex> candidates = new ArrayList<>(msgAuthors.keySet());
       
       // Sort the Posts and Comments descending by their creation date and ascending by post
       // identifier. Reversed for priority queue.
@@ -432,7 +613,7 @@ public class TorcDb2 extends Db {
           };
 
       PriorityQueue<Vertex> pq = new PriorityQueue(limit, c);
-      for (Vertex m : messages.vSet) {
+      for (Vertex m : candidates) {
         Long creationDate = (Long)vProps.get(m).get("creationDate");
         
         if (creationDate > maxDate)
@@ -455,16 +636,18 @@ public class TorcDb2 extends Db {
       while (pq.size() > 0)
         msgList.add(pq.poll());
 
-      // Wish there was a good way to go back and find the authors from what
-      // we have already read, but we don't have a great way to do that now,
-      // so go and read the authors.
-      TraversalResult authors = graph.traverse(msgList, "hasCreator", Direction.OUT, false, "Person");
+      Set<Vertex> propFetch = new HashSet<>(2 * msgList.size());
+      for (Vertex m : msgList) {
+        if (timelineMsgs.contains(m))
+          propFetch.add(m);
+        propFetch.add(msgAuthors.get(m));
+      }
 
-      graph.getProperties(vProps, authors);
+      graph.getProperties(vProps, propFetch);
 
       for (int i = msgList.size()-1; i >= 0; i--) {
         Vertex m = msgList.get(i);
-        Vertex f = authors.vMap.get(m).get(0);
+        Vertex f = msgAuthors.get(m);
 
         String content = (String)vProps.get(m).get("content");
         if (content.equals(""))
@@ -548,20 +731,32 @@ public class TorcDb2 extends Db {
       TraversalResult l1_friends = graph.traverse(start, "knows", Direction.OUT, false, "Person");
       TraversalResult l2_friends = graph.traverse(l1_friends, "knows", Direction.OUT, false, "Person");
 
-      Set<Vertex> friends = new HashSet<>(l1_friends.vSet.size() + l2_friends.vSet.size());
+      // Merge the (smaller) set of friends into the set of friends of friends, rather than copying
+      // both into a new set.
+      Set<Vertex> friends = l2_friends.vSet;
       friends.addAll(l1_friends.vSet);
-      friends.addAll(l2_friends.vSet);
       friends.remove(start);
 
+      DimensionCache dims = cState.dimensionCache();
+
       TraversalResult friendCity = graph.traverse(friends, "isLocatedIn", Direction.OUT, false, "Place");
-      TraversalResult cityCountry = graph.traverse(friendCity, "isPartOf", Direction.OUT, false, "Place");
-      graph.getProperties(vProps, cityCountry);
 
       // Filter out all friends located in either countryX or countryY.
-      friends.removeIf(f -> {
-        String placeName = (String)vProps.get(cityCountry.vMap.get(friendCity.vMap.get(f).get(0)).get(0)).get("name");
-        return placeName.equals(countryXName) || placeName.equals(countryYName);
-      });
+      if (dims == null) {
+        TraversalResult cityCountry = graph.traverse(friendCity, "isPartOf", Direction.OUT, false, "Place");
+        graph.getProperties(vProps, cityCountry);
+
+        friends.removeIf(f -> {
+          String placeName = (String)vProps.get(cityCountry.vMap.get(friendCity.vMap.get(f).get(0)).get(0)).get("name");
+          return placeName.equals(countryXName) || placeName.equals(countryYName);
+        });
+      } else {
+        friends.removeIf(f -> {
+          long cityId = friendCity.vMap.get(f).get(0).id().getLowerLong();
+          String placeName = dims.placeName(dims.placeIsPartOf(cityId));
+          return placeName.equals(countryXName) || placeName.equals(countryYName);
+        });
+      }
 
       TraversalResult messages = graph.traverse(friends, "hasCreator", Direction.IN, false, "Post", "Comment");
       
@@ -575,7 +770,10 @@ public class TorcDb2 extends Db {
 
       TraversalResult messageLocation = graph.traverse(messages.vSet, "isLocatedIn", Direction.OUT, false, "Place");
 
-      graph.getProperties(vProps, messageLocation.vSet, "name");
+      if (dims == null)
+        graph.getProperties(vProps, messageLocation.vSet, "name");
+      else
+        dims.getProperties(vProps, messageLocation.vSet);
 
       // Filter out all messages not in countryX or countryY.
       messages.vSet.removeIf(m -> {
@@ -744,7 +942,11 @@ public class TorcDb2 extends Db {
 
       List<Vertex> matchedTags = new ArrayList<>(tagsWithinWindow);
 
-      graph.getProperties(vProps, matchedTags);
+      DimensionCache dims = cState.dimensionCache();
+      if (dims == null)
+        graph.getProperties(vProps, matchedTags);
+      else
+        dims.getProperties(vProps, matchedTags);
 
       // Sort tags by count
       Comparator<Vertex> c = new Comparator<Vertex>() {
@@ -838,9 +1040,8 @@ public class TorcDb2 extends Db {
 //    System.out.println(String.format("l1 l2 friends time: %d us", (System.nanoTime() - startTime)/1000));
 //    startTime = System.nanoTime();
 
-      Set<Vertex> friends = new HashSet<>(l1_friends.vSet.size() + l2_friends.vSet.size());
+      Set<Vertex> friends = l2_friends.vSet;
       friends.addAll(l1_friends.vSet);
-      friends.addAll(l2_friends.vSet);
       friends.remove(start);
       
 //    System.out.println(String.format("create friends set: %d us", (System.nanoTime() - startTime)/1000));
@@ -1054,15 +1255,18 @@ public class TorcDb2 extends Db {
       TraversalResult l1_friends = graph.traverse(start, "knows", Direction.OUT, false, "Person");
       TraversalResult l2_friends = graph.traverse(l1_friends, "knows", Direction.OUT, false, "Person");
 
-      Set<Vertex> friends = new HashSet<>(l1_friends.vSet.size() + l2_friends.vSet.size());
+      Set<Vertex> friends = l2_friends.vSet;
       friends.addAll(l1_friends.vSet);
-      friends.addAll(l2_friends.vSet);
       friends.remove(start);
 
       TraversalResult posts = graph.traverse(friends, "hasCreator", Direction.IN, false, "Post");
       TraversalResult tags = graph.traverse(posts, "hasTag", Direction.OUT, false, "Tag");
 
-      graph.getProperties(vProps, tags);
+      DimensionCache dims = cState.dimensionCache();
+      if (dims == null)
+        graph.getProperties(vProps, tags);
+      else
+        dims.getProperties(vProps, tags.vSet);
 
       Map<Vertex, Long> coTagCounts = new HashMap<>();
       for (Vertex p : tags.vMap.keySet()) {
@@ -1539,15 +1743,30 @@ public class TorcDb2 extends Db {
       TraversalResult l1_friends = graph.traverse(start, "knows", Direction.OUT, false, "Person");
       TraversalResult l2_friends = graph.traverse(l1_friends, "knows", Direction.OUT, false, "Person");
 
-      Set<Vertex> friends = new HashSet<>(l1_friends.vSet.size() + l2_friends.vSet.size());
+      Set<Vertex> friends = l2_friends.vSet;
       friends.addAll(l1_friends.vSet);
-      friends.addAll(l2_friends.vSet);
       friends.remove(start);
 
-      TraversalResult messages = graph.traverse(friends, "hasCreator", Direction.IN, false, "Post", "Comment");
+      // Author of each of the candidate messages.
+      Map<Vertex, Vertex> msgAuthors = new HashMap<>();
+
+      MessageTimelineIndex timelines = cState.messageTimelineIndex();
+      Set<Vertex> scanFriends = 
+        timelineCandidates(timelines, friends, maxDate, false, limit, vProps, msgAuthors);
+      long[] stamps = (timelines != null) ? timelines.stamps() : null;
+
+      TraversalResult messages = graph.traverse(scanFriends, "hasCreator", Direction.IN, false, "Post", "Comment");
       
       graph.getProperties(vProps, messages.vSet, "creationDate");
 
+      seedTimelines(timelines, stamps, scanFriends, messages, vProps);
+
+      for (Vertex f : messages.vMap.keySet())
+        for (Vertex m : messages.vMap.get(f))
+          msgAuthors.put(m, f);
+
+      List<Vertex> candidates = new ArrayList<>(msgAuthors.keySet());
+
       // Sort results descending by creation date of Post/Comment, and then ascending by
       // Post/Comment identifier. Reversed for priority queue.
       Comparator<Vertex> c = new Comparator<Vertex>() {
@@ -1565,7 +1784,7 @@ public class TorcDb2 extends Db {
           };
 
       PriorityQueue<Vertex> pq = new PriorityQueue(limit, c);
-      for (Vertex m : messages.vSet) {
+      for (Vertex m : candidates) {
         Long creationDate = (Long)vProps.get(m).get("creationDate");
         
         if (creationDate >= maxDate)
@@ -1588,17 +1807,17 @@ public class TorcDb2 extends Db {
       while (pq.size() > 0)
         msgList.add(pq.poll());
 
-      // Wish there was a good way to go back and find the authors from what
-      // we have already read, but we don't have a great way to do that now,
-      // so go and read the authors.
-      TraversalResult authors = graph.traverse(msgList, "hasCreator", Direction.OUT, false, "Person");
+      Set<Vertex> propFetch = new HashSet<>(2 * msgList.size());
+      for (Vertex m : msgList) {
+        propFetch.add(m);
+        propFetch.add(msgAuthors.get(m));
+      }
 
-      graph.getProperties(vProps, authors);
-      graph.getProperties(vProps, msgList);
+      graph.getProperties(vProps, propFetch);
 
       for (int i = msgList.size()-1; i >= 0; i--) {
         Vertex m = msgList.get(i);
-        Vertex f = authors.vMap.get(m).get(0);
+        Vertex f = msgAuthors.get(m);
 
         String content = (String)vProps.get(m).get("content");
         if (content.equals(""))
@@ -1686,22 +1905,60 @@ public class TorcDb2 extends Db {
       TraversalResult l1_friends = graph.traverse(start, "knows", Direction.OUT, false, "Person");
       TraversalResult l2_friends = graph.traverse(l1_friends, "knows", Direction.OUT, false, "Person");
 
-      l2_friends.vSet.removeAll(l1_friends.vSet);
-      l2_friends.vSet.remove(start);
+      LongHashSet excluded = new LongHashSet(l1_friends.vSet.size() + 1);
+      excluded.add(start.id().getLowerLong());
+      addIds(excluded, l1_friends.vSet);
+      removeIds(l2_friends.vSet, excluded);
+
+      BirthdayIndex birthdayIndex = cState.birthdayIndex();
+
+      // Persons whose birthdays we need to fetch from the database.
+      Set<Vertex> birthdayFetch;
+      if (birthdayIndex != null) {
+        List<Vertex> fList = new ArrayList<>(l2_friends.vSet);
+        long[] fIds = new long[fList.size()];
+        for (int i = 0; i < fIds.length; i++)
+          fIds[i] = fList.get(i).id().getLowerLong();
+        int[] birthdays = new int[fIds.length];
+        birthdayIndex.get(fIds, birthdays);
+
+        // Filter by birthday. Persons missing from the index (e.g. added by
+        // another server) are kept for now and checked the slow way below.
+        birthdayFetch = new HashSet<>();
+        for (int i = 0; i < fIds.length; i++) {
+          Vertex f = fList.get(i);
+          if (birthdays[i] == BirthdayIndex.MISSING) {
+            birthdayFetch.add(f);
+          } else {
+            int bmonth = BirthdayIndex.month(birthdays[i]);
+            int bday = BirthdayIndex.day(birthdays[i]);
+            if (!((bmonth == month && bday >= 21) || 
+                (bmonth == ((month + 1) % 12) && bday < 22))) {
+              l2_friends.vSet.remove(f);
+            }
+          }
+        }
+      } else {
+        birthdayFetch = l2_friends.vSet;
+      }
 
-      graph.getProperties(vProps, l2_friends.vSet, "birthday"); 
+      if (!birthdayFetch.isEmpty()) {
+        graph.getProperties(vProps, birthdayFetch, "birthday"); 
 
-      // Filter by birthday
-      l2_friends.vSet.removeIf(f -> {
-        calendar.setTimeInMillis((Long)vProps.get(f).get("birthday"));
-        int bmonth = calendar.get(Calendar.MONTH); // zero based 
-        int bday = calendar.get(Calendar.DAY_OF_MONTH); // starts with 1
-        if ((bmonth == month && bday >= 21) || 
-            (bmonth == ((month + 1) % 12) && bday < 22)) {
-          return false;
-        }
-        return true;
-      });
+        // Filter by birthday
+        l2_friends.vSet.removeIf(f -> {
+          if (!birthdayFetch.contains(f))
+            return false;
+          calendar.setTimeInMillis((Long)vProps.get(f).get("birthday"));
+          int bmonth = calendar.get(Calendar.MONTH); // zero based 
+          int bday = calendar.get(Calendar.DAY_OF_MONTH); // starts with 1
+          if ((bmonth == month && bday >= 21) || 
+              (bmonth == ((month + 1) % 12) && bday < 22)) {
+            return false;
+          }
+          return true;
+        });
+      }
 
       TraversalResult posts = graph.traverse(l2_friends.vSet, "hasCreator", Direction.IN, false, "Post");
       TraversalResult tags = graph.traverse(posts, "hasTag", Direction.OUT, false, "Tag");
@@ -1864,9 +2121,8 @@ public class TorcDb2 extends Db {
       TraversalResult l1_friends = graph.traverse(start, "knows", Direction.OUT, false, "Person");
       TraversalResult l2_friends = graph.traverse(l1_friends, "knows", Direction.OUT, false, "Person");
 
-      Set<Vertex> friends = new HashSet<>(l1_friends.vSet.size() + l2_friends.vSet.size());
+      Set<Vertex> friends = l2_friends.vSet;
       friends.addAll(l1_friends.vSet);
-      friends.addAll(l2_friends.vSet);
       friends.remove(start);
       
       TraversalResult company = graph.traverse(friends, "workAt", Direction.OUT, true, "Organisation");
@@ -2026,33 +2282,45 @@ public class TorcDb2 extends Db {
       TraversalResult friendComments = graph.traverse(startFriends, "hasCreator", Direction.IN, false, "Comment");
       TraversalResult commentPost = graph.traverse(friendComments, "replyOf", Direction.OUT, false, "Post");
       TraversalResult postTags = graph.traverse(commentPost, "hasTag", Direction.OUT, false, "Tag");
-      TraversalResult tagClasses = graph.traverse(postTags, "hasType", Direction.OUT, false, "TagClass");
+
+      DimensionCache dims = cState.dimensionCache();
 
       // Find all the tags that are of the given type. Here we will comb
       // through the tagClasses and see which tags have the right type. The
       // rest may just be of a subType, so we traverse up the hasType tree for
-      // the remaining tags.
-      Set<Vertex> matchingTags = new HashSet<>(tagClasses.vMap.size());
-      while (!tagClasses.vMap.isEmpty()) {
-        graph.getProperties(vProps, tagClasses.vSet, "name");
-
-        tagClasses.vMap.entrySet().removeIf( e -> {
-            Vertex tag = (Vertex)e.getKey();
-            Vertex tagClass = ((List<Vertex>)e.getValue()).get(0);
-            
-            if (((String)vProps.get(tagClass).get("name")).equals(tagClassName)) {
-              matchingTags.add(tag);
-              return true;
-            }
+      // the remaining tags. With the dimension cache the whole TagClass
+      // hierarchy is in memory, so we can walk it locally instead.
+      Set<Vertex> matchingTags;
+      if (dims != null) {
+        long tagClassId = dims.tagClassId(tagClassName);
+        matchingTags = new HashSet<>();
+        for (Vertex t : postTags.vSet)
+          if (dims.tagIsOfClass(t.id().getLowerLong(), tagClassId))
+            matchingTags.add(t);
+      } else {
+        TraversalResult tagClasses = graph.traverse(postTags, "hasType", Direction.OUT, false, "TagClass");
+        matchingTags = new HashSet<>(tagClasses.vMap.size());
+        while (!tagClasses.vMap.isEmpty()) {
+          graph.getProperties(vProps, tagClasses.vSet, "name");
+
+          tagClasses.vMap.entrySet().removeIf( e -> {
+              Vertex tag = (Vertex)e.getKey();
+              Vertex tagClass = ((List<Vertex>)e.getValue()).get(0);
+              
+              if (((String)vProps.get(tagClass).get("name")).equals(tagClassName)) {
+                matchingTags.add(tag);
+                return true;
+              }
 
-            return false;
-          });
+              return false;
+            });
 
-        if (tagClasses.vMap.isEmpty())
-          break;
+          if (tagClasses.vMap.isEmpty())
+            break;
 
-        TraversalResult superTagClasses = graph.traverse(tagClasses, "hasType", Direction.OUT, false, "TagClass");
-        tagClasses = GraphHelper.fuse(tagClasses, superTagClasses, false);
+          TraversalResult superTagClasses = graph.traverse(tagClasses, "hasType", Direction.OUT, false, "TagClass");
+          tagClasses = GraphHelper.fuse(tagClasses, superTagClasses, false);
+        }
       }
 
       // We only care about the tags of the given type.
@@ -2106,7 +2374,10 @@ public class TorcDb2 extends Db {
 
       // Fill in the properties for our results.
       graph.getProperties(vProps, topFriends);
-      graph.getProperties(vProps, friendTags.vSet, "name");
+      if (dims == null)
+        graph.getProperties(vProps, friendTags.vSet, "name");
+      else
+        dims.getProperties(vProps, friendTags.vSet);
 
       for (int i = topFriends.size()-1; i >= 0; i--) {
         Vertex f = topFriends.get(i);
@@ -2177,13 +2448,13 @@ public class TorcDb2 extends Db {
 
       TraversalResult startFriends = new TraversalResult(null, null, start);
       TraversalResult endFriends = new TraversalResult(null, null, end);
-      Set<Vertex> startSeenSet = new HashSet<>();
-      Set<Vertex> endSeenSet = new HashSet<>();
+      LongHashSet startSeenSet = new LongHashSet();
+      LongHashSet endSeenSet = new LongHashSet();
       int n = 1;
       do {
         startFriends = graph.traverse(startFriends, "knows", Direction.OUT, false, "Person");
         
-        startFriends.vSet.removeAll(startSeenSet);
+        removeIds(startFriends.vSet, startSeenSet);
         
         // No path to destination vertex.
         if (startFriends.vSet.size() == 0) {
@@ -2194,13 +2465,13 @@ public class TorcDb2 extends Db {
         if (!Collections.disjoint(startFriends.vSet, endFriends.vSet))
           break;
 
-        startSeenSet.addAll(startFriends.vSet);
+        addIds(startSeenSet, startFriends.vSet);
 
         n++;
 
         endFriends = graph.traverse(endFriends, "knows", Direction.OUT, false, "Person");
 
-        endFriends.vSet.removeAll(endSeenSet);
+        removeIds(endFriends.vSet, endSeenSet);
 
         // No path to destination vertex.
         if (endFriends.vSet.size() == 0) {
@@ -2211,7 +2482,7 @@ public class TorcDb2 extends Db {
         if (!Collections.disjoint(startFriends.vSet, endFriends.vSet))
           break;
 
-        endSeenSet.addAll(endFriends.vSet);
+        addIds(endSeenSet, endFriends.vSet);
 
         n++;
       } while (true);
@@ -2367,15 +2638,15 @@ public class TorcDb2 extends Db {
 
       TraversalResult startFriends = new TraversalResult(null, null, startSet);
       TraversalResult endFriends = new TraversalResult(null, null, endSet);
-      Set<Vertex> startSeenSet = new HashSet<>();
-      Set<Vertex> endSeenSet = new HashSet<>();
+      LongHashSet startSeenSet = new LongHashSet();
+      LongHashSet endSeenSet = new LongHashSet();
       List<TraversalResult> startTRList = new ArrayList<>();
       List<TraversalResult> endTRList = new ArrayList<>();
       int hops = 1;
       do {
         startFriends = graph.traverse(startFriends, "knows", Direction.OUT, false, "Person");
         
-        startFriends.vSet.removeAll(startSeenSet);
+        removeIds(startFriends.vSet, startSeenSet);
         
         // No path to destination vertex.
         if (startFriends.vSet.size() == 0) {
@@ -2388,13 +2659,13 @@ public class TorcDb2 extends Db {
         if (!Collections.disjoint(startFriends.vSet, endFriends.vSet))
           break;
 
-        startSeenSet.addAll(startFriends.vSet);
+        addIds(startSeenSet, startFriends.vSet);
 
         hops++;
 
         endFriends = graph.traverse(endFriends, "knows", Direction.OUT, false, "Person");
 
-        endFriends.vSet.removeAll(endSeenSet);
+        removeIds(endFriends.vSet, endSeenSet);
 
         // No path to destination vertex.
         if (endFriends.vSet.size() == 0) {
@@ -2407,7 +2678,7 @@ public class TorcDb2 extends Db {
         if (!Collections.disjoint(startFriends.vSet, endFriends.vSet))
           break;
 
-        endSeenSet.addAll(endFriends.vSet);
+        addIds(endSeenSet, endFriends.vSet);
 
         hops++;
       } while (true);
@@ -2684,8 +2955,8 @@ public class TorcDb2 extends Db {
       Vertex person = new Vertex(new UInt128(TorcEntity.PERSON.idSpace, op.personId()), 
           TorcEntity.PERSON.label);
 
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = cState.txRetry(op);
+      while (retry.attempt()) {
         graph.beginTx();
 
         Map<Vertex, Map<Object, Object>> vProps = new HashMap<>();
@@ -2707,11 +2978,10 @@ public class TorcDb2 extends Db {
                 (Long)vProps.get(person).get("creationDate"));
 
         if (graph.commitAndSyncTx()) {
+          retry.committed();
           resultReporter.report(1, result, op);
           break;
         }
-
-        txAttempts++;
       }
     }
   }
@@ -2739,60 +3009,138 @@ public class TorcDb2 extends Db {
       Vertex person = new Vertex(new UInt128(TorcEntity.PERSON.idSpace, op.personId()), 
           TorcEntity.PERSON.label);
 
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = cState.txRetry(op);
+      while (retry.attempt()) {
         graph.beginTx();
 
         List<LdbcShortQuery2PersonPostsResult> result = new ArrayList<>();
 
-        TraversalResult messages = graph.traverse(person, "hasCreator", Direction.IN, false, 
-            "Post", "Comment");
-
         Map<Vertex, Map<Object, Object>> vProps = new HashMap<>();
 
-        graph.getProperties(vProps, messages.vSet, "creationDate");
-
-        // Sort the Posts and Comments descending by creationDate, and descending by message
-        // identifier. Reversed for priority queue.
-        Comparator<Vertex> c = new Comparator<Vertex>() {
-              public int compare(Vertex v1, Vertex v2) {
-                Long v1creationDate = ((Long)vProps.get(v1).get("creationDate"));
-                Long v2creationDate = ((Long)vProps.get(v2).get("creationDate"));
-                if (v1creationDate.compareTo(v2creationDate) != 0)
-                  return v1creationDate.compareTo(v2creationDate);
-                else {
-                  Long v1Id = v1.id().getLowerLong();
-                  Long v2Id = v2.id().getLowerLong();
-                  return v1Id.compareTo(v2Id);
+        // Root Posts of the Comments in our result set, where known.
+        Map<Vertex, Vertex> rootPosts = new HashMap<>();
+
+        LinkedList<Vertex> msgList = new LinkedList<>();
+
+        MessageTimelineIndex timelines = cState.messageTimelineIndex();
+        MessageTimelineIndex.Timeline timeline = 
+          (timelines != null) ? timelines.get(op.personId()) : null;
+
+        if (timeline != null && (timeline.complete() || timeline.size() >= op.limit())) {
+          // The timeline is ordered the same way as our results, so the most recent messages
+          // are simply at the front.
+          for (int i = 0; i < Math.min(op.limit(), timeline.size()); i++) {
+            Vertex m = new Vertex(new UInt128(TorcEntity.COMMENT.idSpace, timeline.messageId(i)),
+                timeline.isPost(i) ? TorcEntity.POST.label : TorcEntity.COMMENT.label);
+            msgList.addLast(m);
+
+            if (!timeline.isPost(i) && timeline.rootPostId(i) != MessageTimelineIndex.UNKNOWN)
+              rootPosts.put(m, new Vertex(new UInt128(TorcEntity.POST.idSpace, 
+                      timeline.rootPostId(i)), TorcEntity.POST.label));
+          }
+        } else {
+          long[] stamps = (timelines != null) ? timelines.stamps() : null;
+
+          TraversalResult messages = graph.traverse(person, "hasCreator", Direction.IN, false, 
+              "Post", "Comment");
+
+          graph.getProperties(vProps, messages.vSet, "creationDate", "rootPost");
+
+          if (timelines != null) {
+            // We have all of this person's messages in hand, so build their timeline.
+            int n = messages.vSet.size();
+            long[] messageIds = new long[n];
+            long[] creationDates = new long[n];
+            long[] rootPostIds = new long[n];
+            int i = 0;
+            for (Vertex m : messages.vSet) {
+              messageIds[i] = m.id().getLowerLong();
+              creationDates[i] = (Long)vProps.get(m).get("creationDate");
+              Long rootPost = (Long)vProps.get(m).get("rootPost");
+              if (m.label().equals(TorcEntity.POST.label))
+                rootPostIds[i] = messageIds[i];
+              else if (rootPost != null)
+                rootPostIds[i] = rootPost;
+              else
+                rootPostIds[i] = MessageTimelineIndex.UNKNOWN;
+              i++;
+            }
+            timelines.seed(op.personId(), stamps, messageIds, creationDates, rootPostIds, n);
+          }
+
+          // Sort the Posts and Comments descending by creationDate, and descending by message
+          // identifier. Reversed for priority queue.
+          Comparator<Vertex> c = new Comparator<Vertex>() {
+                public int compare(Vertex v1, Vertex v2) {
+                  Long v1creationDate = ((Long)vProps.get(v1).get("creationDate"));
+                  Long v2creationDate = ((Long)vProps.get(v2).get("creationDate"));
+                  if (v1creationDate.compareTo(v2creationDate) != 0)
+                    return v1creationDate.compareTo(v2creationDate);
+                  else {
+                    Long v1Id = v1.id().getLowerLong();
+                    Long v2Id = v2.id().getLowerLong();
+                    return v1Id.compareTo(v2Id);
+                  }
                 }
-              }
-            };
+              };
 
-        PriorityQueue<Vertex> pq = new PriorityQueue(op.limit(), c);
-        for (Vertex m : messages.vSet) {
-          Long creationDate = (Long)vProps.get(m).get("creationDate");
-         
-          if (pq.size() < op.limit()) {
-            pq.add(m);
-            continue;
+          PriorityQueue<Vertex> pq = new PriorityQueue(op.limit(), c);
+          for (Vertex m : messages.vSet) {
+            Long creationDate = (Long)vProps.get(m).get("creationDate");
+           
+            if (pq.size() < op.limit()) {
+              pq.add(m);
+              continue;
+            }
+
+            if (creationDate > (Long)vProps.get(pq.peek()).get("creationDate")) {
+              pq.add(m);
+              pq.poll();
+            }
           }
 
-          if (creationDate > (Long)vProps.get(pq.peek()).get("creationDate")) {
-            pq.add(m);
-            pq.poll();
+          // Create a list from the priority queue with the elements sorted in the desired order.
+          while (pq.size() > 0)
+            msgList.addFirst(pq.poll());
+        }
+
+        // Root posts we find for Comments in the timeline whose root it doesn't know.
+        Map<Long, Long> newRootPostIds = new HashMap<>();
+
+        // Comments carry their root Post in the "rootPost" property, except in images made
+        // before this property was introduced. Fetch the properties of Comments we don't know the
+        // root of yet (unless we already have them) to look for it.
+        Set<Vertex> walkSet = new HashSet<>();
+        List<Vertex> rootFetch = new ArrayList<>();
+        for (Vertex m : msgList) {
+          if (m.label().equals("Comment") && !rootPosts.containsKey(m)) {
+            walkSet.add(m);
+            if (!vProps.containsKey(m))
+              rootFetch.add(m);
           }
         }
 
-        // Create a list from the priority queue with the elements sorted in the desired order.
-        LinkedList<Vertex> msgList = new LinkedList<>();
-        while (pq.size() > 0)
-          msgList.addFirst(pq.poll());
+        if (rootFetch.size() > 0)
+          graph.getProperties(vProps, rootFetch);
+
+        Iterator<Vertex> walkIt = walkSet.iterator();
+        while (walkIt.hasNext()) {
+          Vertex m = walkIt.next();
+          Long rootPostId = (Long)vProps.get(m).get("rootPost");
+          if (rootPostId != null) {
+            rootPosts.put(m, new Vertex(new UInt128(TorcEntity.POST.idSpace, rootPostId), 
+                  TorcEntity.POST.label));
+            if (rootFetch.contains(m))
+              newRootPostIds.put(m.id().getLowerLong(), rootPostId);
+            walkIt.remove();
+          }
+        }
 
-        // Traverse "replyOf" relationships until we find the ancestor Post of all the Comment
-        // messages in our result set.
+        // Traverse "replyOf" relationships until we find the ancestor Post of all the remaining
+        // Comments.
         LinkedList<TraversalResult> trList = new LinkedList<>();
-        trList.addLast(new TraversalResult(null, null, new HashSet<>(msgList)));
-        Set<Vertex> postSet = new HashSet<>();
+        trList.addLast(new TraversalResult(null, null, walkSet));
+        Set<Vertex> postSet = new HashSet<>(rootPosts.values());
         while (true) {
           List<Vertex> cList = new ArrayList<>();
           for (Vertex v : trList.getLast().vSet)
@@ -2814,7 +3162,9 @@ public class TorcDb2 extends Db {
 
         List<Vertex> propFetch = new ArrayList<>(msgList.size() + postSet.size() + 
             originalAuthors.vSet.size() + 1);
-        propFetch.addAll(msgList);
+        for (Vertex m : msgList)
+          if (!rootFetch.contains(m))
+            propFetch.add(m);
         propFetch.addAll(postSet);
         propFetch.addAll(originalAuthors.vSet);
         propFetch.add(person);
@@ -2837,21 +3187,27 @@ public class TorcDb2 extends Db {
             originalPostAuthorFirstName = (String)vProps.get(person).get("firstName");
             originalPostAuthorLastName = (String)vProps.get(person).get("lastName");
           } else {
-            Vertex base = m;
-            for (int j = 0; j < trList.size(); j++) {
-              TraversalResult tr = trList.get(j);
-              Vertex replyToV = tr.vMap.get(base).get(0);
-              if (replyToV.label().equals("Post")) {
-                Vertex author = originalAuthors.vMap.get(replyToV).get(0);
-                originalPostId = replyToV.id().getLowerLong();
-                originalPostAuthorId = author.id().getLowerLong();
-                originalPostAuthorFirstName = (String)vProps.get(author).get("firstName");
-                originalPostAuthorLastName = (String)vProps.get(author).get("lastName");
-                break;
-              }
+            Vertex rootPost = rootPosts.get(m);
+            if (rootPost == null) {
+              Vertex base = m;
+              for (int j = 0; j < trList.size(); j++) {
+                TraversalResult tr = trList.get(j);
+                Vertex replyToV = tr.vMap.get(base).get(0);
+                if (replyToV.label().equals("Post")) {
+                  rootPost = replyToV;
+                  newRootPostIds.put(m.id().getLowerLong(), replyToV.id().getLowerLong());
+                  break;
+                }
 
-              base = replyToV;
+                base = replyToV;
+              }
             }
+
+            Vertex author = originalAuthors.vMap.get(rootPost).get(0);
+            originalPostId = rootPost.id().getLowerLong();
+            originalPostAuthorId = author.id().getLowerLong();
+            originalPostAuthorFirstName = (String)vProps.get(author).get("firstName");
+            originalPostAuthorLastName = (String)vProps.get(author).get("lastName");
           }
 
           result.add(new LdbcShortQuery2PersonPostsResult(
@@ -2865,11 +3221,13 @@ public class TorcDb2 extends Db {
         }
 
         if (graph.commitAndSyncTx()) {
+          retry.committed();
+          if (timelines != null && !newRootPostIds.isEmpty())
+            timelines.setRootPosts(op.personId(), newRootPostIds);
+
           resultReporter.report(result.size(), result, op);
           break;
         }
-
-        txAttempts++;
       }
     }
   }
@@ -2894,8 +3252,8 @@ public class TorcDb2 extends Db {
       Vertex person = new Vertex(new UInt128(TorcEntity.PERSON.idSpace, op.personId()), 
           TorcEntity.PERSON.label);
 
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = cState.txRetry(op);
+      while (retry.attempt()) {
         graph.beginTx();
 
         List<LdbcShortQuery3PersonFriendsResult> result = new ArrayList<>();
@@ -2949,11 +3307,10 @@ public class TorcDb2 extends Db {
         }
 
         if (graph.commitAndSyncTx()) {
+          retry.committed();
           resultReporter.report(result.size(), result, op);
           break;
         }
-
-        txAttempts++;
       }
     }
   }
@@ -2984,8 +3341,8 @@ public class TorcDb2 extends Db {
       Vertex message = new Vertex(new UInt128(TorcEntity.COMMENT.idSpace, op.messageId()), 
           "Message");
 
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = cState.txRetry(op);
+      while (retry.attempt()) {
         graph.beginTx();
 
         Map<Vertex, Map<Object, Object>> vProps = new HashMap<>();
@@ -3006,11 +3363,10 @@ public class TorcDb2 extends Db {
                 creationDate);
 
         if (graph.commitAndSyncTx()) {
+          retry.committed();
           resultReporter.report(1, result, op);
           break;
         }
-
-        txAttempts++;
       }
     }
   }
@@ -3040,8 +3396,8 @@ public class TorcDb2 extends Db {
       Vertex message = new Vertex(new UInt128(TorcEntity.COMMENT.idSpace, op.messageId()), 
           "Message");
 
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = cState.txRetry(op);
+      while (retry.attempt()) {
         graph.beginTx();
 
         TraversalResult creator = graph.traverse(message, "hasCreator", Direction.OUT, false, 
@@ -3060,11 +3416,10 @@ public class TorcDb2 extends Db {
                 (String)vProps.get(author).get("lastName"));
 
         if (graph.commitAndSyncTx()) {
+          retry.committed();
           resultReporter.report(1, result, op);
           break;
         }
-
-        txAttempts++;
       }
     }
   }
@@ -3097,15 +3452,29 @@ public class TorcDb2 extends Db {
       Vertex message = new Vertex(new UInt128(TorcEntity.COMMENT.idSpace, op.messageId()), 
           "Message");
 
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = cState.txRetry(op);
+      while (retry.attempt()) {
         graph.beginTx();
 
-        // Traverse replyOf relationships to get post, forum, and moderator.
-        Vertex v = message;
         Vertex post = null;
         Vertex forum = null;
         Vertex moderator = null;
+        Map<Vertex, Map<Object, Object>> vProps = new HashMap<>();
+
+        // A Comment knows its root Post, in which case we can go straight to
+        // the Post's Forum. Posts, and Comments in images made before the
+        // "rootPost" property was added, don't have it.
+        Vertex v = message;
+        graph.getProperties(vProps, Arrays.asList(message), "rootPost");
+        Map<Object, Object> messageProps = vProps.get(message);
+        Long messageRootPostId = 
+            (messageProps != null) ? (Long)messageProps.get("rootPost") : null;
+        if (messageRootPostId != null)
+          v = new Vertex(new UInt128(TorcEntity.POST.idSpace, messageRootPostId), 
+              TorcEntity.POST.label);
+
+        // Otherwise traverse replyOf relationships to get post, forum, and
+        // moderator.
         while (true) {
           TraversalResult replyOf = graph.traverse(v, "replyOf", Direction.OUT, false, "Post", "Comment");
           if (replyOf.vMap.size() == 0) {
@@ -3114,9 +3483,17 @@ public class TorcDb2 extends Db {
             break;
           }
           v = replyOf.vMap.get(v).get(0);
-        }
 
-        Map<Vertex, Map<Object, Object>> vProps = new HashMap<>();
+          // The parent Comment shares our root Post, so if it knows what that is we can skip the
+          // rest of the reply chain.
+          if (v.label().equals("Comment")) {
+            graph.getProperties(vProps, v);
+            Long rootPostId = (Long)vProps.get(v).get("rootPost");
+            if (rootPostId != null)
+              v = new Vertex(new UInt128(TorcEntity.POST.idSpace, rootPostId), 
+                  TorcEntity.POST.label);
+          }
+        }
 
         graph.getProperties(vProps, forum, moderator);
 
@@ -3129,11 +3506,10 @@ public class TorcDb2 extends Db {
                 (String)vProps.get(moderator).get("lastName"));
 
         if (graph.commitAndSyncTx()) {
+          retry.committed();
           resultReporter.report(1, result, op);
           break;
         }
-
-        txAttempts++;
       }
     }
   }
@@ -3167,8 +3543,8 @@ public class TorcDb2 extends Db {
       Vertex message = new Vertex(new UInt128(TorcEntity.COMMENT.idSpace, op.messageId()), 
           "Message");
 
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = cState.txRetry(op);
+      while (retry.attempt()) {
         graph.beginTx();
 
         TraversalResult author = graph.traverse(message, "hasCreator", Direction.OUT, false, "Person");
@@ -3216,11 +3592,10 @@ public class TorcDb2 extends Db {
         }
 
         if (graph.commitAndSyncTx()) {
+          retry.committed();
           resultReporter.report(result.size(), result, op);
           break;
         }
-
-        txAttempts++;
       }
     }
   }
@@ -3296,8 +3671,8 @@ public class TorcDb2 extends Db {
           workAtProps.add(wprops);
       });
 
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = cState.txRetry(op);
+      while (retry.attempt()) {
         graph.beginTx();
 
         graph.addVertex(person, personProps);
@@ -3314,11 +3689,14 @@ public class TorcDb2 extends Db {
           graph.addEdge(person, "workAt", companies.get(i), workAtProps.get(i));
 
         if (graph.commitAndSyncTx()) {
+          retry.committed();
+          BirthdayIndex birthdayIndex = cState.birthdayIndex();
+          if (birthdayIndex != null)
+            birthdayIndex.put(op.personId(), op.birthday().getTime());
+
           reporter.report(0, LdbcNoResult.INSTANCE, op);
           break;
         }
-
-        txAttempts++;
       }
     }
   }
@@ -3340,28 +3718,35 @@ public class TorcDb2 extends Db {
       Graph graph = cState.getGraph();
 //    graph.getClient().nanoLogPrint("LdbcUpdate2 Start");
 
-      Vertex person = new Vertex(new UInt128(TorcEntity.PERSON.idSpace, op.personId()), 
-          TorcEntity.PERSON.label);
-      Vertex post = new Vertex(new UInt128(TorcEntity.POST.idSpace, op.postId()),
-          TorcEntity.POST.label);
-
-      Map<Object, Object> eprops = new HashMap<>();
-      eprops.put("creationDate", new Long(op.creationDate().getTime()));
-
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = cState.txRetry(op);
+      while (retry.attempt()) {
         graph.beginTx();
 
-        graph.addEdge(person, "likes", post, eprops);
+        addToTx(graph, op);
 
         if (graph.commitAndSyncTx()) {
+          retry.committed();
           reporter.report(0, LdbcNoResult.INSTANCE, op);
           break;
         }
-
-        txAttempts++;
       }
     }
+
+    /**
+     * Adds the writes of this update to the current transaction of graph. Also used by
+     * UpdateBatcher to group many updates into one transaction.
+     */
+    static void addToTx(Graph graph, LdbcUpdate2AddPostLike op) {
+      Vertex person = new Vertex(new UInt128(TorcEntity.PERSON.idSpace, op.personId()), 
+          TorcEntity.PERSON.label);
+      Vertex post = new Vertex(new UInt128(TorcEntity.POST.idSpace, op.postId()),
+          TorcEntity.POST.label);
+
+      Map<Object, Object> eprops = new HashMap<>();
+      eprops.put("creationDate", new Long(op.creationDate().getTime()));
+
+      graph.addEdge(person, "likes", post, eprops);
+    }
   }
 
   /**
@@ -3382,28 +3767,34 @@ public class TorcDb2 extends Db {
       Graph graph = cState.getGraph();
 //    graph.getClient().nanoLogPrint("LdbcUpdate3 Start");
 
-      Vertex person = new Vertex(new UInt128(TorcEntity.PERSON.idSpace, op.personId()), 
-          TorcEntity.PERSON.label);
-      Vertex comment = new Vertex(new UInt128(TorcEntity.COMMENT.idSpace, op.commentId()),
-          TorcEntity.COMMENT.label);
-
-      Map<Object, Object> eprops = new HashMap<>();
-      eprops.put("creationDate", new Long(op.creationDate().getTime()));
-
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = cState.txRetry(op);
+      while (retry.attempt()) {
         graph.beginTx();
 
-        graph.addEdge(person, "likes", comment, eprops);
+        addToTx(graph, op);
 
         if (graph.commitAndSyncTx()) {
+          retry.committed();
           reporter.report(0, LdbcNoResult.INSTANCE, op);
           break;
         }
-
-        txAttempts++;
       }
     }
+
+    /**
+     * Adds the writes of this update to the current transaction of graph.
+     */
+    static void addToTx(Graph graph, LdbcUpdate3AddCommentLike op) {
+      Vertex person = new Vertex(new UInt128(TorcEntity.PERSON.idSpace, op.personId()), 
+          TorcEntity.PERSON.label);
+      Vertex comment = new Vertex(new UInt128(TorcEntity.COMMENT.idSpace, op.commentId()),
+          TorcEntity.COMMENT.label);
+
+      Map<Object, Object> eprops = new HashMap<>();
+      eprops.put("creationDate", new Long(op.creationDate().getTime()));
+
+      graph.addEdge(person, "likes", comment, eprops);
+    }
   }
 
   /**
@@ -3439,8 +3830,8 @@ public class TorcDb2 extends Db {
       Vertex moderator = new Vertex(new UInt128(TorcEntity.PERSON.idSpace, op.moderatorPersonId()), 
           TorcEntity.PERSON.label);
 
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = cState.txRetry(op);
+      while (retry.attempt()) {
         graph.beginTx();
 
         graph.addVertex(forum, forumProps);
@@ -3451,11 +3842,10 @@ public class TorcDb2 extends Db {
         graph.addEdge(forum, "hasModerator", moderator, null);
 
         if (graph.commitAndSyncTx()) {
+          retry.committed();
           reporter.report(0, LdbcNoResult.INSTANCE, op);
           break;
         }
-
-        txAttempts++;
       }
     }
   }
@@ -3477,28 +3867,34 @@ public class TorcDb2 extends Db {
       Graph graph = cState.getGraph();
 //    graph.getClient().nanoLogPrint("LdbcUpdate5 Start");
 
-      Vertex person = new Vertex(new UInt128(TorcEntity.PERSON.idSpace, op.personId()), 
-          TorcEntity.PERSON.label);
-      Vertex forum = new Vertex(new UInt128(TorcEntity.FORUM.idSpace, op.forumId()), 
-          TorcEntity.FORUM.label);
-
-      Map<Object, Object> eprops = new HashMap<>();
-      eprops.put("joinDate", new Long(op.joinDate().getTime()));
-
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = cState.txRetry(op);
+      while (retry.attempt()) {
         graph.beginTx();
 
-        graph.addEdge(forum, "hasMember", person, eprops);
+        addToTx(graph, op);
 
         if (graph.commitAndSyncTx()) {
+          retry.committed();
           reporter.report(0, LdbcNoResult.INSTANCE, op);
           break;
         }
-
-        txAttempts++;
       }
     }
+
+    /**
+     * Adds the writes of this update to the current transaction of graph.
+     */
+    static void addToTx(Graph graph, LdbcUpdate5AddForumMembership op) {
+      Vertex person = new Vertex(new UInt128(TorcEntity.PERSON.idSpace, op.personId()), 
+          TorcEntity.PERSON.label);
+      Vertex forum = new Vertex(new UInt128(TorcEntity.FORUM.idSpace, op.forumId()), 
+          TorcEntity.FORUM.label);
+
+      Map<Object, Object> eprops = new HashMap<>();
+      eprops.put("joinDate", new Long(op.joinDate().getTime()));
+
+      graph.addEdge(forum, "hasMember", person, eprops);
+    }
   }
 
   /**
@@ -3541,8 +3937,8 @@ public class TorcDb2 extends Db {
       op.tagIds().forEach((tagid) -> tags.add(
             new Vertex(new UInt128(TorcEntity.TAG.idSpace, tagid), TorcEntity.TAG.label)));
 
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = cState.txRetry(op);
+      while (retry.attempt()) {
         graph.beginTx();
 
         graph.addVertex(post, postProps);
@@ -3554,11 +3950,15 @@ public class TorcDb2 extends Db {
           graph.addEdge(post, "hasTag", tag, null);
 
         if (graph.commitAndSyncTx()) {
+          retry.committed();
+          MessageTimelineIndex timelines = cState.messageTimelineIndex();
+          if (timelines != null)
+            timelines.add(op.authorPersonId(), op.postId(), op.creationDate().getTime(), 
+                op.postId());
+
           reporter.report(0, LdbcNoResult.INSTANCE, op);
           break;
         }
-
-        txAttempts++;
       }
     }
   }
@@ -3596,21 +3996,34 @@ public class TorcDb2 extends Db {
           TorcEntity.PLACE.label);
 
       Vertex message = null;
-      if (op.replyToCommentId() != -1)
+      if (op.replyToCommentId() != -1) {
         message = new Vertex(new UInt128(TorcEntity.COMMENT.idSpace, op.replyToCommentId()),
             TorcEntity.COMMENT.label);
-      else if (op.replyToPostId() != -1)
+      } else if (op.replyToPostId() != -1) {
         message = new Vertex(new UInt128(TorcEntity.POST.idSpace, op.replyToPostId()),
             TorcEntity.POST.label);
+        commentProps.put("rootPost", new Long(op.replyToPostId()));
+      }
 
       List<Vertex> tags = new ArrayList<>(op.tagIds().size());
       op.tagIds().forEach((tagid) -> tags.add(
             new Vertex(new UInt128(TorcEntity.TAG.idSpace, tagid), TorcEntity.TAG.label)));
 
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
+      TxRetry retry = cState.txRetry(op);
+      while (retry.attempt()) {
         graph.beginTx();
 
+        // Replies to Comments inherit the root Post of their parent.
+        if (op.replyToCommentId() != -1) {
+          Map<Vertex, Map<Object, Object>> vProps = new HashMap<>();
+          graph.getProperties(vProps, message);
+          Long rootPostId = (Long)vProps.get(message).get("rootPost");
+          if (rootPostId != null)
+            commentProps.put("rootPost", rootPostId);
+          else
+            commentProps.remove("rootPost");
+        }
+
         graph.addVertex(comment, commentProps);
         graph.addEdge(comment, "hasCreator", author, null);
         graph.addEdge(comment, "isLocatedIn", place, null);
@@ -3620,11 +4033,19 @@ public class TorcDb2 extends Db {
           graph.addEdge(comment, "hasTag", tag, null);
 
         if (graph.commitAndSyncTx()) {
+          retry.committed();
+          MessageTimelineIndex timelines = cState.messageTimelineIndex();
+          if (timelines != null) {
+            Long rootPostId = (Long)commentProps.get("rootPost");
+            if (rootPostId == null)
+              rootPostId = MessageTimelineIndex.UNKNOWN;
+            timelines.add(op.authorPersonId(), op.commentId(), op.creationDate().getTime(), 
+                rootPostId);
+          }
+
           reporter.report(0, LdbcNoResult.INSTANCE, op);
           break;
         }
-
-        txAttempts++;
       }
     }
   }
@@ -3646,6 +4067,24 @@ public class TorcDb2 extends Db {
       Graph graph = cState.getGraph();
 //    graph.getClient().nanoLogPrint("LdbcUpdate8 Start");
 
+      TxRetry retry = cState.txRetry(op);
+      while (retry.attempt()) {
+        graph.beginTx();
+
+        addToTx(graph, op);
+
+        if (graph.commitAndSyncTx()) {
+          retry.committed();
+          reporter.report(0, LdbcNoResult.INSTANCE, op);
+          break;
+        }
+      }
+    }
+
+    /**
+     * Adds the writes of this update to the current transaction of graph.
+     */
+    static void addToTx(Graph graph, LdbcUpdate8AddFriendship op) {
       // Build key value properties map
       Map<Object, Object> props = new HashMap<>();
       props.put("creationDate", new Long(op.creationDate().getTime()));
@@ -3655,20 +4094,8 @@ public class TorcDb2 extends Db {
       Vertex person2 = new Vertex(new UInt128(TorcEntity.PERSON.idSpace, op.person2Id()), 
           TorcEntity.PERSON.label);
 
-      int txAttempts = 0;
-      while (txAttempts < MAX_TX_ATTEMPTS) {
-        graph.beginTx();
-
-        graph.addEdge(person1, "knows", person2, props);
-        graph.addEdge(person2, "knows", person1, props);
-
-        if (graph.commitAndSyncTx()) {
-          reporter.report(0, LdbcNoResult.INSTANCE, op);
-          break;
-        }
-
-        txAttempts++;
-      }
+      graph.addEdge(person1, "knows", person2, props);
+      graph.addEdge(person2, "knows", person1, props);
     }
   }
 }
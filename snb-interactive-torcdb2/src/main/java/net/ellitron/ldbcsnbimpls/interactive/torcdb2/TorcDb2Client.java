@@ -190,12 +190,9 @@ public class TorcDb2Client extends Db {
 
       // Package operation into serializable form and send to server.
       if (operation instanceof LdbcQuery1) {
-        out.writeObject(new LdbcQuery1Serializable((LdbcQuery1) operation));
-        out.flush();
-
-        // Receive the response.
+        // Send the request and receive the response.
         List<LdbcQuery1ResultSerializable> resp = 
-          (List<LdbcQuery1ResultSerializable>) in.readObject();
+          (List<LdbcQuery1ResultSerializable>) connState.call(n, out, in, new LdbcQuery1Serializable((LdbcQuery1) operation));
 
         // Convert the response to type expected by driver.  
         List<LdbcQuery1Result> result = new ArrayList<>();
@@ -205,12 +202,9 @@ public class TorcDb2Client extends Db {
 
         resultReporter.report(result.size(), result, operation);
       } else if (operation instanceof LdbcQuery2) {
-        out.writeObject(new LdbcQuery2Serializable((LdbcQuery2) operation));
-        out.flush();
-
-        // Receive the response.
+        // Send the request and receive the response.
         List<LdbcQuery2ResultSerializable> resp = 
-          (List<LdbcQuery2ResultSerializable>) in.readObject();
+          (List<LdbcQuery2ResultSerializable>) connState.call(n, out, in, new LdbcQuery2Serializable((LdbcQuery2) operation));
 
         // Convert the response to type expected by driver.  
         List<LdbcQuery2Result> result = new ArrayList<>();
@@ -220,12 +214,9 @@ public class TorcDb2Client extends Db {
 
         resultReporter.report(result.size(), result, operation);
       } else if (operation instanceof LdbcQuery3) {
-        out.writeObject(new LdbcQuery3Serializable((LdbcQuery3) operation));
-        out.flush();
-
-        // Receive the response.
+        // Send the request and receive the response.
         List<LdbcQuery3ResultSerializable> resp = 
-          (List<LdbcQuery3ResultSerializable>) in.readObject();
+          (List<LdbcQuery3ResultSerializable>) connState.call(n, out, in, new LdbcQuery3Serializable((LdbcQuery3) operation));
 
         // Convert the response to type expected by driver.  
         List<LdbcQuery3Result> result = new ArrayList<>();
@@ -235,12 +226,9 @@ public class TorcDb2Client extends Db {
 
         resultReporter.report(result.size(), result, operation);
       } else if (operation instanceof LdbcQuery4) {
-        out.writeObject(new LdbcQuery4Serializable((LdbcQuery4) operation));
-        out.flush();
-
-        // Receive the response.
+        // Send the request and receive the response.
         List<LdbcQuery4ResultSerializable> resp = 
-          (List<LdbcQuery4ResultSerializable>) in.readObject();
+          (List<LdbcQuery4ResultSerializable>) connState.call(n, out, in, new LdbcQuery4Serializable((LdbcQuery4) operation));
 
         // Convert the response to type expected by driver.  
         List<LdbcQuery4Result> result = new ArrayList<>();
@@ -250,12 +238,9 @@ public class TorcDb2Client extends Db {
 
         resultReporter.report(result.size(), result, operation);
       } else if (operation instanceof LdbcQuery5) {
-        out.writeObject(new LdbcQuery5Serializable((LdbcQuery5) operation));
-        out.flush();
-
-        // Receive the response.
+        // Send the request and receive the response.
         List<LdbcQuery5ResultSerializable> resp = 
-          (List<LdbcQuery5ResultSerializable>) in.readObject();
+          (List<LdbcQuery5ResultSerializable>) connState.call(n, out, in, new LdbcQuery5Serializable((LdbcQuery5) operation));
 
         // Convert the response to type expected by driver.  
         List<LdbcQuery5Result> result = new ArrayList<>();
@@ -265,12 +250,9 @@ public class TorcDb2Client extends Db {
 
         resultReporter.report(result.size(), result, operation);
       } else if (operation instanceof LdbcQuery6) {
-        out.writeObject(new LdbcQuery6Serializable((LdbcQuery6) operation));
-        out.flush();
-
-        // Receive the response.
+        // Send the request and receive the response.
         List<LdbcQuery6ResultSerializable> resp = 
-          (List<LdbcQuery6ResultSerializable>) in.readObject();
+          (List<LdbcQuery6ResultSerializable>) connState.call(n, out, in, new LdbcQuery6Serializable((LdbcQuery6) operation));
 
         // Convert the response to type expected by driver.  
         List<LdbcQuery6Result> result = new ArrayList<>();
@@ -280,12 +262,9 @@ public class TorcDb2Client extends Db {
 
         resultReporter.report(result.size(), result, operation);
       } else if (operation instanceof LdbcQuery7) {
-        out.writeObject(new LdbcQuery7Serializable((LdbcQuery7) operation));
-        out.flush();
-
-        // Receive the response.
+        // Send the request and receive the response.
         List<LdbcQuery7ResultSerializable> resp = 
-          (List<LdbcQuery7ResultSerializable>) in.readObject();
+          (List<LdbcQuery7ResultSerializable>) connState.call(n, out, in, new LdbcQuery7Serializable((LdbcQuery7) operation));
 
         // Convert the response to type expected by driver.  
         List<LdbcQuery7Result> result = new ArrayList<>();
@@ -295,12 +274,9 @@ public class TorcDb2Client extends Db {
 
         resultReporter.report(result.size(), result, operation);
       } else if (operation instanceof LdbcQuery8) {
-        out.writeObject(new LdbcQuery8Serializable((LdbcQuery8) operation));
-        out.flush();
-
-        // Receive the response.
+        // Send the request and receive the response.
         List<LdbcQuery8ResultSerializable> resp = 
-          (List<LdbcQuery8ResultSerializable>) in.readObject();
+          (List<LdbcQuery8ResultSerializable>) connState.call(n, out, in, new LdbcQuery8Serializable((LdbcQuery8) operation));
 
         // Convert the response to type expected by driver.  
         List<LdbcQuery8Result> result = new ArrayList<>();
@@ -310,12 +286,9 @@ public class TorcDb2Client extends Db {
 
         resultReporter.report(result.size(), result, operation);
       } else if (operation instanceof LdbcQuery9) {
-        out.writeObject(new LdbcQuery9Serializable((LdbcQuery9) operation));
-        out.flush();
-
-        // Receive the response.
+        // Send the request and receive the response.
         List<LdbcQuery9ResultSerializable> resp = 
-          (List<LdbcQuery9ResultSerializable>) in.readObject();
+          (List<LdbcQuery9ResultSerializable>) connState.call(n, out, in, new LdbcQuery9Serializable((LdbcQuery9) operation));
 
         // Convert the response to type expected by driver.  
         List<LdbcQuery9Result> result = new ArrayList<>();
@@ -325,12 +298,9 @@ public class TorcDb2Client extends Db {
 
         resultReporter.report(result.size(), result, operation);
       } else if (operation instanceof LdbcQuery10) {
-        out.writeObject(new LdbcQuery10Serializable((LdbcQuery10) operation));
-        out.flush();
-
-        // Receive the response.
+        // Send the request and receive the response.
         List<LdbcQuery10ResultSerializable> resp = 
-          (List<LdbcQuery10ResultSerializable>) in.readObject();
+          (List<LdbcQuery10ResultSerializable>) connState.call(n, out, in, new LdbcQuery10Serializable((LdbcQuery10) operation));
 
         // Convert the response to type expected by driver.  
         List<LdbcQuery10Result> result = new ArrayList<>();
@@ -340,12 +310,9 @@ public class TorcDb2Client extends Db {
 
         resultReporter.report(result.size(), result, operation);
       } else if (operation instanceof LdbcQuery11) {
-        out.writeObject(new LdbcQuery11Serializable((LdbcQuery11) operation));
-        out.flush();
-
-        // Receive the response.
+        // Send the request and receive the response.
         List<LdbcQuery11ResultSerializable> resp = 
-          (List<LdbcQuery11ResultSerializable>) in.readObject();
+          (List<LdbcQuery11ResultSerializable>) connState.call(n, out, in, new LdbcQuery11Serializable((LdbcQuery11) operation));
 
         // Convert the response to type expected by driver.  
         List<LdbcQuery11Result> result = new ArrayList<>();
@@ -355,12 +322,9 @@ public class TorcDb2Client extends Db {
 
         resultReporter.report(result.size(), result, operation);
       } else if (operation instanceof LdbcQuery12) {
-        out.writeObject(new LdbcQuery12Serializable((LdbcQuery12) operation));
-        out.flush();
-
-        // Receive the response.
+        // Send the request and receive the response.
         List<LdbcQuery12ResultSerializable> resp = 
-          (List<LdbcQuery12ResultSerializable>) in.readObject();
+          (List<LdbcQuery12ResultSerializable>) connState.call(n, out, in, new LdbcQuery12Serializable((LdbcQuery12) operation));
 
         // Convert the response to type expected by driver.  
         List<LdbcQuery12Result> result = new ArrayList<>();
@@ -370,24 +334,18 @@ public class TorcDb2Client extends Db {
 
         resultReporter.report(result.size(), result, operation);
       } else if (operation instanceof LdbcQuery13) {
-        out.writeObject(new LdbcQuery13Serializable((LdbcQuery13) operation));
-        out.flush();
-
-        // Receive the response.
+        // Send the request and receive the response.
         LdbcQuery13ResultSerializable resp = 
-          (LdbcQuery13ResultSerializable) in.readObject();
+          (LdbcQuery13ResultSerializable) connState.call(n, out, in, new LdbcQuery13Serializable((LdbcQuery13) operation));
 
         // Convert the response to type expected by driver.  
         LdbcQuery13Result result = resp.unpack();
 
         resultReporter.report(1, result, operation);
       } else if (operation instanceof LdbcQuery14) {
-        out.writeObject(new LdbcQuery14Serializable((LdbcQuery14) operation));
-        out.flush();
-
-        // Receive the response.
+        // Send the request and receive the response.
         List<LdbcQuery14ResultSerializable> resp = 
-          (List<LdbcQuery14ResultSerializable>) in.readObject();
+          (List<LdbcQuery14ResultSerializable>) connState.call(n, out, in, new LdbcQuery14Serializable((LdbcQuery14) operation));
 
         // Convert the response to type expected by driver.  
         List<LdbcQuery14Result> result = new ArrayList<>();
@@ -397,24 +355,18 @@ public class TorcDb2Client extends Db {
 
         resultReporter.report(result.size(), result, operation);
       } else if (operation instanceof LdbcShortQuery1PersonProfile) {
-        out.writeObject(new LdbcShortQuery1PersonProfileSerializable((LdbcShortQuery1PersonProfile) operation));
-        out.flush();
-
-        // Receive the response.
+        // Send the request and receive the response.
         LdbcShortQuery1PersonProfileResultSerializable resp = 
-          (LdbcShortQuery1PersonProfileResultSerializable) in.readObject();
+          (LdbcShortQuery1PersonProfileResultSerializable) connState.call(n, out, in, new LdbcShortQuery1PersonProfileSerializable((LdbcShortQuery1PersonProfile) operation));
 
         // Convert the response to type expected by driver.  
         LdbcShortQuery1PersonProfileResult result = resp.unpack();
 
         resultReporter.report(1, result, operation);
       } else if (operation instanceof LdbcShortQuery2PersonPosts) {
-        out.writeObject(new LdbcShortQuery2PersonPostsSerializable((LdbcShortQuery2PersonPosts) operation));
-        out.flush();
-
-        // Receive the response.
+        // Send the request and receive the response.
         List<LdbcShortQuery2PersonPostsResultSerializable> resp = 
-          (List<LdbcShortQuery2PersonPostsResultSerializable>) in.readObject();
+          (List<LdbcShortQuery2PersonPostsResultSerializable>) connState.call(n, out, in, new LdbcShortQuery2PersonPostsSerializable((LdbcShortQuery2PersonPosts) operation));
 
         // Convert the response to type expected by driver.  
         List<LdbcShortQuery2PersonPostsResult> result = new ArrayList<>();
@@ -424,12 +376,9 @@ public class TorcDb2Client extends Db {
 
         resultReporter.report(result.size(), result, operation);
       } else if (operation instanceof LdbcShortQuery3PersonFriends) {
-        out.writeObject(new LdbcShortQuery3PersonFriendsSerializable((LdbcShortQuery3PersonFriends) operation));
-        out.flush();
-
-        // Receive the response.
+        // Send the request and receive the response.
         List<LdbcShortQuery3PersonFriendsResultSerializable> resp = 
-          (List<LdbcShortQuery3PersonFriendsResultSerializable>) in.readObject();
+          (List<LdbcShortQuery3PersonFriendsResultSerializable>) connState.call(n, out, in, new LdbcShortQuery3PersonFriendsSerializable((LdbcShortQuery3PersonFriends) operation));
 
         // Convert the response to type expected by driver.  
         List<LdbcShortQuery3PersonFriendsResult> result = new ArrayList<>();
@@ -439,48 +388,36 @@ public class TorcDb2Client extends Db {
 
         resultReporter.report(result.size(), result, operation);
       } else if (operation instanceof LdbcShortQuery4MessageContent) {
-        out.writeObject(new LdbcShortQuery4MessageContentSerializable((LdbcShortQuery4MessageContent) operation));
-        out.flush();
-
-        // Receive the response.
+        // Send the request and receive the response.
         LdbcShortQuery4MessageContentResultSerializable resp = 
-          (LdbcShortQuery4MessageContentResultSerializable) in.readObject();
+          (LdbcShortQuery4MessageContentResultSerializable) connState.call(n, out, in, new LdbcShortQuery4MessageContentSerializable((LdbcShortQuery4MessageContent) operation));
 
         // Convert the response to type expected by driver.  
         LdbcShortQuery4MessageContentResult result = resp.unpack();
 
         resultReporter.report(1, result, operation);
       } else if (operation instanceof LdbcShortQuery5MessageCreator) {
-        out.writeObject(new LdbcShortQuery5MessageCreatorSerializable((LdbcShortQuery5MessageCreator) operation));
-        out.flush();
-
-        // Receive the response.
+        // Send the request and receive the response.
         LdbcShortQuery5MessageCreatorResultSerializable resp = 
-          (LdbcShortQuery5MessageCreatorResultSerializable) in.readObject();
+          (LdbcShortQuery5MessageCreatorResultSerializable) connState.call(n, out, in, new LdbcShortQuery5MessageCreatorSerializable((LdbcShortQuery5MessageCreator) operation));
 
         // Convert the response to type expected by driver.  
         LdbcShortQuery5MessageCreatorResult result = resp.unpack();
 
         resultReporter.report(1, result, operation);
       } else if (operation instanceof LdbcShortQuery6MessageForum) {
-        out.writeObject(new LdbcShortQuery6MessageForumSerializable((LdbcShortQuery6MessageForum) operation));
-        out.flush();
-
-        // Receive the response.
+        // Send the request and receive the response.
         LdbcShortQuery6MessageForumResultSerializable resp = 
-          (LdbcShortQuery6MessageForumResultSerializable) in.readObject();
+          (LdbcShortQuery6MessageForumResultSerializable) connState.call(n, out, in, new LdbcShortQuery6MessageForumSerializable((LdbcShortQuery6MessageForum) operation));
 
         // Convert the response to type expected by driver.  
         LdbcShortQuery6MessageForumResult result = resp.unpack();
 
         resultReporter.report(1, result, operation);
       } else if (operation instanceof LdbcShortQuery7MessageReplies) {
-        out.writeObject(new LdbcShortQuery7MessageRepliesSerializable((LdbcShortQuery7MessageReplies) operation));
-        out.flush();
-
-        // Receive the response.
+        // Send the request and receive the response.
         List<LdbcShortQuery7MessageRepliesResultSerializable> resp = 
-          (List<LdbcShortQuery7MessageRepliesResultSerializable>) in.readObject();
+          (List<LdbcShortQuery7MessageRepliesResultSerializable>) connState.call(n, out, in, new LdbcShortQuery7MessageRepliesSerializable((LdbcShortQuery7MessageReplies) operation));
 
         // Convert the response to type expected by driver.  
         List<LdbcShortQuery7MessageRepliesResult> result = new ArrayList<>();
@@ -490,67 +427,51 @@ public class TorcDb2Client extends Db {
 
         resultReporter.report(result.size(), result, operation);
       } else if (operation instanceof LdbcUpdate1AddPerson) {
-        out.writeObject(new LdbcUpdate1AddPersonSerializable((LdbcUpdate1AddPerson) operation));
-        out.flush();
-
-        // Receive the response.
-        LdbcNoResultSerializable resp = (LdbcNoResultSerializable) in.readObject();
+        // Send the request and receive the response.
+        LdbcNoResultSerializable resp = 
+          (LdbcNoResultSerializable) connState.call(n, out, in, new LdbcUpdate1AddPersonSerializable((LdbcUpdate1AddPerson) operation));
 
         resultReporter.report(0, LdbcNoResult.INSTANCE, operation);
       } else if (operation instanceof LdbcUpdate2AddPostLike) {
-        out.writeObject(new LdbcUpdate2AddPostLikeSerializable((LdbcUpdate2AddPostLike) operation));
-        out.flush();
-
-        // Receive the response.
-        LdbcNoResultSerializable resp = (LdbcNoResultSerializable) in.readObject();
+        // Send the request and receive the response.
+        LdbcNoResultSerializable resp = 
+          (LdbcNoResultSerializable) connState.call(n, out, in, new LdbcUpdate2AddPostLikeSerializable((LdbcUpdate2AddPostLike) operation));
 
         resultReporter.report(0, LdbcNoResult.INSTANCE, operation);
       } else if (operation instanceof LdbcUpdate3AddCommentLike) {
-        out.writeObject(new LdbcUpdate3AddCommentLikeSerializable((LdbcUpdate3AddCommentLike) operation));
-        out.flush();
-
-        // Receive the response.
-        LdbcNoResultSerializable resp = (LdbcNoResultSerializable) in.readObject();
+        // Send the request and receive the response.
+        LdbcNoResultSerializable resp = 
+          (LdbcNoResultSerializable) connState.call(n, out, in, new LdbcUpdate3AddCommentLikeSerializable((LdbcUpdate3AddCommentLike) operation));
 
         resultReporter.report(0, LdbcNoResult.INSTANCE, operation);
       } else if (operation instanceof LdbcUpdate4AddForum) {
-        out.writeObject(new LdbcUpdate4AddForumSerializable((LdbcUpdate4AddForum) operation));
-        out.flush();
-
-        // Receive the response.
-        LdbcNoResultSerializable resp = (LdbcNoResultSerializable) in.readObject();
+        // Send the request and receive the response.
+        LdbcNoResultSerializable resp = 
+          (LdbcNoResultSerializable) connState.call(n, out, in, new LdbcUpdate4AddForumSerializable((LdbcUpdate4AddForum) operation));
 
         resultReporter.report(0, LdbcNoResult.INSTANCE, operation);
       } else if (operation instanceof LdbcUpdate5AddForumMembership) {
-        out.writeObject(new LdbcUpdate5AddForumMembershipSerializable((LdbcUpdate5AddForumMembership) operation));
-        out.flush();
-
-        // Receive the response.
-        LdbcNoResultSerializable resp = (LdbcNoResultSerializable) in.readObject();
+        // Send the request and receive the response.
+        LdbcNoResultSerializable resp = 
+          (LdbcNoResultSerializable) connState.call(n, out, in, new LdbcUpdate5AddForumMembershipSerializable((LdbcUpdate5AddForumMembership) operation));
 
         resultReporter.report(0, LdbcNoResult.INSTANCE, operation);
       } else if (operation instanceof LdbcUpdate6AddPost) {
-        out.writeObject(new LdbcUpdate6AddPostSerializable((LdbcUpdate6AddPost) operation));
-        out.flush();
-
-        // Receive the response.
-        LdbcNoResultSerializable resp = (LdbcNoResultSerializable) in.readObject();
+        // Send the request and receive the response.
+        LdbcNoResultSerializable resp = 
+          (LdbcNoResultSerializable) connState.call(n, out, in, new LdbcUpdate6AddPostSerializable((LdbcUpdate6AddPost) operation));
 
         resultReporter.report(0, LdbcNoResult.INSTANCE, operation);
       } else if (operation instanceof LdbcUpdate7AddComment) {
-        out.writeObject(new LdbcUpdate7AddCommentSerializable((LdbcUpdate7AddComment) operation));
-        out.flush();
-
-        // Receive the response.
-        LdbcNoResultSerializable resp = (LdbcNoResultSerializable) in.readObject();
+        // Send the request and receive the response.
+        LdbcNoResultSerializable resp = 
+          (LdbcNoResultSerializable) connState.call(n, out, in, new LdbcUpdate7AddCommentSerializable((LdbcUpdate7AddComment) operation));
 
         resultReporter.report(0, LdbcNoResult.INSTANCE, operation);
       } else if (operation instanceof LdbcUpdate8AddFriendship) {
-        out.writeObject(new LdbcUpdate8AddFriendshipSerializable((LdbcUpdate8AddFriendship) operation));
-        out.flush();
-
-        // Receive the response.
-        LdbcNoResultSerializable resp = (LdbcNoResultSerializable) in.readObject();
+        // Send the request and receive the response.
+        LdbcNoResultSerializable resp = 
+          (LdbcNoResultSerializable) connState.call(n, out, in, new LdbcUpdate8AddFriendshipSerializable((LdbcUpdate8AddFriendship) operation));
 
         resultReporter.report(0, LdbcNoResult.INSTANCE, operation);
       } else {
@@ -50,6 +50,8 @@ import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcUpdate6AddPost;
 import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcUpdate7AddComment;
 import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcUpdate8AddFriendship;
 
+import net.ellitron.ldbcsnbimpls.interactive.torcdb2.LdbcSerializableQueriesAndResults.*;
+
 import java.io.*;
 import java.net.*;
 import java.util.concurrent.ConcurrentHashMap;
@@ -87,8 +89,22 @@ public class TorcDb2ClientConnectionState extends DbConnectionState {
   private final ConcurrentHashMap<Thread, List<ObjectInputStream>> 
       threadLocalInputStreamList = new ConcurrentHashMap<>();
 
+  // With binary responses, responses on each thread's connections are read
+  // with these instead of the object input streams.
+  private final ConcurrentHashMap<Thread, List<ResponseDecoder>> 
+      threadLocalDecoderList = new ConcurrentHashMap<>();
+
   // This class keeps track of the load across TorcDb2Servers and helps us to 
   // spread the load across them.
+  //
+  // In locality mode, each operation has a preferred server, found by
+  // hashing the ID of the person or message the operation starts from onto a
+  // consistent hash ring with a number of virtual nodes per server. Sending
+  // operations on the same person to the same server improves the hit rates
+  // of the servers' caches, and the ring keeps most persons on the same
+  // server when servers are added or removed. The operation only goes to the
+  // least loaded server instead when the preferred server's estimated load
+  // exceeds the least loaded server's by more than maxImbalance.
   public class TorcDb2ServerLoadBalancer {
 
     // Lookup table of query type to esimated load.
@@ -97,11 +113,34 @@ public class TorcDb2ClientConnectionState extends DbConnectionState {
     // Tracks current server load.
     private final long[] serverEstimatedLoad;
 
-    public TorcDb2ServerLoadBalancer(int numServers) {
+    // Consistent hash ring of virtual node hash to server index, or null if
+    // not routing for locality.
+    private final TreeMap<Long, Integer> ring;
+
+    // Largest load difference at which we still use the preferred server.
+    private final long maxImbalance;
+
+    // Number of operations sent to their preferred server and elsewhere.
+    private long preferred = 0;
+    private long fallback = 0;
+
+    public TorcDb2ServerLoadBalancer(String[] servers, boolean locality,
+        int virtualNodes, long maxImbalance) {
+      int numServers = servers.length;
       this.serverEstimatedLoad = new long[numServers];
       for (int i = 0; i < numServers; i++)
         this.serverEstimatedLoad[i] = 0L;
 
+      this.maxImbalance = maxImbalance;
+      if (locality) {
+        this.ring = new TreeMap<>();
+        for (int i = 0; i < numServers; i++)
+          for (int v = 0; v < virtualNodes; v++)
+            this.ring.put(hash(servers[i] + "#" + v), i);
+      } else {
+        this.ring = null;
+      }
+
       this.queryLoadTable = new HashMap<>();
       this.queryLoadTable.put(LdbcQuery1.class, 32137L);
       this.queryLoadTable.put(LdbcQuery2.class, 121042L);
@@ -141,19 +180,155 @@ public class TorcDb2ClientConnectionState extends DbConnectionState {
           minIndex = i;
       }
 
-      serverEstimatedLoad[minIndex] += queryLoadTable.get(op.getClass());
+      int n = minIndex;
+      if (ring != null) {
+        int p = preferredServer(op);
+        if (serverEstimatedLoad[p] - serverEstimatedLoad[minIndex] <= maxImbalance) {
+          n = p;
+          preferred++;
+        } else {
+          fallback++;
+        }
+      }
+
+      serverEstimatedLoad[n] += queryLoadTable.get(op.getClass());
 
-      return minIndex;
+      return n;
     }
 
     public synchronized void deload(Operation op, int n) {
       serverEstimatedLoad[n] -= queryLoadTable.get(op.getClass());
     }
+
+    @Override
+    public synchronized String toString() {
+      return String.format("TorcDb2ServerLoadBalancer: {locality: %s, preferred: %d, "
+          + "fallback: %d}", ring != null, preferred, fallback);
+    }
+
+    /*
+     * Returns the index of the server owning the operation's person or
+     * message on the hash ring.
+     */
+    private int preferredServer(Operation op) {
+      Map.Entry<Long, Integer> e = ring.ceilingEntry(mix(routingId(op)));
+      if (e == null)
+        e = ring.firstEntry();
+      return e.getValue();
+    }
+  }
+
+  /*
+   * Returns the ID of the person or message that an operation starts from.
+   */
+  private static long routingId(Operation op) {
+    if (op instanceof LdbcQuery1)
+      return ((LdbcQuery1) op).personId();
+    else if (op instanceof LdbcQuery2)
+      return ((LdbcQuery2) op).personId();
+    else if (op instanceof LdbcQuery3)
+      return ((LdbcQuery3) op).personId();
+    else if (op instanceof LdbcQuery4)
+      return ((LdbcQuery4) op).personId();
+    else if (op instanceof LdbcQuery5)
+      return ((LdbcQuery5) op).personId();
+    else if (op instanceof LdbcQuery6)
+      return ((LdbcQuery6) op).personId();
+    else if (op instanceof LdbcQuery7)
+      return ((LdbcQuery7) op).personId();
+    else if (op instanceof LdbcQuery8)
+      return ((LdbcQuery8) op).personId();
+    else if (op instanceof LdbcQuery9)
+      return ((LdbcQuery9) op).personId();
+    else if (op instanceof LdbcQuery10)
+      return ((LdbcQuery10) op).personId();
+    else if (op instanceof LdbcQuery11)
+      return ((LdbcQuery11) op).personId();
+    else if (op instanceof LdbcQuery12)
+      return ((LdbcQuery12) op).personId();
+    else if (op instanceof LdbcQuery13)
+      return ((LdbcQuery13) op).person1Id();
+    else if (op instanceof LdbcQuery14)
+      return ((LdbcQuery14) op).person1Id();
+    else if (op instanceof LdbcShortQuery1PersonProfile)
+      return ((LdbcShortQuery1PersonProfile) op).personId();
+    else if (op instanceof LdbcShortQuery2PersonPosts)
+      return ((LdbcShortQuery2PersonPosts) op).personId();
+    else if (op instanceof LdbcShortQuery3PersonFriends)
+      return ((LdbcShortQuery3PersonFriends) op).personId();
+    else if (op instanceof LdbcShortQuery4MessageContent)
+      return ((LdbcShortQuery4MessageContent) op).messageId();
+    else if (op instanceof LdbcShortQuery5MessageCreator)
+      return ((LdbcShortQuery5MessageCreator) op).messageId();
+    else if (op instanceof LdbcShortQuery6MessageForum)
+      return ((LdbcShortQuery6MessageForum) op).messageId();
+    else if (op instanceof LdbcShortQuery7MessageReplies)
+      return ((LdbcShortQuery7MessageReplies) op).messageId();
+    else if (op instanceof LdbcUpdate1AddPerson)
+      return ((LdbcUpdate1AddPerson) op).personId();
+    else if (op instanceof LdbcUpdate2AddPostLike)
+      return ((LdbcUpdate2AddPostLike) op).personId();
+    else if (op instanceof LdbcUpdate3AddCommentLike)
+      return ((LdbcUpdate3AddCommentLike) op).personId();
+    else if (op instanceof LdbcUpdate4AddForum)
+      return ((LdbcUpdate4AddForum) op).moderatorPersonId();
+    else if (op instanceof LdbcUpdate5AddForumMembership)
+      return ((LdbcUpdate5AddForumMembership) op).personId();
+    else if (op instanceof LdbcUpdate6AddPost)
+      return ((LdbcUpdate6AddPost) op).authorPersonId();
+    else if (op instanceof LdbcUpdate7AddComment)
+      return ((LdbcUpdate7AddComment) op).authorPersonId();
+    else if (op instanceof LdbcUpdate8AddFriendship)
+      return ((LdbcUpdate8AddFriendship) op).person1Id();
+    else
+      throw new RuntimeException("Unrecognized query type.");
+  }
+
+  /*
+   * 64-bit FNV-1a hash of a string, mixed.
+   */
+  private static long hash(String s) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < s.length(); i++) {
+      h ^= s.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    return mix(h);
+  }
+
+  /*
+   * Finalizer of MurmurHash3, spreads sequential IDs around the ring.
+   */
+  private static long mix(long h) {
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
   }
 
   // Tracks load across the TorcDb2Servers and helps us pick servers for queries.
   public final TorcDb2ServerLoadBalancer loadBalancer;
 
+  // Short read requests that are coalesced into batches when enabled.
+  private static final Set<Class<?>> COALESCED_REQUESTS = new HashSet<>(Arrays.asList(
+      LdbcShortQuery1PersonProfileSerializable.class,
+      LdbcShortQuery2PersonPostsSerializable.class,
+      LdbcShortQuery3PersonFriendsSerializable.class,
+      LdbcShortQuery4MessageContentSerializable.class,
+      LdbcShortQuery5MessageCreatorSerializable.class,
+      LdbcShortQuery6MessageForumSerializable.class,
+      LdbcShortQuery7MessageRepliesSerializable.class));
+
+  // Shared connection to each server for sending short reads in batches, or
+  // null if not enabled.
+  private final RequestCoalescer[] coalescers;
+
+  // Whether to ask the servers for binary responses (see ResponseEncoder)
+  // instead of Java serialized ones.
+  private final boolean binaryResponses;
+
   public TorcDb2ClientConnectionState(Map<String, String> props) {
     if (props.containsKey("serverIPs")) {
       this.serverIPs = props.get("serverIPs").split(",");
@@ -161,18 +336,63 @@ public class TorcDb2ClientConnectionState extends DbConnectionState {
       this.serverIPs = new String[] {"127.0.0.1"};
     }
 
-    this.loadBalancer = new TorcDb2ServerLoadBalancer(serverIPs.length);
-
     if (props.containsKey("port")) {
       this.port = Integer.decode(props.get("port"));
     } else {
       this.port = 5577;
     }
+
+    String routing = props.getOrDefault("routing", "leastLoaded");
+    int routingVirtualNodes =
+        Integer.decode(props.getOrDefault("routingVirtualNodes", "64"));
+    long routingMaxImbalance =
+        Long.decode(props.getOrDefault("routingMaxImbalance", "50000000"));
+    boolean locality;
+    if (routing.equals("locality"))
+      locality = true;
+    else if (routing.equals("leastLoaded"))
+      locality = false;
+    else
+      throw new RuntimeException("Unknown routing mode: " + routing);
+
+    System.out.println(String.format("TorcDb2ClientConnectionState: {routing: %s, "
+          + "routingVirtualNodes: %d, routingMaxImbalance: %d}",
+          routing,
+          routingVirtualNodes,
+          routingMaxImbalance));
+
+    String[] ringServers = new String[serverIPs.length];
+    for (int i = 0; i < serverIPs.length; i++)
+      ringServers[i] = serverIPs[i] + ":" + port;
+    this.loadBalancer = new TorcDb2ServerLoadBalancer(ringServers, locality,
+        routingVirtualNodes, routingMaxImbalance);
+
+    this.binaryResponses =
+        Boolean.parseBoolean(props.getOrDefault("binaryResponses", "false"));
+    System.out.println(String.format("TorcDb2ClientConnectionState: {binaryResponses: %s}",
+          binaryResponses));
+
+    if (props.containsKey("coalesceMaxOps")) {
+      int maxOps = Integer.decode(props.get("coalesceMaxOps"));
+      System.out.println(String.format("TorcDb2ClientConnectionState: {coalesceMaxOps: %d}",
+            maxOps));
+      this.coalescers = new RequestCoalescer[serverIPs.length];
+      try {
+        for (int i = 0; i < serverIPs.length; i++)
+          this.coalescers[i] = new RequestCoalescer(serverIPs[i], port, maxOps,
+              binaryResponses);
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    } else {
+      this.coalescers = null;
+    }
   }
 
   @Override
   public void close() throws IOException {
     System.out.println("Closing TorcDb2Server connections...");
+    System.out.println(loadBalancer.toString());
     threadLocalServerConnList.forEach((thread, sktList) -> {
       for (Socket s : sktList) {
         try {
@@ -184,6 +404,37 @@ public class TorcDb2ClientConnectionState extends DbConnectionState {
     });
 
     threadLocalServerConnList.clear();
+    threadLocalDecoderList.clear();
+
+    if (coalescers != null) {
+      for (RequestCoalescer c : coalescers) {
+        System.out.println(c.toString());
+        c.close();
+      }
+    }
+  }
+
+  /**
+   * Sends a request to server n and returns its response. Short reads go
+   * through the server's RequestCoalescer if coalescing is enabled, and
+   * everything else over this thread's own connection to the server, given
+   * by out and in.
+   */
+  public Object call(int n, ObjectOutputStream out, ObjectInputStream in, Object request)
+      throws IOException, ClassNotFoundException, InterruptedException {
+    if (coalescers != null && COALESCED_REQUESTS.contains(request.getClass()))
+      return coalescers[n].call(request);
+
+    if (binaryResponses) {
+      ResponseDecoder decoder = getResponseDecoders().get(n);
+      out.writeObject(request);
+      out.flush();
+      return decoder.read();
+    }
+
+    out.writeObject(request);
+    out.flush();
+    return in.readObject();
   }
 
   public List<Socket> getConnections() throws IOException {
@@ -231,4 +482,30 @@ public class TorcDb2ClientConnectionState extends DbConnectionState {
 
     return threadLocalInputStreamList.get(us);
   }
+
+  /**
+   * Returns this thread's response decoders for its connections to the
+   * servers, switching the connections over to binary responses the first
+   * time around.
+   */
+  public List<ResponseDecoder> getResponseDecoders() 
+      throws IOException, ClassNotFoundException {
+    Thread us = Thread.currentThread();
+
+    if (threadLocalDecoderList.get(us) == null) {
+      List<Socket> servers = getConnections();
+      List<ObjectOutputStream> oStreams = getObjectOutputStreams();
+      List<ObjectInputStream> iStreams = getObjectInputStreams();
+      List<ResponseDecoder> dList = new ArrayList<>(servers.size());
+      for (int i = 0; i < servers.size(); i++) {
+        oStreams.get(i).writeObject(LdbcBinaryResponsesSerializable.INSTANCE);
+        oStreams.get(i).flush();
+        iStreams.get(i).readObject();
+        dList.add(new ResponseDecoder(servers.get(i).getInputStream()));
+      }
+      threadLocalDecoderList.put(us, dList);
+    }
+
+    return threadLocalDecoderList.get(us);
+  }
 }
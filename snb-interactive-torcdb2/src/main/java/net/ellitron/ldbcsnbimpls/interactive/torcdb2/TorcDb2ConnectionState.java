@@ -16,9 +16,14 @@
  */
 package net.ellitron.ldbcsnbimpls.interactive.torcdb2;
 
+import net.ellitron.ldbcsnbimpls.interactive.core.RetryPolicy;
+import net.ellitron.ldbcsnbimpls.interactive.core.TxRetry;
+import net.ellitron.ldbcsnbimpls.interactive.core.TxStats;
+
 import net.ellitron.torcdb2.*;
 
 import com.ldbc.driver.DbConnectionState;
+import com.ldbc.driver.Operation;
 
 import java.io.BufferedReader;
 import java.io.File;
@@ -34,6 +39,7 @@ import java.nio.file.Paths;
 
 import java.util.*;
 import java.util.Map;
+import java.util.concurrent.locks.Lock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -47,13 +53,40 @@ import java.util.logging.Logger;
 public class TorcDb2ConnectionState extends DbConnectionState {
 
   private final Graph graph;
+  private final GraphCache graphCache;
   private boolean fakeComplexReads;
   private boolean fakeUpdates;
   private List<Long> personIDFeed;
   private List<Long> messageIDFeed;
+  private final DimensionCache dimensionCache;
+  private final BirthdayIndex birthdayIndex;
+  private final MessageTimelineIndex messageTimelineIndex;
+  private final ResultCache resultCache;
+  private final RetryPolicy retryPolicy;
+  private final TxStats txStats;
+  private Lock heldLock;
 
   public TorcDb2ConnectionState(Map<String, String> props) {
-    this.graph = new Graph(props);
+    // Optionally cache adjacency lists and vertex properties in memory,
+    // underneath the query handlers. Without a shared cache, the graph can
+    // still cache within batches of requests (see CachingGraph.beginBatch()).
+    // In loopback mode queries are answered by LoopbackHandlers, so there is
+    // no graph to connect to.
+    if (props.containsKey("loopback")) {
+      this.graphCache = null;
+      this.graph = null;
+    } else if (props.containsKey("graphCacheMB")) {
+      long maxBytes = Long.decode(props.get("graphCacheMB")) << 20;
+      int offHeapMinSize =
+          Integer.decode(props.getOrDefault("graphCacheOffHeapMinSize", "256"));
+      this.graphCache = new GraphCache(maxBytes, offHeapMinSize);
+      this.graph = new CachingGraph(props, graphCache);
+      System.out.println(String.format("GraphCache: {maxBytes: %d, offHeapMinSize: %d}",
+          maxBytes, offHeapMinSize));
+    } else {
+      this.graphCache = null;
+      this.graph = new CachingGraph(props, null);
+    }
 
     if (props.containsKey("fakeComplexReads")) {
       if (!props.containsKey("personIDsFile") || !props.containsKey("messageIDsFile"))
@@ -93,8 +126,52 @@ public class TorcDb2ConnectionState extends DbConnectionState {
     else
       fakeUpdates = false;
 
+    // Place, Organisation, Tag and TagClass data is static, so optionally
+    // load it into memory from the original dataset files.
+    if (props.containsKey("dimensionsDir"))
+      dimensionCache = new DimensionCache(new File(props.get("dimensionsDir")));
+    else
+      dimensionCache = null;
+
+    // Index of person birthdays for LdbcQuery10, kept up to date by
+    // LdbcUpdate1AddPersonHandler.
+    if (props.containsKey("birthdayIndexDir"))
+      birthdayIndex = new BirthdayIndex(new File(props.get("birthdayIndexDir")));
+    else
+      birthdayIndex = null;
+
+    // Per-person index of most recent messages, kept up to date by
+    // LdbcUpdate6AddPostHandler and LdbcUpdate7AddCommentHandler. Only valid
+    // if all updates go through this process.
+    if (props.containsKey("timelineSize")) {
+      int maxPersons = Integer.decode(props.getOrDefault("timelineMaxPersons", "1048576"));
+      messageTimelineIndex = 
+        new MessageTimelineIndex(Integer.decode(props.get("timelineSize")), maxPersons);
+    } else {
+      messageTimelineIndex = null;
+    }
+
+    // Cache of read query responses for TorcDb2Server. Like the timeline
+    // index, only valid if all updates go through this process.
+    if (props.containsKey("resultCacheSize"))
+      resultCache = new ResultCache(Integer.decode(props.get("resultCacheSize")));
+    else
+      resultCache = null;
+
+    // How to retry transactions that fail to commit, and counters of how
+    // often that happens for each type of operation.
+    retryPolicy = RetryPolicy.fromProps(props);
+    txStats = new TxStats();
+
+    System.out.println("loopback: " + (graph == null));
     System.out.println("fakeComplexReads: " + fakeComplexReads);
     System.out.println("fakeUpdates: " + fakeUpdates);
+    System.out.println("dimensionCache: " + (dimensionCache != null));
+    System.out.println("birthdayIndex: " + (birthdayIndex != null));
+    System.out.println("messageTimelineIndex: " + (messageTimelineIndex != null));
+    System.out.println("graphCache: " + (graphCache != null));
+    System.out.println("resultCache: " + (resultCache != null));
+    System.out.println("retryPolicy: " + retryPolicy);
   }
 
   public boolean fakeComplexReads() {
@@ -113,11 +190,84 @@ public class TorcDb2ConnectionState extends DbConnectionState {
     return messageIDFeed;
   }
 
+  /**
+   * Returns the in-memory cache of Place, Organisation, Tag and TagClass data,
+   * or null if it was not enabled via the "dimensionsDir" property.
+   */
+  public DimensionCache dimensionCache() {
+    return dimensionCache;
+  }
+
+  /**
+   * Returns the in-memory index of person birthdays, or null if it was not
+   * enabled via the "birthdayIndexDir" property.
+   */
+  public BirthdayIndex birthdayIndex() {
+    return birthdayIndex;
+  }
+
+  /**
+   * Returns the per-person index of most recent messages, or null if it was
+   * not enabled via the "timelineSize" property.
+   */
+  public MessageTimelineIndex messageTimelineIndex() {
+    return messageTimelineIndex;
+  }
+
+  /**
+   * Returns the cache of adjacency lists and vertex properties used by the
+   * graph, or null if it was not enabled via the "graphCacheMB" property.
+   */
+  public GraphCache graphCache() {
+    return graphCache;
+  }
+
+  /**
+   * Returns the cache of read query responses, or null if it was not enabled
+   * via the "resultCacheSize" property.
+   */
+  public ResultCache resultCache() {
+    return resultCache;
+  }
+
+  public RetryPolicy retryPolicy() {
+    return retryPolicy;
+  }
+
+  /**
+   * Returns the transaction contention counters of all operations executed
+   * with this connection state.
+   */
+  public TxStats txStats() {
+    return txStats;
+  }
+
+  /**
+   * Returns a TxRetry for driving the transaction retry loop of one execution
+   * of op.
+   */
+  public TxRetry txRetry(Operation op) {
+    return new TxRetry(retryPolicy, txStats, op.getClass().getSimpleName(), heldLock);
+  }
+
+  /**
+   * Sets the lock that callers hold while executing operations with this
+   * connection state, if any. TxRetry releases it while backing off between
+   * attempts. Must be called before operations are executed.
+   */
+  public void setHeldLock(Lock heldLock) {
+    this.heldLock = heldLock;
+  }
+
   @Override
   public void close() throws IOException {
-    graph.close();
+    if (graph != null)
+      graph.close();
   }
 
+  /**
+   * Returns the graph, or null in loopback mode.
+   */
   public Graph getGraph() {
     return graph;
   }
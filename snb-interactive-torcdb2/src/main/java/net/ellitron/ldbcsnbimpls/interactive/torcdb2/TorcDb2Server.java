@@ -16,6 +16,9 @@
  */
 package net.ellitron.ldbcsnbimpls.interactive.torcdb2;
 
+import net.ellitron.ldbcsnbimpls.interactive.core.TxStats;
+import net.ellitron.ldbcsnbimpls.interactive.core.VirtualThreads;
+import net.ellitron.ldbcsnbimpls.interactive.nop.LoopbackHandlers;
 import net.ellitron.ldbcsnbimpls.interactive.torcdb2.TorcDb2.*;
 import net.ellitron.ldbcsnbimpls.interactive.torcdb2.TorcDb2Client.*;
 import net.ellitron.ldbcsnbimpls.interactive.torcdb2.LdbcSerializableQueriesAndResults.*;
@@ -91,6 +94,7 @@ import java.nio.file.StandardOpenOption;
 
 import java.io.*;
 import java.net.*;
+import java.nio.channels.ServerSocketChannel;
 import java.util.*;
 import java.util.concurrent.locks.*;
 import java.util.concurrent.atomic.*;
@@ -112,6 +116,7 @@ public class TorcDb2Server {
       + "\n"
       + "Usage:\n"
       + "  TorcDb2Server [options] COORDLOC GRAPHNAME\n"
+      + "  TorcDb2Server [options] --loopback\n"
       + "  TorcDb2Server (-h | --help)\n"
       + "  TorcDb2Server --version\n"
       + "\n"
@@ -124,6 +129,81 @@ public class TorcDb2Server {
       + "                    [default: 5577].\n"
       + "  --dpdkPort=<n>    DPDK port to use for connecting to servers.\n"
       + "                    [default: -1].\n"
+      + "  --dimensionsDir=<d>  Directory containing the original SNB dataset\n"
+      + "                    files. If given, Place, Organisation, Tag and\n"
+      + "                    TagClass data is loaded from here into memory\n"
+      + "                    at startup and served from there.\n"
+      + "  --birthdayIndexDir=<d>  Directory containing SNB person files.\n"
+      + "                    If given, person birthdays are indexed in\n"
+      + "                    memory at startup for use by LdbcQuery10.\n"
+      + "  --timelineSize=<n>  If given, keep the n most recent messages of\n"
+      + "                    each person in memory for ShortQuery2 and\n"
+      + "                    Query2/9. Only use when this is the only server\n"
+      + "                    executing updates.\n"
+      + "  --timelineMaxPersons=<n>  Maximum number of persons to keep message\n"
+      + "                    timelines for [default: 1048576].\n"
+      + "  --groupCommitMaxOps=<n>  If given, commit post likes, comment\n"
+      + "                    likes, forum memberships and friendships from\n"
+      + "                    concurrent clients in groups of up to n per\n"
+      + "                    transaction.\n"
+      + "  --groupCommitWindow=<us>  Maximum time to wait for more updates to\n"
+      + "                    join a group [default: 100].\n"
+      + "  --retryPolicy=<p>  How to retry transactions that fail to commit:\n"
+      + "                    immediate, exponential (backoff with jitter) or\n"
+      + "                    deadline [default: immediate]. The server's\n"
+      + "                    lock is released while backing off.\n"
+      + "  --retryMaxAttempts=<n>  Maximum attempts per transaction for the\n"
+      + "                    immediate and exponential policies\n"
+      + "                    [default: 100].\n"
+      + "  --retryBaseMicros=<us>  Backoff before the first retry\n"
+      + "                    [default: 10].\n"
+      + "  --retryMaxMicros=<us>  Maximum backoff before any retry\n"
+      + "                    [default: 10000].\n"
+      + "  --retryDeadlineMillis=<ms>  Time bound on all attempts for the\n"
+      + "                    deadline policy [default: 1000].\n"
+      + "  --resultCacheSize=<n>  If given, cache the responses to up to n\n"
+      + "                    read queries and answer repeated queries from\n"
+      + "                    the cache. Only use when this is the only server\n"
+      + "                    executing updates.\n"
+      + "  --graphCacheMB=<n>  If given, cache adjacency lists and vertex\n"
+      + "                    properties read from the database in up to n MB\n"
+      + "                    of memory. Only use when this is the only server\n"
+      + "                    executing updates.\n"
+      + "  --graphCacheOffHeapMinSize=<n>  Adjacency lists with at least n\n"
+      + "                    neighbors are cached off heap [default: 256].\n"
+      + "  --priorityScheduling  Execute waiting queries shortest expected\n"
+      + "                    execution time first, instead of in whatever\n"
+      + "                    order client threads get the lock.\n"
+      + "  --starvationMillis=<ms>  With --priorityScheduling, time after\n"
+      + "                    which a waiting query goes first regardless of\n"
+      + "                    its expected execution time [default: 100].\n"
+      + "  --complexLimit=<n>  With --priorityScheduling, maximum number of\n"
+      + "                    complex reads waiting or executing at once\n"
+      + "                    [default: 1024].\n"
+      + "  --shortLimit=<n>  With --priorityScheduling, maximum number of\n"
+      + "                    short reads and updates waiting or executing at\n"
+      + "                    once [default: 1024].\n"
+      + "  --responseBufferSize=<n>  Size in bytes of the direct buffers that\n"
+      + "                    binary responses are encoded into, at least 8\n"
+      + "                    [default: 65536].\n"
+      + "  --responseBufferPoolSize=<n>  Maximum number of free response\n"
+      + "                    buffers kept for reuse [default: 1024].\n"
+      + "  --loopback        Instead of executing queries against TorcDB2,\n"
+      + "                    answer them with synthetic results of realistic\n"
+      + "                    size, for measuring client/server transport and\n"
+      + "                    scheduling on their own. Caches, indexes and\n"
+      + "                    group commit are not used.\n"
+      + "  --loopbackResultSize=<d>  Distribution of the number of results of\n"
+      + "                    queries returning lists, capped at each query's\n"
+      + "                    limit (fixed:n, uniform:min:max, exponential:mean\n"
+      + "                    or limit) [default: limit].\n"
+      + "  --loopbackContentSize=<d>  Distribution of the length of message\n"
+      + "                    contents in results [default: uniform:0:200].\n"
+      + "  --loopbackServiceMicros=<d>  Distribution of the time each query\n"
+      + "                    takes to execute [default: fixed:0].\n"
+      + "  --virtualThreads  Serve each client connection on a virtual thread\n"
+      + "                    instead of a platform thread. Requires Java 21\n"
+      + "                    or later, otherwise platform threads are used.\n"
       + "  --verbose         Print verbose output to stdout.\n"
       + "  -h --help         Show this screen.\n"
       + "  --version         Show version.\n"
@@ -151,37 +231,67 @@ public class TorcDb2Server {
     private final ConcurrentErrorReporter concurrentErrorReporter;
     private int clientID = 1;
     private final BufferedWriter latencyFile;
+    private final Path txStatsPath;
+
+    // Serializes query execution across client threads.
+    private final Lock lock;
+
+    // Group commits small updates, or null if not enabled.
+    private final UpdateBatcher updateBatcher;
+
+    // Orders query execution, or null if not enabled.
+    private final QueryScheduler scheduler;
+
+    // Whether to serve clients on virtual threads.
+    private final boolean virtualThreads;
+
+    // Shared by client threads for encoding binary responses.
+    private final BufferPool bufferPool;
 
     public ListenerThread(int port, TorcDb2ConnectionState connectionState,
         Map<Class<? extends Operation>, OperationHandler> queryHandlerMap,
         ConcurrentErrorReporter concurrentErrorReporter,
-        BufferedWriter latencyFile) {
+        BufferedWriter latencyFile,
+        Path txStatsPath,
+        Lock lock,
+        UpdateBatcher updateBatcher,
+        QueryScheduler scheduler,
+        boolean virtualThreads,
+        BufferPool bufferPool) {
       this.port = port;
       this.connectionState = connectionState;
       this.queryHandlerMap = queryHandlerMap;
       this.concurrentErrorReporter = concurrentErrorReporter;
       this.latencyFile = latencyFile;
+      this.txStatsPath = txStatsPath;
+      this.lock = lock;
+      this.updateBatcher = updateBatcher;
+      this.scheduler = scheduler;
+      this.virtualThreads = virtualThreads;
+      this.bufferPool = bufferPool;
     }
 
     @Override
     public void run() {
       try {
-        ServerSocket server = new ServerSocket(port);
+        // Accept through a channel so that client sockets have channels to
+        // write binary responses to.
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port));
 
         System.out.println("Listening on: " + server.toString());
 
-        Lock lock = new ReentrantLock();
-
         AtomicInteger numClientThreads = new AtomicInteger(0);
 
         while (true) {
-          Socket client = server.accept();
+          Socket client = server.accept().socket();
 
           System.out.println("Client connected: " + client.toString());
 
-          Thread clientThread = new Thread(new ClientThread(client, 
+          Thread clientThread = VirtualThreads.newThread(new ClientThread(client, 
                concurrentErrorReporter, connectionState, queryHandlerMap,
-               clientID, lock, latencyFile, numClientThreads));
+               clientID, lock, latencyFile, txStatsPath, numClientThreads,
+               updateBatcher, scheduler, bufferPool), virtualThreads);
 
           clientThread.start();
 
@@ -211,7 +321,21 @@ public class TorcDb2Server {
     private final int clientID;
     private final Lock lock;
     private final BufferedWriter latencyFile;
+    private final Path txStatsPath;
     private final AtomicInteger numClientThreads;
+    private final UpdateBatcher updateBatcher;
+    private final QueryScheduler scheduler;
+    private final BufferPool bufferPool;
+
+    // Maximum size of the cache the operations of a batch read through, when
+    // there is no shared graph cache. Kept on heap, since it is short lived.
+    private static final long BATCH_CACHE_BYTES = 64L << 20;
+
+    // Set once the client asks for binary responses.
+    private ResponseEncoder encoder;
+
+    // Value of System.nanoTime() when the executing query took the lock.
+    private long queryStartTime;
 
     public ClientThread(Socket client, 
         ConcurrentErrorReporter concurrentErrorReporter, 
@@ -220,7 +344,11 @@ public class TorcDb2Server {
         int clientID, 
         Lock lock,
         BufferedWriter latencyFile,
-        AtomicInteger numClientThreads) {
+        Path txStatsPath,
+        AtomicInteger numClientThreads,
+        UpdateBatcher updateBatcher,
+        QueryScheduler scheduler,
+        BufferPool bufferPool) {
       this.client = client;
       this.concurrentErrorReporter = concurrentErrorReporter;
       this.resultReporter = 
@@ -230,647 +358,844 @@ public class TorcDb2Server {
       this.clientID = clientID;
       this.lock = lock;
       this.latencyFile = latencyFile;
+      this.txStatsPath = txStatsPath;
       this.numClientThreads = numClientThreads;
+      this.updateBatcher = updateBatcher;
+      this.scheduler = scheduler;
+      this.bufferPool = bufferPool;
+      this.encoder = null;
     }
 
-    public void run() {
+    /**
+     * Waits for our turn to execute a query (if scheduling is enabled), and
+     * then takes the lock. Must be followed by a try block that calls
+     * endQuery() in its finally clause, so that a query that throws doesn't
+     * keep the lock and its turn.
+     */
+    private void beginQuery(String opName) throws InterruptedException {
+      if (scheduler != null)
+        scheduler.acquire(opName);
+      lock.lock();
+      queryStartTime = System.nanoTime();
+    }
+
+    /**
+     * Releases the lock, and lets the scheduler (if enabled) pick the next
+     * query to execute. The query's execution time, as seen by the
+     * scheduler, is the time it held the lock.
+     */
+    private void endQuery(String opName) {
+      long execNanos = System.nanoTime() - queryStartTime;
+      lock.unlock();
+      if (scheduler != null)
+        scheduler.release(opName, execNanos);
+    }
+
+    /**
+     * Executes a small update through the UpdateBatcher. The lock is only
+     * taken for recording the latency, since the batcher takes it itself
+     * when committing and other clients' updates need to be able to join the
+     * group while we wait.
+     *
+     * @throws DbException If the update was not committed. This ends the
+     * client's session, so that the client sees the failure instead of a
+     * successful response.
+     */
+    private void executeBatched(Operation op, Object query, String opName)
+        throws IOException, InterruptedException, DbException {
+      System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
+      long startTime = System.nanoTime();
+      if (!updateBatcher.execute(op))
+        throw new DbException(String.format("Client %d gave up on committing %s", clientID,
+              query.toString()));
+      invalidateCache(op);
+      long endTime = System.nanoTime();
+
+      lock.lock();
       try {
-        numClientThreads.incrementAndGet();
+        System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
 
-        ObjectInputStream in = new ObjectInputStream(client.getInputStream());
-        ObjectOutputStream out = 
-            new ObjectOutputStream(client.getOutputStream());
+        latencyFile.append(String.format("%s,%d\n", opName, (endTime - startTime)/1000));
+        latencyFile.flush();
+      } finally {
+        lock.unlock();
+      }
+    }
 
-        while (client.isConnected()) {
-          Object query = in.readObject();
+    /**
+     * Returns the cached response to a read query, if the result cache is
+     * enabled and has one.
+     *
+     * @return The response, or null if the query needs to be executed.
+     */
+    private Object cachedResponse(Operation op, Object query, String opName)
+        throws IOException {
+      ResultCache resultCache = connectionState.resultCache();
+      if (resultCache == null)
+        return null;
+
+      long startTime = System.nanoTime();
+      Object resp = resultCache.get(op);
+      long endTime = System.nanoTime();
+      if (resp == null)
+        return null;
+
+      lock.lock();
+      try {
+        System.out.println(String.format("Client %d answered %s from cache in %d us", clientID,
+              query.toString(), (endTime - startTime)/1000));
 
-          if (query instanceof LdbcQuery1Serializable) {
-            LdbcQuery1 op = ((LdbcQuery1Serializable) query).unpack();
+        latencyFile.append(String.format("%s,%d\n", opName, (endTime - startTime)/1000));
+        latencyFile.flush();
+      } finally {
+        lock.unlock();
+      }
 
-            lock.lock();
-            System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
-            long startTime = System.nanoTime();
-            queryHandlerMap.get(op.getClass()).executeOperation(op, 
-                connectionState, resultReporter);
-            long endTime = System.nanoTime();
+      return response(resp);
+    }
 
-            List<LdbcQuery1Result> result = 
-                (List<LdbcQuery1Result>) resultReporter.result();
+    /**
+     * Caches the result of a read query. Results are cached as they come out
+     * of the handler, since their form on the wire depends on the client.
+     * Must hold the lock the query was executed under.
+     */
+    private void cacheResponse(Operation op, Object result) {
+      ResultCache resultCache = connectionState.resultCache();
+      if (resultCache != null)
+        resultCache.put(op, result, result);
+    }
 
-            List<LdbcQuery1ResultSerializable> resp = new ArrayList<>();
-            result.forEach((v) -> {
-              resp.add(new LdbcQuery1ResultSerializable(v));
-            });
-            
-            System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
+    /**
+     * Returns the response to send to the client for a query's result. The
+     * ResponseEncoder writes results directly, so they are only converted to
+     * their serializable wrappers for clients using Java serialization.
+     */
+    private Object response(Object result) {
+      return (encoder != null) ? result : LdbcSerializableQueriesAndResults.pack(result);
+    }
 
-            latencyFile.append(String.format("Query1,%d\n", (endTime - startTime)/1000));
-            latencyFile.flush();
-            lock.unlock();
+    /**
+     * Drops cached responses that a committed update may have changed.
+     */
+    private void invalidateCache(Operation op) {
+      ResultCache resultCache = connectionState.resultCache();
+      if (resultCache != null)
+        resultCache.invalidate(op);
+    }
 
-            out.writeObject(resp);
-            out.flush();
-          } else if (query instanceof LdbcQuery2Serializable) {
-            LdbcQuery2 op = ((LdbcQuery2Serializable) query).unpack();
+    /**
+     * Executes the operations of a batch request one after the other, and
+     * returns all of their responses together. Unless the graph has a shared
+     * cache, the operations read through a cache of their own, so that they
+     * share fetches of the same adjacency lists and properties. An operation
+     * that fails gets an LdbcErrorSerializable as its response, and the rest
+     * of the batch is still executed.
+     */
+    private LdbcBatchResultSerializable executeBatch(LdbcBatchSerializable batch)
+        throws InterruptedException {
+      System.out.println(String.format("Client %d executing batch of %d requests", clientID,
+            batch.requests.size()));
+
+      CachingGraph graph = null;
+      if (connectionState.getGraph() instanceof CachingGraph) {
+        graph = (CachingGraph) connectionState.getGraph();
+        graph.beginBatch(new GraphCache(BATCH_CACHE_BYTES, Integer.MAX_VALUE));
+      }
 
-            lock.lock();
-            System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
-            long startTime = System.nanoTime();
-            queryHandlerMap.get(op.getClass()).executeOperation(op,
-                connectionState, resultReporter);
-            long endTime = System.nanoTime();
+      List<Object> responses = new ArrayList<>(batch.requests.size());
+      try {
+        for (Object request : batch.requests) {
+          try {
+            responses.add(execute(request));
+          } catch (InterruptedException e) {
+            throw e;
+          } catch (Exception e) {
+            System.out.println(String.format("Client %d failed to execute %s: %s", clientID,
+                  request.toString(), e.toString()));
+            responses.add(new LdbcErrorSerializable(e.toString()));
+          }
+        }
+      } finally {
+        if (graph != null)
+          graph.endBatch();
+      }
 
-            List<LdbcQuery2Result> result = 
-                (List<LdbcQuery2Result>) resultReporter.result();
+      return new LdbcBatchResultSerializable(responses);
+    }
 
-            List<LdbcQuery2ResultSerializable> resp = new ArrayList<>();
-            result.forEach((v) -> {
-              resp.add(new LdbcQuery2ResultSerializable(v));
-            });
+    /**
+     * Executes a single request and returns the response to send back to the
+     * client.
+     */
+    private Object execute(Object query) throws Exception {
+      if (query instanceof LdbcQuery1Serializable) {
+        LdbcQuery1 op = ((LdbcQuery1Serializable) query).unpack();
+
+        Object cached = cachedResponse(op, query, "Query1");
+        if (cached != null)
+          return cached;
+
+        beginQuery("Query1");
+        try {
+          System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
+          long startTime = System.nanoTime();
+          queryHandlerMap.get(op.getClass()).executeOperation(op, 
+              connectionState, resultReporter);
+          long endTime = System.nanoTime();
+
+          List<LdbcQuery1Result> result = 
+              (List<LdbcQuery1Result>) resultReporter.result();
+
+          Object resp = response(result);
+        
+          System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
+
+          latencyFile.append(String.format("Query1,%d\n", (endTime - startTime)/1000));
+          latencyFile.flush();
+          cacheResponse(op, result);
+
+          return resp;
+        } finally {
+          endQuery("Query1");
+        }
+      } else if (query instanceof LdbcQuery2Serializable) {
+        LdbcQuery2 op = ((LdbcQuery2Serializable) query).unpack();
 
-            System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
+        Object cached = cachedResponse(op, query, "Query2");
+        if (cached != null)
+          return cached;
 
-            latencyFile.append(String.format("Query2,%d\n", (endTime - startTime)/1000));
-            latencyFile.flush();
-            lock.unlock();
+        beginQuery("Query2");
+        try {
+          System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
+          long startTime = System.nanoTime();
+          queryHandlerMap.get(op.getClass()).executeOperation(op,
+              connectionState, resultReporter);
+          long endTime = System.nanoTime();
 
-            out.writeObject(resp);
-            out.flush(); 
-          } else if (query instanceof LdbcQuery3Serializable) {
-            LdbcQuery3 op = ((LdbcQuery3Serializable) query).unpack();
+          List<LdbcQuery2Result> result = 
+              (List<LdbcQuery2Result>) resultReporter.result();
 
-            lock.lock();
-            System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
-            long startTime = System.nanoTime();
-            queryHandlerMap.get(op.getClass()).executeOperation(op,
-                connectionState, resultReporter);
-            long endTime = System.nanoTime();
+          Object resp = response(result);
 
-            List<LdbcQuery3Result> result = 
-                (List<LdbcQuery3Result>) resultReporter.result();
+          System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
 
-            List<LdbcQuery3ResultSerializable> resp = new ArrayList<>();
-            result.forEach((v) -> {
-              resp.add(new LdbcQuery3ResultSerializable(v));
-            });
+          latencyFile.append(String.format("Query2,%d\n", (endTime - startTime)/1000));
+          latencyFile.flush();
+          cacheResponse(op, result);
 
-            System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
+          return resp;
+        } finally {
+          endQuery("Query2");
+        }
+      } else if (query instanceof LdbcQuery3Serializable) {
+        LdbcQuery3 op = ((LdbcQuery3Serializable) query).unpack();
 
-            latencyFile.append(String.format("Query3,%d\n", (endTime - startTime)/1000));
-            latencyFile.flush();
-            lock.unlock();
+        Object cached = cachedResponse(op, query, "Query3");
+        if (cached != null)
+          return cached;
 
-            out.writeObject(resp);
-            out.flush(); 
-          } else if (query instanceof LdbcQuery4Serializable) {
-            LdbcQuery4 op = ((LdbcQuery4Serializable) query).unpack();
+        beginQuery("Query3");
+        try {
+          System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
+          long startTime = System.nanoTime();
+          queryHandlerMap.get(op.getClass()).executeOperation(op,
+              connectionState, resultReporter);
+          long endTime = System.nanoTime();
 
-            lock.lock();
-            System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
-            long startTime = System.nanoTime();
-            queryHandlerMap.get(op.getClass()).executeOperation(op,
-                connectionState, resultReporter);
-            long endTime = System.nanoTime();
+          List<LdbcQuery3Result> result = 
+              (List<LdbcQuery3Result>) resultReporter.result();
 
-            List<LdbcQuery4Result> result = 
-                (List<LdbcQuery4Result>) resultReporter.result();
+          Object resp = response(result);
 
-            List<LdbcQuery4ResultSerializable> resp = new ArrayList<>();
-            result.forEach((v) -> {
-              resp.add(new LdbcQuery4ResultSerializable(v));
-            });
+          System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
 
-            System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
+          latencyFile.append(String.format("Query3,%d\n", (endTime - startTime)/1000));
+          latencyFile.flush();
+          cacheResponse(op, result);
 
-            latencyFile.append(String.format("Query4,%d\n", (endTime - startTime)/1000));
-            latencyFile.flush();
-            lock.unlock();
+          return resp;
+        } finally {
+          endQuery("Query3");
+        }
+      } else if (query instanceof LdbcQuery4Serializable) {
+        LdbcQuery4 op = ((LdbcQuery4Serializable) query).unpack();
 
-            out.writeObject(resp);
-            out.flush(); 
-          } else if (query instanceof LdbcQuery5Serializable) {
-            LdbcQuery5 op = ((LdbcQuery5Serializable) query).unpack();
+        Object cached = cachedResponse(op, query, "Query4");
+        if (cached != null)
+          return cached;
 
-            lock.lock();
-            System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
-            long startTime = System.nanoTime();
-            queryHandlerMap.get(op.getClass()).executeOperation(op,
-                connectionState, resultReporter);
-            long endTime = System.nanoTime();
+        beginQuery("Query4");
+        try {
+          System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
+          long startTime = System.nanoTime();
+          queryHandlerMap.get(op.getClass()).executeOperation(op,
+              connectionState, resultReporter);
+          long endTime = System.nanoTime();
 
-            List<LdbcQuery5Result> result = 
-                (List<LdbcQuery5Result>) resultReporter.result();
+          List<LdbcQuery4Result> result = 
+              (List<LdbcQuery4Result>) resultReporter.result();
 
-            List<LdbcQuery5ResultSerializable> resp = new ArrayList<>();
-            result.forEach((v) -> {
-              resp.add(new LdbcQuery5ResultSerializable(v));
-            });
+          Object resp = response(result);
 
-            System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
+          System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
 
-            latencyFile.append(String.format("Query5,%d\n", (endTime - startTime)/1000));
-            latencyFile.flush();
-            lock.unlock();
+          latencyFile.append(String.format("Query4,%d\n", (endTime - startTime)/1000));
+          latencyFile.flush();
+          cacheResponse(op, result);
 
-            out.writeObject(resp);
-            out.flush(); 
-          } else if (query instanceof LdbcQuery6Serializable) {
-            LdbcQuery6 op = ((LdbcQuery6Serializable) query).unpack();
+          return resp;
+        } finally {
+          endQuery("Query4");
+        }
+      } else if (query instanceof LdbcQuery5Serializable) {
+        LdbcQuery5 op = ((LdbcQuery5Serializable) query).unpack();
 
-            lock.lock();
-            System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
-            long startTime = System.nanoTime();
-            queryHandlerMap.get(op.getClass()).executeOperation(op,
-                connectionState, resultReporter);
-            long endTime = System.nanoTime();
+        Object cached = cachedResponse(op, query, "Query5");
+        if (cached != null)
+          return cached;
 
-            List<LdbcQuery6Result> result = 
-                (List<LdbcQuery6Result>) resultReporter.result();
+        beginQuery("Query5");
+        try {
+          System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
+          long startTime = System.nanoTime();
+          queryHandlerMap.get(op.getClass()).executeOperation(op,
+              connectionState, resultReporter);
+          long endTime = System.nanoTime();
 
-            List<LdbcQuery6ResultSerializable> resp = new ArrayList<>();
-            result.forEach((v) -> {
-              resp.add(new LdbcQuery6ResultSerializable(v));
-            });
+          List<LdbcQuery5Result> result = 
+              (List<LdbcQuery5Result>) resultReporter.result();
 
-            System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
+          Object resp = response(result);
 
-            latencyFile.append(String.format("Query6,%d\n", (endTime - startTime)/1000));
-            latencyFile.flush();
-            lock.unlock();
+          System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
 
-            out.writeObject(resp);
-            out.flush(); 
-          } else if (query instanceof LdbcQuery7Serializable) {
-            LdbcQuery7 op = ((LdbcQuery7Serializable) query).unpack();
+          latencyFile.append(String.format("Query5,%d\n", (endTime - startTime)/1000));
+          latencyFile.flush();
+          cacheResponse(op, result);
 
-            lock.lock();
-            System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
-            long startTime = System.nanoTime();
-            queryHandlerMap.get(op.getClass()).executeOperation(op,
-                connectionState, resultReporter);
-            long endTime = System.nanoTime();
+          return resp;
+        } finally {
+          endQuery("Query5");
+        }
+      } else if (query instanceof LdbcQuery6Serializable) {
+        LdbcQuery6 op = ((LdbcQuery6Serializable) query).unpack();
 
-            List<LdbcQuery7Result> result = 
-                (List<LdbcQuery7Result>) resultReporter.result();
+        Object cached = cachedResponse(op, query, "Query6");
+        if (cached != null)
+          return cached;
 
-            List<LdbcQuery7ResultSerializable> resp = new ArrayList<>();
-            result.forEach((v) -> {
-              resp.add(new LdbcQuery7ResultSerializable(v));
-            });
+        beginQuery("Query6");
+        try {
+          System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
+          long startTime = System.nanoTime();
+          queryHandlerMap.get(op.getClass()).executeOperation(op,
+              connectionState, resultReporter);
+          long endTime = System.nanoTime();
 
-            System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
+          List<LdbcQuery6Result> result = 
+              (List<LdbcQuery6Result>) resultReporter.result();
 
-            latencyFile.append(String.format("Query7,%d\n", (endTime - startTime)/1000));
-            latencyFile.flush();
-            lock.unlock();
+          Object resp = response(result);
 
-            out.writeObject(resp);
-            out.flush(); 
-          } else if (query instanceof LdbcQuery8Serializable) {
-            LdbcQuery8 op = ((LdbcQuery8Serializable) query).unpack();
+          System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
 
-            lock.lock();
-            System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
-            long startTime = System.nanoTime();
-            queryHandlerMap.get(op.getClass()).executeOperation(op,
-                connectionState, resultReporter);
-            long endTime = System.nanoTime();
+          latencyFile.append(String.format("Query6,%d\n", (endTime - startTime)/1000));
+          latencyFile.flush();
+          cacheResponse(op, result);
 
-            List<LdbcQuery8Result> result = 
-                (List<LdbcQuery8Result>) resultReporter.result();
+          return resp;
+        } finally {
+          endQuery("Query6");
+        }
+      } else if (query instanceof LdbcQuery7Serializable) {
+        LdbcQuery7 op = ((LdbcQuery7Serializable) query).unpack();
 
-            List<LdbcQuery8ResultSerializable> resp = new ArrayList<>();
-            result.forEach((v) -> {
-              resp.add(new LdbcQuery8ResultSerializable(v));
-            });
+        Object cached = cachedResponse(op, query, "Query7");
+        if (cached != null)
+          return cached;
 
-            System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
+        beginQuery("Query7");
+        try {
+          System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
+          long startTime = System.nanoTime();
+          queryHandlerMap.get(op.getClass()).executeOperation(op,
+              connectionState, resultReporter);
+          long endTime = System.nanoTime();
 
-            latencyFile.append(String.format("Query8,%d\n", (endTime - startTime)/1000));
-            latencyFile.flush();
-            lock.unlock();
+          List<LdbcQuery7Result> result = 
+              (List<LdbcQuery7Result>) resultReporter.result();
 
-            out.writeObject(resp);
-            out.flush(); 
-          } else if (query instanceof LdbcQuery9Serializable) {
-            LdbcQuery9 op = ((LdbcQuery9Serializable) query).unpack();
+          Object resp = response(result);
 
-            lock.lock();
-            System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
-            long startTime = System.nanoTime();
-            queryHandlerMap.get(op.getClass()).executeOperation(op,
-                connectionState, resultReporter);
-            long endTime = System.nanoTime();
+          System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
 
-            List<LdbcQuery9Result> result = 
-                (List<LdbcQuery9Result>) resultReporter.result();
+          latencyFile.append(String.format("Query7,%d\n", (endTime - startTime)/1000));
+          latencyFile.flush();
+          cacheResponse(op, result);
 
-            List<LdbcQuery9ResultSerializable> resp = new ArrayList<>();
-            result.forEach((v) -> {
-              resp.add(new LdbcQuery9ResultSerializable(v));
-            });
+          return resp;
+        } finally {
+          endQuery("Query7");
+        }
+      } else if (query instanceof LdbcQuery8Serializable) {
+        LdbcQuery8 op = ((LdbcQuery8Serializable) query).unpack();
 
-            System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
+        Object cached = cachedResponse(op, query, "Query8");
+        if (cached != null)
+          return cached;
 
-            latencyFile.append(String.format("Query9,%d\n", (endTime - startTime)/1000));
-            latencyFile.flush();
-            lock.unlock();
+        beginQuery("Query8");
+        try {
+          System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
+          long startTime = System.nanoTime();
+          queryHandlerMap.get(op.getClass()).executeOperation(op,
+              connectionState, resultReporter);
+          long endTime = System.nanoTime();
 
-            out.writeObject(resp);
-            out.flush(); 
-          } else if (query instanceof LdbcQuery10Serializable) {
-            LdbcQuery10 op = ((LdbcQuery10Serializable) query).unpack();
+          List<LdbcQuery8Result> result = 
+              (List<LdbcQuery8Result>) resultReporter.result();
 
-            lock.lock();
-            System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
-            long startTime = System.nanoTime();
-            queryHandlerMap.get(op.getClass()).executeOperation(op,
-                connectionState, resultReporter);
-            long endTime = System.nanoTime();
+          Object resp = response(result);
 
-            List<LdbcQuery10Result> result = 
-                (List<LdbcQuery10Result>) resultReporter.result();
+          System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
 
-            List<LdbcQuery10ResultSerializable> resp = new ArrayList<>();
-            result.forEach((v) -> {
-              resp.add(new LdbcQuery10ResultSerializable(v));
-            });
+          latencyFile.append(String.format("Query8,%d\n", (endTime - startTime)/1000));
+          latencyFile.flush();
+          cacheResponse(op, result);
 
-            System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
+          return resp;
+        } finally {
+          endQuery("Query8");
+        }
+      } else if (query instanceof LdbcQuery9Serializable) {
+        LdbcQuery9 op = ((LdbcQuery9Serializable) query).unpack();
 
-            latencyFile.append(String.format("Query10,%d\n", (endTime - startTime)/1000));
-            latencyFile.flush();
-            lock.unlock();
+        Object cached = cachedResponse(op, query, "Query9");
+        if (cached != null)
+          return cached;
 
-            out.writeObject(resp);
-            out.flush(); 
-          } else if (query instanceof LdbcQuery11Serializable) {
-            LdbcQuery11 op = ((LdbcQuery11Serializable) query).unpack();
+        beginQuery("Query9");
+        try {
+          System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
+          long startTime = System.nanoTime();
+          queryHandlerMap.get(op.getClass()).executeOperation(op,
+              connectionState, resultReporter);
+          long endTime = System.nanoTime();
 
-            lock.lock();
-            System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
-            long startTime = System.nanoTime();
-            queryHandlerMap.get(op.getClass()).executeOperation(op,
-                connectionState, resultReporter);
-            long endTime = System.nanoTime();
+          List<LdbcQuery9Result> result = 
+              (List<LdbcQuery9Result>) resultReporter.result();
 
-            List<LdbcQuery11Result> result = 
-                (List<LdbcQuery11Result>) resultReporter.result();
+          Object resp = response(result);
 
-            List<LdbcQuery11ResultSerializable> resp = new ArrayList<>();
-            result.forEach((v) -> {
-              resp.add(new LdbcQuery11ResultSerializable(v));
-            });
+          System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
 
-            System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
+          latencyFile.append(String.format("Query9,%d\n", (endTime - startTime)/1000));
+          latencyFile.flush();
+          cacheResponse(op, result);
 
-            latencyFile.append(String.format("Query11,%d\n", (endTime - startTime)/1000));
-            latencyFile.flush();
-            lock.unlock();
+          return resp;
+        } finally {
+          endQuery("Query9");
+        }
+      } else if (query instanceof LdbcQuery10Serializable) {
+        LdbcQuery10 op = ((LdbcQuery10Serializable) query).unpack();
 
-            out.writeObject(resp);
-            out.flush(); 
-          } else if (query instanceof LdbcQuery12Serializable) {
-            LdbcQuery12 op = ((LdbcQuery12Serializable) query).unpack();
+        Object cached = cachedResponse(op, query, "Query10");
+        if (cached != null)
+          return cached;
 
-            lock.lock();
-            System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
-            long startTime = System.nanoTime();
-            queryHandlerMap.get(op.getClass()).executeOperation(op,
-                connectionState, resultReporter);
-            long endTime = System.nanoTime();
+        beginQuery("Query10");
+        try {
+          System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
+          long startTime = System.nanoTime();
+          queryHandlerMap.get(op.getClass()).executeOperation(op,
+              connectionState, resultReporter);
+          long endTime = System.nanoTime();
 
-            List<LdbcQuery12Result> result = 
-                (List<LdbcQuery12Result>) resultReporter.result();
+          List<LdbcQuery10Result> result = 
+              (List<LdbcQuery10Result>) resultReporter.result();
 
-            List<LdbcQuery12ResultSerializable> resp = new ArrayList<>();
-            result.forEach((v) -> {
-              resp.add(new LdbcQuery12ResultSerializable(v));
-            });
+          Object resp = response(result);
 
-            System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
+          System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
 
-            latencyFile.append(String.format("Query12,%d\n", (endTime - startTime)/1000));
-            latencyFile.flush();
-            lock.unlock();
+          latencyFile.append(String.format("Query10,%d\n", (endTime - startTime)/1000));
+          latencyFile.flush();
+          cacheResponse(op, result);
 
-            out.writeObject(resp);
-            out.flush(); 
-          } else if (query instanceof LdbcQuery13Serializable) {
-            LdbcQuery13 op = ((LdbcQuery13Serializable) query).unpack();
+          return resp;
+        } finally {
+          endQuery("Query10");
+        }
+      } else if (query instanceof LdbcQuery11Serializable) {
+        LdbcQuery11 op = ((LdbcQuery11Serializable) query).unpack();
 
-            lock.lock();
-            System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
-            long startTime = System.nanoTime();
-            queryHandlerMap.get(op.getClass()).executeOperation(op,
-                connectionState, resultReporter);
-            long endTime = System.nanoTime();
+        Object cached = cachedResponse(op, query, "Query11");
+        if (cached != null)
+          return cached;
 
-            LdbcQuery13Result result = 
-                (LdbcQuery13Result) resultReporter.result();
+        beginQuery("Query11");
+        try {
+          System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
+          long startTime = System.nanoTime();
+          queryHandlerMap.get(op.getClass()).executeOperation(op,
+              connectionState, resultReporter);
+          long endTime = System.nanoTime();
 
-            LdbcQuery13ResultSerializable resp = 
-                new LdbcQuery13ResultSerializable(result);
+          List<LdbcQuery11Result> result = 
+              (List<LdbcQuery11Result>) resultReporter.result();
 
-            System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
+          Object resp = response(result);
 
-            latencyFile.append(String.format("Query13,%d\n", (endTime - startTime)/1000));
-            latencyFile.flush();
-            lock.unlock();
+          System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
 
-            out.writeObject(resp);
-            out.flush(); 
-          } else if (query instanceof LdbcQuery14Serializable) {
-            LdbcQuery14 op = ((LdbcQuery14Serializable) query).unpack();
+          latencyFile.append(String.format("Query11,%d\n", (endTime - startTime)/1000));
+          latencyFile.flush();
+          cacheResponse(op, result);
 
-            lock.lock();
-            System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
-            long startTime = System.nanoTime();
-            queryHandlerMap.get(op.getClass()).executeOperation(op,
-                connectionState, resultReporter);
-            long endTime = System.nanoTime();
+          return resp;
+        } finally {
+          endQuery("Query11");
+        }
+      } else if (query instanceof LdbcQuery12Serializable) {
+        LdbcQuery12 op = ((LdbcQuery12Serializable) query).unpack();
 
-            List<LdbcQuery14Result> result = 
-                (List<LdbcQuery14Result>) resultReporter.result();
+        Object cached = cachedResponse(op, query, "Query12");
+        if (cached != null)
+          return cached;
 
-            List<LdbcQuery14ResultSerializable> resp = new ArrayList<>();
-            result.forEach((v) -> {
-              resp.add(new LdbcQuery14ResultSerializable(v));
-            });
+        beginQuery("Query12");
+        try {
+          System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
+          long startTime = System.nanoTime();
+          queryHandlerMap.get(op.getClass()).executeOperation(op,
+              connectionState, resultReporter);
+          long endTime = System.nanoTime();
 
-            System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
+          List<LdbcQuery12Result> result = 
+              (List<LdbcQuery12Result>) resultReporter.result();
 
-            latencyFile.append(String.format("Query14,%d\n", (endTime - startTime)/1000));
-            latencyFile.flush();
-            lock.unlock();
+          Object resp = response(result);
 
-            out.writeObject(resp);
-            out.flush(); 
-          } else if (query instanceof LdbcShortQuery1PersonProfileSerializable) {
-            LdbcShortQuery1PersonProfile op = 
-                ((LdbcShortQuery1PersonProfileSerializable) query).unpack();
+          System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
 
-            lock.lock();
-            System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
-            long startTime = System.nanoTime();
-            queryHandlerMap.get(op.getClass()).executeOperation(op,
-                connectionState, resultReporter);
-            long endTime = System.nanoTime();
+          latencyFile.append(String.format("Query12,%d\n", (endTime - startTime)/1000));
+          latencyFile.flush();
+          cacheResponse(op, result);
 
-            LdbcShortQuery1PersonProfileResult result = 
-                (LdbcShortQuery1PersonProfileResult) resultReporter.result();
+          return resp;
+        } finally {
+          endQuery("Query12");
+        }
+      } else if (query instanceof LdbcQuery13Serializable) {
+        LdbcQuery13 op = ((LdbcQuery13Serializable) query).unpack();
 
-            LdbcShortQuery1PersonProfileResultSerializable resp = 
-                new LdbcShortQuery1PersonProfileResultSerializable(result);
+        Object cached = cachedResponse(op, query, "Query13");
+        if (cached != null)
+          return cached;
 
-            System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
+        beginQuery("Query13");
+        try {
+          System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
+          long startTime = System.nanoTime();
+          queryHandlerMap.get(op.getClass()).executeOperation(op,
+              connectionState, resultReporter);
+          long endTime = System.nanoTime();
 
-            latencyFile.append(String.format("ShortQuery1,%d\n", (endTime - startTime)/1000));
-            latencyFile.flush();
-            lock.unlock();
+          LdbcQuery13Result result = 
+              (LdbcQuery13Result) resultReporter.result();
 
-            out.writeObject(resp);
-            out.flush(); 
-          } else if (query instanceof LdbcShortQuery2PersonPostsSerializable) {
-            LdbcShortQuery2PersonPosts op = 
-                ((LdbcShortQuery2PersonPostsSerializable) query).unpack();
+          Object resp = response(result);
 
-            lock.lock();
-            System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
-            long startTime = System.nanoTime();
-            queryHandlerMap.get(op.getClass()).executeOperation(op,
-                connectionState, resultReporter);
-            long endTime = System.nanoTime();
+          System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
 
-            List<LdbcShortQuery2PersonPostsResult> result = 
-                (List<LdbcShortQuery2PersonPostsResult>) resultReporter.result();
+          latencyFile.append(String.format("Query13,%d\n", (endTime - startTime)/1000));
+          latencyFile.flush();
+          cacheResponse(op, result);
 
-            List<LdbcShortQuery2PersonPostsResultSerializable> resp = 
-                new ArrayList<>();
-            result.forEach((v) -> {
-              resp.add(new LdbcShortQuery2PersonPostsResultSerializable(v));
-            });
+          return resp;
+        } finally {
+          endQuery("Query13");
+        }
+      } else if (query instanceof LdbcQuery14Serializable) {
+        LdbcQuery14 op = ((LdbcQuery14Serializable) query).unpack();
 
-            System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
+        Object cached = cachedResponse(op, query, "Query14");
+        if (cached != null)
+          return cached;
 
-            latencyFile.append(String.format("ShortQuery2,%d\n", (endTime - startTime)/1000));
-            latencyFile.flush();
-            lock.unlock();
+        beginQuery("Query14");
+        try {
+          System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
+          long startTime = System.nanoTime();
+          queryHandlerMap.get(op.getClass()).executeOperation(op,
+              connectionState, resultReporter);
+          long endTime = System.nanoTime();
 
-            out.writeObject(resp);
-            out.flush(); 
-          } else if (query instanceof LdbcShortQuery3PersonFriendsSerializable) {
-            LdbcShortQuery3PersonFriends op = 
-                ((LdbcShortQuery3PersonFriendsSerializable) query).unpack();
+          List<LdbcQuery14Result> result = 
+              (List<LdbcQuery14Result>) resultReporter.result();
 
-            lock.lock();
-            System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
-            long startTime = System.nanoTime();
-            queryHandlerMap.get(op.getClass()).executeOperation(op,
-                connectionState, resultReporter);
-            long endTime = System.nanoTime();
+          Object resp = response(result);
 
-            List<LdbcShortQuery3PersonFriendsResult> result = 
-                (List<LdbcShortQuery3PersonFriendsResult>) resultReporter.result();
+          System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
 
-            List<LdbcShortQuery3PersonFriendsResultSerializable> resp = 
-                new ArrayList<>();
-            result.forEach((v) -> {
-              resp.add(new LdbcShortQuery3PersonFriendsResultSerializable(v));
-            });
+          latencyFile.append(String.format("Query14,%d\n", (endTime - startTime)/1000));
+          latencyFile.flush();
+          cacheResponse(op, result);
 
-            System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
+          return resp;
+        } finally {
+          endQuery("Query14");
+        }
+      } else if (query instanceof LdbcShortQuery1PersonProfileSerializable) {
+        LdbcShortQuery1PersonProfile op = 
+            ((LdbcShortQuery1PersonProfileSerializable) query).unpack();
 
-            latencyFile.append(String.format("ShortQuery3,%d\n", (endTime - startTime)/1000));
-            latencyFile.flush();
-            lock.unlock();
+        Object cached = cachedResponse(op, query, "ShortQuery1");
+        if (cached != null)
+          return cached;
 
-            out.writeObject(resp);
-            out.flush(); 
-          } else if (query instanceof LdbcShortQuery4MessageContentSerializable) {
-            LdbcShortQuery4MessageContent op = 
-                ((LdbcShortQuery4MessageContentSerializable) query).unpack();
+        beginQuery("ShortQuery1");
+        try {
+          System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
+          long startTime = System.nanoTime();
+          queryHandlerMap.get(op.getClass()).executeOperation(op,
+              connectionState, resultReporter);
+          long endTime = System.nanoTime();
 
-            lock.lock();
-            System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
-            long startTime = System.nanoTime();
-            queryHandlerMap.get(op.getClass()).executeOperation(op,
-                connectionState, resultReporter);
-            long endTime = System.nanoTime();
+          LdbcShortQuery1PersonProfileResult result = 
+              (LdbcShortQuery1PersonProfileResult) resultReporter.result();
 
-            LdbcShortQuery4MessageContentResult result = 
-                (LdbcShortQuery4MessageContentResult) resultReporter.result();
+          Object resp = response(result);
 
-            LdbcShortQuery4MessageContentResultSerializable resp = 
-                new LdbcShortQuery4MessageContentResultSerializable(result);
+          System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
 
-            System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
+          latencyFile.append(String.format("ShortQuery1,%d\n", (endTime - startTime)/1000));
+          latencyFile.flush();
+          cacheResponse(op, result);
 
-            latencyFile.append(String.format("ShortQuery4,%d\n", (endTime - startTime)/1000));
-            latencyFile.flush();
-            lock.unlock();
+          return resp;
+        } finally {
+          endQuery("ShortQuery1");
+        }
+      } else if (query instanceof LdbcShortQuery2PersonPostsSerializable) {
+        LdbcShortQuery2PersonPosts op = 
+            ((LdbcShortQuery2PersonPostsSerializable) query).unpack();
 
-            out.writeObject(resp);
-            out.flush(); 
-          } else if (query instanceof LdbcShortQuery5MessageCreatorSerializable) {
-            LdbcShortQuery5MessageCreator op = 
-                ((LdbcShortQuery5MessageCreatorSerializable) query).unpack();
+        Object cached = cachedResponse(op, query, "ShortQuery2");
+        if (cached != null)
+          return cached;
 
-            lock.lock();
-            System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
-            long startTime = System.nanoTime();
-            queryHandlerMap.get(op.getClass()).executeOperation(op,
-                connectionState, resultReporter);
-            long endTime = System.nanoTime();
+        beginQuery("ShortQuery2");
+        try {
+          System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
+          long startTime = System.nanoTime();
+          queryHandlerMap.get(op.getClass()).executeOperation(op,
+              connectionState, resultReporter);
+          long endTime = System.nanoTime();
 
-            LdbcShortQuery5MessageCreatorResult result = 
-                (LdbcShortQuery5MessageCreatorResult) resultReporter.result();
+          List<LdbcShortQuery2PersonPostsResult> result = 
+              (List<LdbcShortQuery2PersonPostsResult>) resultReporter.result();
 
-            LdbcShortQuery5MessageCreatorResultSerializable resp = 
-                new LdbcShortQuery5MessageCreatorResultSerializable(result);
+          Object resp = response(result);
 
-            System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
+          System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
 
-            latencyFile.append(String.format("ShortQuery5,%d\n", (endTime - startTime)/1000));
-            latencyFile.flush();
-            lock.unlock();
+          latencyFile.append(String.format("ShortQuery2,%d\n", (endTime - startTime)/1000));
+          latencyFile.flush();
+          cacheResponse(op, result);
 
-            out.writeObject(resp);
-            out.flush(); 
-          } else if (query instanceof LdbcShortQuery6MessageForumSerializable) {
-            LdbcShortQuery6MessageForum op = 
-                ((LdbcShortQuery6MessageForumSerializable) query).unpack();
+          return resp;
+        } finally {
+          endQuery("ShortQuery2");
+        }
+      } else if (query instanceof LdbcShortQuery3PersonFriendsSerializable) {
+        LdbcShortQuery3PersonFriends op = 
+            ((LdbcShortQuery3PersonFriendsSerializable) query).unpack();
 
-            lock.lock();
-            System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
-            long startTime = System.nanoTime();
-            queryHandlerMap.get(op.getClass()).executeOperation(op,
-                connectionState, resultReporter);
-            long endTime = System.nanoTime();
+        Object cached = cachedResponse(op, query, "ShortQuery3");
+        if (cached != null)
+          return cached;
 
-            LdbcShortQuery6MessageForumResult result = 
-                (LdbcShortQuery6MessageForumResult) resultReporter.result();
+        beginQuery("ShortQuery3");
+        try {
+          System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
+          long startTime = System.nanoTime();
+          queryHandlerMap.get(op.getClass()).executeOperation(op,
+              connectionState, resultReporter);
+          long endTime = System.nanoTime();
 
-            LdbcShortQuery6MessageForumResultSerializable resp = 
-                new LdbcShortQuery6MessageForumResultSerializable(result);
+          List<LdbcShortQuery3PersonFriendsResult> result = 
+              (List<LdbcShortQuery3PersonFriendsResult>) resultReporter.result();
 
-            System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
+          Object resp = response(result);
 
-            latencyFile.append(String.format("ShortQuery6,%d\n", (endTime - startTime)/1000));
-            latencyFile.flush();
-            lock.unlock();
+          System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
 
-            out.writeObject(resp);
-            out.flush(); 
-          } else if (query instanceof LdbcShortQuery7MessageRepliesSerializable) {
-            LdbcShortQuery7MessageReplies op = 
-                ((LdbcShortQuery7MessageRepliesSerializable) query).unpack();
+          latencyFile.append(String.format("ShortQuery3,%d\n", (endTime - startTime)/1000));
+          latencyFile.flush();
+          cacheResponse(op, result);
 
-            lock.lock();
-            System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
-            long startTime = System.nanoTime();
-            queryHandlerMap.get(op.getClass()).executeOperation(op,
-                connectionState, resultReporter);
-            long endTime = System.nanoTime();
+          return resp;
+        } finally {
+          endQuery("ShortQuery3");
+        }
+      } else if (query instanceof LdbcShortQuery4MessageContentSerializable) {
+        LdbcShortQuery4MessageContent op = 
+            ((LdbcShortQuery4MessageContentSerializable) query).unpack();
 
-            List<LdbcShortQuery7MessageRepliesResult> result = 
-                (List<LdbcShortQuery7MessageRepliesResult>) resultReporter.result();
+        Object cached = cachedResponse(op, query, "ShortQuery4");
+        if (cached != null)
+          return cached;
 
-            List<LdbcShortQuery7MessageRepliesResultSerializable> resp = 
-                new ArrayList<>();
-            result.forEach((v) -> {
-              resp.add(new LdbcShortQuery7MessageRepliesResultSerializable(v));
-            });
+        beginQuery("ShortQuery4");
+        try {
+          System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
+          long startTime = System.nanoTime();
+          queryHandlerMap.get(op.getClass()).executeOperation(op,
+              connectionState, resultReporter);
+          long endTime = System.nanoTime();
 
-            System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
+          LdbcShortQuery4MessageContentResult result = 
+              (LdbcShortQuery4MessageContentResult) resultReporter.result();
 
-            latencyFile.append(String.format("ShortQuery7,%d\n", (endTime - startTime)/1000));
-            latencyFile.flush();
-            lock.unlock();
+          Object resp = response(result);
 
-            out.writeObject(resp);
-            out.flush(); 
-          } else if (query instanceof LdbcUpdate1AddPersonSerializable) {
-            LdbcUpdate1AddPerson op = 
-                ((LdbcUpdate1AddPersonSerializable) query).unpack();
+          System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
 
-            lock.lock();
-            System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
-            long startTime = System.nanoTime();
-            queryHandlerMap.get(op.getClass()).executeOperation(op,
-                connectionState, resultReporter);
-            long endTime = System.nanoTime();
+          latencyFile.append(String.format("ShortQuery4,%d\n", (endTime - startTime)/1000));
+          latencyFile.flush();
+          cacheResponse(op, result);
 
-            System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
+          return resp;
+        } finally {
+          endQuery("ShortQuery4");
+        }
+      } else if (query instanceof LdbcShortQuery5MessageCreatorSerializable) {
+        LdbcShortQuery5MessageCreator op = 
+            ((LdbcShortQuery5MessageCreatorSerializable) query).unpack();
 
-            latencyFile.append(String.format("Update1,%d\n", (endTime - startTime)/1000));
-            latencyFile.flush();
-            lock.unlock();
+        Object cached = cachedResponse(op, query, "ShortQuery5");
+        if (cached != null)
+          return cached;
 
-            out.writeObject(LdbcNoResultSerializable.INSTANCE);
-            out.flush(); 
-          } else if (query instanceof LdbcUpdate2AddPostLikeSerializable) {
-            LdbcUpdate2AddPostLike op = 
-                ((LdbcUpdate2AddPostLikeSerializable) query).unpack();
+        beginQuery("ShortQuery5");
+        try {
+          System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
+          long startTime = System.nanoTime();
+          queryHandlerMap.get(op.getClass()).executeOperation(op,
+              connectionState, resultReporter);
+          long endTime = System.nanoTime();
 
-            lock.lock();
-            System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
-            long startTime = System.nanoTime();
-            queryHandlerMap.get(op.getClass()).executeOperation(op,
-                connectionState, resultReporter);
-            long endTime = System.nanoTime();
+          LdbcShortQuery5MessageCreatorResult result = 
+              (LdbcShortQuery5MessageCreatorResult) resultReporter.result();
 
-            System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
+          Object resp = response(result);
 
-            latencyFile.append(String.format("Update2,%d\n", (endTime - startTime)/1000));
-            latencyFile.flush();
-            lock.unlock();
+          System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
 
-            out.writeObject(LdbcNoResultSerializable.INSTANCE);
-            out.flush(); 
-          } else if (query instanceof LdbcUpdate3AddCommentLikeSerializable) {
-            LdbcUpdate3AddCommentLike op = 
-                ((LdbcUpdate3AddCommentLikeSerializable) query).unpack();
+          latencyFile.append(String.format("ShortQuery5,%d\n", (endTime - startTime)/1000));
+          latencyFile.flush();
+          cacheResponse(op, result);
 
-            lock.lock();
-            System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
-            long startTime = System.nanoTime();
-            queryHandlerMap.get(op.getClass()).executeOperation(op,
-                connectionState, resultReporter);
-            long endTime = System.nanoTime();
+          return resp;
+        } finally {
+          endQuery("ShortQuery5");
+        }
+      } else if (query instanceof LdbcShortQuery6MessageForumSerializable) {
+        LdbcShortQuery6MessageForum op = 
+            ((LdbcShortQuery6MessageForumSerializable) query).unpack();
 
-            System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
+        Object cached = cachedResponse(op, query, "ShortQuery6");
+        if (cached != null)
+          return cached;
 
-            latencyFile.append(String.format("Update3,%d\n", (endTime - startTime)/1000));
-            latencyFile.flush();
-            lock.unlock();
+        beginQuery("ShortQuery6");
+        try {
+          System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
+          long startTime = System.nanoTime();
+          queryHandlerMap.get(op.getClass()).executeOperation(op,
+              connectionState, resultReporter);
+          long endTime = System.nanoTime();
 
-            out.writeObject(LdbcNoResultSerializable.INSTANCE);
-            out.flush(); 
-          } else if (query instanceof LdbcUpdate4AddForumSerializable) {
-            LdbcUpdate4AddForum op = 
-                ((LdbcUpdate4AddForumSerializable) query).unpack();
+          LdbcShortQuery6MessageForumResult result = 
+              (LdbcShortQuery6MessageForumResult) resultReporter.result();
 
-            lock.lock();
-            System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
-            long startTime = System.nanoTime();
-            queryHandlerMap.get(op.getClass()).executeOperation(op,
-                connectionState, resultReporter);
-            long endTime = System.nanoTime();
+          Object resp = response(result);
 
-            System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
+          System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
 
-            latencyFile.append(String.format("Update4,%d\n", (endTime - startTime)/1000));
-            latencyFile.flush();
-            lock.unlock();
+          latencyFile.append(String.format("ShortQuery6,%d\n", (endTime - startTime)/1000));
+          latencyFile.flush();
+          cacheResponse(op, result);
 
-            out.writeObject(LdbcNoResultSerializable.INSTANCE);
-            out.flush(); 
-          } else if (query instanceof LdbcUpdate5AddForumMembershipSerializable) {
-            LdbcUpdate5AddForumMembership op = 
-                ((LdbcUpdate5AddForumMembershipSerializable) query).unpack();
+          return resp;
+        } finally {
+          endQuery("ShortQuery6");
+        }
+      } else if (query instanceof LdbcShortQuery7MessageRepliesSerializable) {
+        LdbcShortQuery7MessageReplies op = 
+            ((LdbcShortQuery7MessageRepliesSerializable) query).unpack();
+
+        Object cached = cachedResponse(op, query, "ShortQuery7");
+        if (cached != null)
+          return cached;
+
+        beginQuery("ShortQuery7");
+        try {
+          System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
+          long startTime = System.nanoTime();
+          queryHandlerMap.get(op.getClass()).executeOperation(op,
+              connectionState, resultReporter);
+          long endTime = System.nanoTime();
+
+          List<LdbcShortQuery7MessageRepliesResult> result = 
+              (List<LdbcShortQuery7MessageRepliesResult>) resultReporter.result();
 
-            lock.lock();
+          Object resp = response(result);
+
+          System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
+
+          latencyFile.append(String.format("ShortQuery7,%d\n", (endTime - startTime)/1000));
+          latencyFile.flush();
+          cacheResponse(op, result);
+
+          return resp;
+        } finally {
+          endQuery("ShortQuery7");
+        }
+      } else if (query instanceof LdbcUpdate1AddPersonSerializable) {
+        LdbcUpdate1AddPerson op = 
+            ((LdbcUpdate1AddPersonSerializable) query).unpack();
+
+        beginQuery("Update1");
+        try {
+          System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
+          long startTime = System.nanoTime();
+          queryHandlerMap.get(op.getClass()).executeOperation(op,
+              connectionState, resultReporter);
+          long endTime = System.nanoTime();
+
+          System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
+
+          latencyFile.append(String.format("Update1,%d\n", (endTime - startTime)/1000));
+          latencyFile.flush();
+          invalidateCache(op);
+        } finally {
+          endQuery("Update1");
+        }
+
+        return LdbcNoResultSerializable.INSTANCE;
+      } else if (query instanceof LdbcUpdate2AddPostLikeSerializable) {
+        LdbcUpdate2AddPostLike op = 
+            ((LdbcUpdate2AddPostLikeSerializable) query).unpack();
+
+        if (updateBatcher != null) {
+          executeBatched(op, query, "Update2");
+        } else {
+          beginQuery("Update2");
+          try {
             System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
             long startTime = System.nanoTime();
             queryHandlerMap.get(op.getClass()).executeOperation(op,
@@ -879,17 +1204,24 @@ public class TorcDb2Server {
 
             System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
 
-            latencyFile.append(String.format("Update5,%d\n", (endTime - startTime)/1000));
+            latencyFile.append(String.format("Update2,%d\n", (endTime - startTime)/1000));
             latencyFile.flush();
-            lock.unlock();
+            invalidateCache(op);
+          } finally {
+            endQuery("Update2");
+          }
+        }
 
-            out.writeObject(LdbcNoResultSerializable.INSTANCE);
-            out.flush(); 
-          } else if (query instanceof LdbcUpdate6AddPostSerializable) {
-            LdbcUpdate6AddPost op = 
-                ((LdbcUpdate6AddPostSerializable) query).unpack();
+        return LdbcNoResultSerializable.INSTANCE;
+      } else if (query instanceof LdbcUpdate3AddCommentLikeSerializable) {
+        LdbcUpdate3AddCommentLike op = 
+            ((LdbcUpdate3AddCommentLikeSerializable) query).unpack();
 
-            lock.lock();
+        if (updateBatcher != null) {
+          executeBatched(op, query, "Update3");
+        } else {
+          beginQuery("Update3");
+          try {
             System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
             long startTime = System.nanoTime();
             queryHandlerMap.get(op.getClass()).executeOperation(op,
@@ -898,17 +1230,46 @@ public class TorcDb2Server {
 
             System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
 
-            latencyFile.append(String.format("Update6,%d\n", (endTime - startTime)/1000));
+            latencyFile.append(String.format("Update3,%d\n", (endTime - startTime)/1000));
             latencyFile.flush();
-            lock.unlock();
+            invalidateCache(op);
+          } finally {
+            endQuery("Update3");
+          }
+        }
 
-            out.writeObject(LdbcNoResultSerializable.INSTANCE);
-            out.flush(); 
-          } else if (query instanceof LdbcUpdate7AddCommentSerializable) {
-            LdbcUpdate7AddComment op = 
-                ((LdbcUpdate7AddCommentSerializable) query).unpack();
+        return LdbcNoResultSerializable.INSTANCE;
+      } else if (query instanceof LdbcUpdate4AddForumSerializable) {
+        LdbcUpdate4AddForum op = 
+            ((LdbcUpdate4AddForumSerializable) query).unpack();
+
+        beginQuery("Update4");
+        try {
+          System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
+          long startTime = System.nanoTime();
+          queryHandlerMap.get(op.getClass()).executeOperation(op,
+              connectionState, resultReporter);
+          long endTime = System.nanoTime();
+
+          System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
+
+          latencyFile.append(String.format("Update4,%d\n", (endTime - startTime)/1000));
+          latencyFile.flush();
+          invalidateCache(op);
+        } finally {
+          endQuery("Update4");
+        }
+
+        return LdbcNoResultSerializable.INSTANCE;
+      } else if (query instanceof LdbcUpdate5AddForumMembershipSerializable) {
+        LdbcUpdate5AddForumMembership op = 
+            ((LdbcUpdate5AddForumMembershipSerializable) query).unpack();
 
-            lock.lock();
+        if (updateBatcher != null) {
+          executeBatched(op, query, "Update5");
+        } else {
+          beginQuery("Update5");
+          try {
             System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
             long startTime = System.nanoTime();
             queryHandlerMap.get(op.getClass()).executeOperation(op,
@@ -917,17 +1278,68 @@ public class TorcDb2Server {
 
             System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
 
-            latencyFile.append(String.format("Update7,%d\n", (endTime - startTime)/1000));
+            latencyFile.append(String.format("Update5,%d\n", (endTime - startTime)/1000));
             latencyFile.flush();
-            lock.unlock();
+            invalidateCache(op);
+          } finally {
+            endQuery("Update5");
+          }
+        }
 
-            out.writeObject(LdbcNoResultSerializable.INSTANCE);
-            out.flush(); 
-          } else if (query instanceof LdbcUpdate8AddFriendshipSerializable) {
-            LdbcUpdate8AddFriendship op = 
-                ((LdbcUpdate8AddFriendshipSerializable) query).unpack();
+        return LdbcNoResultSerializable.INSTANCE;
+      } else if (query instanceof LdbcUpdate6AddPostSerializable) {
+        LdbcUpdate6AddPost op = 
+            ((LdbcUpdate6AddPostSerializable) query).unpack();
+
+        beginQuery("Update6");
+        try {
+          System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
+          long startTime = System.nanoTime();
+          queryHandlerMap.get(op.getClass()).executeOperation(op,
+              connectionState, resultReporter);
+          long endTime = System.nanoTime();
+
+          System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
+
+          latencyFile.append(String.format("Update6,%d\n", (endTime - startTime)/1000));
+          latencyFile.flush();
+          invalidateCache(op);
+        } finally {
+          endQuery("Update6");
+        }
+
+        return LdbcNoResultSerializable.INSTANCE;
+      } else if (query instanceof LdbcUpdate7AddCommentSerializable) {
+        LdbcUpdate7AddComment op = 
+            ((LdbcUpdate7AddCommentSerializable) query).unpack();
+
+        beginQuery("Update7");
+        try {
+          System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
+          long startTime = System.nanoTime();
+          queryHandlerMap.get(op.getClass()).executeOperation(op,
+              connectionState, resultReporter);
+          long endTime = System.nanoTime();
+
+          System.out.println(String.format("Client %d executed query in %d us", clientID, (endTime - startTime)/1000));
+
+          latencyFile.append(String.format("Update7,%d\n", (endTime - startTime)/1000));
+          latencyFile.flush();
+          invalidateCache(op);
+        } finally {
+          endQuery("Update7");
+        }
 
-            lock.lock();
+        return LdbcNoResultSerializable.INSTANCE;
+      } else if (query instanceof LdbcUpdate8AddFriendshipSerializable) {
+        LdbcUpdate8AddFriendship op = 
+            ((LdbcUpdate8AddFriendshipSerializable) query).unpack();
+
+        if (updateBatcher != null) {
+          executeBatched(op, query, "Update8");
+        } else {
+          beginQuery("Update8");
+          try {
             System.out.println(String.format("Client %d executing %s", clientID, query.toString()));
             long startTime = System.nanoTime();
             queryHandlerMap.get(op.getClass()).executeOperation(op,
@@ -938,26 +1350,100 @@ public class TorcDb2Server {
 
             latencyFile.append(String.format("Update8,%d\n", (endTime - startTime)/1000));
             latencyFile.flush();
-            lock.unlock();
+            invalidateCache(op);
+          } finally {
+            endQuery("Update8");
+          }
+        }
+
+        return LdbcNoResultSerializable.INSTANCE;
+      } else {
+        throw new RuntimeException("Unrecognized query type.");
+      }
+    }
 
+    public void run() {
+      numClientThreads.incrementAndGet();
+
+      try {
+        ObjectInputStream in = new ObjectInputStream(client.getInputStream());
+        ObjectOutputStream out = 
+            new ObjectOutputStream(client.getOutputStream());
+
+        while (client.isConnected()) {
+          Object query = in.readObject();
+
+          if (query instanceof LdbcBinaryResponsesSerializable) {
+            // Acknowledge with the last response sent through the object
+            // stream.
             out.writeObject(LdbcNoResultSerializable.INSTANCE);
-            out.flush(); 
+            out.flush();
+            encoder = new ResponseEncoder(bufferPool);
+            continue;
+          }
+
+          Object resp;
+          if (query instanceof LdbcBatchSerializable)
+            resp = executeBatch((LdbcBatchSerializable) query);
+          else
+            resp = execute(query);
+
+          if (encoder != null) {
+            encoder.write(client.getChannel(), resp);
           } else {
-            throw new RuntimeException("Unrecognized query type.");
+            out.writeObject(resp);
+            out.flush();
           }
         }
+      } catch (EOFException e) {
+        // Client closed the connection.
+      } catch (Exception e) {
+        // Close the connection so that the client sees the failure rather
+        // than waiting on a response that will never come.
+        System.out.println(String.format("Client %d failed: %s", clientID, e.toString()));
+        try {
+          client.close();
+        } catch (IOException ioe) {
+        }
+      } finally {
+        clientDisconnected();
+      }
+    }
 
-        System.out.println("Client disconnected: " + client.toString());
+    /*
+     * Called when a client has gone away, whether it closed the connection or
+     * failed. The last client to go exports the statistics accumulated over
+     * the lifetime of the server.
+     */
+    private void clientDisconnected() {
+      System.out.println("Client disconnected: " + client.toString());
 
-        int clients = numClientThreads.decrementAndGet();
+      int clients = numClientThreads.decrementAndGet();
 
-        if (clients == 0) {
-          System.out.println("All clients have disconnected");
+      if (clients == 0) {
+        System.out.println("All clients have disconnected");
+        try {
           latencyFile.close();
+
+          // Transaction contention counters accumulate over the lifetime of
+          // the server.
+          TxStats txStats = connectionState.txStats();
+          System.out.print(txStats.toString());
+          Files.write(txStatsPath, txStats.toCsv().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+          System.out.println("Failed to write statistics: " + e.toString());
         }
 
-      } catch (Exception e) {
+        if (scheduler != null)
+          System.out.print(scheduler.toString());
+
+        if (connectionState.graphCache() != null)
+          System.out.println(connectionState.graphCache().toString());
 
+        if (connectionState.resultCache() != null)
+          System.out.print(connectionState.resultCache().toString());
+
+        System.out.println(bufferPool.toString());
       }
     }
   }
@@ -974,70 +1460,154 @@ public class TorcDb2Server {
     final String graphName = (String) opts.get("GRAPHNAME");
     final int port = Integer.decode((String) opts.get("--port"));
     final int dpdkPort = Integer.decode((String) opts.get("--dpdkPort"));
+    final String dimensionsDir = (String) opts.get("--dimensionsDir");
+    final String birthdayIndexDir = (String) opts.get("--birthdayIndexDir");
+    final String timelineSize = (String) opts.get("--timelineSize");
+    final String timelineMaxPersons = (String) opts.get("--timelineMaxPersons");
+    final String groupCommitMaxOps = (String) opts.get("--groupCommitMaxOps");
+    final long groupCommitWindow = Long.decode((String) opts.get("--groupCommitWindow"));
+    final String resultCacheSize = (String) opts.get("--resultCacheSize");
+    final String graphCacheMB = (String) opts.get("--graphCacheMB");
+    final String graphCacheOffHeapMinSize = (String) opts.get("--graphCacheOffHeapMinSize");
+    final boolean priorityScheduling = (Boolean) opts.get("--priorityScheduling");
+    final long starvationMillis = Long.decode((String) opts.get("--starvationMillis"));
+    final int complexLimit = Integer.decode((String) opts.get("--complexLimit"));
+    final int shortLimit = Integer.decode((String) opts.get("--shortLimit"));
+    final int responseBufferSize = Integer.decode((String) opts.get("--responseBufferSize"));
+    final int responseBufferPoolSize =
+        Integer.decode((String) opts.get("--responseBufferPoolSize"));
+    final boolean virtualThreads =
+        VirtualThreads.resolve((Boolean) opts.get("--virtualThreads"));
+    final String retryPolicy = (String) opts.get("--retryPolicy");
+    final String retryMaxAttempts = (String) opts.get("--retryMaxAttempts");
+    final String retryBaseMicros = (String) opts.get("--retryBaseMicros");
+    final String retryMaxMicros = (String) opts.get("--retryMaxMicros");
+    final String retryDeadlineMillis = (String) opts.get("--retryDeadlineMillis");
+    final boolean loopback = (Boolean) opts.get("--loopback");
 
     System.out.println(String.format("TorcDb2Server: {coordinatorLocator: %s, "
-        + "graphName: %s, port: %d, dpdkPort: %d}",
+        + "graphName: %s, port: %d, dpdkPort: %d, dimensionsDir: %s, "
+        + "birthdayIndexDir: %s, timelineSize: %s, timelineMaxPersons: %s, "
+        + "groupCommitMaxOps: %s, groupCommitWindow: %d, resultCacheSize: %s, "
+        + "graphCacheMB: %s, graphCacheOffHeapMinSize: %s, priorityScheduling: %s, "
+        + "starvationMillis: %d, complexLimit: %d, shortLimit: %d, retryPolicy: %s, "
+        + "retryMaxAttempts: %s, retryBaseMicros: %s, retryMaxMicros: %s, "
+        + "retryDeadlineMillis: %s, responseBufferSize: %d, "
+        + "responseBufferPoolSize: %d, virtualThreads: %s, loopback: %s}",
         coordinatorLocator,
         graphName,
         port,
-        dpdkPort));
+        dpdkPort,
+        dimensionsDir,
+        birthdayIndexDir,
+        timelineSize,
+        timelineMaxPersons,
+        groupCommitMaxOps,
+        groupCommitWindow,
+        resultCacheSize,
+        graphCacheMB,
+        graphCacheOffHeapMinSize,
+        priorityScheduling,
+        starvationMillis,
+        complexLimit,
+        shortLimit,
+        retryPolicy,
+        retryMaxAttempts,
+        retryBaseMicros,
+        retryMaxMicros,
+        retryDeadlineMillis,
+        responseBufferSize,
+        responseBufferPoolSize,
+        virtualThreads,
+        loopback));
    
     // Connect to database. 
     Map<String, String> props = new HashMap<>();
-    props.put("coordinatorLocator", coordinatorLocator);
-    props.put("graphName", graphName);
-    if (dpdkPort != -1)
-      props.put("dpdkPort", (String) opts.get("--dpdkPort"));
-    System.out.println("Connecting to TorcDB2...");
+    if (loopback) {
+      props.put("loopback", "true");
+    } else {
+      props.put("coordinatorLocator", coordinatorLocator);
+      props.put("graphName", graphName);
+      if (dpdkPort != -1)
+        props.put("dpdkPort", (String) opts.get("--dpdkPort"));
+      if (dimensionsDir != null)
+        props.put("dimensionsDir", dimensionsDir);
+      if (birthdayIndexDir != null)
+        props.put("birthdayIndexDir", birthdayIndexDir);
+      if (timelineSize != null) {
+        props.put("timelineSize", timelineSize);
+        props.put("timelineMaxPersons", timelineMaxPersons);
+      }
+      if (resultCacheSize != null)
+        props.put("resultCacheSize", resultCacheSize);
+      if (graphCacheMB != null) {
+        props.put("graphCacheMB", graphCacheMB);
+        props.put("graphCacheOffHeapMinSize", graphCacheOffHeapMinSize);
+      }
+      System.out.println("Connecting to TorcDB2...");
+    }
+    props.put("retryPolicy", retryPolicy);
+    props.put("retryMaxAttempts", retryMaxAttempts);
+    props.put("retryBaseMicros", retryBaseMicros);
+    props.put("retryMaxMicros", retryMaxMicros);
+    props.put("retryDeadlineMillis", retryDeadlineMillis);
     TorcDb2ConnectionState connectionState = new TorcDb2ConnectionState(props);
 
     // Create mapping from op type to op handler for processing requests.
     Map<Class<? extends Operation>, OperationHandler> queryHandlerMap = 
         new HashMap<>();
-    queryHandlerMap.put(LdbcQuery1.class, new TorcDb2.LdbcQuery1Handler());
-    queryHandlerMap.put(LdbcQuery2.class, new TorcDb2.LdbcQuery2Handler());
-    queryHandlerMap.put(LdbcQuery3.class, new TorcDb2.LdbcQuery3Handler());
-    queryHandlerMap.put(LdbcQuery4.class, new TorcDb2.LdbcQuery4Handler());
-    queryHandlerMap.put(LdbcQuery5.class, new TorcDb2.LdbcQuery5Handler());
-    queryHandlerMap.put(LdbcQuery6.class, new TorcDb2.LdbcQuery6Handler());
-    queryHandlerMap.put(LdbcQuery7.class, new TorcDb2.LdbcQuery7Handler());
-    queryHandlerMap.put(LdbcQuery8.class, new TorcDb2.LdbcQuery8Handler());
-    queryHandlerMap.put(LdbcQuery9.class, new TorcDb2.LdbcQuery9Handler());
-    queryHandlerMap.put(LdbcQuery10.class, new TorcDb2.LdbcQuery10Handler());
-    queryHandlerMap.put(LdbcQuery11.class, new TorcDb2.LdbcQuery11Handler());
-    queryHandlerMap.put(LdbcQuery12.class, new TorcDb2.LdbcQuery12Handler());
-    queryHandlerMap.put(LdbcQuery13.class, new TorcDb2.LdbcQuery13Handler());
-    queryHandlerMap.put(LdbcQuery14.class, new TorcDb2.LdbcQuery14Handler());
-    queryHandlerMap.put(LdbcShortQuery1PersonProfile.class, 
-        new TorcDb2.LdbcShortQuery1PersonProfileHandler());
-    queryHandlerMap.put(LdbcShortQuery2PersonPosts.class, 
-        new TorcDb2.LdbcShortQuery2PersonPostsHandler());
-    queryHandlerMap.put(LdbcShortQuery3PersonFriends.class, 
-        new TorcDb2.LdbcShortQuery3PersonFriendsHandler());
-    queryHandlerMap.put(LdbcShortQuery4MessageContent.class, 
-        new TorcDb2.LdbcShortQuery4MessageContentHandler());
-    queryHandlerMap.put(LdbcShortQuery5MessageCreator.class, 
-        new TorcDb2.LdbcShortQuery5MessageCreatorHandler());
-    queryHandlerMap.put(LdbcShortQuery6MessageForum.class, 
-        new TorcDb2.LdbcShortQuery6MessageForumHandler());
-    queryHandlerMap.put(LdbcShortQuery7MessageReplies.class, 
-        new TorcDb2.LdbcShortQuery7MessageRepliesHandler());
-    queryHandlerMap.put(LdbcUpdate1AddPerson.class, 
-        new TorcDb2.LdbcUpdate1AddPersonHandler());
-    queryHandlerMap.put(LdbcUpdate2AddPostLike.class, 
-        new TorcDb2.LdbcUpdate2AddPostLikeHandler());
-    queryHandlerMap.put(LdbcUpdate3AddCommentLike.class, 
-        new TorcDb2.LdbcUpdate3AddCommentLikeHandler());
-    queryHandlerMap.put(LdbcUpdate4AddForum.class, 
-        new TorcDb2.LdbcUpdate4AddForumHandler());
-    queryHandlerMap.put(LdbcUpdate5AddForumMembership.class, 
-        new TorcDb2.LdbcUpdate5AddForumMembershipHandler());
-    queryHandlerMap.put(LdbcUpdate6AddPost.class, 
-        new TorcDb2.LdbcUpdate6AddPostHandler());
-    queryHandlerMap.put(LdbcUpdate7AddComment.class, 
-        new TorcDb2.LdbcUpdate7AddCommentHandler());
-    queryHandlerMap.put(LdbcUpdate8AddFriendship.class, 
-        new TorcDb2.LdbcUpdate8AddFriendshipHandler());
+    if (loopback) {
+      Map<String, String> loopbackProps = new HashMap<>();
+      loopbackProps.put("resultSize", (String) opts.get("--loopbackResultSize"));
+      loopbackProps.put("contentSize", (String) opts.get("--loopbackContentSize"));
+      loopbackProps.put("serviceMicros", (String) opts.get("--loopbackServiceMicros"));
+      queryHandlerMap.putAll(new LoopbackHandlers(loopbackProps).handlers());
+    } else {
+      queryHandlerMap.put(LdbcQuery1.class, new TorcDb2.LdbcQuery1Handler());
+      queryHandlerMap.put(LdbcQuery2.class, new TorcDb2.LdbcQuery2Handler());
+      queryHandlerMap.put(LdbcQuery3.class, new TorcDb2.LdbcQuery3Handler());
+      queryHandlerMap.put(LdbcQuery4.class, new TorcDb2.LdbcQuery4Handler());
+      queryHandlerMap.put(LdbcQuery5.class, new TorcDb2.LdbcQuery5Handler());
+      queryHandlerMap.put(LdbcQuery6.class, new TorcDb2.LdbcQuery6Handler());
+      queryHandlerMap.put(LdbcQuery7.class, new TorcDb2.LdbcQuery7Handler());
+      queryHandlerMap.put(LdbcQuery8.class, new TorcDb2.LdbcQuery8Handler());
+      queryHandlerMap.put(LdbcQuery9.class, new TorcDb2.LdbcQuery9Handler());
+      queryHandlerMap.put(LdbcQuery10.class, new TorcDb2.LdbcQuery10Handler());
+      queryHandlerMap.put(LdbcQuery11.class, new TorcDb2.LdbcQuery11Handler());
+      queryHandlerMap.put(LdbcQuery12.class, new TorcDb2.LdbcQuery12Handler());
+      queryHandlerMap.put(LdbcQuery13.class, new TorcDb2.LdbcQuery13Handler());
+      queryHandlerMap.put(LdbcQuery14.class, new TorcDb2.LdbcQuery14Handler());
+      queryHandlerMap.put(LdbcShortQuery1PersonProfile.class, 
+          new TorcDb2.LdbcShortQuery1PersonProfileHandler());
+      queryHandlerMap.put(LdbcShortQuery2PersonPosts.class, 
+          new TorcDb2.LdbcShortQuery2PersonPostsHandler());
+      queryHandlerMap.put(LdbcShortQuery3PersonFriends.class, 
+          new TorcDb2.LdbcShortQuery3PersonFriendsHandler());
+      queryHandlerMap.put(LdbcShortQuery4MessageContent.class, 
+          new TorcDb2.LdbcShortQuery4MessageContentHandler());
+      queryHandlerMap.put(LdbcShortQuery5MessageCreator.class, 
+          new TorcDb2.LdbcShortQuery5MessageCreatorHandler());
+      queryHandlerMap.put(LdbcShortQuery6MessageForum.class, 
+          new TorcDb2.LdbcShortQuery6MessageForumHandler());
+      queryHandlerMap.put(LdbcShortQuery7MessageReplies.class, 
+          new TorcDb2.LdbcShortQuery7MessageRepliesHandler());
+      queryHandlerMap.put(LdbcUpdate1AddPerson.class, 
+          new TorcDb2.LdbcUpdate1AddPersonHandler());
+      queryHandlerMap.put(LdbcUpdate2AddPostLike.class, 
+          new TorcDb2.LdbcUpdate2AddPostLikeHandler());
+      queryHandlerMap.put(LdbcUpdate3AddCommentLike.class, 
+          new TorcDb2.LdbcUpdate3AddCommentLikeHandler());
+      queryHandlerMap.put(LdbcUpdate4AddForum.class, 
+          new TorcDb2.LdbcUpdate4AddForumHandler());
+      queryHandlerMap.put(LdbcUpdate5AddForumMembership.class, 
+          new TorcDb2.LdbcUpdate5AddForumMembershipHandler());
+      queryHandlerMap.put(LdbcUpdate6AddPost.class, 
+          new TorcDb2.LdbcUpdate6AddPostHandler());
+      queryHandlerMap.put(LdbcUpdate7AddComment.class, 
+          new TorcDb2.LdbcUpdate7AddCommentHandler());
+      queryHandlerMap.put(LdbcUpdate8AddFriendship.class, 
+          new TorcDb2.LdbcUpdate8AddFriendshipHandler());
+    }
     
     // Presumably for reporting LDBC driver errors.
     ConcurrentErrorReporter concurrentErrorReporter = 
@@ -1049,9 +1619,34 @@ public class TorcDb2Server {
       Files.newBufferedWriter(Paths.get(hostname + "-latency.csv"), StandardCharsets.UTF_8, 
           StandardOpenOption.CREATE, StandardOpenOption.APPEND);
 
+    Path txStatsPath = Paths.get(hostname + "-txstats.csv");
+
+    Lock lock = new ReentrantLock();
+
+    // Client threads and the UpdateBatcher execute operations holding the
+    // lock, don't keep it while backing off between retries.
+    connectionState.setHeldLock(lock);
+
+    UpdateBatcher updateBatcher = null;
+    if (groupCommitMaxOps != null && !loopback)
+      updateBatcher = new UpdateBatcher(connectionState, lock,
+          Integer.decode(groupCommitMaxOps), groupCommitWindow);
+
+    QueryScheduler scheduler = null;
+    if (priorityScheduling)
+      scheduler = new QueryScheduler(starvationMillis, complexLimit, shortLimit);
+
+    // Each value the encoder writes must fit in a single buffer.
+    if (responseBufferSize < ResponseEncoder.MIN_BUFFER_SIZE)
+      throw new RuntimeException(String.format("Error: --responseBufferSize must be at "
+          + "least %d, but is %d", ResponseEncoder.MIN_BUFFER_SIZE, responseBufferSize));
+
+    BufferPool bufferPool = new BufferPool(responseBufferSize, responseBufferPoolSize);
+
     // Listener thread accepts connections and spawns client threads.
     Thread listener = new Thread(new ListenerThread(port, connectionState,
-          queryHandlerMap, concurrentErrorReporter, latencyFile));
+          queryHandlerMap, concurrentErrorReporter, latencyFile, txStatsPath,
+          lock, updateBatcher, scheduler, virtualThreads, bufferPool));
     listener.start();
     listener.join();
   }
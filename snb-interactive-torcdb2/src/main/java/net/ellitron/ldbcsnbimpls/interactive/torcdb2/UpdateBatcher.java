@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2019 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.torcdb2;
+
+import net.ellitron.ldbcsnbimpls.interactive.core.RetryPolicy;
+import net.ellitron.ldbcsnbimpls.interactive.core.TxRetry;
+
+import net.ellitron.torcdb2.*;
+
+import com.ldbc.driver.Operation;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcUpdate2AddPostLike;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcUpdate3AddCommentLike;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcUpdate5AddForumMembership;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcUpdate8AddFriendship;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Group commit for the small, high rate updates of the workload (post likes,
+ * comment likes, forum memberships and friendships). Each of these updates
+ * only adds one or two edges, so when each is committed in its own
+ * transaction most of the time goes to transaction overhead.
+ *
+ * Client threads hand updates to execute(), which blocks until the update is
+ * committed. A single committer thread collects updates as they arrive, for up
+ * to a fixed window of time after the first one or until a maximum number of
+ * updates have been collected, and then commits them all in one transaction.
+ * If that transaction fails then each update in the group is retried in a
+ * transaction of its own, according to the connection state's retry policy,
+ * so that one conflicting update can't hold back the others. Group
+ * transactions are counted in the connection state's TxStats under
+ * "UpdateBatcherGroup".
+ *
+ * The committer thread holds the given lock while it uses the graph, so that
+ * it doesn't interleave with queries executed by TorcDb2Server's client
+ * threads. Client threads must therefore not hold the lock while waiting in
+ * execute().
+ *
+ * @author Jonathan Ellithorpe (jde@cs.stanford.edu)
+ */
+public class UpdateBatcher {
+
+  // A group transaction is only tried once before falling back.
+  private static final RetryPolicy GROUP_POLICY = RetryPolicy.immediate(1);
+
+  /**
+   * An update waiting to be committed.
+   */
+  private static class PendingUpdate {
+    final Operation op;
+    final CountDownLatch done;
+    volatile boolean committed;
+    // Set if committing the group this update is in threw.
+    volatile RuntimeException error;
+
+    PendingUpdate(Operation op) {
+      this.op = op;
+      this.done = new CountDownLatch(1);
+      this.committed = false;
+      this.error = null;
+    }
+  }
+
+  private final TorcDb2ConnectionState cState;
+  private final Graph graph;
+  private final Lock lock;
+  private final int maxOps;
+  private final long windowNanos;
+  private final BlockingQueue<PendingUpdate> queue;
+
+  /**
+   * Constructor for UpdateBatcher. Starts the committer thread.
+   *
+   * @param cState Connection state holding the graph to commit updates to,
+   * and the retry policy and stats to use.
+   * @param lock Lock to hold while using the graph.
+   * @param maxOps Maximum number of updates to commit in one transaction.
+   * @param windowMicros Maximum time to wait for more updates after the first
+   * update of a group arrives.
+   */
+  public UpdateBatcher(TorcDb2ConnectionState cState, Lock lock, int maxOps,
+      long windowMicros) {
+    this.cState = cState;
+    this.graph = cState.getGraph();
+    this.lock = lock;
+    this.maxOps = maxOps;
+    this.windowNanos = windowMicros * 1000L;
+    this.queue = new LinkedBlockingQueue<>();
+
+    Thread committer = new Thread(new Runnable() {
+          @Override
+          public void run() {
+            commitLoop();
+          }
+        }, "UpdateBatcher");
+    committer.setDaemon(true);
+    committer.start();
+
+    System.out.println(String.format("UpdateBatcher: {maxOps: %d, windowMicros: %d}",
+        maxOps, windowMicros));
+  }
+
+  /**
+   * Returns whether op is one of the updates that this class can execute.
+   */
+  public static boolean isBatchable(Operation op) {
+    return op instanceof LdbcUpdate2AddPostLike ||
+        op instanceof LdbcUpdate3AddCommentLike ||
+        op instanceof LdbcUpdate5AddForumMembership ||
+        op instanceof LdbcUpdate8AddFriendship;
+  }
+
+  /**
+   * Executes an update as part of a group, blocking until it has been
+   * committed.
+   *
+   * @param op The update. Must be batchable.
+   *
+   * @return True if the update was committed, false if the retry policy gave
+   * up on it.
+   *
+   * @throws RuntimeException If the committer thread encountered an error
+   * while committing the update. The update was not committed.
+   */
+  public boolean execute(Operation op) throws InterruptedException {
+    if (!isBatchable(op))
+      throw new IllegalArgumentException("Operation can't be batched: " + op);
+
+    PendingUpdate update = new PendingUpdate(op);
+    queue.put(update);
+    update.done.await();
+
+    if (update.error != null)
+      throw new RuntimeException("Error committing " + op, update.error);
+
+    return update.committed;
+  }
+
+  private void commitLoop() {
+    List<PendingUpdate> group = new ArrayList<>(maxOps);
+    while (true) {
+      try {
+        group.add(queue.take());
+
+        long deadline = System.nanoTime() + windowNanos;
+        while (group.size() < maxOps) {
+          long remaining = deadline - System.nanoTime();
+          PendingUpdate update = (remaining > 0) ?
+              queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+          if (update == null)
+            break;
+          group.add(update);
+        }
+
+        commit(group);
+      } catch (InterruptedException e) {
+        return;
+      } catch (RuntimeException e) {
+        // Hand the error to the waiting clients rather than letting it kill
+        // this thread.
+        for (PendingUpdate update : group)
+          if (!update.committed)
+            update.error = e;
+      } finally {
+        for (PendingUpdate update : group)
+          update.done.countDown();
+        group.clear();
+      }
+    }
+  }
+
+  private void commit(List<PendingUpdate> group) {
+    lock.lock();
+    try {
+      TxRetry groupRetry = new TxRetry(GROUP_POLICY, cState.txStats(), "UpdateBatcherGroup");
+      while (groupRetry.attempt()) {
+        graph.beginTx();
+        for (PendingUpdate update : group)
+          addToTx(update.op);
+
+        if (graph.commitAndSyncTx()) {
+          groupRetry.committed();
+          for (PendingUpdate update : group)
+            update.committed = true;
+          return;
+        }
+      }
+
+      // Something in the group conflicted, fall back to committing each
+      // update on its own.
+      for (PendingUpdate update : group) {
+        TxRetry retry = cState.txRetry(update.op);
+        while (retry.attempt()) {
+          graph.beginTx();
+
+          addToTx(update.op);
+
+          if (graph.commitAndSyncTx()) {
+            retry.committed();
+            update.committed = true;
+            break;
+          }
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void addToTx(Operation op) {
+    if (op instanceof LdbcUpdate2AddPostLike)
+      TorcDb2.LdbcUpdate2AddPostLikeHandler.addToTx(graph, (LdbcUpdate2AddPostLike) op);
+    else if (op instanceof LdbcUpdate3AddCommentLike)
+      TorcDb2.LdbcUpdate3AddCommentLikeHandler.addToTx(graph, (LdbcUpdate3AddCommentLike) op);
+    else if (op instanceof LdbcUpdate5AddForumMembership)
+      TorcDb2.LdbcUpdate5AddForumMembershipHandler.addToTx(graph,
+          (LdbcUpdate5AddForumMembership) op);
+    else if (op instanceof LdbcUpdate8AddFriendship)
+      TorcDb2.LdbcUpdate8AddFriendshipHandler.addToTx(graph, (LdbcUpdate8AddFriendship) op);
+  }
+}
@@ -0,0 +1,405 @@
+/*
+ * Copyright (C) 2019 Stanford University
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.ellitron.ldbcsnbimpls.interactive.torcdb2;
+
+import net.ellitron.ldbcsnbimpls.interactive.torcdb2.LdbcSerializableQueriesAndResults.*;
+
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery1Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery2Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery3Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery4Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery5Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery6Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery7Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery8Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery9Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery10Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery11Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery12Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery13Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcQuery14Result;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery1PersonProfileResult;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery2PersonPostsResult;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery3PersonFriendsResult;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery4MessageContentResult;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery5MessageCreatorResult;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery6MessageForumResult;
+import com.ldbc.driver.workloads.ldbc.snb.interactive.LdbcShortQuery7MessageRepliesResult;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Round trip tests of ResponseEncoder and ResponseDecoder. Every result type
+ * is encoded and decoded again with ordinary values, with null strings and
+ * lists, with empty lists, and with strings much longer than the encoder's
+ * buffers, and the decoded result is compared field by field with the
+ * serializable form of the original (what the server sends to clients using
+ * Java serialization).
+ *
+ * @author Jonathan Ellithorpe (jde@cs.stanford.edu)
+ */
+public class ResponseCodecTest extends TestCase {
+
+  /*
+   * Small buffers, so that responses span many of them and long strings are
+   * split across buffer boundaries.
+   */
+  private static final int BUFFER_SIZE = 64;
+
+  /*
+   * Mixes 1, 2, 3 and 4 byte UTF-8 characters, so that multi-byte characters
+   * land on buffer boundaries.
+   */
+  private static final String LONG_STRING = longString(100000);
+
+  private BufferPool pool;
+
+  @Override
+  protected void setUp() {
+    pool = new BufferPool(BUFFER_SIZE, 4);
+  }
+
+  public void testNoResult() throws Exception {
+    Object decoded = roundTrip(LdbcNoResultSerializable.INSTANCE);
+    assertTrue(decoded instanceof LdbcNoResultSerializable);
+  }
+
+  public void testEmptyList() throws Exception {
+    assertRoundTrip(new ArrayList<Object>());
+  }
+
+  public void testBatch() throws Exception {
+    List<Object> responses = new ArrayList<>();
+    responses.add(LdbcNoResultSerializable.INSTANCE);
+    responses.add(Arrays.asList(query4("tag", 1), query4(null, 2)));
+    responses.add(new ArrayList<Object>());
+    responses.add(new LdbcShortQuery4MessageContentResult(LONG_STRING, 3L));
+    responses.add(new LdbcErrorSerializable("java.lang.RuntimeException: " + LONG_STRING));
+    responses.add(new LdbcErrorSerializable(null));
+
+    Object decoded = roundTrip(new LdbcBatchResultSerializable(responses));
+    assertTrue(decoded instanceof LdbcBatchResultSerializable);
+
+    List<Object> decodedResponses = ((LdbcBatchResultSerializable) decoded).responses;
+    assertEquals(responses.size(), decodedResponses.size());
+    assertTrue(decodedResponses.get(0) instanceof LdbcNoResultSerializable);
+    for (int i = 1; i < responses.size(); i++) {
+      Object expected = responses.get(i);
+      if (!(expected instanceof LdbcErrorSerializable))
+        expected = LdbcSerializableQueriesAndResults.pack(expected);
+      assertEqualValues("responses[" + i + "]", expected, decodedResponses.get(i));
+    }
+  }
+
+  public void testQuery1() throws Exception {
+    List<List<Object>> universities = new ArrayList<>();
+    universities.add(Arrays.<Object>asList("Stanford", 2010, "Palo Alto"));
+    universities.add(Arrays.<Object>asList(null, 2011L, 1.5, true));
+    List<List<Object>> companies = new ArrayList<>();
+    companies.add(new ArrayList<Object>());
+    companies.add(null);
+
+    assertRoundTrip(Arrays.asList(
+        new LdbcQuery1Result(1L, "Last", 2, 3L, 4L, "female", "Firefox", "1.2.3.4",
+            Arrays.asList("a@b.com", "c@d.com"), Arrays.asList("en", "fr"), "City",
+            universities, companies),
+        new LdbcQuery1Result(-1L, null, 0, Long.MIN_VALUE, Long.MAX_VALUE, null, null, null,
+            Collections.<String>emptyList(), null, null,
+            Collections.<List<Object>>emptyList(), null),
+        new LdbcQuery1Result(5L, LONG_STRING, 1, 6L, 7L, LONG_STRING, LONG_STRING,
+            LONG_STRING, Arrays.asList(LONG_STRING, null), Arrays.asList((String) null),
+            LONG_STRING, Arrays.asList(Arrays.<Object>asList(LONG_STRING)), companies)));
+  }
+
+  public void testQuery2() throws Exception {
+    assertRoundTrip(Arrays.asList(
+        new LdbcQuery2Result(1L, "First", "Last", 2L, "content", 3L),
+        new LdbcQuery2Result(1L, null, null, 2L, null, 3L),
+        new LdbcQuery2Result(1L, LONG_STRING, LONG_STRING, 2L, LONG_STRING, 3L)));
+  }
+
+  public void testQuery3() throws Exception {
+    assertRoundTrip(Arrays.asList(
+        new LdbcQuery3Result(1L, "First", "Last", 2L, 3L, 5L),
+        new LdbcQuery3Result(1L, null, null, 0L, 0L, 0L),
+        new LdbcQuery3Result(1L, LONG_STRING, LONG_STRING, 2L, 3L, 5L)));
+  }
+
+  public void testQuery4() throws Exception {
+    assertRoundTrip(Arrays.asList(query4("tag", 1), query4(null, 0), query4(LONG_STRING, 2)));
+  }
+
+  public void testQuery5() throws Exception {
+    assertRoundTrip(Arrays.asList(
+        new LdbcQuery5Result("forum", 1),
+        new LdbcQuery5Result(null, 0),
+        new LdbcQuery5Result(LONG_STRING, Integer.MAX_VALUE)));
+  }
+
+  public void testQuery6() throws Exception {
+    assertRoundTrip(Arrays.asList(
+        new LdbcQuery6Result("tag", 1),
+        new LdbcQuery6Result(null, 0),
+        new LdbcQuery6Result(LONG_STRING, Integer.MIN_VALUE)));
+  }
+
+  public void testQuery7() throws Exception {
+    assertRoundTrip(Arrays.asList(
+        new LdbcQuery7Result(1L, "First", "Last", 2L, 3L, "content", 4, true),
+        new LdbcQuery7Result(1L, null, null, 2L, 3L, null, 0, false),
+        new LdbcQuery7Result(1L, LONG_STRING, LONG_STRING, 2L, 3L, LONG_STRING, 4, true)));
+  }
+
+  public void testQuery8() throws Exception {
+    assertRoundTrip(Arrays.asList(
+        new LdbcQuery8Result(1L, "First", "Last", 2L, 3L, "content"),
+        new LdbcQuery8Result(1L, null, null, 2L, 3L, null),
+        new LdbcQuery8Result(1L, LONG_STRING, LONG_STRING, 2L, 3L, LONG_STRING)));
+  }
+
+  public void testQuery9() throws Exception {
+    assertRoundTrip(Arrays.asList(
+        new LdbcQuery9Result(1L, "First", "Last", 2L, "content", 3L),
+        new LdbcQuery9Result(1L, null, null, 2L, null, 3L),
+        new LdbcQuery9Result(1L, LONG_STRING, LONG_STRING, 2L, LONG_STRING, 3L)));
+  }
+
+  public void testQuery10() throws Exception {
+    assertRoundTrip(Arrays.asList(
+        new LdbcQuery10Result(1L, "First", "Last", -2, "male", "City"),
+        new LdbcQuery10Result(1L, null, null, 0, null, null),
+        new LdbcQuery10Result(1L, LONG_STRING, LONG_STRING, 2, LONG_STRING, LONG_STRING)));
+  }
+
+  public void testQuery11() throws Exception {
+    assertRoundTrip(Arrays.asList(
+        new LdbcQuery11Result(1L, "First", "Last", "Company", 2000),
+        new LdbcQuery11Result(1L, null, null, null, 0),
+        new LdbcQuery11Result(1L, LONG_STRING, LONG_STRING, LONG_STRING, 2000)));
+  }
+
+  public void testQuery12() throws Exception {
+    assertRoundTrip(Arrays.asList(
+        new LdbcQuery12Result(1L, "First", "Last", Arrays.asList("tag1", "tag2"), 3),
+        new LdbcQuery12Result(1L, null, null, Collections.<String>emptyList(), 0),
+        new LdbcQuery12Result(1L, null, null, null, 0),
+        new LdbcQuery12Result(1L, LONG_STRING, LONG_STRING,
+            Arrays.asList(LONG_STRING, null, ""), 3)));
+  }
+
+  public void testQuery13() throws Exception {
+    assertRoundTrip(new LdbcQuery13Result(3));
+    assertRoundTrip(new LdbcQuery13Result(-1));
+  }
+
+  public void testQuery14() throws Exception {
+    assertRoundTrip(Arrays.asList(
+        new LdbcQuery14Result(Arrays.asList(1L, 2L, 3L), 1.5),
+        new LdbcQuery14Result(Collections.<Long>emptyList(), 0.0),
+        new LdbcQuery14Result(null, -0.5)));
+  }
+
+  public void testShortQuery1() throws Exception {
+    assertRoundTrip(new LdbcShortQuery1PersonProfileResult("First", "Last", 1L, "1.2.3.4",
+          "Firefox", 2L, "female", 3L));
+    assertRoundTrip(new LdbcShortQuery1PersonProfileResult(null, null, 1L, null, null, 2L,
+          null, 3L));
+    assertRoundTrip(new LdbcShortQuery1PersonProfileResult(LONG_STRING, LONG_STRING, 1L,
+          LONG_STRING, LONG_STRING, 2L, LONG_STRING, 3L));
+  }
+
+  public void testShortQuery2() throws Exception {
+    assertRoundTrip(Arrays.asList(
+        new LdbcShortQuery2PersonPostsResult(1L, "content", 2L, 3L, 4L, "First", "Last"),
+        new LdbcShortQuery2PersonPostsResult(1L, null, 2L, 3L, 4L, null, null),
+        new LdbcShortQuery2PersonPostsResult(1L, LONG_STRING, 2L, 3L, 4L, LONG_STRING,
+            LONG_STRING)));
+  }
+
+  public void testShortQuery3() throws Exception {
+    assertRoundTrip(Arrays.asList(
+        new LdbcShortQuery3PersonFriendsResult(1L, "First", "Last", 2L),
+        new LdbcShortQuery3PersonFriendsResult(1L, null, null, 2L),
+        new LdbcShortQuery3PersonFriendsResult(1L, LONG_STRING, LONG_STRING, 2L)));
+  }
+
+  public void testShortQuery4() throws Exception {
+    assertRoundTrip(new LdbcShortQuery4MessageContentResult("content", 1L));
+    assertRoundTrip(new LdbcShortQuery4MessageContentResult(null, 1L));
+    assertRoundTrip(new LdbcShortQuery4MessageContentResult("", 1L));
+    assertRoundTrip(new LdbcShortQuery4MessageContentResult(LONG_STRING, 1L));
+  }
+
+  public void testShortQuery5() throws Exception {
+    assertRoundTrip(new LdbcShortQuery5MessageCreatorResult(1L, "First", "Last"));
+    assertRoundTrip(new LdbcShortQuery5MessageCreatorResult(1L, null, null));
+    assertRoundTrip(new LdbcShortQuery5MessageCreatorResult(1L, LONG_STRING, LONG_STRING));
+  }
+
+  public void testShortQuery6() throws Exception {
+    assertRoundTrip(new LdbcShortQuery6MessageForumResult(1L, "title", 2L, "First", "Last"));
+    assertRoundTrip(new LdbcShortQuery6MessageForumResult(1L, null, 2L, null, null));
+    assertRoundTrip(new LdbcShortQuery6MessageForumResult(1L, LONG_STRING, 2L, LONG_STRING,
+          LONG_STRING));
+  }
+
+  public void testShortQuery7() throws Exception {
+    assertRoundTrip(Arrays.asList(
+        new LdbcShortQuery7MessageRepliesResult(1L, "content", 2L, 3L, "First", "Last", true),
+        new LdbcShortQuery7MessageRepliesResult(1L, null, 2L, 3L, null, null, false),
+        new LdbcShortQuery7MessageRepliesResult(1L, LONG_STRING, 2L, 3L, LONG_STRING,
+            LONG_STRING, true)));
+  }
+
+  public void testResponsesOnOneConnection() throws Exception {
+    // Responses written one after the other are read back one at a time.
+    ResponseEncoder encoder = new ResponseEncoder(pool);
+    BytesChannel channel = new BytesChannel();
+    encoder.write(channel, new LdbcQuery13Result(1));
+    encoder.write(channel, new LdbcShortQuery4MessageContentResult(LONG_STRING, 2L));
+    encoder.write(channel, LdbcNoResultSerializable.INSTANCE);
+
+    ResponseDecoder decoder =
+        new ResponseDecoder(new ByteArrayInputStream(channel.toByteArray()));
+    assertEqualValues("response",
+        LdbcSerializableQueriesAndResults.pack(new LdbcQuery13Result(1)), decoder.read());
+    assertEqualValues("response", LdbcSerializableQueriesAndResults.pack(
+          new LdbcShortQuery4MessageContentResult(LONG_STRING, 2L)), decoder.read());
+    assertTrue(decoder.read() instanceof LdbcNoResultSerializable);
+  }
+
+  private static LdbcQuery4Result query4(String tagName, int postCount) {
+    return new LdbcQuery4Result(tagName, postCount);
+  }
+
+  /*
+   * Encodes a response and decodes it again.
+   */
+  private Object roundTrip(Object response) throws Exception {
+    ResponseEncoder encoder = new ResponseEncoder(pool);
+    BytesChannel channel = new BytesChannel();
+    encoder.write(channel, response);
+
+    ResponseDecoder decoder =
+        new ResponseDecoder(new ByteArrayInputStream(channel.toByteArray()));
+    return decoder.read();
+  }
+
+  /*
+   * Checks that a query handler result (a result object or a list of them)
+   * decodes to its serializable form.
+   */
+  private void assertRoundTrip(Object result) throws Exception {
+    assertEqualValues("result", LdbcSerializableQueriesAndResults.pack(result),
+        roundTrip(result));
+  }
+
+  /*
+   * Compares serializable results by their public fields, and collections by
+   * their elements, since neither the serializable result classes nor the
+   * collections that the decoder makes implement equality with the originals.
+   */
+  private static void assertEqualValues(String path, Object expected, Object actual)
+      throws Exception {
+    if (expected == null || actual == null) {
+      assertEquals(path, expected, actual);
+    } else if (expected instanceof Iterable) {
+      assertTrue(path + " is not a collection", actual instanceof Iterable);
+      List<Object> e = toList((Iterable<?>) expected);
+      List<Object> a = toList((Iterable<?>) actual);
+      assertEquals(path + " size", e.size(), a.size());
+      for (int i = 0; i < e.size(); i++)
+        assertEqualValues(path + "[" + i + "]", e.get(i), a.get(i));
+    } else if (expected.getClass().getEnclosingClass()
+        == LdbcSerializableQueriesAndResults.class) {
+      assertEquals(path, expected.getClass(), actual.getClass());
+      for (Field f : expected.getClass().getFields())
+        if (!Modifier.isStatic(f.getModifiers()))
+          assertEqualValues(path + "." + f.getName(), f.get(expected), f.get(actual));
+    } else {
+      assertEquals(path, expected, actual);
+    }
+  }
+
+  private static List<Object> toList(Iterable<?> it) {
+    List<Object> list = new ArrayList<>();
+    for (Object o : it)
+      list.add(o);
+    return list;
+  }
+
+  private static String longString(int n) {
+    String chars = "aZ9 \u00e9\u00df\u4e2d\u6587\ud83d\ude00";
+    StringBuilder sb = new StringBuilder(n);
+    while (sb.length() < n)
+      sb.append(chars);
+    return sb.toString();
+  }
+
+  /**
+   * Channel that collects everything written to it in memory.
+   */
+  private static class BytesChannel implements GatheringByteChannel {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    @Override
+    public int write(ByteBuffer src) {
+      int n = src.remaining();
+      byte[] b = new byte[n];
+      src.get(b);
+      bytes.write(b, 0, n);
+      return n;
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) {
+      long n = 0;
+      for (int i = offset; i < offset + length; i++)
+        n += write(srcs[i]);
+      return n;
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs) {
+      return write(srcs, 0, srcs.length);
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    byte[] toByteArray() {
+      return bytes.toByteArray();
+    }
+  }
+}